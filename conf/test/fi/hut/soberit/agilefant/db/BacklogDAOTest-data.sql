@@ -6,7 +6,7 @@ INSERT INTO stories (id, iteration_id, name, storypoints, state) VALUES (2, 1, '
 INSERT INTO stories (id, iteration_id, name, storypoints, state) VALUES (3, 1, 'Story 3', 5,  0);
 
 /** DATA FOR RECURSIVE CALCULATION OF STORY POINTS **/
-INSERT INTO backlogs (id, backlogtype, name, rank) VALUES (3, 'Project', 'Project 1', 0);
+INSERT INTO backlogs (id, backlogtype, name, rank, startDate, endDate) VALUES (3, 'Project', 'Project 1', 0, '2009-06-01 00:00:00', '2009-06-30 00:00:00');
 INSERT INTO backlogs (id, parent_id, backlogtype, name) VALUES (4, 3, 'Iteration', 'Iteration 4');
 INSERT INTO backlogs (id, parent_id, backlogtype, name) VALUES (5, 3, 'Iteration', 'Iteration 4');
 
@@ -0,0 +1,4 @@
+INSERT INTO users (id, enabled, recentItemsNumberOfWeeks) VALUES (1, true, 1);
+INSERT INTO users (id, enabled, recentItemsNumberOfWeeks) VALUES (2, true, 1);
+
+INSERT INTO holiday (id, user_id, startDate, endDate) VALUES (1, 1, '2009-06-01 00:00:00', '2009-06-05 00:00:00');
@@ -0,0 +1,22 @@
+INSERT INTO backlogs (id, backlogtype, name, startDate, endDate) VALUES (1, 'Iteration', 'Iteration 1', '2009-05-20 10:15:00', '2009-07-01 10:15:00');
+
+INSERT INTO users (id, enabled, recentItemsNumberOfWeeks) VALUES (1, true, 1);
+INSERT INTO users (id, enabled, recentItemsNumberOfWeeks) VALUES (2, true, 1);
+
+INSERT INTO stories (id, iteration_id, name, storypoints, state) VALUES (1, 1, 'Story 1', 10, 0);
+INSERT INTO stories (id, iteration_id, name, storypoints, state) VALUES (2, 1, 'Story 2', 5,  5);
+
+INSERT INTO labels (id, displayName, name, story_id) VALUES (1, 'Kissa', 'kissa', 1);
+INSERT INTO labels (id, displayName, name, story_id) VALUES (2, 'Koira', 'koira', 1);
+
+INSERT INTO tasks (id, state, iteration_id, story_id) VALUES (1, 1, NULL, 1);
+INSERT INTO tasks (id, state, iteration_id, story_id) VALUES (2, 5, NULL, 1);
+INSERT INTO tasks (id, state, iteration_id, story_id) VALUES (3, 5, 1, NULL);
+INSERT INTO tasks (id, state, iteration_id, story_id) VALUES (4, 1, NULL, 2);
+
+INSERT INTO task_user (tasks_id, responsibles_id) VALUES (1, 1);
+INSERT INTO task_user (tasks_id, responsibles_id) VALUES (1, 2);
+INSERT INTO task_user (tasks_id, responsibles_id) VALUES (3, 1);
+
+INSERT INTO whatsnextentry (id, rank, task_id, user_id) VALUES (1, 0, 1, 1);
+INSERT INTO whatsnextentry (id, rank, task_id, user_id) VALUES (2, 0, 3, 2);
@@ -0,0 +1,13 @@
+INSERT INTO stories (id, iteration_id, name, storypoints, state) VALUES (19, 2, 'Deferred story', 8, 6);
+INSERT INTO tasks (id, state, iteration_id, story_id) VALUES (8, 5, NULL, 19);
+
+INSERT INTO hourentries (id, dtype, minutesspent, user_id, backlog_id) VALUES (1, 'BacklogHourEntry', 10, 1, 1);
+INSERT INTO hourentries (id, dtype, minutesspent, user_id, task_id) VALUES (2, 'TaskHourEntry', 20, 1, 3);
+INSERT INTO hourentries (id, dtype, minutesspent, user_id, task_id) VALUES (3, 'TaskHourEntry', 30, 1, 1);
+INSERT INTO hourentries (id, dtype, minutesspent, user_id, story_id) VALUES (4, 'StoryHourEntry', 40, 1, 1);
+INSERT INTO hourentries (id, dtype, minutesspent, user_id, story_id) VALUES (5, 'StoryHourEntry', 7, 1, 3);
+
+INSERT INTO history_iterations (id, effortleftsum, originalestimatesum, deltaoriginalestimate, iteration_id, timestamp) VALUES (1, 60, 60, 0, 1, '2009-06-01 00:00:00');
+INSERT INTO history_iterations (id, effortleftsum, originalestimatesum, deltaoriginalestimate, iteration_id, timestamp) VALUES (2, 50, 60, 0, 1, '2009-06-02 00:00:00');
+INSERT INTO history_iterations (id, effortleftsum, originalestimatesum, deltaoriginalestimate, iteration_id, timestamp) VALUES (3, 40, 70, 0, 1, '2009-06-03 00:00:00');
+INSERT INTO history_iterations (id, effortleftsum, originalestimatesum, deltaoriginalestimate, iteration_id, timestamp) VALUES (4, 20, 20, 0, 2, '2009-06-05 00:00:00');
@@ -8,4 +8,8 @@ INSERT INTO labels (id, displayName, name, story_id) VALUES (2, 'Matti', 'matti'
 
 INSERT INTO labels (id, displayName, name, story_id) VALUES (3, 'Mauno', 'mauno', 1);
 
-INSERT INTO labels (id, displayName, name, story_id) VALUES (4, 'Ulkomaalainen', 'ulkomaalainen', 1);
\ No newline at end of file
+INSERT INTO labels (id, displayName, name, story_id) VALUES (4, 'Ulkomaalainen', 'ulkomaalainen', 1);
+
+INSERT INTO stories (id,state, iteration_id, name) VALUES (2,1,1, 'Story without labels');
+
+INSERT INTO users (id, enabled, recentItemsNumberOfWeeks) VALUES (1, true, 1);
@@ -0,0 +1,12 @@
+INSERT INTO backlogs (id, backlogtype, name, description) VALUES (1, 'Product', 'Web shop', 'The online store');
+INSERT INTO backlogs (id, backlogtype, name, parent_id, rank) VALUES (2, 'Project', 'Shopping cart', 1, 0);
+INSERT INTO backlogs (id, backlogtype, name, parent_id) VALUES (3, 'Iteration', 'Cart sprint 1', 2);
+
+INSERT INTO stories (id, state, iteration_id, name, description) VALUES (1, 0, 3, 'Add items to cart', '<p>Customer can add <b>items</b></p>');
+INSERT INTO stories (id, state, iteration_id, name) VALUES (2, 0, 3, 'Checkout');
+
+INSERT INTO tasks (id, state, iteration_id, story_id, name, description) VALUES (1, 0, NULL, 1, 'Cart widget', NULL);
+INSERT INTO tasks (id, state, iteration_id, story_id, name, description) VALUES (2, 0, NULL, 2, 'Payment', 'Integrate with the card processor');
+
+INSERT INTO users (id, enabled, loginname, fullName, initials, recentItemsNumberOfWeeks) VALUES (1, true, 'user1', 'Carter Smith', 'CS', 1);
+INSERT INTO users (id, enabled, loginname, fullName, initials, recentItemsNumberOfWeeks) VALUES (2, true, 'user2', 'Jane Doe', 'JD', 1);
@@ -0,0 +1,13 @@
+INSERT INTO backlogs (id, parent_id, backlogtype, name) VALUES (1, null, 'Product', 'Product 1');
+
+INSERT INTO users (id, enabled, recentItemsNumberOfWeeks) VALUES (1, true, 1);
+INSERT INTO users (id, enabled, recentItemsNumberOfWeeks) VALUES (2, true, 1);
+
+INSERT INTO stories (id, backlog_id, name, state) VALUES (1, 1, 'Story 1', 0);
+INSERT INTO stories (id, backlog_id, name, state) VALUES (2, 1, 'Story 2', 0);
+
+INSERT INTO story_access_daily_counts (id, user_id, story_id, day, accessCount) VALUES (1, 1, 1, '2009-06-01', 3);
+INSERT INTO story_access_daily_counts (id, user_id, story_id, day, accessCount) VALUES (2, 1, 1, '2009-06-02', 2);
+INSERT INTO story_access_daily_counts (id, user_id, story_id, day, accessCount) VALUES (3, 1, 2, '2009-06-02', 1);
+INSERT INTO story_access_daily_counts (id, user_id, story_id, day, accessCount) VALUES (4, 2, 2, '2009-06-02', 7);
+INSERT INTO story_access_daily_counts (id, user_id, story_id, day, accessCount) VALUES (5, 1, 2, '2009-06-10', 4);
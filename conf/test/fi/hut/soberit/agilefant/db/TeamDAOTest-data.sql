@@ -0,0 +1,25 @@
+INSERT INTO backlogs (id,backlogtype,rank) VALUES (1,'Product',0);
+INSERT INTO backlogs (id,backlogtype,rank) VALUES (2,'Product',0);
+INSERT INTO backlogs (id,backlogtype,rank) VALUES (3,'Product',0);
+INSERT INTO backlogs (id,backlogtype,rank,startDate,endDate) VALUES (4,'Iteration',0,'2010-01-01 00:00:00','2010-02-01 00:00:00');
+INSERT INTO backlogs (id,backlogtype,rank,startDate,endDate) VALUES (5,'Iteration',0,'2010-01-01 00:00:00','2010-02-01 00:00:00');
+
+INSERT INTO teams (id, name) VALUES (1, 'team1');
+INSERT INTO teams (id, name) VALUES (2, 'team2');
+INSERT INTO teams (id, name) VALUES (3, 'team3');
+
+INSERT INTO users (id, enabled, loginname, recentItemsNumberOfWeeks) VALUES (1, true, 'user1', 1);
+INSERT INTO users (id, enabled, loginname, recentItemsNumberOfWeeks) VALUES (2, true, 'user2', 1);
+INSERT INTO users (id, enabled, loginname, recentItemsNumberOfWeeks) VALUES (3, true, 'user3', 1);
+
+INSERT INTO team_user (User_id, Team_id) VALUES (1,1);
+INSERT INTO team_user (User_id, Team_id) VALUES (1,2);
+INSERT INTO team_user (User_id, Team_id) VALUES (2,3);
+
+INSERT INTO team_product (Team_id, Product_id) VALUES (1,1);
+INSERT INTO team_product (Team_id, Product_id) VALUES (2,1);
+INSERT INTO team_product (Team_id, Product_id) VALUES (2,2);
+INSERT INTO team_product (Team_id, Product_id) VALUES (3,3);
+
+INSERT INTO team_iteration (Team_id, Iteration_id) VALUES (2,4);
+INSERT INTO team_iteration (Team_id, Iteration_id) VALUES (3,5);
@@ -0,0 +1,3 @@
+
+-- Indexes that hbm2ddl cannot create, kept in line with the upgrader
+create index stories_treePath on stories (treePath(255));
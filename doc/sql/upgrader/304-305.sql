@@ -0,0 +1,7 @@
+INSERT INTO settings (`name`, `value`, `description`) VALUES ('AgilefantDatabaseVersion', '305', 'Agilefant database version') ON DUPLICATE KEY UPDATE `value`="305";
+create table hourentry_daily_sums (id integer not null auto_increment, backlog_id integer, day date not null, minutesSpent bigint not null, story_id integer, task_id integer, user_id integer not null, primary key (id)) ENGINE=InnoDB;
+create index hourentry_daily_sums_user_day on hourentry_daily_sums (user_id, day);
+create index hourentry_daily_sums_backlog on hourentry_daily_sums (backlog_id);
+create index hourentry_daily_sums_story on hourentry_daily_sums (story_id);
+create index hourentry_daily_sums_task on hourentry_daily_sums (task_id);
+insert into hourentry_daily_sums (user_id, day, backlog_id, story_id, task_id, minutesSpent) select user_id, cast(date as date), backlog_id, story_id, task_id, sum(minutesSpent) from hourentries where user_id is not null and date is not null group by user_id, cast(date as date), backlog_id, story_id, task_id having sum(minutesSpent) <> 0;
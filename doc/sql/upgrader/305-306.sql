@@ -0,0 +1,11 @@
+INSERT INTO settings (`name`, `value`, `description`) VALUES ('AgilefantDatabaseVersion', '306', 'Agilefant database version') ON DUPLICATE KEY UPDATE `value`="306";
+alter table hourentries add column product_id integer, add column project_id integer, add column iteration_id integer;
+create index hourentries_product on hourentries (product_id);
+create index hourentries_project on hourentries (project_id);
+create index hourentries_iteration on hourentries (iteration_id);
+create temporary table hourentry_paths (id integer not null, iteration_id integer, backlog_id integer, primary key (id)) ENGINE=InnoDB;
+insert into hourentry_paths (id, iteration_id, backlog_id) select he.id, case when t.story_id is null then t.iteration_id else s.iteration_id end, s.backlog_id from hourentries he join tasks t on t.id = he.task_id left join stories s on s.id = t.story_id;
+insert into hourentry_paths (id, iteration_id, backlog_id) select he.id, s.iteration_id, s.backlog_id from hourentries he join stories s on s.id = he.story_id;
+insert into hourentry_paths (id, iteration_id, backlog_id) select he.id, null, he.backlog_id from hourentries he where he.backlog_id is not null;
+update hourentries he join hourentry_paths p on p.id = he.id left join backlogs i1 on i1.id = p.iteration_id left join backlogs i2 on i2.id = i1.parent_id left join backlogs i3 on i3.id = i2.parent_id left join backlogs b1 on b1.id = p.backlog_id left join backlogs b2 on b2.id = b1.parent_id left join backlogs b3 on b3.id = b2.parent_id set he.iteration_id = coalesce(case when i1.backlogtype = 'Iteration' then i1.id end, case when i2.backlogtype = 'Iteration' then i2.id end, case when i3.backlogtype = 'Iteration' then i3.id end, case when b1.backlogtype = 'Iteration' then b1.id end, case when b2.backlogtype = 'Iteration' then b2.id end, case when b3.backlogtype = 'Iteration' then b3.id end), he.project_id = coalesce(case when i1.backlogtype = 'Project' then i1.id end, case when i2.backlogtype = 'Project' then i2.id end, case when i3.backlogtype = 'Project' then i3.id end, case when b1.backlogtype = 'Project' then b1.id end, case when b2.backlogtype = 'Project' then b2.id end, case when b3.backlogtype = 'Project' then b3.id end), he.product_id = coalesce(case when i1.backlogtype = 'Product' then i1.id end, case when i2.backlogtype = 'Product' then i2.id end, case when i3.backlogtype = 'Product' then i3.id end, case when b1.backlogtype = 'Product' then b1.id end, case when b2.backlogtype = 'Product' then b2.id end, case when b3.backlogtype = 'Product' then b3.id end);
+drop temporary table hourentry_paths;
@@ -0,0 +1,30 @@
+INSERT INTO settings (`name`, `value`, `description`) VALUES ('AgilefantDatabaseVersion', '307', 'Agilefant database version') ON DUPLICATE KEY UPDATE `value`="307";
+
+alter table stories add column treePath varchar(1024) DEFAULT NULL;
+
+create index stories_treePath on stories (treePath(255));
+
+update stories set treePath = '' where parent_id is null;
+
+DELIMITER //
+
+DROP PROCEDURE IF EXISTS UpdateStoryTreePaths //
+
+CREATE PROCEDURE UpdateStoryTreePaths()
+BEGIN
+  DECLARE updated_rows INT DEFAULT 1;
+
+  WHILE updated_rows > 0 DO
+    UPDATE stories c JOIN stories p ON c.parent_id = p.id
+      SET c.treePath = CONCAT(p.treePath, p.id, '/')
+      WHERE c.treePath IS NULL AND p.treePath IS NOT NULL
+        AND LENGTH(p.treePath) + LENGTH(p.id) < 1024;
+    SET updated_rows = ROW_COUNT();
+  END WHILE;
+END //
+
+DELIMITER ;
+
+CALL UpdateStoryTreePaths();
+
+DROP PROCEDURE IF EXISTS UpdateStoryTreePaths;
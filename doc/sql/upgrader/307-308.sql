@@ -0,0 +1,4 @@
+INSERT INTO settings (`name`, `value`, `description`) VALUES ('AgilefantDatabaseVersion', '308', 'Agilefant database version') ON DUPLICATE KEY UPDATE `value`="308";
+create table story_access_daily_counts (id integer not null auto_increment, accessCount bigint not null, day date not null, story_id integer not null, user_id integer not null, primary key (id), unique (user_id, story_id, day)) ENGINE=InnoDB;
+create index story_access_daily_counts_user_day on story_access_daily_counts (user_id, day);
+insert into story_access_daily_counts (user_id, story_id, day, accessCount) select user_id, story_id, cast(date as date), count(*) from story_access where date is not null group by user_id, story_id, cast(date as date);
@@ -0,0 +1,10 @@
+INSERT INTO settings (`name`, `value`, `description`) VALUES ('AgilefantDatabaseVersion', '309', 'Agilefant database version') ON DUPLICATE KEY UPDATE `value`="309";
+
+-- Space the story ranks of each backlog 1024 apart, keeping their order
+SET @rank_backlog := NULL, @rank_number := 0;
+
+UPDATE storyrank
+  SET `rank` = IF(backlog_id <=> @rank_backlog,
+    @rank_number := @rank_number + 1024,
+    @rank_number := LEAST(0, @rank_backlog := backlog_id))
+  ORDER BY backlog_id, `rank`, id;
@@ -0,0 +1,25 @@
+package fi.hut.soberit.agilefant.business;
+
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.AccessibleBacklogs;
+
+/**
+ * Resolves which backlogs users may access through their teams.
+ * <p>
+ * The accessible backlogs of a user are computed once and cached until the
+ * team assignments change. Any change to the members, products or
+ * iterations of a team must be followed by a call to
+ * <code>invalidate</code>.
+ */
+public interface BacklogAccessBusiness {
+
+    /**
+     * Get the backlogs the user may access.
+     */
+    public AccessibleBacklogs getAccessibleBacklogs(User user);
+
+    /**
+     * Drop the cached access rights of all users.
+     */
+    public void invalidate();
+}
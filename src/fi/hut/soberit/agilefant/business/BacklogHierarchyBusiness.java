@@ -0,0 +1,25 @@
+package fi.hut.soberit.agilefant.business;
+
+import fi.hut.soberit.agilefant.util.BacklogHierarchy;
+
+/**
+ * Keeps a shared snapshot of the backlog hierarchy for the menus, backlog
+ * choosers and access checks.
+ * <p>
+ * The snapshot is read once and replaced with a new one when the backlogs
+ * change. Storing, moving or deleting a product, project or iteration must
+ * be followed by a call to <code>invalidate</code>.
+ */
+public interface BacklogHierarchyBusiness {
+
+    /**
+     * Get the current snapshot of the backlog hierarchy.
+     */
+    public BacklogHierarchy getHierarchy();
+
+    /**
+     * Drop the snapshot now and again when the current transaction has
+     * completed.
+     */
+    public void invalidate();
+}
@@ -2,6 +2,7 @@ package fi.hut.soberit.agilefant.business;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.joda.time.DateTime;
@@ -12,6 +13,7 @@ import fi.hut.soberit.agilefant.model.BacklogHourEntry;
 import fi.hut.soberit.agilefant.model.HourEntry;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.transfer.DailySpentEffort;
 
 /**
@@ -71,6 +73,18 @@ public interface HourEntryBusiness extends GenericBusiness<HourEntry> {
 
     List<DailySpentEffort> getDailySpentEffortForHourEntries(List<? extends HourEntry> entries,
             DateTime start, DateTime end);
+
+    /**
+     * Construct a list with a single entry per day from the daily sums.
+     */
+    List<DailySpentEffort> getDailySpentEffortForDays(Map<LocalDate, Long> dailySums,
+            DateTime start, DateTime end);
+
+    /**
+     * Get the effort logged per day to the iteration and its stories and
+     * tasks from the daily sums, without loading the hour entries.
+     */
+    Map<LocalDate, Long> getDailySpentEffortSumsForIteration(Iteration iteration);
     
     List<DailySpentEffort> getDailySpentEffortByIteration(Iteration iteration);
     
@@ -95,4 +109,29 @@ public interface HourEntryBusiness extends GenericBusiness<HourEntry> {
     void moveToBacklog(Collection<? extends HourEntry> hourEntries,
             Backlog backlog);
 
+    /**
+     * Recalculate the daily sums of the logged effort from the hour entries.
+     * 
+     * @return the number of daily sums
+     */
+    int rebuildDailySums();
+
+    /**
+     * Update the backlogs stored in the hour entries of the story and its
+     * tasks after the story has been moved.
+     */
+    void updateBacklogPath(Story story);
+
+    /**
+     * Update the backlogs stored in the task's hour entries after the task
+     * has been moved.
+     */
+    void updateBacklogPath(Task task);
+
+    /**
+     * Update the parent backlogs stored in the hour entries under the
+     * backlog after the backlog has been moved.
+     */
+    void updateBacklogPath(Backlog backlog);
+
 }
@@ -1,6 +1,8 @@
 package fi.hut.soberit.agilefant.business;
 
 import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.transfer.ChartData;
+import fi.hut.soberit.agilefant.transfer.ChartImage;
 
 public interface IterationBurndownBusiness {
 
@@ -15,4 +17,39 @@ public interface IterationBurndownBusiness {
     public byte[] getSmallIterationBurndown (Iteration iteration, Integer timeZoneOffset);
     
     public byte[] getCustomIterationBurndown(Iteration iteration, Integer width, Integer height, Integer timeZoneOffset);
+
+    /**
+     * Gets the burndown image of the given size along with its version.
+     * <p>
+     * The image is rendered only if the iteration's history or spent effort
+     * has changed since the last time it was rendered with the same size
+     * and time zone offset. Otherwise the cached image is returned.
+     * 
+     * @param width
+     *            width of the image, or <code>null</code> for the default
+     * @param height
+     *            height of the image, or <code>null</code> for the default
+     * @param small
+     *            whether the image should be a trimmed small burndown
+     */
+    public ChartImage getIterationBurndownImage(Iteration iteration,
+            Integer width, Integer height, boolean small, Integer timeZoneOffset);
+
+    /**
+     * Calculates the version stamp of the iteration's burndown data.
+     * <p>
+     * The stamp changes whenever the rendered chart would change.
+     */
+    public String getIterationBurndownVersion(Iteration iteration);
+
+    /**
+     * Gets the burndown series of the given iteration for drawing the chart
+     * on the client.
+     * <p>
+     * The series are in the same order as in the rendered image.
+     * 
+     * @param timeZoneOffset the client's time zone offset in minutes
+     */
+    public ChartData getIterationBurndownData(Iteration iteration,
+            Integer timeZoneOffset);
 }
@@ -0,0 +1,33 @@
+package fi.hut.soberit.agilefant.business;
+
+import fi.hut.soberit.agilefant.transfer.ChartImage;
+
+/**
+ * Holds rendered burndown images so that an unchanged iteration is not
+ * re-rendered on every request.
+ * <p>
+ * Images are stored per iteration under a variant key (size, time zone
+ * offset) and are valid only for the version stamp they were rendered
+ * with.
+ */
+public interface IterationBurndownCacheBusiness {
+
+    /**
+     * Get the cached image for the given iteration and variant.
+     *
+     * @return the image, or <code>null</code> if nothing has been cached or
+     *         the cached image was rendered from another version.
+     */
+    public ChartImage retrieve(int iterationId, String variant, String version);
+
+    /**
+     * Cache an image for the given iteration and variant. Replaces any
+     * previously cached image of the variant.
+     */
+    public void store(int iterationId, String variant, ChartImage image);
+
+    /**
+     * Drop all cached images of the given iteration.
+     */
+    public void invalidate(int iterationId);
+}
@@ -1,7 +1,7 @@
 package fi.hut.soberit.agilefant.business;
 
 import java.util.Collection;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.joda.time.LocalDate;
@@ -10,8 +10,9 @@ import fi.hut.soberit.agilefant.model.ExactEstimate;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.IterationHistoryEntry;
 import fi.hut.soberit.agilefant.model.Task;
-import fi.hut.soberit.agilefant.transfer.AgilefantHistoryEntry;
 import fi.hut.soberit.agilefant.transfer.AssignmentTO;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedPage;
 import fi.hut.soberit.agilefant.transfer.IterationMetrics;
 import fi.hut.soberit.agilefant.transfer.IterationTO;
 
@@ -21,6 +22,17 @@ public interface IterationBusiness extends GenericBusiness<Iteration> {
 
     public IterationMetrics getIterationMetrics(Iteration iteration);
 
+    /**
+     * Calculates the metrics of several iterations at once.
+     * <p>
+     * The number of database queries does not depend on the number of
+     * iterations.
+     * 
+     * @return the metrics mapped by iteration id
+     */
+    public Map<Integer, IterationMetrics> getIterationMetricsForIterations(
+            Collection<Iteration> iterations);
+
     ExactEstimate calculateDailyVelocity(LocalDate startDate,
             IterationHistoryEntry yesterdayEntry);
 
@@ -43,16 +55,18 @@ public interface IterationBusiness extends GenericBusiness<Iteration> {
 
     void deleteAndUpdateHistory(int id);
 
-    public List<AgilefantHistoryEntry> retrieveChangesInIterationStories(
-            Iteration iteration);
-    
     public IterationTO retrieveIterationOnlyLeafStories(int iterationId);
 
-    public List<AgilefantHistoryEntry> retrieveChangesInIterationTasks(
-            Iteration iteration);
-    
-    public List<AgilefantHistoryEntry> renderSortedTaskAndStoryRevisions(
-            Iteration iteration);
+    /**
+     * Retrieve a page of the iteration's story and task changes, newest
+     * first.
+     * 
+     * @param after
+     *            the cursor of the page, or <code>null</code> for the first
+     *            page
+     */
+    public HistoryFeedPage retrieveHistoryPage(Iteration iteration,
+            HistoryFeedCursor after, int pageSize);
     
     public Iteration retreiveIterationByReadonlyToken(String readonlyToken);
     
@@ -1,9 +1,12 @@
 package fi.hut.soberit.agilefant.business;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import fi.hut.soberit.agilefant.model.Label;
+import fi.hut.soberit.agilefant.model.Story;
 
 public interface LabelBusiness extends GenericBusiness<Label> {
    
@@ -11,6 +14,15 @@ public interface LabelBusiness extends GenericBusiness<Label> {
     
     public void createStoryLabels(List<String> labelNames, Integer storyId);
 
+    /**
+     * Add the labels to each of the stories, which doesn't have them yet.
+     * The existing labels are read and the new labels inserted in bulk.
+     * 
+     * @return the added label names by story id
+     */
+    public Map<Integer, List<String>> createStoryLabels(
+            List<String> labelNames, Collection<Story> stories);
+
     List<Label> lookupLabelsLike(String labelName);
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,11 +1,27 @@
 package fi.hut.soberit.agilefant.business;
 
+import java.util.Collection;
+
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.transfer.ComputedLoadData;
+import fi.hut.soberit.agilefant.transfer.TeamLoadData;
 import fi.hut.soberit.agilefant.transfer.UserLoadLimits;
 
 public interface PersonalLoadBusiness {
     public ComputedLoadData retrieveUserLoad(User user, int weeksAhead);
 
+    /**
+     * Calculate the user's load using the data loaded for the whole team.
+     */
+    public ComputedLoadData retrieveUserLoad(User user, int weeksAhead,
+            TeamLoadData teamData);
+
+    /**
+     * Load the assignments and the iterations' total availabilities of the
+     * users once, for calculating the load of each of them.
+     */
+    public TeamLoadData retrieveTeamLoadData(Collection<Integer> userIds,
+            int weeksAhead);
+
     public UserLoadLimits getDailyLoadLimitsByUser(User user);
 }
@@ -1,6 +1,7 @@
 package fi.hut.soberit.agilefant.business;
 
 import fi.hut.soberit.agilefant.model.Project;
+import fi.hut.soberit.agilefant.transfer.ChartData;
 
 public interface ProjectBurnupBusiness {
 
@@ -8,4 +9,10 @@ public interface ProjectBurnupBusiness {
     
     byte[] getSmallBurnup(Project project);
 
+    /**
+     * Gets the burnup series of the given project for drawing the chart on
+     * the client.
+     */
+    ChartData getBurnupData(Project project);
+
 }
@@ -0,0 +1,29 @@
+package fi.hut.soberit.agilefant.business;
+
+/**
+ * Resolves the readonly tokens of the iterations.
+ * <p>
+ * The tokens are held in memory, so that checking a token does not need a
+ * database session. The tokens are reloaded periodically, and any change to
+ * the readonly token of an iteration must be followed by a call to
+ * <code>invalidate</code>.
+ */
+public interface ReadonlyTokenBusiness {
+
+    /**
+     * Get the id of the iteration shared with the token.
+     * 
+     * @return the iteration id, or <code>null</code> if the token is not valid
+     */
+    public Integer retrieveIterationId(String token);
+
+    /**
+     * Check whether the token shares an iteration.
+     */
+    public boolean isValidToken(String token);
+
+    /**
+     * Drop the cached tokens.
+     */
+    public void invalidate();
+}
@@ -17,4 +17,11 @@ public interface SearchBusiness {
     public List<SearchResultRow> searchUsers(String searchTerm);
     public List<SearchResultRow> searchTasks(String searchTerm);
     
+    /**
+     * Rebuild the search index from the database.
+     * 
+     * @return the number of indexed objects
+     */
+    public int rebuildSearchIndex();
+    
 }
@@ -4,7 +4,21 @@ import java.util.List;
 import java.util.Set;
 
 import fi.hut.soberit.agilefant.model.StoryState;
+import fi.hut.soberit.agilefant.transfer.StoryBatchResultTO;
 
 public interface StoryBatchBusiness {
-    public void modifyMultiple(Set<Integer> storyIds, StoryState state, List<String> labelNames);
+    /**
+     * Set the state of the stories and add the labels to them.
+     * <p>
+     * The stories are changed in bulk, and the history of each affected
+     * iteration and project is recalculated once.
+     * 
+     * @param state
+     *            the new state, or <code>null</code> to keep the states
+     * @param labelNames
+     *            the labels to add, or <code>null</code>
+     * @return the report of the changes
+     */
+    public StoryBatchResultTO modifyMultiple(Set<Integer> storyIds,
+            StoryState state, List<String> labelNames);
 }
@@ -9,5 +9,6 @@ public interface StoryFilterBusiness {
 
     List<Story> filterStories(List<Story> stories, StoryFilters storyFilters);
     public List<Story> filterStoryList(List<Story> stories, StoryFilters filters);
+    public boolean filterStory(Story story, StoryFilters storyFilters);
 
 }
@@ -71,4 +71,12 @@ public interface StoryHierarchyBusiness {
     public StoryTO recurseHierarchy(Story story);
 
     public StoryTreeBranchMetrics calculateStoryTreeMetrics(Story story);
+
+    /**
+     * Updates the tree paths of the story and its descendants.
+     * <p>
+     * Call this whenever the story's parent is changed.
+     * @param story the story, whose parent has changed
+     */
+    public void updateTreePath(Story story);
 }
@@ -0,0 +1,45 @@
+package fi.hut.soberit.agilefant.business;
+
+import java.util.List;
+
+import fi.hut.soberit.agilefant.transfer.StoryTO;
+import fi.hut.soberit.agilefant.util.StoryFilters;
+
+/**
+ * Loads whole story trees for rendering.
+ * <p>
+ * The stories, their responsibles and their labels are each loaded with a
+ * single query, and the tree is built from transfer objects that hold
+ * everything the tree views need. Walking the returned tree never loads
+ * anything lazily.
+ */
+public interface StoryTreeBusiness {
+
+    /**
+     * Retrieve the story tree of the product.
+     * 
+     * @param productId
+     * @param storyFilters
+     *            story filters, or null if no filtering is to be done. A story
+     *            is included if it or any of its descendants matches.
+     * @param maxDepth
+     *            the number of levels to include, or null to include the
+     *            whole tree
+     * @return the root stories of the product
+     */
+    public List<StoryTO> retrieveProductStoryTree(int productId,
+            StoryFilters storyFilters, Integer maxDepth);
+
+    /**
+     * Retrieve the story tree of the project.
+     * <p>
+     * The root stories of the project are placed under their ancestors in the
+     * product. The depth is counted from the project's root stories.
+     * 
+     * @see #retrieveProductStoryTree(int, StoryFilters, Integer)
+     * @see StoryHierarchyBusiness#retrieveProjectRootStories(int,
+     *      StoryFilters)
+     */
+    public List<StoryTO> retrieveProjectStoryTree(int projectId,
+            StoryFilters storyFilters, Integer maxDepth);
+}
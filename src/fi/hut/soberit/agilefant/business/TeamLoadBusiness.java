@@ -0,0 +1,32 @@
+package fi.hut.soberit.agilefant.business;
+
+import java.util.Collection;
+
+import fi.hut.soberit.agilefant.transfer.UserLoadTO;
+
+/**
+ * Calculates the load of several users at once.
+ */
+public interface TeamLoadBusiness {
+
+    /**
+     * Receives the users' loads as they are completed.
+     */
+    public interface UserLoadListener {
+        public void loadCompleted(UserLoadTO load);
+    }
+
+    /**
+     * Calculate the load of the users concurrently.
+     * <p>
+     * The assignments and the iterations' total availabilities are loaded
+     * once for all the users. Each user's load is then calculated in its own
+     * read-only transaction. Users that don't exist are skipped.
+     * <p>
+     * The listener is called on the calling thread for each load as soon as
+     * it has been completed. If a calculation or the listener fails, the
+     * remaining calculations are cancelled and the exception is thrown.
+     */
+    public void retrieveUsersLoad(Collection<Integer> userIds,
+            int weeksAhead, UserLoadListener listener);
+}
@@ -1,5 +1,7 @@
 package fi.hut.soberit.agilefant.business;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Set;
 
 import org.apache.poi.ss.usermodel.Font;
@@ -28,10 +30,36 @@ public interface TimesheetExportBusiness {
     public static final String DATE_FORMAT = "dd.mm.yyyy hh:mm";
     public static final String EFFORT_FORMAT = "#,##0.00";
     public static final short HEADER_FONT_WEIGHT = Font.BOLDWEIGHT_BOLD;
+    public static final int[] XLSX_COLUMN_WIDTHS = { 25, 25, 25, 55, 55, 55,
+            20, 15, 12 };
+    public static final String CSV_DATE_FORMAT = "dd.MM.yyyy HH:mm";
     
 
     public Workbook generateTimesheet(TextProvider textProvider,
             Set<Integer> backlogIds, DateTime startDate, DateTime endDate,
             Set<Integer> userIds);
 
+    /**
+     * Write the timesheet as an Excel 2007 workbook while the hour entries
+     * are read from the database.
+     * <p>
+     * Unlike <code>generateTimesheet</code>, the number of hour entries
+     * doesn't affect the memory used or limit the number of rows.
+     * 
+     * @return the number of hour entries written
+     */
+    public int writeTimesheetXlsx(TextProvider textProvider,
+            Set<Integer> backlogIds, DateTime startDate, DateTime endDate,
+            Set<Integer> userIds, OutputStream out) throws IOException;
+
+    /**
+     * Write the timesheet as UTF-8 encoded comma separated values while the
+     * hour entries are read from the database.
+     * 
+     * @return the number of hour entries written
+     */
+    public int writeTimesheetCsv(TextProvider textProvider,
+            Set<Integer> backlogIds, DateTime startDate, DateTime endDate,
+            Set<Integer> userIds, OutputStream out) throws IOException;
+
 }
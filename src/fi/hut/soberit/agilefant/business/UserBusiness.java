@@ -8,6 +8,7 @@ import org.joda.time.Interval;
 
 import fi.hut.soberit.agilefant.model.ExactEstimate;
 import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.WorkingDays;
 
 /**
  * Interface for user business.
@@ -56,8 +57,37 @@ public interface UserBusiness extends GenericBusiness<User> {
      * within the given timeframe.
      */
     public Duration calculateWorktimePerPeriod(User user, Interval interval);
+
+    /**
+     * Get the user's working days in the time zone of the interval, for
+     * calculating the worktime of several periods within it.
+     */
+    public WorkingDays getWorkingDays(User user, Interval interval);
     public ExactEstimate calculateWorkHoursPerPeriod(User user, Interval interval);
     
     public User retrieveByCredentials(String loginName, String password);
 
+    /**
+     * Get a reference to the user, which is read from the database only when
+     * it's used.
+     */
+    public User retrieveReference(int id);
+
+    /**
+     * Get the version of the users' data.
+     * <p>
+     * The version changes after a transaction, which has stored, enabled,
+     * disabled or changed the admin rights of a user, has completed. Data
+     * cached for a user is valid as long as the version hasn't changed.
+     * Each application run starts from a random version.
+     */
+    public long getUserDataVersion();
+
+    /**
+     * Remove the user's cached holidays, now and again when the transaction
+     * has completed. Must be called when the user's holidays or holiday
+     * anomalies are changed.
+     */
+    public void invalidateHolidays(User user);
+
 }
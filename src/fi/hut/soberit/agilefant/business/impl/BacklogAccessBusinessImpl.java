@@ -0,0 +1,80 @@
+package fi.hut.soberit.agilefant.business.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fi.hut.soberit.agilefant.business.BacklogAccessBusiness;
+import fi.hut.soberit.agilefant.db.TeamDAO;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.AccessibleBacklogs;
+import fi.hut.soberit.agilefant.util.IntSet;
+
+@Service("backlogAccessBusiness")
+@Transactional(readOnly = true)
+public class BacklogAccessBusinessImpl implements BacklogAccessBusiness {
+
+    @Autowired
+    private TeamDAO teamDAO;
+
+    private final Map<Integer, AccessibleBacklogs> accessibleBacklogs = new ConcurrentHashMap<Integer, AccessibleBacklogs>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Backlogs read while the access was being changed are returned but not
+     * kept, so the next call reads the committed changes.
+     */
+    public AccessibleBacklogs getAccessibleBacklogs(User user) {
+        AccessibleBacklogs accessible = accessibleBacklogs.get(user.getId());
+        if (accessible == null) {
+            long readVersion = version.get();
+            accessible = new AccessibleBacklogs(IntSet.of(teamDAO
+                    .retrieveProductIdsByUser(user.getId())), IntSet
+                    .of(teamDAO.retrieveIterationIdsByUser(user.getId())));
+            synchronized (this) {
+                if (version.get() == readVersion) {
+                    accessibleBacklogs.put(user.getId(), accessible);
+                }
+            }
+        }
+        return accessible;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clearing the cache again after the transaction has completed keeps a
+     * request running meanwhile from caching the access it read before the
+     * changes were committed.
+     */
+    public void invalidate() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager
+                    .registerSynchronization(new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            clear();
+                        }
+                    });
+        }
+    }
+
+    private synchronized void clear() {
+        version.incrementAndGet();
+        accessibleBacklogs.clear();
+    }
+
+    public void setTeamDAO(TeamDAO teamDAO) {
+        this.teamDAO = teamDAO;
+    }
+}
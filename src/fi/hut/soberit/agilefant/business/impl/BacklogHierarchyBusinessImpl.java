@@ -0,0 +1,74 @@
+package fi.hut.soberit.agilefant.business.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fi.hut.soberit.agilefant.business.BacklogHierarchyBusiness;
+import fi.hut.soberit.agilefant.db.BacklogDAO;
+import fi.hut.soberit.agilefant.util.BacklogHierarchy;
+
+@Service("backlogHierarchyBusiness")
+@Transactional(readOnly = true)
+public class BacklogHierarchyBusinessImpl implements BacklogHierarchyBusiness {
+
+    @Autowired
+    private BacklogDAO backlogDAO;
+
+    private volatile BacklogHierarchy hierarchy;
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A snapshot read while the backlogs were being changed is returned but
+     * not kept, so the next call reads the committed changes.
+     */
+    public BacklogHierarchy getHierarchy() {
+        BacklogHierarchy current = hierarchy;
+        if (current == null) {
+            long readVersion = version.get();
+            current = backlogDAO.retrieveHierarchy();
+            synchronized (this) {
+                if (version.get() == readVersion) {
+                    hierarchy = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Dropping the snapshot again after the transaction has completed keeps
+     * a request running meanwhile from caching the backlogs it read before
+     * the changes were committed.
+     */
+    public void invalidate() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager
+                    .registerSynchronization(new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            clear();
+                        }
+                    });
+        }
+    }
+
+    private synchronized void clear() {
+        version.incrementAndGet();
+        hierarchy = null;
+    }
+
+    public void setBacklogDAO(BacklogDAO backlogDAO) {
+        this.backlogDAO = backlogDAO;
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import fi.hut.soberit.agilefant.business.HolidayBusiness;
+import fi.hut.soberit.agilefant.business.UserBusiness;
 import fi.hut.soberit.agilefant.db.HolidayDAO;
 import fi.hut.soberit.agilefant.model.Holiday;
 import fi.hut.soberit.agilefant.model.User;
@@ -19,12 +20,19 @@ public class HolidayBusinessImpl extends GenericBusinessImpl<Holiday> implements
     
     private HolidayDAO holidayDAO;
     
+    private UserBusiness userBusiness;
+    
     @Autowired
     public void setHolidayDAO(HolidayDAO holidayDAO) {
         this.holidayDAO = holidayDAO;
         this.genericDAO = holidayDAO;
     }
 
+    @Autowired
+    public void setUserBusiness(UserBusiness userBusiness) {
+        this.userBusiness = userBusiness;
+    }
+
     public HolidayBusinessImpl() {
         super(Holiday.class);
     }
@@ -34,5 +42,51 @@ public class HolidayBusinessImpl extends GenericBusinessImpl<Holiday> implements
         return this.holidayDAO.retrieveFutureHolidaysByUser(user);
     }
 
-  
+    @Override
+    public int create(Holiday object) {
+        int id = super.create(object);
+        invalidateHolidays(object);
+        return id;
+    }
+
+    /**
+     * If the holiday is moved to another user, the previous user's cached
+     * holidays are invalidated too.
+     */
+    @Override
+    public void store(Holiday object) {
+        User previousUser = this.holidayDAO.retrieveStoredUser(object.getId());
+        super.store(object);
+        invalidateHolidays(object);
+        if (previousUser != null
+                && (object.getUser() == null || object.getUser().getId() != previousUser
+                        .getId())) {
+            this.userBusiness.invalidateHolidays(previousUser);
+        }
+    }
+
+    @Override
+    public void delete(Holiday object) {
+        invalidateHolidays(object);
+        super.delete(object);
+    }
+
+    @Override
+    public void delete(int id) {
+        Holiday holiday = this.holidayDAO.get(id);
+        if (holiday != null) {
+            invalidateHolidays(holiday);
+        }
+        super.delete(id);
+    }
+
+    /**
+     * The user's cached holidays are removed, so that the worktime is
+     * calculated with the changed holidays.
+     */
+    private void invalidateHolidays(Holiday holiday) {
+        if (holiday.getUser() != null) {
+            this.userBusiness.invalidateHolidays(holiday.getUser());
+        }
+    }
 }
@@ -3,7 +3,6 @@ package fi.hut.soberit.agilefant.business.impl;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,11 +20,13 @@ import org.springframework.transaction.annotation.Transactional;
 
 import fi.hut.soberit.agilefant.business.BacklogBusiness;
 import fi.hut.soberit.agilefant.business.HourEntryBusiness;
+import fi.hut.soberit.agilefant.business.IterationBurndownCacheBusiness;
 import fi.hut.soberit.agilefant.business.StoryBusiness;
 import fi.hut.soberit.agilefant.business.TaskBusiness;
 import fi.hut.soberit.agilefant.business.UserBusiness;
 import fi.hut.soberit.agilefant.db.BacklogHourEntryDAO;
 import fi.hut.soberit.agilefant.db.HourEntryDAO;
+import fi.hut.soberit.agilefant.db.HourEntryDailySumDAO;
 import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.BacklogHourEntry;
 import fi.hut.soberit.agilefant.model.HourEntry;
@@ -59,6 +60,12 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
     @Autowired
     private BacklogHourEntryDAO backlogHourEntryDAO;
 
+    @Autowired
+    private HourEntryDailySumDAO hourEntryDailySumDAO;
+    
+    @Autowired
+    private IterationBurndownCacheBusiness iterationBurndownCacheBusiness;
+
     public HourEntryBusinessImpl() {
         super(HourEntry.class);
     }
@@ -82,7 +89,9 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
             backlogEntry.setUser(targetUser);
             validateAndCopyFields(backlogEntry, effortEntry);
             this.hourEntryDAO.create(backlogEntry);
+            addToDailySums(backlogEntry);
         }
+        invalidateBurndown(backlog);
     }
 
     @Transactional
@@ -98,7 +107,9 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
             storyEntry.setUser(targetUser);
             validateAndCopyFields(storyEntry, effortEntry);
             this.hourEntryDAO.create(storyEntry);
+            addToDailySums(storyEntry);
         }
+        invalidateBurndown(story.getIteration());
     }
 
     @Transactional
@@ -113,9 +124,100 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
             taskEntry.setUser(targetUser);
             validateAndCopyFields(taskEntry, effortEntry);
             this.hourEntryDAO.create(taskEntry);
+            addToDailySums(taskEntry);
         }
+        invalidateBurndown(getIteration(task));
     }
     
+    @Override
+    @Transactional
+    public void store(HourEntry hourEntry) {
+        HourEntry storedEntry = hourEntryDAO.retrieveStoredCopy(hourEntry);
+        super.store(hourEntry);
+        if (storedEntry != null) {
+            removeFromDailySums(storedEntry);
+            invalidateBurndown(storedEntry);
+        }
+        addToDailySums(hourEntry);
+        invalidateBurndown(hourEntry);
+    }
+
+    @Override
+    @Transactional
+    public void delete(HourEntry hourEntry) {
+        invalidateBurndown(hourEntry);
+        removeFromDailySums(hourEntry);
+        super.delete(hourEntry);
+    }
+
+    @Override
+    @Transactional
+    public void delete(int id) {
+        HourEntry hourEntry = hourEntryDAO.get(id);
+        if (hourEntry != null) {
+            invalidateBurndown(hourEntry);
+            removeFromDailySums(hourEntry);
+        }
+        super.delete(id);
+    }
+
+    private void addToDailySums(HourEntry hourEntry) {
+        hourEntryDailySumDAO.add(hourEntry, hourEntry.getMinutesSpent());
+    }
+
+    private void removeFromDailySums(HourEntry hourEntry) {
+        hourEntryDailySumDAO.add(hourEntry, -hourEntry.getMinutesSpent());
+    }
+
+    /** {@inheritDoc} */
+    @Transactional
+    public int rebuildDailySums() {
+        return hourEntryDailySumDAO.rebuild();
+    }
+
+    public void updateBacklogPath(Story story) {
+        hourEntryDAO.updateBacklogPath(story);
+    }
+
+    public void updateBacklogPath(Task task) {
+        hourEntryDAO.updateBacklogPath(task);
+    }
+
+    public void updateBacklogPath(Backlog backlog) {
+        hourEntryDAO.updateBacklogPath(backlog);
+    }
+
+    /**
+     * Drops the cached burndowns of the iteration the entry is logged to.
+     */
+    private void invalidateBurndown(HourEntry hourEntry) {
+        if (hourEntry instanceof BacklogHourEntry) {
+            invalidateBurndown(((BacklogHourEntry) hourEntry).getBacklog());
+        } else if (hourEntry instanceof StoryHourEntry) {
+            Story story = ((StoryHourEntry) hourEntry).getStory();
+            invalidateBurndown(story == null ? null : story.getIteration());
+        } else if (hourEntry instanceof TaskHourEntry) {
+            invalidateBurndown(getIteration(((TaskHourEntry) hourEntry)
+                    .getTask()));
+        }
+    }
+
+    private void invalidateBurndown(Backlog backlog) {
+        if (backlog instanceof Iteration) {
+            iterationBurndownCacheBusiness.invalidate(backlog.getId());
+        }
+    }
+
+    private static Iteration getIteration(Task task) {
+        if (task == null) {
+            return null;
+        }
+        if (task.getIteration() != null) {
+            return task.getIteration();
+        }
+        return (task.getStory() == null) ? null : task.getStory().getIteration();
+    }
+
     private void validateAndCopyFields(HourEntry target, HourEntry source) {
         if(source.getDate() == null) {
             throw new IllegalArgumentException("Invalid date");
@@ -170,9 +272,15 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
     
     @Transactional(readOnly = true)
     public List<DailySpentEffort> getDailySpentEffortByIteration(Iteration iteration) {
-        List<HourEntry> entries = hourEntryDAO.getAllIterationHourEntries(iteration.getId());
+        Map<LocalDate, Long> dailySums = hourEntryDailySumDAO
+                .calculateDailySumsByIteration(iteration.getId());
         
-        return this.getDailySpentEffortForHourEntries(entries, iteration.getStartDate(), iteration.getEndDate());
+        return this.getDailySpentEffortForDays(dailySums, iteration.getStartDate(), iteration.getEndDate());
+    }
+
+    @Transactional(readOnly = true)
+    public Map<LocalDate, Long> getDailySpentEffortSumsForIteration(Iteration iteration) {
+        return hourEntryDailySumDAO.calculateDailySumsByIteration(iteration.getId());
     }
     
     @Transactional(readOnly = true)
@@ -201,16 +309,9 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
 
     @Transactional(readOnly = true)
     public long calculateWeekSum(LocalDate week, int userId, int userHourTimeZone, int userMinuteTimeZone) {  
-        MutableDateTime tmp = new MutableDateTime(week.toDateMidnight());
-        tmp.setDayOfWeek(DateTimeConstants.MONDAY);
-        tmp.setSecondOfDay(1);
-        DateTime start = tmp.toDateTime(); 
-        tmp.addDays(6);
-        tmp.setHourOfDay(23);
-        tmp.setMinuteOfHour(59);
-        tmp.setSecondOfMinute(59);
-        DateTime end = tmp.toDateTime();
-        return this.hourEntryDAO.calculateSumByUserAndTimeInterval(userId, start, end);
+        LocalDate start = week.withDayOfWeek(DateTimeConstants.MONDAY);
+        LocalDate end = start.plusDays(6);
+        return this.hourEntryDailySumDAO.calculateSumByUserAndInterval(userId, start, end);
     }
     
     @Transactional(readOnly = true)
@@ -224,8 +325,21 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
         tmp.setMinuteOfHour(59);
         tmp.setSecondOfMinute(59);
         DateTime end = tmp.toDateTime();
+        DateTimeZone zone = DateTimeZone.forOffsetHoursMinutes(userHourTimeZone, userMinuteTimeZone);
+        if (isServerTimeZone(zone, start, end)) {
+            // The daily sums are by the server's days
+            Map<LocalDate, Long> dailySums = hourEntryDailySumDAO
+                    .calculateDailySumsByUserAndInterval(userId, start.toLocalDate(), end.toLocalDate());
+            return this.getDailySpentEffortForDays(dailySums, start, end);
+        }
         return this.getDailySpentEffortByInterval(start, end, userId, userHourTimeZone, userMinuteTimeZone);
     }
+
+    private static boolean isServerTimeZone(DateTimeZone zone, DateTime start, DateTime end) {
+        DateTimeZone serverZone = DateTimeZone.getDefault();
+        return zone.getOffset(start) == serverZone.getOffset(start)
+                && zone.getOffset(end) == serverZone.getOffset(end);
+    }
     
     /**
      * Calculates the daily spent effort hour entries with no timezone calculations.
@@ -283,12 +397,11 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
     
     public List<DailySpentEffort> getDailySpentEffortForHourEntries(List<? extends HourEntry> entries,
             DateTime start, DateTime end) {
-        Map<Date, Long> dbData = new HashMap<Date, Long>();
-        List<DailySpentEffort> dailyEffort = new ArrayList<DailySpentEffort>();
+        Map<LocalDate, Long> dbData = new HashMap<LocalDate, Long>();
 
         //sum efforts per day
         for(HourEntry entry : entries) {
-            Date date = entry.getDate().toDateMidnight().toDate();
+            LocalDate date = entry.getDate().toLocalDate();
             
             if(!dbData.containsKey(date)) {
                 dbData.put(date, 0L);
@@ -296,16 +409,21 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
             
             dbData.put(date, dbData.get(date) + entry.getMinutesSpent());
         }
-        
+        return getDailySpentEffortForDays(dbData, start, end);
+    }
+
+    public List<DailySpentEffort> getDailySpentEffortForDays(Map<LocalDate, Long> dailySums,
+            DateTime start, DateTime end) {
+        List<DailySpentEffort> dailyEffort = new ArrayList<DailySpentEffort>();
         MutableDateTime iteratorDate = new MutableDateTime(start.toDateMidnight());
         
         //construct list that has a single entry per day
         while(iteratorDate.compareTo(end) <= 0) {
             DailySpentEffort effortEntry = new DailySpentEffort();
-            Date currentDate = iteratorDate.toDate();
+            LocalDate currentDate = iteratorDate.toDateTime().toLocalDate();
             
-            if(dbData.containsKey(currentDate)) {
-                effortEntry.setSpentEffort(dbData.get(currentDate));
+            if(dailySums.containsKey(currentDate)) {
+                effortEntry.setSpentEffort(dailySums.get(currentDate));
             }
             
             effortEntry.setDay(iteratorDate.toDateTime());
@@ -319,6 +437,10 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
         this.backlogHourEntryDAO = backlogHourEntryDAO;
     }
 
+    public void setHourEntryDailySumDAO(HourEntryDailySumDAO hourEntryDailySumDAO) {
+        this.hourEntryDailySumDAO = hourEntryDailySumDAO;
+    }
+
     public void setStoryBusiness(StoryBusiness storyBusiness) {
         this.storyBusiness = storyBusiness;
     }
@@ -334,8 +456,15 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
         this.backlogBusiness = backlogBusiness;
     }
 
+    public void setIterationBurndownCacheBusiness(
+            IterationBurndownCacheBusiness iterationBurndownCacheBusiness) {
+        this.iterationBurndownCacheBusiness = iterationBurndownCacheBusiness;
+    }
+
     public void deleteAll(Collection<? extends HourEntry> hourEntries) {
         for (HourEntry hourEntry : hourEntries) {
+            invalidateBurndown(hourEntry);
+            removeFromDailySums(hourEntry);
             hourEntryDAO.remove(hourEntry);
         }
     }
@@ -349,10 +478,14 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
+            invalidateBurndown(hourEntry);
+            removeFromDailySums(hourEntry);
             hourEntryDAO.remove(hourEntry);
             newHourEntry.setBacklog(backlog);
             hourEntryDAO.store(newHourEntry);
+            addToDailySums(newHourEntry);
         }
+        invalidateBurndown(backlog);
     }
 
     public void moveToStory(Collection<? extends HourEntry> hourEntries, Story story) {
@@ -364,9 +497,13 @@ public class HourEntryBusinessImpl extends GenericBusinessImpl<HourEntry>
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
+            invalidateBurndown(hourEntry);
+            removeFromDailySums(hourEntry);
             hourEntryDAO.remove(hourEntry);
             newHourEntry.setStory(story);
             hourEntryDAO.store(newHourEntry);
+            addToDailySums(newHourEntry);
         }
+        invalidateBurndown(story.getIteration());
     }
 }
@@ -12,8 +12,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
@@ -40,13 +42,16 @@ import org.springframework.transaction.annotation.Transactional;
 
 import fi.hut.soberit.agilefant.business.HourEntryBusiness;
 import fi.hut.soberit.agilefant.business.IterationBurndownBusiness;
+import fi.hut.soberit.agilefant.business.IterationBurndownCacheBusiness;
 import fi.hut.soberit.agilefant.business.IterationBusiness;
 import fi.hut.soberit.agilefant.business.IterationHistoryEntryBusiness;
 import fi.hut.soberit.agilefant.business.SettingBusiness;
 import fi.hut.soberit.agilefant.model.ExactEstimate;
-import fi.hut.soberit.agilefant.model.HourEntry;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.IterationHistoryEntry;
+import fi.hut.soberit.agilefant.transfer.ChartData;
+import fi.hut.soberit.agilefant.transfer.ChartImage;
+import fi.hut.soberit.agilefant.transfer.ChartSeries;
 import fi.hut.soberit.agilefant.transfer.DailySpentEffort;
 import fi.hut.soberit.agilefant.util.ExactEstimateUtils;
 import fi.hut.soberit.agilefant.util.Pair;
@@ -82,6 +87,9 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
     
     @Autowired
     private SettingBusiness settingBusiness;
+    
+    @Autowired
+    private IterationBurndownCacheBusiness iterationBurndownCacheBusiness;
 
     /* Chart sizes */
     protected static final int DEFAULT_WIDTH = 780;
@@ -156,11 +164,14 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
     protected static final String CURRENT_DAY_EFFORT_SPENT_SERIES_NAME = "Current day";
     protected static final String EXPECTED_SERIES_NAME = "Predicted velocity";
 
+    /* Series ids in the chart data, indexed by series number */
+    protected static final String[] SERIES_IDS = { "effortLeft",
+            "effortSpent", "currentDayEffortLeft", "currentDayEffortSpent",
+            "scoping", "referenceVelocity", "predictedVelocity" };
+
     
     protected static final TickUnits tickUnits = getTickUnits();
 
-    private int timeDifferenceMinutes = 0;
-    
     private static TickUnits getTickUnits() {
         TickUnits units = new TickUnits();
         units.add(new DateTickUnit(DateTickUnitType.DAY, 1));
@@ -231,17 +242,102 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
 
     /** {@inheritDoc} */
     public byte[] getIterationBurndown(Iteration iteration, Integer timeZoneOffset) {
-        return getChartImageByteArray(constructChart(iteration, timeZoneOffset));
+        return getIterationBurndownImage(iteration, null, null, false,
+                timeZoneOffset).getImage();
     }
 
     public byte[] getSmallIterationBurndown(Iteration iteration, Integer timeZoneOffset) {
-        return getChartImageByteArray(constructSmallChart(iteration, timeZoneOffset),
-                SMALL_WIDTH, SMALL_HEIGHT);
+        return getIterationBurndownImage(iteration, null, null, true,
+                timeZoneOffset).getImage();
     }
 
     public byte[] getCustomIterationBurndown(Iteration iteration,
             Integer width, Integer height, Integer timeZoneOffset) {
-        return getChartImageByteArray(constructChart(iteration, timeZoneOffset), width, height);
+        return getIterationBurndownImage(iteration, width, height, false,
+                timeZoneOffset).getImage();
+    }
+
+    /** {@inheritDoc} */
+    public ChartImage getIterationBurndownImage(Iteration iteration,
+            Integer width, Integer height, boolean small, Integer timeZoneOffset) {
+        if (width == null) {
+            width = small ? SMALL_WIDTH : DEFAULT_WIDTH;
+        }
+        if (height == null) {
+            height = small ? SMALL_HEIGHT : DEFAULT_HEIGHT;
+        }
+        String variant = (small ? "small:" : "") + width + "x" + height + ":"
+                + timeZoneOffset;
+        String version = getIterationBurndownVersion(iteration);
+
+        ChartImage image = iterationBurndownCacheBusiness.retrieve(iteration
+                .getId(), variant, version);
+        if (image != null) {
+            return image;
+        }
+
+        JFreeChart chart = small ? constructSmallChart(iteration,
+                timeZoneOffset) : constructChart(iteration, timeZoneOffset);
+        image = new ChartImage(getChartImageByteArray(chart, width, height),
+                version, new DateTime());
+        if (image.getImage() != null) {
+            iterationBurndownCacheBusiness.store(iteration.getId(), variant,
+                    image);
+        }
+        return image;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The stamp is built from the latest history entry, the iteration's hour
+     * entry sum, the iteration's own data and the settings affecting the
+     * chart. The current date is included, because the current day lines
+     * move even if nothing is changed.
+     */
+    public String getIterationBurndownVersion(Iteration iteration) {
+        IterationHistoryEntry latest = iterationHistoryEntryBusiness
+                .retrieveLatest(iteration);
+        long effortSpentSum = hourEntryBusiness
+                .calculateSumOfIterationsHourEntries(iteration);
+
+        StringBuilder stamp = new StringBuilder();
+        stamp.append(iteration.getId()).append('|')
+            .append(iteration.getName()).append('|')
+            .append(iteration.getStartDate()).append('|')
+            .append(iteration.getEndDate()).append('|');
+        if (latest != null) {
+            stamp.append(latest.getId()).append('|')
+                .append(latest.getTimestamp()).append('|')
+                .append(latest.getEffortLeftSum()).append('|')
+                .append(latest.getOriginalEstimateSum()).append('|')
+                .append(latest.getDeltaOriginalEstimate()).append('|');
+        }
+        stamp.append(effortSpentSum).append('|')
+            .append(new LocalDate()).append('|')
+            .append(settingBusiness.isHourReportingEnabled()).append('|')
+            .append(settingBusiness.isWeekendsInBurndown());
+        return DigestUtils.md5Hex(stamp.toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Uses the same dataset as the rendered image. The gaps, which break the
+     * lines in the image, are sent as <code>null</code> values.
+     */
+    public ChartData getIterationBurndownData(Iteration iteration,
+            Integer timeZoneOffset) {
+        TimeSeriesCollection dataset = getDataset(iteration,
+                getTimeDifferenceMinutes(timeZoneOffset));
+        List<ChartSeries> series = new ArrayList<ChartSeries>();
+        for (int i = 0; i < dataset.getSeriesCount(); i++) {
+            series.add(ChartSeries.fromTimeSeries(SERIES_IDS[i], dataset
+                    .getSeries(i)));
+        }
+        return new ChartData("'" + iteration.getName() + "' burndown",
+                iteration.getStartDate().getMillis(), iteration.getEndDate()
+                        .getMillis(), series);
     }
 
     protected JFreeChart constructChart(Iteration iteration, boolean drawLegend, Integer timeZoneOffset) {
@@ -249,22 +345,11 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
     }
 
     protected JFreeChart constructChart(Iteration iteration, Integer timeZoneOffset) {
-        //get server timezone
-        Calendar cal = Calendar.getInstance();
-        TimeZone localTimeZone = cal.getTimeZone();
-        
-        //server timezone offset in minutes
-        int rawOffset = localTimeZone.getRawOffset() / 60000;
-        
-        //get offset difference in minutes
-        if(timeZoneOffset != null)
-            timeDifferenceMinutes = rawOffset - timeZoneOffset.intValue();
-        else
-            timeDifferenceMinutes = rawOffset;
+        int timeDifferenceMinutes = getTimeDifferenceMinutes(timeZoneOffset);
         
         JFreeChart burndown = ChartFactory.createTimeSeriesChart("'"
                 + iteration.getName() + "' burndown", DATE_AXIS_LABEL,
-                EFFORT_AXIS_LABEL, getDataset(iteration), true, true, false);
+                EFFORT_AXIS_LABEL, getDataset(iteration, timeDifferenceMinutes), true, true, false);
 
         formatChartAxes(burndown, new DateTime(iteration.getStartDate().minusMinutes(timeDifferenceMinutes)),
                 new DateTime(iteration.getEndDate()).minusMinutes(timeDifferenceMinutes));
@@ -274,6 +359,30 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
         return burndown;
     }
 
+    /**
+     * Gets the difference between the server's and the client's time zone.
+     * <p>
+     * The difference is passed along while the chart is built, because the
+     * business is shared by concurrent requests from different time zones.
+     * 
+     * @param timeZoneOffset the client's offset in minutes, or
+     *            <code>null</code>
+     */
+    protected int getTimeDifferenceMinutes(Integer timeZoneOffset) {
+        //get server timezone
+        Calendar cal = Calendar.getInstance();
+        TimeZone localTimeZone = cal.getTimeZone();
+        
+        //server timezone offset in minutes
+        int rawOffset = localTimeZone.getRawOffset() / 60000;
+        
+        //get offset difference in minutes
+        if(timeZoneOffset != null)
+            return rawOffset - timeZoneOffset.intValue();
+        else
+            return rawOffset;
+    }
+
     protected JFreeChart constructSmallChart(Iteration iteration, Integer timeZoneOffset) {
         JFreeChart burndown = constructChart(iteration, timeZoneOffset);
         return transformToSmallChart(burndown);
@@ -445,19 +554,20 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
     /**
      * Assembles all the needed <code>TimeSeries</code>.
      */
-    protected TimeSeriesCollection getDataset(Iteration iteration) {
+    protected TimeSeriesCollection getDataset(Iteration iteration,
+            int timeDifferenceMinutes) {
         TimeSeriesCollection chartDataset = new TimeSeriesCollection();
 
         List<IterationHistoryEntry> iterationEntries = iterationHistoryEntryBusiness
                 .getHistoryEntriesForIteration(iteration);
         
-        List<HourEntry> hourEntries = hourEntryBusiness.getHourEntriesForIteration(iteration);
+        Map<LocalDate, Long> dailySpentEffort = hourEntryBusiness.getDailySpentEffortSumsForIteration(iteration);
         
-        // Clear all hour entries if hour reporting is disabled so we don't mess up with the y-axis scaling
+        // Clear all spent effort if hour reporting is disabled so we don't mess up with the y-axis scaling
         // It is more simple to hide the spent effort line than remove the series from the graph as it would affect the series indexes
         // (see more comments on that in transformToSmallChart below HORROR comment)
         if (!settingBusiness.isHourReportingEnabled()) {
-            hourEntries.clear();
+            dailySpentEffort.clear();
         }
 
         LocalDate yesterday = new LocalDate().minusDays(1);
@@ -472,28 +582,31 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
 
         chartDataset.addSeries(getBurndownTimeSeries(iterationEntries,
                 new LocalDate(iteration.getStartDate()),
-                determineEndDate(new LocalDate(iteration.getEndDate()))));
+                determineEndDate(new LocalDate(iteration.getEndDate())),
+                timeDifferenceMinutes));
         
-        chartDataset.addSeries(getEffortSpentTimeSeries(hourEntries, 
-                iterationStartDate, iterationEndDate));
+        chartDataset.addSeries(getEffortSpentTimeSeries(dailySpentEffort, 
+                iterationStartDate, iterationEndDate, timeDifferenceMinutes));
 
         chartDataset.addSeries(getCurrentDayEffortLeftSeries(yesterdayEntry,
-                todayEntry));
+                todayEntry, timeDifferenceMinutes));
         
-        chartDataset.addSeries(getCurrentDaySpentEffortSeries(hourEntries, 
-                iterationStartDate));
+        chartDataset.addSeries(getCurrentDaySpentEffortSeries(dailySpentEffort, 
+                iterationStartDate, timeDifferenceMinutes));
         
         chartDataset.addSeries(getScopingTimeSeries(iterationEntries,
                 iterationStartDate.toLocalDate(), iterationEndDate
-                        .toLocalDate()));
+                        .toLocalDate(), timeDifferenceMinutes));
 
         chartDataset.addSeries(getReferenceVelocityTimeSeries(
                 iterationStartDate, iterationEndDate, new ExactEstimate(
-                        todayEntry.getOriginalEstimateSum())));
+                        todayEntry.getOriginalEstimateSum()),
+                timeDifferenceMinutes));
 
         TimeSeries predictedVelocity = getPredictedVelocityTimeSeries(
                 iterationStartDate.toLocalDate(), iterationEndDate
-                        .toLocalDate(), yesterdayEntry, todayEntry);
+                        .toLocalDate(), yesterdayEntry, todayEntry,
+                timeDifferenceMinutes);
         if (predictedVelocity != null) {
             chartDataset.addSeries(predictedVelocity);
         }
@@ -549,13 +662,14 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
      * <p>
      * Start point is at (startDate, originalEstimateSum). End point is at
      * (endDate + 1, 0.0)
-     * @param timeDifferenceHours 
+     * @param timeDifferenceMinutes 
      */
     protected TimeSeries getReferenceVelocityTimeSeries(DateTime startDate,
-            DateTime endDate, ExactEstimate originalEstimateSum) {
+            DateTime endDate, ExactEstimate originalEstimateSum,
+            int timeDifferenceMinutes) {
         if (settingBusiness.isWeekendsInBurndown()) {
             return this.getReferenceVelocityWithWeekends(REFERENCE_SERIES_NAME,
-                    startDate, endDate, originalEstimateSum);
+                    startDate, endDate, originalEstimateSum, timeDifferenceMinutes);
         }
         else {
             return this.getSeriesByStartAndEndPoints(REFERENCE_SERIES_NAME,
@@ -564,7 +678,8 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
         }
     }
 
-    protected TimeSeries getReferenceVelocityWithWeekends(String seriesKey, DateTime startDate, DateTime endDate, ExactEstimate oeSum) {
+    protected TimeSeries getReferenceVelocityWithWeekends(String seriesKey, DateTime startDate, DateTime endDate, ExactEstimate oeSum,
+            int timeDifferenceMinutes) {
         TimeSeries ts = new TimeSeries(seriesKey);
         MutableDateTime date;
         startDate = startDate.minusMinutes(timeDifferenceMinutes).toDateMidnight().toDateTime();
@@ -601,7 +716,7 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
     protected TimeSeries getPredictedVelocityTimeSeries(
             LocalDate iterationStart, LocalDate iterationEnd,
             IterationHistoryEntry yesterdayEntry,
-            IterationHistoryEntry todayEntry) {
+            IterationHistoryEntry todayEntry, int timeDifferenceMinutes) {
         LocalDate today = new LocalDate();
         ExactEstimate startValue = getTodaysStartValueWithScoping(
                 yesterdayEntry, todayEntry);
@@ -624,11 +739,11 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
 
     /**
      * Get the <code>TimeSeries</code> for drawing the current day line.
-     * @param timeDifferenceHours 
+     * @param timeDifferenceMinutes 
      */
     protected TimeSeries getCurrentDayEffortLeftSeries(
             IterationHistoryEntry yesterdayEntry,
-            IterationHistoryEntry todayEntry) {
+            IterationHistoryEntry todayEntry, int timeDifferenceMinutes) {
         ExactEstimate startValue = this.getTodaysStartValueWithScoping(
                 yesterdayEntry, todayEntry);
 
@@ -643,21 +758,21 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
     
     /**
      * Get the <code>TimeSeries</code> for drawing the current day line.
-     * @param timeDifferenceHours 
+     * @param timeDifferenceMinutes 
      */
-    protected TimeSeries getCurrentDaySpentEffortSeries(List<? extends HourEntry> hourEntries,
-            DateTime startDate) {
+    protected TimeSeries getCurrentDaySpentEffortSeries(Map<LocalDate, Long> dailySpentEffort,
+            DateTime startDate, int timeDifferenceMinutes) {
         TimeSeries effortSpentSeries = new TimeSeries(CURRENT_DAY_EFFORT_SPENT_SERIES_NAME);
         
         DateTime tomorrow = new DateMidnight().plusDays(1).toDateTime();
         
-        List<DailySpentEffort> spentEffortList = hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntries, 
+        List<DailySpentEffort> spentEffortList = hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffort, 
                 startDate, tomorrow);
         
         double cumulativeSum = 0.0;
      
         for (DailySpentEffort spentEffort : spentEffortList) {
-            TimeSeriesDataItem dateItem = getEffortSpentDataItemForDay(spentEffort);
+            TimeSeriesDataItem dateItem = getEffortSpentDataItemForDay(spentEffort, timeDifferenceMinutes);
             
             cumulativeSum += dateItem.getValue().doubleValue();
             dateItem.setValue(cumulativeSum);
@@ -674,33 +789,34 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
     }
 
     /**
-     * Creates a TimeSeries of effort spent for a given list of HourEntries
+     * Creates a TimeSeries of effort spent from the daily spent effort sums
      * 
-     * @param hourEntries
+     * @param dailySpentEffort
      * @param startDate
      * @param endDate
+     * @param timeDifferenceMinutes
      * @return
      */
-    protected TimeSeries getEffortSpentTimeSeries(List<? extends HourEntry> hourEntries, 
-            DateTime startDate, DateTime endDate) {
+    protected TimeSeries getEffortSpentTimeSeries(Map<LocalDate, Long> dailySpentEffort, 
+            DateTime startDate, DateTime endDate, int timeDifferenceMinutes) {
         TimeSeries effortSpentSeries = new TimeSeries(EFFORT_SPENT_SERIES_NAME);
         
         List<DailySpentEffort> spentEffortList = new ArrayList<DailySpentEffort>();
         DateMidnight today = new DateMidnight();
         
         if (today.isBefore(endDate)) {
-           spentEffortList = hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntries, 
+           spentEffortList = hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffort, 
                 startDate.minusDays(1), today.minusDays(1).toDateTime());
         }
         else {
-            spentEffortList = hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntries, 
+            spentEffortList = hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffort, 
                 startDate.minusDays(1), endDate.plusDays(1));
         }
         
         double cumulativeSum = 0.0;
         
         for (DailySpentEffort spentEffort : spentEffortList) {
-            TimeSeriesDataItem dateItem = getEffortSpentDataItemForDay(spentEffort);
+            TimeSeriesDataItem dateItem = getEffortSpentDataItemForDay(spentEffort, timeDifferenceMinutes);
             
             cumulativeSum += dateItem.getValue().doubleValue();
             dateItem.setValue(cumulativeSum);
@@ -711,7 +827,8 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
         return effortSpentSeries;
     }
     
-    protected TimeSeriesDataItem getEffortSpentDataItemForDay(DailySpentEffort entry) {
+    protected TimeSeriesDataItem getEffortSpentDataItemForDay(DailySpentEffort entry,
+            int timeDifferenceMinutes) {
         Second second  = new Second(entry.getDay().
                 minusMinutes(timeDifferenceMinutes).toDateMidnight().plusDays(1).toDate());
         double value = 0.0;
@@ -728,11 +845,11 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
     /**
      * Gets the history entry for each day and transforms it to a
      * <code>JFreeChart</code> entry.
-     * @param timeDifferenceHours 
+     * @param timeDifferenceMinutes 
      */
     protected TimeSeries getBurndownTimeSeries(
             List<IterationHistoryEntry> iterationHistoryEntries,
-            LocalDate startDate, LocalDate endDate) {
+            LocalDate startDate, LocalDate endDate, int timeDifferenceMinutes) {
         TimeSeries burndownSeries = new TimeSeries(EFFORT_LEFT_SERIES_NAME);
 
         for (LocalDate iter = startDate.minusDays(1); iter.compareTo(endDate) < 0; iter = iter
@@ -744,19 +861,19 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
 
             if (isScopingDone(todayEntry)) {
                 Pair<TimeSeriesDataItem, TimeSeriesDataItem> scopedEntries = getBurndownScopedDataItemForDay(
-                        yesterdayEntry, todayEntry);
+                        yesterdayEntry, todayEntry, timeDifferenceMinutes);
                 burndownSeries.add(scopedEntries.getFirst());
                 burndownSeries.add(scopedEntries.getSecond());
             }
 
-            burndownSeries.add(getBurndownDataItemForDay(todayEntry));
+            burndownSeries.add(getBurndownDataItemForDay(todayEntry, timeDifferenceMinutes));
         }
 
         return burndownSeries;
     }
 
     protected TimeSeriesDataItem getBurndownDataItemForDay(
-            IterationHistoryEntry entry) {
+            IterationHistoryEntry entry, int timeDifferenceMinutes) {
         TimeSeriesDataItem item = new TimeSeriesDataItem(new Second(entry
                 .getTimestamp().toDateTimeAtCurrentTime().minusMinutes(timeDifferenceMinutes).toDateMidnight().plusDays(1).toDate()),
                 ExactEstimateUtils.extractMajorUnits(new ExactEstimate(entry
@@ -767,7 +884,7 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
 
     protected Pair<TimeSeriesDataItem, TimeSeriesDataItem> getBurndownScopedDataItemForDay(
             IterationHistoryEntry yesterdayEntry,
-            IterationHistoryEntry todayEntry) {
+            IterationHistoryEntry todayEntry, int timeDifferenceMinutes) {
         DateTime timestamp = todayEntry.getTimestamp().toDateTimeAtCurrentTime().minusMinutes(timeDifferenceMinutes).toDateMidnight()
                 .toDateTime().plusSeconds(2);
         Second period = new Second(timestamp.toDate());
@@ -786,7 +903,7 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
 
     protected List<TimeSeriesDataItem> getScopeSeriesDataItems(
             IterationHistoryEntry yesterdayEntry,
-            IterationHistoryEntry todayEntry) {
+            IterationHistoryEntry todayEntry, int timeDifferenceMinutes) {
 
         // Second item is places 2 seconds after the first
         // Resulting in a almost vertical line in the graph
@@ -821,7 +938,7 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
 
     protected TimeSeries getScopingTimeSeries(
             List<IterationHistoryEntry> iterationHistoryEntries,
-            LocalDate startDate, LocalDate endDate) {
+            LocalDate startDate, LocalDate endDate, int timeDifferenceMinutes) {
         TimeSeries scopingSeries = new TimeSeries(SCOPING_SERIES_NAME);
         for (LocalDate iter = startDate.minusDays(1); iter.compareTo(endDate
                 .plusDays(1)) < 0; iter = iter.plusDays(1)) {
@@ -832,7 +949,7 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
 
             if (isScopingDone(todayEntry)) {
                 List<TimeSeriesDataItem> scopeItems = getScopeSeriesDataItems(
-                        yesterdayEntry, todayEntry);
+                        yesterdayEntry, todayEntry, timeDifferenceMinutes);
                 scopingSeries.add(scopeItems.get(0));
                 scopingSeries.add(scopeItems.get(1));
                 scopingSeries.add(scopeItems.get(2));
@@ -862,4 +979,9 @@ public class IterationBurndownBusinessImpl implements IterationBurndownBusiness
         this.settingBusiness = settingBusiness;
     }
 
+    public void setIterationBurndownCacheBusiness(
+            IterationBurndownCacheBusiness iterationBurndownCacheBusiness) {
+        this.iterationBurndownCacheBusiness = iterationBurndownCacheBusiness;
+    }
+
 }
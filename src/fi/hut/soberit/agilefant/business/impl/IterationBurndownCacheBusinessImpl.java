@@ -0,0 +1,61 @@
+package fi.hut.soberit.agilefant.business.impl;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import fi.hut.soberit.agilefant.business.IterationBurndownCacheBusiness;
+import fi.hut.soberit.agilefant.transfer.ChartImage;
+
+/**
+ * In-memory cache of rendered burndown images.
+ * <p>
+ * The cache holds the images of at most <code>MAX_ITERATIONS</code>
+ * iterations. The least recently used iteration is evicted first.
+ */
+@Service("iterationBurndownCacheBusiness")
+public class IterationBurndownCacheBusinessImpl implements
+        IterationBurndownCacheBusiness {
+
+    protected static final int MAX_ITERATIONS = 500;
+
+    private final Map<Integer, Map<String, ChartImage>> images = new LinkedHashMap<Integer, Map<String, ChartImage>>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 4096420164302390183L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<Integer, Map<String, ChartImage>> eldest) {
+            return size() > MAX_ITERATIONS;
+        }
+    };
+
+    public synchronized ChartImage retrieve(int iterationId, String variant,
+            String version) {
+        Map<String, ChartImage> variants = images.get(iterationId);
+        if (variants == null) {
+            return null;
+        }
+        ChartImage image = variants.get(variant);
+        if (image == null || !image.getVersion().equals(version)) {
+            return null;
+        }
+        return image;
+    }
+
+    public synchronized void store(int iterationId, String variant,
+            ChartImage image) {
+        Map<String, ChartImage> variants = images.get(iterationId);
+        if (variants == null) {
+            variants = new HashMap<String, ChartImage>();
+            images.put(iterationId, variants);
+        }
+        variants.put(variant, image);
+    }
+
+    public synchronized void invalidate(int iterationId) {
+        images.remove(iterationId);
+    }
+}
@@ -1,8 +1,10 @@
 package fi.hut.soberit.agilefant.business.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -13,16 +15,18 @@ import org.joda.time.DateTime;
 import org.joda.time.Days;
 import org.joda.time.LocalDate;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.support.PropertyComparator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import fi.hut.soberit.agilefant.business.AssignmentBusiness;
+import fi.hut.soberit.agilefant.business.BacklogAccessBusiness;
 import fi.hut.soberit.agilefant.business.BacklogBusiness;
+import fi.hut.soberit.agilefant.business.BacklogHierarchyBusiness;
 import fi.hut.soberit.agilefant.business.BacklogHistoryEntryBusiness;
 import fi.hut.soberit.agilefant.business.HourEntryBusiness;
 import fi.hut.soberit.agilefant.business.IterationBusiness;
 import fi.hut.soberit.agilefant.business.IterationHistoryEntryBusiness;
+import fi.hut.soberit.agilefant.business.ReadonlyTokenBusiness;
 import fi.hut.soberit.agilefant.business.StoryBusiness;
 import fi.hut.soberit.agilefant.business.StoryRankBusiness;
 import fi.hut.soberit.agilefant.business.TaskBusiness;
@@ -47,11 +51,14 @@ import fi.hut.soberit.agilefant.model.Team;
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.transfer.AgilefantHistoryEntry;
 import fi.hut.soberit.agilefant.transfer.AssignmentTO;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedPage;
 import fi.hut.soberit.agilefant.transfer.IterationMetrics;
 import fi.hut.soberit.agilefant.transfer.IterationTO;
 import fi.hut.soberit.agilefant.transfer.StoryTO;
 import fi.hut.soberit.agilefant.transfer.TaskTO;
 import fi.hut.soberit.agilefant.util.HourEntryHandlingChoice;
+import fi.hut.soberit.agilefant.util.IterationMetricsData;
 import fi.hut.soberit.agilefant.util.Pair;
 import fi.hut.soberit.agilefant.util.StoryMetrics;
 
@@ -85,11 +92,17 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
     @Autowired
     private TeamBusiness teamBusiness;
     @Autowired
+    private BacklogAccessBusiness backlogAccessBusiness;
+    @Autowired
+    private BacklogHierarchyBusiness backlogHierarchyBusiness;
+    @Autowired
     private BacklogHistoryDAO backlogHistoryDAO;
     @Autowired
     private StoryHistoryDAO storyHistoryDAO;
     @Autowired
     private TaskHistoryDAO taskHistoryDAO;
+    @Autowired
+    private ReadonlyTokenBusiness readonlyTokenBusiness;
     
     public IterationBusinessImpl() {
         super(Iteration.class);
@@ -146,12 +159,14 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
             iterationHistoryEntryBusiness.delete(item.getId());
         }
         super.delete(iteration);
+        backlogHierarchyBusiness.invalidate();
+        readonlyTokenBusiness.invalidate();
     }
     
 
     @Transactional
     public IterationTO getIterationContents(int iterationId) {
-        Iteration iteration = this.iterationDAO.retrieveDeep(iterationId);
+        Iteration iteration = this.iterationDAO.retrieveWithContents(iterationId);
         if (iteration == null) {
             throw new ObjectNotFoundException("Iteration not found");
         }
@@ -248,11 +263,34 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
         if (iteration == null) {
             throw new IllegalArgumentException("Iteration must be not null.");
         }
+        return getIterationMetricsForIterations(Arrays.asList(iteration)).get(
+                iteration.getId());
+    }
 
+    /** {@inheritDoc} */
+    public Map<Integer, IterationMetrics> getIterationMetricsForIterations(
+            Collection<Iteration> iterations) {
+        Set<Integer> iterationIds = new HashSet<Integer>();
+        for (Iteration iteration : iterations) {
+            iterationIds.add(iteration.getId());
+        }
+        Map<Integer, IterationMetricsData> data = iterationDAO
+                .calculateIterationMetricsData(iterationIds, new LocalDate()
+                        .minusDays(1));
+
+        Map<Integer, IterationMetrics> result = new HashMap<Integer, IterationMetrics>();
+        for (Iteration iteration : iterations) {
+            result.put(iteration.getId(), calculateIterationMetrics(iteration,
+                    data.get(iteration.getId())));
+        }
+        return result;
+    }
+
+    private IterationMetrics calculateIterationMetrics(Iteration iteration,
+            IterationMetricsData data) {
         IterationMetrics metrics = new IterationMetrics();
 
-        IterationHistoryEntry latestHistoryEntry = iterationHistoryEntryBusiness
-                .retrieveLatest(iteration);
+        IterationHistoryEntry latestHistoryEntry = data.getLatestHistoryEntry();
 
         // 1. Set original estimate and effort left
         if (latestHistoryEntry == null) {
@@ -271,27 +309,22 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
         else
             metrics.setPlannedSize(new ExactEstimate(iteration.getBacklogSize().intValue()));
 
-        metrics.setDailyVelocity(calculateDailyVelocity(iteration));
+        metrics.setDailyVelocity(calculateDailyVelocity(new LocalDate(
+                iteration.getStartDate()), data.getYesterdayHistoryEntry()));
 
         // 2. Set story points
-        metrics.setStoryPoints(backlogBusiness.getStoryPointSumByIteration(iteration));
-        metrics.setDoneStoryPoints(backlogBusiness.calculateDoneStoryPointSum(iteration.getId()));
+        metrics.setStoryPoints(data.getStoryPoints());
+        metrics.setDoneStoryPoints(data.getDoneStoryPoints());
 
         // 3. Set spent effort
-        long spentEffort = hourEntryBusiness
-                .calculateSumOfIterationsHourEntries(iteration);
-        metrics.setSpentEffort(new ExactEstimate(spentEffort));
+        metrics.setSpentEffort(new ExactEstimate(data.getSpentEffort()));
 
         // 3. Tasks done and Total
-        Pair<Integer, Integer> pairTasks = iterationDAO
-                .getCountOfDoneAndNonDeferred(iteration);
-        metrics.setTotalTasks(pairTasks.second);
-        metrics.setCompletedTasks(pairTasks.first);
-        
+        metrics.setTotalTasks(data.getTotalTasks());
+        metrics.setCompletedTasks(data.getCompletedTasks());
 
-        Pair<Integer, Integer>  pairStories = iterationDAO.getCountOfDoneAndAllStories(iteration);
-        metrics.setTotalStories(pairStories.second);
-        metrics.setCompletedStories(pairStories.first);
+        metrics.setTotalStories(data.getTotalStories());
+        metrics.setCompletedStories(data.getCompletedStories());
 
         //4. iteration interval
         LocalDate today = new LocalDate();
@@ -302,11 +335,12 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
         }
         
         //5. variance
-        metrics.setVariance(calculateVariance(iteration));
+        metrics.setVariance(calculateVariance(iteration, latestHistoryEntry,
+                metrics.getDailyVelocity()));
         
         //6. calculate percentages
-        metrics.setPercentDoneTasks(calculatePercent(pairTasks.first, pairTasks.second));
-        metrics.setPercentDoneStories(calculatePercent(pairStories.first, pairStories.second));
+        metrics.setPercentDoneTasks(calculatePercent(data.getCompletedTasks(), data.getTotalTasks()));
+        metrics.setPercentDoneStories(calculatePercent(data.getCompletedStories(), data.getTotalStories()));
         metrics.setPercentSpentEffort(calculatePercent(metrics.getSpentEffort().intValue(), metrics.getPlannedSize().intValue()));
         if(metrics.getPercentSpentEffort() > 100)
             metrics.setPercentSpentEffort(100);
@@ -318,8 +352,8 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
         }
         
         //7. calculate 'Value'
-        metrics.setTotalValue(backlogBusiness.getStoryValueSumByIteration(iteration));
-        metrics.setCompletedValue(backlogBusiness.getCompletedStoryValueSumByIteration(iteration));
+        metrics.setTotalValue(data.getTotalValue());
+        metrics.setCompletedValue(data.getCompletedValue());
         metrics.setPercentCompletedValue(calculatePercent(metrics.getCompletedValue(), metrics.getTotalValue()));
         return metrics;
     }
@@ -349,14 +383,7 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
  
         Iteration iter = this.retrieve(iterationId);
         
-        // Get teams
-        Set<Team> teams = new HashSet<Team>();
-        if (teamIds != null) {
-            for (Integer tid : teamIds) {
-                teams.add(teamBusiness.retrieve(tid));
-            }
-            iter.setTeams(teams);
-        }
+        setTeams(iter, teamIds);
         
         iter.setStartDate(iterationData.getStartDate());
         iter.setEndDate(iterationData.getEndDate());
@@ -367,6 +394,7 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
         iter.setReadonlyToken(iterationData.getReadonlyToken());
         setAssignees(iter, assigneeIds);
         this.iterationDAO.store(iter);
+        backlogHierarchyBusiness.invalidate();
         if (parent != null && iter.getParent() != parent) {
             this.moveTo(iter, parent);
         }
@@ -378,6 +406,7 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
             iterationData.setParent(parentBacklog);
         }
         int iterationId = (Integer) this.iterationDAO.create(iterationData);
+        backlogHierarchyBusiness.invalidate();
         Iteration iter = this.retrieve(iterationId);
         
         setAssignees(iter, assigneeIds);
@@ -408,12 +437,15 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
                 teams.add(teamBusiness.retrieve(tid));
             }
             iteration.setTeams(teams);
+            backlogAccessBusiness.invalidate();
         }
     }
     public void moveTo(Iteration iter, Backlog parent) {
         Backlog oldParent = iter.getParent();
         iter.setParent(parent);
         this.iterationDAO.store(iter);
+        backlogHierarchyBusiness.invalidate();
+        this.hourEntryBusiness.updateBacklogPath(iter);
         if (oldParent instanceof Project) {
             this.backlogHistoryEntryBusiness.updateHistory(oldParent.getId());
         }
@@ -539,8 +571,17 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
         if(latestHistoryEntry == null) {
             return null;
         }
+        return calculateVariance(iter, latestHistoryEntry,
+                calculateDailyVelocity(iter));
+    }
+
+    private Integer calculateVariance(Iteration iter,
+            IterationHistoryEntry latestHistoryEntry, ExactEstimate velocity) {
+        if(latestHistoryEntry == null) {
+            return null;
+        }
         long effortLeft = latestHistoryEntry.getEffortLeftSum();
-        long dailyVelocity = calculateDailyVelocity(iter).longValue();
+        long dailyVelocity = velocity.longValue();
         if(dailyVelocity != 0 && iter.getStartDate().isBeforeNow() && effortLeft != 0) {
             int daysLeft = (int) (effortLeft / dailyVelocity);
             return daysLeft - backlogBusiness.daysLeftInSchedulableBacklog(iter).getDays(); 
@@ -549,95 +590,71 @@ public class IterationBusinessImpl extends GenericBusinessImpl<Iteration>
         }      
     }
     
-    @SuppressWarnings("unchecked")
-    public List<AgilefantHistoryEntry> retrieveChangesInIterationStories(
-            Iteration iteration) {
-        List<AgilefantHistoryEntry> added = this.backlogHistoryDAO
-                .retrieveAddedStories(iteration);
-        List<AgilefantHistoryEntry> deleted = this.backlogHistoryDAO
-                .retrieveDeletedStories(iteration);
-        for (AgilefantHistoryEntry entry : deleted) {
-            Story story = this.storyHistoryDAO.retrieveClosestRevision(entry
-                    .getObjectId(), entry.getRevision().getId());
-            entry.setObject(story);
+    /**
+     * Both the story and the task changes are read up to a page and one
+     * more, which tells whether there is a next page. The closest story
+     * revisions of the page are then read with a single audit query.
+     */
+    @Transactional(readOnly = true)
+    public HistoryFeedPage retrieveHistoryPage(Iteration iteration,
+            HistoryFeedCursor after, int pageSize) {
+        List<AgilefantHistoryEntry> entries = new ArrayList<AgilefantHistoryEntry>();
+        entries.addAll(this.backlogHistoryDAO.retrieveStoryChanges(iteration,
+                after, pageSize + 1));
+        entries.addAll(this.taskHistoryDAO.retrieveTaskChanges(iteration,
+                after, pageSize + 1));
+        Collections.sort(entries, new Comparator<AgilefantHistoryEntry>() {
+            public int compare(AgilefantHistoryEntry o1,
+                    AgilefantHistoryEntry o2) {
+                return HistoryFeedCursor.of(o1).compareTo(
+                        HistoryFeedCursor.of(o2));
+            }
+        });
+
+        HistoryFeedCursor next = null;
+        if (entries.size() > pageSize) {
+            entries = new ArrayList<AgilefantHistoryEntry>(entries.subList(0,
+                    pageSize));
+            next = HistoryFeedCursor.of(entries.get(pageSize - 1));
         }
-        
-        List<AgilefantHistoryEntry> modified = this.backlogHistoryDAO
-                .retrieveModifiedStories(iteration);
-        for (AgilefantHistoryEntry entry : modified) {
-            Story story = this.storyHistoryDAO.retrieveClosestRevision(entry
-                    .getObjectId(), entry.getRevision().getId());
-            entry.setObject(story);
+
+        List<Pair<Integer, Integer>> storyRevisions = new ArrayList<Pair<Integer, Integer>>();
+        for (AgilefantHistoryEntry entry : entries) {
+            if (entry.getObject() instanceof Story) {
+                storyRevisions.add(Pair.create(entry.getObjectId(), entry
+                        .getRevision().getId()));
+            }
         }
-        
-        List<AgilefantHistoryEntry> ret = new ArrayList<AgilefantHistoryEntry>();
-        ret.addAll(added);
-        ret.addAll(deleted);
-        ret.addAll(modified);
-        
-        Collections.sort(ret, new PropertyComparator("revision.timestamp",
-                true, false));
-        return ret;
+        Map<Pair<Integer, Integer>, Story> stories = this.storyHistoryDAO
+                .retrieveClosestRevisions(storyRevisions);
+        for (AgilefantHistoryEntry entry : entries) {
+            if (entry.getObject() instanceof Story) {
+                Story story = stories.get(Pair.create(entry.getObjectId(),
+                        entry.getRevision().getId()));
+                if (story != null) {
+                    entry.setObject(story);
+                }
+            }
+        }
+        return new HistoryFeedPage(entries, next);
     }
 
     /**
-     * This is to retrieve task history given an iteration, for all possible
-     * task modifications
-     * 
-     * Task revisions are stored in table 'tasks_AUD' given the current
-     * iteration (iteration_id). Note that if story_id is NULL, the selected
-     * task does not belong to any story.     
-     *       
-     * Interface needed: TaskHistoryDAO in db.history package
-     *  --> add function retrieveAllTaskRevisions(iteration)
-     * Implementation: TaskHistoryDAOImpl in db.history.impl package
-     *  --> implement the added function. --> Note that this is the same
-     *  as BacklogHistoryDAO, except that it uses the Iteration class instead
-     *  of the Backlog class.
-     * 
-     * @author aborici
-     * 
+     * {@inheritDoc}
+     * <p>
+     * The iteration is resolved through the cached tokens and loaded by its
+     * id. The token is checked against the loaded iteration, so a token
+     * revoked after caching never grants access.
      */
-    @SuppressWarnings("unchecked")
-    public List<AgilefantHistoryEntry> retrieveChangesInIterationTasks(
-            Iteration iteration) {
-        
-        List<AgilefantHistoryEntry> allTasks = this.taskHistoryDAO
-                .retrieveAllTaskRevisions(iteration);
-       
-        List<AgilefantHistoryEntry> ret = new ArrayList<AgilefantHistoryEntry>();
-        ret.addAll(allTasks);
-        
-        Collections.sort(ret, new PropertyComparator("revision.timestamp",
-                true, false));
-        
-        return ret;
-    }
-    
-    /**
-     * This is to mingle task and story revisions by sorting them based on
-     * timestamp.
-     * 
-     * @author aborici
-     * 
-     */
-    @SuppressWarnings("unchecked")
-    public List<AgilefantHistoryEntry> renderSortedTaskAndStoryRevisions (
-            Iteration iteration) {
-
-        // merge tasks and stories into list 'ret':
-        List<AgilefantHistoryEntry> ret = new ArrayList<AgilefantHistoryEntry>();
-        ret.addAll(this.retrieveChangesInIterationStories(iteration));
-        ret.addAll(this.retrieveChangesInIterationTasks(iteration));
-        
-        Collections.sort(ret, new PropertyComparator("revision.timestamp",
-                true, false));
-
-        return ret;
-    }
-    
     public Iteration retreiveIterationByReadonlyToken(String readonlyToken) {
-        Iteration iteration = iterationDAO.getIterationFromReadonlyToken(readonlyToken);
+        Integer iterationId = readonlyTokenBusiness.retrieveIterationId(readonlyToken);
+        if (iterationId == null) {
+            return null;
+        }
+        Iteration iteration = iterationDAO.get(iterationId);
+        if (iteration == null || !readonlyToken.equals(iteration.getReadonlyToken())) {
+            return null;
+        }
         return iteration;
     }
     
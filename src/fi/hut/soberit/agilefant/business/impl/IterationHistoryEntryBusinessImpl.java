@@ -1,6 +1,10 @@
 package fi.hut.soberit.agilefant.business.impl;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.joda.time.DateTime;
 import org.joda.time.Days;
@@ -9,7 +13,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import fi.hut.soberit.agilefant.business.IterationBurndownCacheBusiness;
 import fi.hut.soberit.agilefant.business.IterationHistoryEntryBusiness;
 import fi.hut.soberit.agilefant.db.IterationDAO;
 import fi.hut.soberit.agilefant.db.IterationHistoryEntryDAO;
@@ -29,6 +36,9 @@ public class IterationHistoryEntryBusinessImpl extends
     @Autowired
     private IterationDAO iterationDAO;    
     
+    @Autowired
+    private IterationBurndownCacheBusiness iterationBurndownCacheBusiness;
+    
     public IterationHistoryEntryBusinessImpl() {
         super(IterationHistoryEntry.class);
     }
@@ -40,13 +50,43 @@ public class IterationHistoryEntryBusinessImpl extends
         this.genericDAO = iterationHistoryEntryDAO;
     }
   
+    /**
+     * Within a transaction the iteration is only marked as changed, and the
+     * histories of all changed iterations are updated once just before the
+     * transaction commits.
+     */
     public void updateIterationHistory(int iterationId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            getPendingUpdates().add(iterationId);
+        }
+        else {
+            storeHistoryEntry(iterationId, iterationHistoryEntryDAO.calculateCurrentHistoryData(iterationId));
+        }
+    }
+    
+    private PendingHistoryUpdates getPendingUpdates() {
+        PendingHistoryUpdates pending = (PendingHistoryUpdates) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingHistoryUpdates();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+    
+    private void updateIterationHistories(Collection<Integer> iterationIds) {
+        Map<Integer, Pair<ExactEstimate, ExactEstimate>> sums = iterationHistoryEntryDAO.calculateCurrentHistoryData(iterationIds);
+        for (Integer iterationId : iterationIds) {
+            storeHistoryEntry(iterationId, sums.get(iterationId));
+        }
+    }
+    
+    private void storeHistoryEntry(int iterationId, Pair<ExactEstimate, ExactEstimate> sums) {
         Iteration iteration = iterationDAO.get(iterationId);
         IterationHistoryEntry latest = iterationHistoryEntryDAO.retrieveLatest(iterationId);
         IterationHistoryEntry newEntry = new IterationHistoryEntry();
         newEntry.setIteration(iteration);
         newEntry.setTimestamp(new LocalDate());
-        Pair<ExactEstimate, ExactEstimate> sums = iterationHistoryEntryDAO.calculateCurrentHistoryData(iterationId);
         long oldOriginalEstimateSum = (latest == null) ? 0 : latest.getOriginalEstimateSum();
         long effortLeftSum = (sums.first == null) ? 0 : sums.first.getMinorUnits();
         long originalEstimateSum = (sums.second == null) ? 0 : sums.second.getMinorUnits();
@@ -64,6 +104,31 @@ public class IterationHistoryEntryBusinessImpl extends
             newEntry.setDeltaOriginalEstimate(originalEstimateSum - oldOriginalEstimateSum);
             iterationHistoryEntryDAO.store(newEntry);
         }
+        iterationBurndownCacheBusiness.invalidate(iterationId);
+    }
+    
+    /**
+     * The iterations changed in the current transaction.
+     */
+    private class PendingHistoryUpdates extends TransactionSynchronizationAdapter {
+        
+        private final Set<Integer> iterationIds = new LinkedHashSet<Integer>();
+        
+        public void add(int iterationId) {
+            iterationIds.add(iterationId);
+        }
+        
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!iterationIds.isEmpty()) {
+                updateIterationHistories(iterationIds);
+            }
+        }
+        
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(IterationHistoryEntryBusinessImpl.this);
+        }
     }
     
     @Transactional(readOnly = true)
@@ -90,6 +155,11 @@ public class IterationHistoryEntryBusinessImpl extends
         this.iterationDAO = iterationDAO;
     }
 
+    public void setIterationBurndownCacheBusiness(
+            IterationBurndownCacheBusiness iterationBurndownCacheBusiness) {
+        this.iterationBurndownCacheBusiness = iterationBurndownCacheBusiness;
+    }
+
     @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public LocalDate calculateExpectedEffortDoneDate(LocalDate startDate,
             ExactEstimate effortLeft, ExactEstimate velocity) {
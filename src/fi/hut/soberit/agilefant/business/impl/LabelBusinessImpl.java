@@ -1,6 +1,13 @@
 package fi.hut.soberit.agilefant.business.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import org.joda.time.DateTime;
@@ -84,10 +91,59 @@ public class LabelBusinessImpl extends GenericBusinessImpl<Label> implements
         }
     }
     
+    public Map<Integer, List<String>> createStoryLabels(
+            List<String> labelNames, Collection<Story> stories) {
+        Map<Integer, List<String>> addedNames = new HashMap<Integer, List<String>>();
+        if (labelNames == null || labelNames.isEmpty() || stories.isEmpty()) {
+            return addedNames;
+        }
+        // The first display name is used, if the same label is given twice
+        Map<String, String> displayNames = new LinkedHashMap<String, String>();
+        for (String name : labelNames) {
+            String key = name.toLowerCase(Locale.ENGLISH);
+            if (!displayNames.containsKey(key)) {
+                displayNames.put(key, name);
+            }
+        }
+
+        Set<Integer> storyIds = new HashSet<Integer>();
+        for (Story story : stories) {
+            storyIds.add(story.getId());
+        }
+        Map<Integer, Set<String>> existingNames = labelDAO
+                .getLabelNamesByStory(storyIds);
+
+        User currentUser = SecurityUtil.getLoggedUser();
+        DateTime timestamp = new DateTime();
+        List<Label> labels = new ArrayList<Label>();
+        for (Story story : stories) {
+            Set<String> existing = existingNames.get(story.getId());
+            List<String> added = new ArrayList<String>();
+            for (Map.Entry<String, String> name : displayNames.entrySet()) {
+                if (existing != null && existing.contains(name.getKey())) {
+                    continue;
+                }
+                Label label = new Label();
+                label.setDisplayName(name.getValue());
+                label.setName(name.getValue());
+                label.setCreator(currentUser);
+                label.setStory(story);
+                label.setTimestamp(timestamp);
+                labels.add(label);
+                added.add(name.getValue());
+            }
+            if (!added.isEmpty()) {
+                addedNames.put(story.getId(), added);
+            }
+        }
+        labelDAO.createLabels(labels);
+        return addedNames;
+    }
+    
     public List<Label> lookupLabelsLike(String labelName) {
         return labelDAO.lookupLabelsLike(labelName);
     }
     
 
 
-}
\ No newline at end of file
+}
\ No newline at end of file
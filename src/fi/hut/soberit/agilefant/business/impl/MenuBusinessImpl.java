@@ -1,32 +1,25 @@
 package fi.hut.soberit.agilefant.business.impl;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.support.PropertyComparator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import fi.hut.soberit.agilefant.business.IterationBusiness;
+import fi.hut.soberit.agilefant.business.BacklogAccessBusiness;
+import fi.hut.soberit.agilefant.business.BacklogHierarchyBusiness;
 import fi.hut.soberit.agilefant.business.MenuBusiness;
-import fi.hut.soberit.agilefant.business.ProductBusiness;
-import fi.hut.soberit.agilefant.business.TransferObjectBusiness;
 import fi.hut.soberit.agilefant.db.IterationDAO;
 import fi.hut.soberit.agilefant.db.ProjectDAO;
 import fi.hut.soberit.agilefant.db.StoryDAO;
-import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Iteration;
-import fi.hut.soberit.agilefant.model.Product;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Story;
-import fi.hut.soberit.agilefant.model.Team;
 import fi.hut.soberit.agilefant.model.User;
-import fi.hut.soberit.agilefant.transfer.BacklogType;
 import fi.hut.soberit.agilefant.transfer.MenuDataNode;
+import fi.hut.soberit.agilefant.util.AccessibleBacklogs;
+import fi.hut.soberit.agilefant.util.BacklogHierarchy;
 import fi.hut.soberit.agilefant.util.MyAssignmentsMenuBuilder;
 
 /**
@@ -48,71 +41,49 @@ public class MenuBusinessImpl implements MenuBusiness {
     private StoryDAO storyDAO;
     
     @Autowired
-    private ProductBusiness productBusiness;
-    
-    @Autowired
-    private IterationBusiness iterationBusiness;
+    private BacklogAccessBusiness backlogAccessBusiness;
 
     @Autowired
-    private TransferObjectBusiness transferObjectBusiness;
+    private BacklogHierarchyBusiness backlogHierarchyBusiness;
 
-    @SuppressWarnings("unchecked")
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The menu is built from the backlog hierarchy snapshot, so no backlogs
+     * are loaded.
+     */
+    @Transactional(readOnly = true)
     public List<MenuDataNode> constructBacklogMenuData(User user) {
         List<MenuDataNode> nodes = new ArrayList<MenuDataNode>();
-        List<Product> products = new ArrayList<Product>(productBusiness
-                .retrieveAllOrderByName());
-        Collections.sort(products, new PropertyComparator("name", true, true));
+        AccessibleBacklogs accessible = backlogAccessBusiness
+                .getAccessibleBacklogs(user);
+        BacklogHierarchy hierarchy = backlogHierarchyBusiness.getHierarchy();
         
-        Set<Product> allowedProducts = new HashSet<Product>();
-        for(Team team : user.getTeams()){
-            allowedProducts.addAll(team.getProducts());
-        }
-        
-        for (Product prod : products) {
-            //check if we have access
-            if(allowedProducts.contains(prod)){
-                nodes.add(constructMenuDataNode(prod));
+        for (BacklogHierarchy.Node prod : hierarchy.getProducts()) {
+            if (accessible.getProductIds().contains(prod.getId())) {
+                nodes.add(constructMenuDataNode(hierarchy, prod));
             }
         }
         
-        final List<Iteration> standAloneIterations = new ArrayList<Iteration>(iterationBusiness.retrieveAllStandAloneIterations());
-        
-        Set<Iteration> allowedIterations = new HashSet<Iteration>();
-        for(Team team : user.getTeams()){
-            allowedIterations.addAll(team.getIterations());
-        }
-        
-        for (Iteration iteration: standAloneIterations) {
-            if(allowedIterations.contains(iteration)){
-                nodes.add(constructMenuDataNode(iteration));
+        for (BacklogHierarchy.Node iteration : hierarchy.getStandAloneIterations()) {
+            if (accessible.getIterationIds().contains(iteration.getId())) {
+                nodes.add(constructMenuDataNode(hierarchy, iteration));
             }
         }
         
         return nodes;
     }
 
-    @SuppressWarnings("unchecked")
-    private MenuDataNode constructMenuDataNode(Backlog backlog) {
+    private MenuDataNode constructMenuDataNode(BacklogHierarchy hierarchy,
+            BacklogHierarchy.Node backlog) {
         MenuDataNode mdn = new MenuDataNode();
         mdn.setTitle(backlog.getName());
         mdn.setId(backlog.getId());
-        mdn.setScheduleStatus(transferObjectBusiness
-                .getBacklogScheduleStatus(backlog));
-        List<Backlog> children = Collections.EMPTY_LIST;
-        if (!(backlog instanceof Iteration)) { // optimization
-            children = new ArrayList<Backlog>();
-            children.addAll(backlog.getChildren());
-            Collections.sort(children, new PropertyComparator("startDate",
-                    true, true));
-        }
-        
-        final BacklogType backlogClassType = BacklogType.forBacklog(backlog);
-        if (backlogClassType != null) {
-            mdn.setType(backlogClassType);
-        }
+        mdn.setScheduleStatus(backlog.getScheduleStatus());
+        mdn.setType(backlog.getType());
         
-        for (Backlog child : children) {
-            mdn.getChildren().add(constructMenuDataNode(child));
+        for (BacklogHierarchy.Node child : hierarchy.getChildren(backlog)) {
+            mdn.getChildren().add(constructMenuDataNode(hierarchy, child));
         }
 
         return mdn;
@@ -138,17 +109,14 @@ public class MenuBusinessImpl implements MenuBusiness {
         return builder.getNodes();
     }
 
-    public void setProductBusiness(ProductBusiness productBusiness) {
-        this.productBusiness = productBusiness;
-    }
-    
-    public void setIterationBusiness(IterationBusiness iterationBusiness) {
-        this.iterationBusiness = iterationBusiness;
+    public void setBacklogAccessBusiness(
+            BacklogAccessBusiness backlogAccessBusiness) {
+        this.backlogAccessBusiness = backlogAccessBusiness;
     }
 
-    public void setTransferObjectBusiness(
-            TransferObjectBusiness transferObjectBusiness) {
-        this.transferObjectBusiness = transferObjectBusiness;
+    public void setBacklogHierarchyBusiness(
+            BacklogHierarchyBusiness backlogHierarchyBusiness) {
+        this.backlogHierarchyBusiness = backlogHierarchyBusiness;
     }
     
     public void setIterationDAO(IterationDAO iterationDAO) {
@@ -4,6 +4,7 @@ package fi.hut.soberit.agilefant.business.impl;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -28,21 +29,25 @@ import fi.hut.soberit.agilefant.db.StoryDAO;
 import fi.hut.soberit.agilefant.db.TaskDAO;
 import fi.hut.soberit.agilefant.model.Assignment;
 import fi.hut.soberit.agilefant.model.Backlog;
-import fi.hut.soberit.agilefant.model.ExactEstimate;
 import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Product;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Schedulable;
 import fi.hut.soberit.agilefant.model.StoryState;
 import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.model.TaskState;
 import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.transfer.AssignmentLoadTO;
 import fi.hut.soberit.agilefant.transfer.BacklogLoadContainer;
+import fi.hut.soberit.agilefant.transfer.BacklogType;
 import fi.hut.soberit.agilefant.transfer.ComputedLoadData;
 import fi.hut.soberit.agilefant.transfer.IntervalLoadContainer;
 import fi.hut.soberit.agilefant.transfer.IterationLoadContainer;
 import fi.hut.soberit.agilefant.transfer.ProjectLoadContainer;
+import fi.hut.soberit.agilefant.transfer.TeamLoadData;
 import fi.hut.soberit.agilefant.transfer.UnassignedLoadTO;
 import fi.hut.soberit.agilefant.transfer.UserLoadLimits;
+import fi.hut.soberit.agilefant.util.WorkingDays;
 
 @Service("personalLoadBusiness")
 @Transactional(readOnly = true)
@@ -164,7 +169,7 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
 
     public void calculateUnassignedTaskLoad(
             Map<Integer, IterationLoadContainer> iterationEffortData,
-            User user, Interval interval) {
+            User user, Interval interval, TeamLoadData teamData) {
         // get raw load data
         List<UnassignedLoadTO> rawUnassignedLoad = new ArrayList<UnassignedLoadTO>();
         rawUnassignedLoad.addAll(this.taskDAO
@@ -173,7 +178,7 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
                 .getUnassignedStoryTasksWithEffortLeft(user, interval));
 
         // get iterations
-        loadIterationAvailabilitySums(rawUnassignedLoad);
+        loadIterationAvailabilitySums(rawUnassignedLoad, teamData);
 
         for (UnassignedLoadTO row : rawUnassignedLoad) {
             if (!iterationEffortData.containsKey(row.iterationId)) {
@@ -199,7 +204,7 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
 
     public void calculateIterationFutureLoad(
             Map<Integer, IterationLoadContainer> iterationEffortData,
-            User user, Interval interval) {
+            User user, Interval interval, TeamLoadData teamData) {
         List<Iteration> emptyIterations = this.iterationDAO
                 .retrieveEmptyIterationsWithPlannedSize(interval.getStart(),
                         interval.getEnd(), user);
@@ -208,8 +213,8 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
             iterationIds.add(iter.getId());
         }
         
-        Map<Integer, Integer> totalAvailabilities = this.iterationDAO
-        .getTotalAvailability(iterationIds);
+        Map<Integer, Integer> totalAvailabilities = this
+                .retrieveTotalAvailability(iterationIds, teamData);
         
         for (Iteration iter : emptyIterations) {
             int availability = lookupAvailability(user, iter);
@@ -241,9 +246,11 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
      * @param rawUnassignedLoad
      *            Collection of UnassignedLoadTO transfer objects that each
      *            contain an iteration id.
+     * @param teamData
+     *            the data loaded for the whole team, or <code>null</code>
      */
     public void loadIterationAvailabilitySums(
-            List<UnassignedLoadTO> rawUnassignedLoad) {
+            List<UnassignedLoadTO> rawUnassignedLoad, TeamLoadData teamData) {
         Set<Integer> iterationIds = new HashSet<Integer>();
         for (UnassignedLoadTO row : rawUnassignedLoad) {
             iterationIds.add(row.iterationId);
@@ -251,8 +258,8 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
         Collection<Iteration> iterations = this.iterationDAO.getMultiple(iterationIds);
         
         // get availability sums per iteration
-        Map<Integer, Integer> totalAvailabilities = this.iterationDAO
-                .getTotalAvailability(iterationIds);
+        Map<Integer, Integer> totalAvailabilities = this
+                .retrieveTotalAvailability(iterationIds, teamData);
 
         for (UnassignedLoadTO row : rawUnassignedLoad) {
             for (Iteration iter : iterations) {
@@ -268,31 +275,129 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
         }
     }
 
+    /**
+     * Get the sums of the assignment availabilities of the iterations. The
+     * sums loaded for the team are used when available.
+     */
+    private Map<Integer, Integer> retrieveTotalAvailability(
+            Set<Integer> iterationIds, TeamLoadData teamData) {
+        if (teamData == null) {
+            return this.iterationDAO.getTotalAvailability(iterationIds);
+        }
+        Map<Integer, Integer> totalAvailabilities = new HashMap<Integer, Integer>();
+        Set<Integer> missingIds = new HashSet<Integer>();
+        for (Integer iterationId : iterationIds) {
+            Integer total = teamData.getTotalAvailability(iterationId);
+            if (total != null) {
+                totalAvailabilities.put(iterationId, total);
+            } else {
+                missingIds.add(iterationId);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            totalAvailabilities.putAll(this.iterationDAO
+                    .getTotalAvailability(missingIds));
+        }
+        return totalAvailabilities;
+    }
+
     /**
      * Combine directly and indirectly assigned task load.
      */
     public Map<Integer, IterationLoadContainer> calculateTotalAssignedUserLoad(
-            User user, Interval interval) {
+            User user, Interval interval, TeamLoadData teamData) {
         Map<Integer, IterationLoadContainer> userLoadDataPerIteration = new HashMap<Integer, IterationLoadContainer>();
         this.calculateDirectlyAssignedTaskLoad(userLoadDataPerIteration, user,
                 interval);
         this.calculateStoryAssignedTaskLoad(userLoadDataPerIteration, user,
                 interval);
         this.calculateUnassignedTaskLoad(userLoadDataPerIteration, user,
-                interval);
+                interval, teamData);
         return userLoadDataPerIteration;
     }
 
     /**
-     * Update load data in the container to account for the load from the given
-     * iteration.
+     * Distribute the load of the iterations to the periods.
+     * <p>
+     * The iterations are gone through in the order of their start dates, so
+     * the search for the first period of an iteration continues from the
+     * first period of the previous one. The periods must be consecutive and
+     * in order. The worktime of each iteration is calculated once.
+     */
+    public void distributeIterationLoad(List<IntervalLoadContainer> periods,
+            Collection<IterationLoadContainer> iterationLoads,
+            WorkingDays workingDays) {
+        DateTime now = new DateTime().withMillisOfSecond(0);
+        final Map<IterationLoadContainer, Interval> remainingIntervals = new HashMap<IterationLoadContainer, Interval>();
+        for (IterationLoadContainer load : iterationLoads) {
+            remainingIntervals.put(load, getRemainingInterval(load
+                    .getIteration(), now));
+        }
+        List<IterationLoadContainer> sortedLoads = new ArrayList<IterationLoadContainer>(
+                iterationLoads);
+        Collections.sort(sortedLoads, new Comparator<IterationLoadContainer>() {
+            public int compare(IterationLoadContainer o1,
+                    IterationLoadContainer o2) {
+                long start1 = remainingIntervals.get(o1).getStartMillis();
+                long start2 = remainingIntervals.get(o2).getStartMillis();
+                return start1 < start2 ? -1 : (start1 == start2 ? 0 : 1);
+            }
+        });
+
+        int firstPeriod = 0;
+        for (IterationLoadContainer load : sortedLoads) {
+            Interval iterationInterval = remainingIntervals.get(load);
+            while (firstPeriod < periods.size()
+                    && periods.get(firstPeriod).getInterval().getEndMillis() <= iterationInterval
+                            .getStartMillis()) {
+                firstPeriod++;
+            }
+            Duration workTimeInIteration = null;
+            for (int i = firstPeriod; i < periods.size(); i++) {
+                IntervalLoadContainer period = periods.get(i);
+                if (period.getInterval().getStartMillis() >= iterationInterval
+                        .getEndMillis()) {
+                    break;
+                }
+                if (!iterationInterval.overlaps(period.getInterval())) {
+                    continue;
+                }
+                if (workTimeInIteration == null) {
+                    workTimeInIteration = workingDays
+                            .calculateWorktime(iterationInterval);
+                }
+                this.addIntervalLoad(period, load, iterationInterval,
+                        workTimeInIteration, workingDays);
+            }
+        }
+    }
+
+    /**
+     * The part of the iteration that is left, which starts from now for
+     * ongoing iterations.
      */
-    public void updateUserLoadByInterval(IntervalLoadContainer container,
-            IterationLoadContainer load, User user) {
-        Interval iterationInterval = new Interval(load.getIteration()
-                .getStartDate(), load.getIteration().getEndDate());
-        double fraction = calculateIntervalFraction(container.getInterval(),
-                iterationInterval, user);
+    private static Interval getRemainingInterval(Iteration iteration,
+            DateTime now) {
+        Interval interval = new Interval(iteration.getStartDate(), iteration
+                .getEndDate());
+        if (interval.contains(now)) {
+            return new Interval(now, interval.getEnd());
+        }
+        return interval;
+    }
+
+    private void addIntervalLoad(IntervalLoadContainer container,
+            IterationLoadContainer load, Interval iterationInterval,
+            Duration workTimeInIteration, WorkingDays workingDays) {
+        Interval periodInterval = container.getInterval().overlap(
+                iterationInterval);
+
+        // (work days in period / total work days in this iteration) * total
+        // work
+        Duration workTimeInPeriod = workingDays
+                .calculateWorktime(periodInterval);
+        double fraction = (double) workTimeInPeriod.getMillis()
+                / (double) workTimeInIteration.getMillis();
 
         double assignedEffortPortion = (double) load.getTotalAssignedLoad()
                 * fraction;
@@ -316,30 +421,23 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
         container.getDetailedLoad().add(perUserIterationLoad);
     }
 
-    private double calculateIntervalFraction(Interval containerInterval,
-            Interval backlogInterval, User user) {
-        
-        if(backlogInterval.containsNow()) {
-            backlogInterval = new Interval(new DateTime().withMillisOfSecond(0), backlogInterval.getEnd());
-        }
-        
-        // iteration is not ongoing at this time
-        if (!backlogInterval.overlaps(containerInterval)) {
-            return 0.0;
+    /**
+     * Find the first of the consecutive periods that ends after the given
+     * time.
+     */
+    private static int findFirstPeriod(List<IntervalLoadContainer> periods,
+            long startMillis) {
+        int low = 0;
+        int high = periods.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (periods.get(mid).getInterval().getEndMillis() > startMillis) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
         }
-        
-        Interval periodInterval = containerInterval.overlap(backlogInterval);
-
-        // (work days in period / total work days in this iteration) * total
-        // work
-        Duration workTimeInBacklog = this.userBusiness
-                .calculateWorktimePerPeriod(user, backlogInterval);
-        Duration workTimeInPeriod = this.userBusiness
-                .calculateWorktimePerPeriod(user, periodInterval);
-
-        double fraction = (double) workTimeInPeriod.getMillis()
-                / (double) workTimeInBacklog.getMillis();
-        return fraction;
+        return low;
     }
 
     public List<IntervalLoadContainer> initializeLoadContainers(User user,
@@ -364,26 +462,48 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
     /**
      * Computes baseline load portions per interval.
      * 
-     * Baseline load will not be added for vacations or weekends.
+     * Baseline load will not be added for vacations or weekends. Only the
+     * intervals overlapping each assignment's backlog are gone through.
+     */
+    public void addBaselineLoad(ComputedLoadData preComputedLoad,
+            List<Assignment> assigments, WorkingDays workingDays) {
+        List<AssignmentLoadTO> assignmentLoads = new ArrayList<AssignmentLoadTO>();
+        Map<Integer, Backlog> backlogs = new HashMap<Integer, Backlog>();
+        for (Assignment assignment : assigments) {
+            assignmentLoads.add(new AssignmentLoadTO(assignment));
+            backlogs.put(assignment.getBacklog().getId(), assignment
+                    .getBacklog());
+        }
+        this.addBaselineLoad(preComputedLoad, assignmentLoads, backlogs,
+                workingDays);
+    }
+
+    /**
+     * @param backlogs
+     *            the backlogs of the assignments by id, for the detailed load
      */
-    public void addBaselineLoad(ComputedLoadData preComputedLoad, User user,
-            Interval interval) {
+    private void addBaselineLoad(ComputedLoadData preComputedLoad,
+            List<AssignmentLoadTO> assigments, Map<Integer, Backlog> backlogs,
+            WorkingDays workingDays) {
         List<IntervalLoadContainer> loadContainers = preComputedLoad
                 .getLoadContainers();
-        List<Assignment> assigments = this.assignmentDAO
-                .assigmentsInBacklogTimeframe(interval, user);
-        Map<Integer, Interval> assigmentIntervals = calculateAssigmentIntervals(assigments);
-        for (IntervalLoadContainer intervalLoad : loadContainers) {
-            for (Assignment assignment : assigments) {
-                Interval assigmentBacklogInterval = assigmentIntervals
-                        .get(assignment.getId());
+        for (AssignmentLoadTO assignment : assigments) {
+            Interval assigmentBacklogInterval = calculateAssigmentInterval(assignment);
+            long dailyBaselineLoad = (assignment.getBacklogBaselineLoad() + assignment
+                    .getPersonalLoad()) / 5;
+            for (int i = findFirstPeriod(loadContainers,
+                    assigmentBacklogInterval.getStartMillis()); i < loadContainers
+                    .size(); i++) {
+                IntervalLoadContainer intervalLoad = loadContainers.get(i);
+                if (intervalLoad.getInterval().getStartMillis() >= assigmentBacklogInterval
+                        .getEndMillis()) {
+                    break;
+                }
                 Interval assignmentWithinCurrentInterval = intervalLoad
                         .getInterval().overlap(assigmentBacklogInterval);
                 if (assignmentWithinCurrentInterval != null) {
-                    long dailyBaselineLoad = determinateWeeklyBaselineLoad(assignment) / 5;
-                    Duration effectiveWorktime = this.userBusiness
-                            .calculateWorktimePerPeriod(user,
-                                    assignmentWithinCurrentInterval);
+                    Duration effectiveWorktime = workingDays
+                            .calculateWorktime(assignmentWithinCurrentInterval);
                     // from milliseconds to days
                     long exactDays = effectiveWorktime.getMillis() / 86400000;
                     long baselineLoadForInterval = dailyBaselineLoad
@@ -394,7 +514,7 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
 
                     BacklogLoadContainer backlogLoad = this
                             .getBacklogLoadContainerFromInterval(intervalLoad,
-                                    assignment.getBacklog());
+                                    backlogs.get(assignment.getBacklogId()));
 
                     backlogLoad.setTotalBaselineLoad(backlogLoad
                             .getTotalBaselineLoad()
@@ -428,75 +548,166 @@ public class PersonalLoadBusinessImpl implements PersonalLoadBusiness {
         return targetContainer;
     }
 
-    private long determinateWeeklyBaselineLoad(Assignment assignment) {
-        long baselineLoad = 0L;
-        ExactEstimate backlogBaseline = null;
-        if (assignment.getBacklog() instanceof Iteration) {
-            backlogBaseline = ((Iteration) assignment.getBacklog())
-                    .getBaselineLoad();
-        } else if (assignment.getBacklog() instanceof Project) {
-            backlogBaseline = ((Project) assignment.getBacklog())
-                    .getBaselineLoad();
-        }
-        if (backlogBaseline != null) {
-            baselineLoad = backlogBaseline.longValue();
+    private static Interval calculateAssigmentInterval(
+            AssignmentLoadTO assigment) {
+        if (assigment.getStartDate() == null
+                || assigment.getEndDate() == null) {
+            return new Interval(0);
         }
+        return new Interval(assigment.getStartDate(), assigment.getEndDate());
+    }
 
-        if (assignment.getPersonalLoad() != null) {
-            baselineLoad += assignment.getPersonalLoad().longValue();
+    /**
+     * Replace the backlogs of the detailed load with copies that hold only
+     * the values shown with the load. The load of a team member is returned
+     * from the worker's session after the session has been closed.
+     * 
+     * @param copies
+     *            the copies made so far by backlog id
+     */
+    private static void copyBacklogs(ComputedLoadData loadData,
+            Map<Integer, Backlog> copies) {
+        for (IntervalLoadContainer period : loadData.getLoadContainers()) {
+            for (BacklogLoadContainer load : period.getDetailedLoad()) {
+                if (load instanceof IterationLoadContainer) {
+                    IterationLoadContainer iterationLoad = (IterationLoadContainer) load;
+                    iterationLoad.setIteration((Iteration) copyBacklog(
+                            iterationLoad.getIteration(), copies));
+                } else if (load instanceof ProjectLoadContainer) {
+                    ProjectLoadContainer projectLoad = (ProjectLoadContainer) load;
+                    projectLoad.setProject((Project) copyBacklog(projectLoad
+                            .getProject(), copies));
+                }
+            }
         }
-        return baselineLoad;
     }
 
-    private Map<Integer, Interval> calculateAssigmentIntervals(
-            List<Assignment> assigments) {
-        Map<Integer, Interval> assigmentIntervals = new HashMap<Integer, Interval>();
-        for (Assignment assigment : assigments) {
-            Interval blInterval;
-            Backlog backlog = assigment.getBacklog();
+    private static Backlog copyBacklog(Backlog backlog,
+            Map<Integer, Backlog> copies) {
+        Backlog copy = copies.get(backlog.getId());
+        if (copy == null) {
+            DateTime startDate = null;
+            DateTime endDate = null;
             if (backlog instanceof Schedulable) {
-                Schedulable bl = (Schedulable) backlog;
-                blInterval = new Interval(bl.getStartDate(), bl.getEndDate());
-            } else {
-                blInterval = new Interval(0);
+                startDate = ((Schedulable) backlog).getStartDate();
+                endDate = ((Schedulable) backlog).getEndDate();
             }
-            assigmentIntervals.put(assigment.getId(), blInterval);
+            copy = createBacklog(BacklogType.forBacklog(backlog), backlog
+                    .getId(), backlog.getName(), startDate, endDate);
+            copies.put(copy.getId(), copy);
+        }
+        return copy;
+    }
+
+    private static Backlog createBacklog(BacklogType type, int id,
+            String name, DateTime startDate, DateTime endDate) {
+        Backlog backlog;
+        if (type == BacklogType.ITERATION) {
+            Iteration iteration = new Iteration();
+            iteration.setStartDate(startDate);
+            iteration.setEndDate(endDate);
+            backlog = iteration;
+        } else if (type == BacklogType.PROJECT) {
+            Project project = new Project();
+            project.setStartDate(startDate);
+            project.setEndDate(endDate);
+            backlog = project;
+        } else {
+            backlog = new Product();
         }
-        return assigmentIntervals;
+        backlog.setId(id);
+        backlog.setName(name);
+        return backlog;
     }
 
     public ComputedLoadData generatePersonalAssignedLoad(User user,
-            DateTime startDate, DateTime endDate, Period len) {
+            DateTime startDate, DateTime endDate, Period len,
+            TeamLoadData teamData) {
         Interval interval = new Interval(startDate, endDate);
         Map<Integer, IterationLoadContainer> iterationEffortLeft = this
-                .calculateTotalAssignedUserLoad(user, interval);
-        this.calculateIterationFutureLoad(iterationEffortLeft, user, interval);
+                .calculateTotalAssignedUserLoad(user, interval, teamData);
+        this.calculateIterationFutureLoad(iterationEffortLeft, user, interval,
+                teamData);
         List<IntervalLoadContainer> periods = this.initializeLoadContainers(
                 user, startDate, endDate, len);
         ComputedLoadData loadData = new ComputedLoadData();
         loadData.setLoadContainers(periods);
 
-        for (Integer iterationId : iterationEffortLeft.keySet()) {
-            for (IntervalLoadContainer period : periods) {
-                this.updateUserLoadByInterval(period, iterationEffortLeft
-                        .get(iterationId), user);
+        WorkingDays workingDays = this.userBusiness.getWorkingDays(user,
+                new Interval(startDate, getLatestEndDate(endDate,
+                        iterationEffortLeft.values())));
+        this.distributeIterationLoad(periods, iterationEffortLeft.values(),
+                workingDays);
+        if (teamData == null) {
+            this.addBaselineLoad(loadData, this.assignmentDAO
+                    .assigmentsInBacklogTimeframe(interval, user), workingDays);
+        } else {
+            List<AssignmentLoadTO> assignments = teamData.getAssignments(user
+                    .getId());
+            Map<Integer, Backlog> backlogs = new HashMap<Integer, Backlog>();
+            for (AssignmentLoadTO assignment : assignments) {
+                backlogs.put(assignment.getBacklogId(), createBacklog(
+                        assignment.getBacklogType(), assignment.getBacklogId(),
+                        assignment.getBacklogName(), assignment.getStartDate(),
+                        assignment.getEndDate()));
             }
+            this.addBaselineLoad(loadData, assignments, backlogs, workingDays);
+            copyBacklogs(loadData, backlogs);
         }
-        this.addBaselineLoad(loadData, user, interval);
         loadData.setStartDate(startDate);
         loadData.setEndDate(endDate);
         return loadData;
     }
 
+    private static DateTime getLatestEndDate(DateTime endDate,
+            Collection<IterationLoadContainer> iterationLoads) {
+        DateTime latest = endDate;
+        for (IterationLoadContainer load : iterationLoads) {
+            if (load.getIteration().getEndDate().isAfter(latest)) {
+                latest = load.getIteration().getEndDate();
+            }
+        }
+        return latest;
+    }
+
     public ComputedLoadData retrieveUserLoad(User user, int weeksAhead) {
+        return this.retrieveUserLoad(user, weeksAhead, null);
+    }
+
+    public ComputedLoadData retrieveUserLoad(User user, int weeksAhead,
+            TeamLoadData teamData) {
         Period len = new Period();
         len = len.plusDays(1);
+        Interval interval = calculateLoadInterval(weeksAhead);
+        return this.generatePersonalAssignedLoad(user, interval.getStart(),
+                interval.getEnd(), len, teamData);
+    }
+
+    public TeamLoadData retrieveTeamLoadData(Collection<Integer> userIds,
+            int weeksAhead) {
+        List<Assignment> assignments = this.assignmentDAO
+                .assigmentsInBacklogTimeframe(
+                        calculateLoadInterval(weeksAhead), userIds);
+        Set<Integer> iterationIds = new HashSet<Integer>();
+        for (Assignment assignment : assignments) {
+            if (assignment.getBacklog() instanceof Iteration) {
+                iterationIds.add(assignment.getBacklog().getId());
+            }
+        }
+        return new TeamLoadData(assignments, this.iterationDAO
+                .getTotalAvailability(iterationIds));
+    }
+
+    /**
+     * The load is calculated from the start of the current day.
+     */
+    private static Interval calculateLoadInterval(int weeksAhead) {
         MutableDateTime startDate = new MutableDateTime();
         startDate.setMillisOfDay(0);
 
         DateTime start = startDate.toDateTime();
         DateTime end = start.plusWeeks(weeksAhead);
-        return this.generatePersonalAssignedLoad(user, start, end, len);
+        return new Interval(start, end);
     }
 
     public UserLoadLimits getDailyLoadLimitsByUser(User user) {
@@ -16,6 +16,8 @@ import org.springframework.beans.support.PropertyComparator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import fi.hut.soberit.agilefant.business.BacklogAccessBusiness;
+import fi.hut.soberit.agilefant.business.BacklogHierarchyBusiness;
 import fi.hut.soberit.agilefant.business.HourEntryBusiness;
 import fi.hut.soberit.agilefant.business.IterationBusiness;
 import fi.hut.soberit.agilefant.business.ProductBusiness;
@@ -58,6 +60,10 @@ public class ProductBusinessImpl extends GenericBusinessImpl<Product> implements
     private TransferObjectBusiness transferObjectBusiness;
     @Autowired
     private TeamBusiness teamBusiness;
+    @Autowired
+    private BacklogAccessBusiness backlogAccessBusiness;
+    @Autowired
+    private BacklogHierarchyBusiness backlogHierarchyBusiness;
 
     public ProductBusinessImpl() {
         super(Product.class);
@@ -88,15 +94,18 @@ public class ProductBusinessImpl extends GenericBusinessImpl<Product> implements
                 teams.add(teamBusiness.retrieve(tid));
             }
             storable.setTeams(teams);
+            backlogAccessBusiness.invalidate();
         }
         
         storable.setName(productData.getName());
         storable.setDescription(productData.getDescription());
         if (storable.getId() > 0) {
             this.store(storable);
+            backlogHierarchyBusiness.invalidate();
             return storable;
         } else {
             int createdId = this.create(storable);
+            backlogHierarchyBusiness.invalidate();
             return this.retrieve(createdId);
         }
     }
@@ -155,6 +164,7 @@ public class ProductBusinessImpl extends GenericBusinessImpl<Product> implements
         }
 
         super.delete(product);
+        backlogHierarchyBusiness.invalidate();
     }
 
     @SuppressWarnings("unchecked")
@@ -7,6 +7,8 @@ import java.awt.Stroke;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartUtilities;
@@ -29,6 +31,8 @@ import org.springframework.transaction.annotation.Transactional;
 import fi.hut.soberit.agilefant.business.ProjectBurnupBusiness;
 import fi.hut.soberit.agilefant.db.BacklogHistoryEntryDAO;
 import fi.hut.soberit.agilefant.model.Project;
+import fi.hut.soberit.agilefant.transfer.ChartData;
+import fi.hut.soberit.agilefant.transfer.ChartSeries;
 import fi.hut.soberit.agilefant.util.CustomXYStepRenderer;
 import fi.hut.soberit.agilefant.util.ProjectBurnupData;
 import fi.hut.soberit.agilefant.util.Triple;
@@ -60,6 +64,11 @@ public class ProjectBurnupBusinessImpl implements ProjectBurnupBusiness {
     protected static final String DONE_NAME = "Work done";
     protected static final String BRANCH_MAX_NAME = "Branch Maximum";
 
+    /* Series ids in the chart data */
+    protected static final String PLANNED_ID = "planned";
+    protected static final String DONE_ID = "done";
+    protected static final String BRANCH_MAX_ID = "branchMax";
+
     
     @Transactional(readOnly = true)
     public byte[] getBurnup(Project project) {
@@ -71,6 +80,23 @@ public class ProjectBurnupBusinessImpl implements ProjectBurnupBusiness {
         return getChartImageByteArray(constructSmallChart(project), SMALL_WIDTH, SMALL_HEIGHT);
     }
     
+    @Transactional(readOnly = true)
+    public ChartData getBurnupData(Project project) {
+        ProjectBurnupData data = backlogHistoryEntryDAO
+                .retrieveBurnupData(project.getId());
+        Triple<TimeSeriesCollection, TimeSeriesCollection, TimeSeriesCollection> datasets = convertToDatasets(data);
+
+        List<ChartSeries> series = new ArrayList<ChartSeries>();
+        series.add(ChartSeries.fromTimeSeries(PLANNED_ID, datasets.first
+                .getSeries(0)));
+        series.add(ChartSeries.fromTimeSeries(DONE_ID, datasets.second
+                .getSeries(0)));
+        series.add(ChartSeries.fromTimeSeries(BRANCH_MAX_ID, datasets.third
+                .getSeries(0)));
+        return new ChartData("'" + project.getName() + "' burnup", project
+                .getStartDate().getMillis(), project.getEndDate().getMillis(),
+                series);
+    }
     
     /**
      * Generates a byte array (a png image file) from a JFreeChart object
@@ -258,5 +284,10 @@ public class ProjectBurnupBusinessImpl implements ProjectBurnupBusiness {
         result.setStepStroke(stepStroke);
         return result;
     }
+
+    public void setBacklogHistoryEntryDAO(
+            BacklogHistoryEntryDAO backlogHistoryEntryDAO) {
+        this.backlogHistoryEntryDAO = backlogHistoryEntryDAO;
+    }
     
 }
@@ -14,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import fi.hut.soberit.agilefant.business.AssignmentBusiness;
 import fi.hut.soberit.agilefant.business.BacklogBusiness;
+import fi.hut.soberit.agilefant.business.BacklogHierarchyBusiness;
 import fi.hut.soberit.agilefant.business.BacklogHistoryEntryBusiness;
 import fi.hut.soberit.agilefant.business.HourEntryBusiness;
 import fi.hut.soberit.agilefant.business.IterationBusiness;
@@ -69,6 +70,8 @@ public class ProjectBusinessImpl extends GenericBusinessImpl<Project> implements
     @Autowired
     private HourEntryBusiness hourEntryBusiness;
     @Autowired
+    private BacklogHierarchyBusiness backlogHierarchyBusiness;
+    @Autowired
     private IterationBusiness iterationBusiness;
     @Autowired
     private BacklogHistoryEntryBusiness historyEntryBusiness;
@@ -180,8 +183,10 @@ public class ProjectBusinessImpl extends GenericBusinessImpl<Project> implements
             persistable = this.retrieve(projectId);       
         } 
         validateProjectData(project, projectId, productId);
+        boolean parentChanged = false;
         if(productId != null ){
             Product product = this.productBusiness.retrieve(productId);
+            parentChanged = projectId > 0 && persistable.getParent() != product;
             persistable.setParent(product);
         }
         setAssignees(persistable, assigneeIds);
@@ -194,6 +199,10 @@ public class ProjectBusinessImpl extends GenericBusinessImpl<Project> implements
         persistable.setBacklogSize(project.getBacklogSize());   
         persistable.setBaselineLoad(project.getBaselineLoad());
         Project stored = persistProject(persistable);
+        backlogHierarchyBusiness.invalidate();
+        if (parentChanged) {
+            hourEntryBusiness.updateBacklogPath(stored);
+        }
         
         ProjectTO to = transferObjectBusiness.constructProjectTO(stored);
         if (projectId > 0) {
@@ -402,6 +411,7 @@ public class ProjectBusinessImpl extends GenericBusinessImpl<Project> implements
         }
         
         super.delete(project);
+        backlogHierarchyBusiness.invalidate();
 
     }
 
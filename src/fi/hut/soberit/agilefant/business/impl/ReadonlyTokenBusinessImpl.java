@@ -0,0 +1,131 @@
+package fi.hut.soberit.agilefant.business.impl;
+
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.joda.time.DateTimeUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fi.hut.soberit.agilefant.business.ReadonlyTokenBusiness;
+import fi.hut.soberit.agilefant.db.IterationDAO;
+
+@Service("readonlyTokenBusiness")
+@Transactional(readOnly = true)
+public class ReadonlyTokenBusinessImpl implements ReadonlyTokenBusiness {
+
+    /**
+     * How long the tokens are used before they are reloaded.
+     */
+    public static final long TOKEN_TTL_MILLIS = 60000L;
+
+    @Autowired
+    private IterationDAO iterationDAO;
+
+    private volatile Tokens tokens;
+
+    /**
+     * Incremented on every invalidation, so that tokens loaded before an
+     * invalidation are not cached.
+     */
+    private int generation;
+
+    /**
+     * Held by the caller reloading the tokens.
+     */
+    private final Lock reloadLock = new ReentrantLock();
+
+    private static class Tokens {
+        private final Map<String, Integer> iterationIds;
+        private final long expires;
+
+        private Tokens(Map<String, Integer> iterationIds, long expires) {
+            this.iterationIds = iterationIds;
+            this.expires = expires;
+        }
+    }
+
+    public Integer retrieveIterationId(String token) {
+        if (token == null || token.length() == 0) {
+            return null;
+        }
+        return getTokens().get(token);
+    }
+
+    public boolean isValidToken(String token) {
+        return retrieveIterationId(token) != null;
+    }
+
+    /**
+     * Drops the tokens now and again when the transaction has completed, so
+     * that tokens reloaded before the changes were committed are not used.
+     */
+    public void invalidate() {
+        drop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager
+                    .registerSynchronization(new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            drop();
+                        }
+                    });
+        }
+    }
+
+    private synchronized void drop() {
+        generation++;
+        tokens = null;
+    }
+
+    /**
+     * Only one caller reloads expired tokens. The others keep using the
+     * expired tokens meanwhile, unless the tokens have been invalidated, in
+     * which case they wait for the reload.
+     */
+    private Map<String, Integer> getTokens() {
+        Tokens current = tokens;
+        if (current != null && current.expires > DateTimeUtils.currentTimeMillis()) {
+            return current.iterationIds;
+        }
+        if (current == null) {
+            reloadLock.lock();
+        } else if (!reloadLock.tryLock()) {
+            return current.iterationIds;
+        }
+        try {
+            current = tokens;
+            if (current != null
+                    && current.expires > DateTimeUtils.currentTimeMillis()) {
+                return current.iterationIds;
+            }
+            return reload();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private Map<String, Integer> reload() {
+        int loadedGeneration;
+        synchronized (this) {
+            loadedGeneration = generation;
+        }
+        long expires = DateTimeUtils.currentTimeMillis() + TOKEN_TTL_MILLIS;
+        Map<String, Integer> iterationIds = iterationDAO
+                .retrieveReadonlyTokens();
+        synchronized (this) {
+            if (loadedGeneration == generation) {
+                tokens = new Tokens(iterationIds, expires);
+            }
+        }
+        return iterationIds;
+    }
+
+    public void setIterationDAO(IterationDAO iterationDAO) {
+        this.iterationDAO = iterationDAO;
+    }
+}
@@ -1,26 +1,27 @@
 package fi.hut.soberit.agilefant.business.impl;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import fi.hut.soberit.agilefant.business.BacklogAccessBusiness;
 import fi.hut.soberit.agilefant.business.SearchBusiness;
 import fi.hut.soberit.agilefant.db.BacklogDAO;
+import fi.hut.soberit.agilefant.db.GenericDAO;
+import fi.hut.soberit.agilefant.db.SearchIndexDAO;
 import fi.hut.soberit.agilefant.db.StoryDAO;
 import fi.hut.soberit.agilefant.db.TaskDAO;
 import fi.hut.soberit.agilefant.db.UserDAO;
 import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.NamedObject;
-import fi.hut.soberit.agilefant.model.Product;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.Task;
-import fi.hut.soberit.agilefant.model.Team;
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.security.SecurityUtil;
 import fi.hut.soberit.agilefant.transfer.SearchResultRow;
@@ -36,6 +37,10 @@ public class SearchBusinessImpl implements SearchBusiness {
     private UserDAO userDAO;
     @Autowired
     private TaskDAO taskDAO;
+    @Autowired
+    private SearchIndexDAO searchIndexDAO;
+    @Autowired
+    private BacklogAccessBusiness backlogAccessBusiness;
 
     public List<SearchResultRow> searchStoriesAndBacklog(String searchTerm) {
         List<SearchResultRow> result = new ArrayList<SearchResultRow>();
@@ -44,22 +49,56 @@ public class SearchBusinessImpl implements SearchBusiness {
             result.add(new SearchResultRow(quickRefMatch.getName(),
                     quickRefMatch));
         }
-        List<Backlog> backlogs = backlogDAO.searchByName(searchTerm);
+        List<Backlog> backlogs = searchIndex(backlogDAO, Backlog.class, searchTerm);
         backlogListSearchResult(result, backlogs);
-        List<Story> stories = storyDAO.searchByName(searchTerm);
+        List<Story> stories = searchIndex(storyDAO, Story.class, searchTerm);
         try {
-            stories.addAll(storyDAO.searchByID(searchTerm));
-            storyListSearchResult(result, stories);
+            Story story = storyDAO.get(Integer.parseInt(searchTerm));
+            if (story != null) {
+                stories.add(story);
+            }
         }
-        catch (Exception e) {
+        catch (NumberFormatException e) {
             // The search term is not an integer
-            storyListSearchResult(result, stories);
         }
-        List<Task> tasks = taskDAO.searchByName(searchTerm);
+        storyListSearchResult(result, stories);
+        List<Task> tasks = searchIndex(taskDAO, Task.class, searchTerm);
         taskListSearchResult(result, tasks);
         return result;
     }
 
+    public int rebuildSearchIndex() {
+        return searchIndexDAO.rebuild();
+    }
+
+    /**
+     * Find the objects matching the search term from the search index.
+     * 
+     * @return the found objects, best matches first
+     */
+    private <T extends NamedObject> List<T> searchIndex(GenericDAO<T> dao,
+            Class<?> type, String searchTerm) {
+        return searchIndex(dao, type, searchTerm, MAX_RESULTS_PER_TYPE);
+    }
+
+    private <T extends NamedObject> List<T> searchIndex(GenericDAO<T> dao,
+            Class<?> type, String searchTerm, int maxResults) {
+        List<Integer> ids = searchIndexDAO.search(type, searchTerm,
+                maxResults);
+        Map<Integer, T> objects = new HashMap<Integer, T>();
+        for (T object : dao.getMultiple(ids)) {
+            objects.put(object.getId(), object);
+        }
+        List<T> result = new ArrayList<T>();
+        for (Integer id : ids) {
+            // The object may have been deleted after the search
+            if (objects.containsKey(id)) {
+                result.add(objects.get(id));
+            }
+        }
+        return result;
+    }
+
     private void storyListSearchResult(List<SearchResultRow> result,
             List<Story> stories) {
         for (Story story : stories) {
@@ -109,52 +148,11 @@ public class SearchBusinessImpl implements SearchBusiness {
     }
     
     private boolean checkAccess(Backlog bl){
-        User user = SecurityUtil.getLoggedUser();
-        Product prod = null;
-        
-        if(bl instanceof Project){
-            //look at product
-            prod = (Product)bl.getParent();
-        } else if(bl instanceof Iteration){
-            //look at project, then product
-            Backlog temp = bl.getParent();
-            if(temp == null){
-                //standalone iteration
-                temp = bl;
-                Set<Iteration> allowedIterations = new HashSet<Iteration>();
-                for(Team team : user.getTeams()){
-                    allowedIterations.addAll(team.getIterations());
-                }
-
-                //check if we have access 
-                if(allowedIterations.contains(temp)){
-                    return true;
-                }                
-                return false;
-                
-            } else {
-                if(temp instanceof Product){
-                    //iteration is directly under a product, not in a project
-                    prod = (Product) temp;
-                } else {
-                    prod = (Product) temp.getParent();
-                }
-            }
-        } else if(bl instanceof Product){
-            prod = (Product)bl;
-        }
-        
-        Set<Product> allowedProducts = new HashSet<Product>();
-        for(Team team : user.getTeams()){
-            allowedProducts.addAll(team.getProducts());
-        }
-
-        //check if we have access 
-        if(allowedProducts.contains(prod)){
-            return true;
+        if (bl == null) {
+            return false;
         }
-        
-        return false;
+        return backlogAccessBusiness.getAccessibleBacklogs(
+                SecurityUtil.getLoggedUser()).canAccess(bl);
     }
 
     public NamedObject searchByReference(String searchTerm) {
@@ -191,28 +189,30 @@ public class SearchBusinessImpl implements SearchBusiness {
 
     public List<SearchResultRow> searchIterations(String searchTerm) {
         List<SearchResultRow> result = new ArrayList<SearchResultRow>();
-        List<Backlog> backlogs = backlogDAO.searchByName(searchTerm, Iteration.class);
+        List<Backlog> backlogs = searchIndex(backlogDAO, Iteration.class, searchTerm);
         backlogListSearchResult(result, backlogs);
         return result;
     }
 
     public List<SearchResultRow> searchProjects(String searchTerm) {
         List<SearchResultRow> result = new ArrayList<SearchResultRow>();
-        List<Backlog> backlogs = backlogDAO.searchByName(searchTerm, Project.class);
+        List<Backlog> backlogs = searchIndex(backlogDAO, Project.class, searchTerm);
         backlogListSearchResult(result, backlogs);
         return result;
     }
 
     public List<SearchResultRow> searchStories(String searchTerm) {
         List<SearchResultRow> result = new ArrayList<SearchResultRow>();
-        List<Story> stories = storyDAO.searchByName(searchTerm);
+        List<Story> stories = searchIndex(storyDAO, Story.class, searchTerm);
         storyListSearchResult(result, stories);
         return result;
     }
 
     public List<SearchResultRow> searchUsers(String searchTerm) {
         List<SearchResultRow> result = new ArrayList<SearchResultRow>();
-        List<User> users = userDAO.searchByName(searchTerm);
+        // All the matching users are listed, as before the index
+        List<User> users = searchIndex(userDAO, User.class, searchTerm,
+                Integer.MAX_VALUE);
         for(User user : users) {
             result.add(new SearchResultRow(user.getFullName(), user));
         }
@@ -221,7 +221,7 @@ public class SearchBusinessImpl implements SearchBusiness {
     
     public List<SearchResultRow> searchTasks(String searchTerm) {
         List<SearchResultRow> result = new ArrayList<SearchResultRow>();
-        List<Task> tasks = taskDAO.searchByName(searchTerm);
+        List<Task> tasks = searchIndex(taskDAO, Task.class, searchTerm);
         for(Task task : tasks) {
             if(task.getStory() != null){
                 if(checkAccess(task.getStory().getBacklog())){  
@@ -5,12 +5,31 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.support.PropertyComparator;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import fi.hut.soberit.agilefant.business.StoryAccessBusiness;
 import fi.hut.soberit.agilefant.business.StoryBusiness;
@@ -23,11 +42,52 @@ import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.security.SecurityUtil;
 import fi.hut.soberit.agilefant.transfer.StoryAccessCloudTO;
 
+/**
+ * Story accesses are logged asynchronously. Opening a story only adds the
+ * access to an in-memory buffer, which a background thread writes to the
+ * database in batches, every few seconds or as soon as a batch has filled
+ * up. The buffer is bounded, and accesses logged while it is full are
+ * dropped, since they are only used to find the recently accessed stories.
+ */
 @Service("storyAccessBusiness")
 @Transactional
 public class StoryAccessBusinessImp extends GenericBusinessImpl<StoryAccess>
         implements StoryAccessBusiness {
 
+    /**
+     * The maximum number of accesses waiting to be written.
+     */
+    public static final int BUFFER_SIZE = 10000;
+
+    /**
+     * The number of accesses written in one transaction.
+     */
+    public static final int BATCH_SIZE = 200;
+
+    /**
+     * The maximum time an access waits to be written.
+     */
+    public static final long FLUSH_INTERVAL_SECONDS = 5;
+
+    /**
+     * The time the recently edited stories of a user are cached.
+     */
+    public static final long EDIT_COUNT_TTL_MILLIS = 60000L;
+
+    private static final Logger log = Logger.getLogger(StoryAccessBusinessImp.class);
+
+    private final Queue<StoryAccess> buffer = new ConcurrentLinkedQueue<StoryAccess>();
+
+    private final AtomicInteger bufferedCount = new AtomicInteger();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService flusher;
+
+    private final Map<Integer, EditCounts> editCounts = new ConcurrentHashMap<Integer, EditCounts>();
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
     @Autowired
     private StoryAccessDAO storyAccessDAO;
     @Autowired
@@ -41,23 +101,128 @@ public class StoryAccessBusinessImp extends GenericBusinessImpl<StoryAccess>
         super(StoryAccess.class);
     }
 
+    @PostConstruct
+    public void startFlusher() {
+        flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "story-access-flusher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        flusher.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                flush();
+            }
+        }, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the background thread and writes the remaining accesses.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void addAccessEntry(Story story) {
-        DateTime now = new DateTime();
         User user = SecurityUtil.getLoggedUser();
+        if (user == null) {
+            return;
+        }
+        if (bufferedCount.incrementAndGet() > BUFFER_SIZE) {
+            bufferedCount.decrementAndGet();
+            return;
+        }
 
         StoryAccess entry = new StoryAccess();
 
-        entry.setDate(now);
+        entry.setDate(new DateTime());
         entry.setStory(story);
         entry.setUser(user);
-        this.storyAccessDAO.create(entry);
+        buffer.add(entry);
+
+        if (bufferedCount.get() >= BATCH_SIZE
+                && flushRequested.compareAndSet(false, true)) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Asks the background thread to write the buffered accesses. Once the
+     * thread has been shut down, they are left for the final flush.
+     */
+    private void requestFlush() {
+        if (flusher.isShutdown()) {
+            flushRequested.set(false);
+            return;
+        }
+        try {
+            flusher.execute(new Runnable() {
+                public void run() {
+                    flushRequested.set(false);
+                    flush();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            flushRequested.set(false);
+        }
     }
 
+    /**
+     * The story isn't loaded. An access to a story, which doesn't exist, is
+     * skipped when the accesses are written.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void addAccessEntry(int storyId) {
-        Story story = this.storyBusiness.retrieve(storyId);
+        Story story = new Story();
+        story.setId(storyId);
         this.addAccessEntry(story);
     }
 
+    /**
+     * Writes the buffered accesses to the database. A batch, which can't be
+     * written, is logged and dropped.
+     */
+    public synchronized void flush() {
+        List<StoryAccess> batch = new ArrayList<StoryAccess>(BATCH_SIZE);
+        StoryAccess entry;
+        while ((entry = buffer.poll()) != null) {
+            bufferedCount.decrementAndGet();
+            batch.add(entry);
+            if (batch.size() == BATCH_SIZE) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(final List<StoryAccess> batch) {
+        try {
+            new TransactionTemplate(transactionManager)
+                    .execute(new TransactionCallback() {
+                        public Object doInTransaction(TransactionStatus status) {
+                            storyAccessDAO.createAccesses(batch);
+                            return null;
+                        }
+                    });
+        } catch (RuntimeException e) {
+            log.error("Could not write " + batch.size() + " story accesses", e);
+        }
+    }
+
     @Transactional(readOnly=true)
     public List<StoryAccessCloudTO> calculateOccurences(DateTime start,
             DateTime end, int userId, int numberOfItems) {
@@ -78,11 +243,14 @@ public class StoryAccessBusinessImp extends GenericBusinessImpl<StoryAccess>
     @Transactional(readOnly=true)
     public List<StoryAccessCloudTO> calculateOccurences(DateTime start,
             DateTime end, User user, int numberOfItems) {
-        Map<Story, Long> data = this.storyAccessDAO.calculateAccessCounts(
+        Map<Integer, Long> data = this.storyAccessDAO.calculateAccessCounts(
                 start, end, user);
+
+        Collection<Story> stories = this.storyBusiness.retrieveMultiple(data.keySet());
+
         List<StoryAccessCloudTO> res = new ArrayList<StoryAccessCloudTO>();
-        for (Story story : data.keySet()) {
-            res.add(new StoryAccessCloudTO(story, data.get(story)));
+        for (Story story : stories) {
+            res.add(new StoryAccessCloudTO(story, data.get(story.getId())));
         }
         Collections.sort(res, new PropertyComparator("count", true, false));
         if(res.size() > numberOfItems) {
@@ -91,12 +259,25 @@ public class StoryAccessBusinessImp extends GenericBusinessImpl<StoryAccess>
         return res;
     }
 
+    /**
+     * The edit counts are cached per user for <code>EDIT_COUNT_TTL_MILLIS</code>.
+     * A cached result is used, if the same number of items was requested for
+     * a time window, which differs from the cached one by less than the TTL.
+     */
     @SuppressWarnings("unchecked")
     @Transactional(readOnly=true)
     public List<StoryAccessCloudTO> calculateEditOccurences(DateTime start,
             DateTime end, User user, int numberOfItems) {
-        Map<Integer, Long> data = this.storyHistoryDAO.calculateAccessCounts(
-                start, end, user);
+        EditCounts cached = editCounts.get(user.getId());
+        Map<Integer, Long> data;
+        if (cached != null && cached.matches(start, end, numberOfItems)) {
+            data = cached.counts;
+        } else {
+            data = this.storyHistoryDAO.calculateAccessCounts(start, end,
+                    user, numberOfItems);
+            editCounts.put(user.getId(), new EditCounts(start, end,
+                    numberOfItems, data));
+        }
         
         Collection<Story> stories = this.storyBusiness.retrieveMultiple(data.keySet());
         
@@ -105,10 +286,34 @@ public class StoryAccessBusinessImp extends GenericBusinessImpl<StoryAccess>
             res.add(new StoryAccessCloudTO(story, data.get(story.getId())));
         }
         Collections.sort(res, new PropertyComparator("count", true, false));
-        if(res.size() > numberOfItems) {
-            return res.subList(0, numberOfItems - 1);
-        }
         return res;
     }
 
+    /**
+     * The edit counts of a user for a time window.
+     */
+    private static class EditCounts {
+        private final DateTime start;
+        private final DateTime end;
+        private final int numberOfItems;
+        private final Map<Integer, Long> counts;
+        private final long expires;
+
+        public EditCounts(DateTime start, DateTime end, int numberOfItems,
+                Map<Integer, Long> counts) {
+            this.start = start;
+            this.end = end;
+            this.numberOfItems = numberOfItems;
+            this.counts = Collections.unmodifiableMap(counts);
+            this.expires = System.currentTimeMillis() + EDIT_COUNT_TTL_MILLIS;
+        }
+
+        public boolean matches(DateTime start, DateTime end, int numberOfItems) {
+            return System.currentTimeMillis() < expires
+                    && this.numberOfItems == numberOfItems
+                    && Math.abs(this.start.getMillis() - start.getMillis()) < EDIT_COUNT_TTL_MILLIS
+                    && Math.abs(this.end.getMillis() - end.getMillis()) < EDIT_COUNT_TTL_MILLIS;
+        }
+    }
+
 }
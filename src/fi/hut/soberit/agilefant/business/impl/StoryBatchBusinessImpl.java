@@ -6,49 +6,104 @@ import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import fi.hut.soberit.agilefant.business.BacklogHistoryEntryBusiness;
+import fi.hut.soberit.agilefant.business.IterationHistoryEntryBusiness;
 import fi.hut.soberit.agilefant.business.LabelBusiness;
 import fi.hut.soberit.agilefant.business.StoryBatchBusiness;
 import fi.hut.soberit.agilefant.business.StoryBusiness;
+import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryState;
+import fi.hut.soberit.agilefant.transfer.StoryBatchResultTO;
 
+/**
+ * Changes several stories at once.
+ * <p>
+ * The states are changed on the stories loaded into the session, so that
+ * they are written with batched JDBC updates when the session is flushed
+ * and still audited. The history is recalculated once for each iteration
+ * and project, instead of once for each story.
+ */
 @Service("storyBatchBusiness")
+@Transactional
 public class StoryBatchBusinessImpl implements StoryBatchBusiness {
 
     @Autowired
     private StoryBusiness storyBusiness;
     @Autowired
     private LabelBusiness labelBusiness;
+    @Autowired
+    private IterationHistoryEntryBusiness iterationHistoryEntryBusiness;
+    @Autowired
+    private BacklogHistoryEntryBusiness backlogHistoryEntryBusiness;
 
-    public void modifyMultiple(Set<Integer> storyIds, StoryState state,
-            List<String> labelNames) {
+    public StoryBatchResultTO modifyMultiple(Set<Integer> storyIds,
+            StoryState state, List<String> labelNames) {
+        StoryBatchResultTO result = new StoryBatchResultTO(state);
         Set<Story> stories = new HashSet<Story>();
 
         stories.addAll(storyBusiness.retrieveMultiple(storyIds));
+        Set<Integer> notFound = new HashSet<Integer>(storyIds);
+        for (Story story : stories) {
+            notFound.remove(story.getId());
+        }
+        result.addNotFoundStoryIds(notFound);
+
+        updateStates(state, stories, result);
 
-        updateStates(state, stories);
+        addLabels(labelNames, stories, result);
 
-        addLabels(labelNames, stories);
+        updateHistories(stories, result);
 
+        return result;
     }
 
-    private void addLabels(List<String> labelNames, Set<Story> stories) {
+    private void addLabels(List<String> labelNames, Set<Story> stories,
+            StoryBatchResultTO result) {
         if (labelNames != null && !labelNames.isEmpty()) {
-            for (Story story : stories) {
-                labelBusiness.createStoryLabels(labelNames, story.getId());
-
-            }
+            result.setAddedLabels(labelBusiness.createStoryLabels(labelNames,
+                    stories));
         }
     }
 
-    private void updateStates(StoryState state, Set<Story> stories) {
+    private void updateStates(StoryState state, Set<Story> stories,
+            StoryBatchResultTO result) {
         if (state != null) {
             for (Story story : stories) {
-                story.setState(state);
-                storyBusiness.store(story);
+                if (story.getState() != state) {
+                    story.setState(state);
+                    result.getChangedStateStoryIds().add(story.getId());
+                }
             }
         }
     }
 
+    /**
+     * Recalculate the history of the iterations and projects of the stories,
+     * whose state was changed. Labels don't affect the history.
+     */
+    private void updateHistories(Set<Story> stories, StoryBatchResultTO result) {
+        for (Story story : stories) {
+            if (!result.getChangedStateStoryIds().contains(story.getId())) {
+                continue;
+            }
+            if (story.getIteration() != null) {
+                result.getUpdatedIterationIds().add(
+                        story.getIteration().getId());
+            }
+            // The backlog of a story in a project's iteration is the project
+            if (story.getBacklog() instanceof Project) {
+                result.getUpdatedProjectIds().add(story.getBacklog().getId());
+            }
+        }
+        for (Integer iterationId : result.getUpdatedIterationIds()) {
+            iterationHistoryEntryBusiness.updateIterationHistory(iterationId);
+        }
+        for (Integer projectId : result.getUpdatedProjectIds()) {
+            backlogHistoryEntryBusiness.updateHistory(projectId);
+        }
+    }
+
 }
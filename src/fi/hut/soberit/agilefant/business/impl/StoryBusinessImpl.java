@@ -25,6 +25,7 @@ import fi.hut.soberit.agilefant.business.TaskBusiness;
 import fi.hut.soberit.agilefant.business.TransferObjectBusiness;
 import fi.hut.soberit.agilefant.db.HourEntryDAO;
 import fi.hut.soberit.agilefant.db.IterationDAO;
+import fi.hut.soberit.agilefant.db.StoryAccessDAO;
 import fi.hut.soberit.agilefant.db.StoryDAO;
 import fi.hut.soberit.agilefant.db.UserDAO;
 import fi.hut.soberit.agilefant.exception.ObjectNotFoundException;
@@ -78,6 +79,8 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
     private StoryTreeIntegrityBusiness storyTreeIntegrityBusiness;
     @Autowired
     private LabelBusiness labelBusiness;
+    @Autowired
+    private StoryAccessDAO storyAccessDAO;
     
     public StoryBusinessImpl() {
         super(Story.class);
@@ -152,15 +155,23 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
         
         checkStoriesBacklogIfAssignedToIteration(persisted);
 
-        if (haveDifferentIteration(persisted, dataItem)) {
+        boolean iterationChanged = haveDifferentIteration(persisted, dataItem);
+        if (iterationChanged) {
             fixAssignedIterationRanks(persisted, dataItem);
         }
         
+        Story oldParent = persisted.getParent();
         populateStoryFields(persisted, dataItem);
+        if (persisted.getParent() != oldParent) {
+            storyHierarchyBusiness.updateTreePath(persisted);
+        }
 
         
         // Store the story
         storyDAO.store(persisted);
+        if (iterationChanged) {
+            hourEntryBusiness.updateBacklogPath(persisted);
+        }
 
         if (tasksToDone && persisted.getIteration() != null) {
             for (Task t : persisted.getTasks()) {
@@ -522,6 +533,7 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
         if (this.storyTreeIntegrityBusiness.hasParentStoryConflict(story, backlog)) {
             Story oldParent = story.getParent();
             story.setParent(null);
+            storyHierarchyBusiness.updateTreePath(story);
             if(oldParent != null) {
                 oldParent.getChildren().remove(story);
                 storyHierarchyBusiness.updateChildrenTreeRanks(oldParent);
@@ -543,6 +555,7 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
         List<Story> childStories = new ArrayList<Story>(story.getChildren());
         for(Story childStory : childStories) {
             childStory.setParent(parent);
+            storyHierarchyBusiness.updateTreePath(childStory);
             if (parent != null) {
                 parent.getChildren().add(childStory);
                 
@@ -554,6 +567,7 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
         //reset parent story
         if(this.storyTreeIntegrityBusiness.hasParentStoryConflict(story, backlog)) {
             story.setParent(null);
+            storyHierarchyBusiness.updateTreePath(story);
             if(parent != null) {
                 parent.getChildren().remove(story);
             }
@@ -590,6 +604,7 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
         }
 
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
         rankToBottom(story, target, oldBacklog, oldIteration);
         updateHistories(target, oldBacklog, oldIteration);
     }
@@ -780,6 +795,9 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
                     else if (child != null) {
                         child.setParent(null);
                     }
+                    if (child != null) {
+                        storyHierarchyBusiness.updateTreePath(child);
+                    }
                 }
                 story.getChildren().clear();
                 break;
@@ -852,6 +870,7 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
             storyHierarchyBusiness.updateChildrenTreeRanks(parentStory);
         }
 //        storyRankBusiness.removeStoryRanks(story);
+        storyAccessDAO.removeCountsByStory(story.getId());
         super.delete(story);
         
     }
@@ -903,6 +922,7 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
         // Remove children (set parent to null)
         for (Story s : story.getChildren()) {
             s.setParent(null);
+            storyHierarchyBusiness.updateTreePath(s);
         }
         story.getChildren().clear();
         
@@ -915,6 +935,7 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
         // Remove own hour entries
         hourEntryBusiness.deleteAll(story.getHourEntries());
         
+        storyAccessDAO.removeCountsByStory(story.getId());
         super.delete(story.getId());
     }
     
@@ -964,5 +985,9 @@ public class StoryBusinessImpl extends GenericBusinessImpl<Story> implements
     public void setStoryHierarchyBusiness(StoryHierarchyBusiness storyHierarchyBusiness) {
         this.storyHierarchyBusiness = storyHierarchyBusiness;
     }
+
+    public void setStoryAccessDAO(StoryAccessDAO storyAccessDAO) {
+        this.storyAccessDAO = storyAccessDAO;
+    }
     
 }
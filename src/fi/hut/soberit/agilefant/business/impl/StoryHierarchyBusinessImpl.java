@@ -62,6 +62,7 @@ public class StoryHierarchyBusinessImpl implements StoryHierarchyBusiness {
         }
         reference.getChildren().add(0, story);
         story.setParent(reference);
+        updateTreePath(story);
 
         updateBacklogRanks(oldParent);
         updateBacklogRanks(reference);
@@ -171,6 +172,7 @@ public class StoryHierarchyBusinessImpl implements StoryHierarchyBusiness {
                 this.storyTreeIntegrityBusiness.checkChangeParentStoryAndThrow(story, parent);
             }
             story.setParent(parent);
+            updateTreePath(story);
             if (oldParent != null) {
                 oldParent.getChildren().remove(story);
                 updateBacklogRanks(oldParent);
@@ -213,6 +215,7 @@ public class StoryHierarchyBusinessImpl implements StoryHierarchyBusiness {
             StoryFilters storyFilters) {
         List<Story> stories = storyHierarchyDAO
                 .retrieveProductRootStories(productId);
+        storyHierarchyDAO.initializeSubtrees(stories);
         if (storyFilters != null) {
             return storyFilterBusiness.filterStories(stories, storyFilters);
         } else {
@@ -225,6 +228,7 @@ public class StoryHierarchyBusinessImpl implements StoryHierarchyBusiness {
             StoryFilters storyFilters) {
         List<Story> stories = storyHierarchyDAO
                 .retrieveProjectRootStories(projectId);
+        storyHierarchyDAO.initializeSubtrees(stories);
         if (storyFilters != null) {
             stories = storyFilterBusiness.filterStories(stories, storyFilters);
         }
@@ -267,6 +271,20 @@ public class StoryHierarchyBusinessImpl implements StoryHierarchyBusiness {
     }
     
     
+    /** {@inheritDoc} */
+    @Transactional
+    public void updateTreePath(Story story) {
+        storyHierarchyDAO.initializeSubtree(story);
+        updateSubtreePaths(story);
+    }
+
+    private static void updateSubtreePaths(Story story) {
+        story.updateTreePath();
+        for (Story child : story.getChildren()) {
+            updateSubtreePaths(child);
+        }
+    }
+
     @Transactional
     /** {@inheritDoc} */
     public void updateChildrenTreeRanks(Story story) {
@@ -303,13 +321,24 @@ public class StoryHierarchyBusinessImpl implements StoryHierarchyBusiness {
         return returned;
     }
     
-    private long storyPointsAsLong(Story story) {
+    private static long storyPointsAsLong(Story story) {
         if(story.getStoryPoints() == null) {
             return 0L;
         }
         return story.getStoryPoints();
     }
+
+    @Transactional(readOnly = true)
     public StoryTreeBranchMetrics calculateStoryTreeMetrics(Story story) {
+        storyHierarchyDAO.initializeSubtree(story);
+        return calculateBranchMetrics(story);
+    }
+
+    /**
+     * Calculates the metrics of the branch by walking the story's children.
+     * Initialize the subtree first to avoid loading it level by level.
+     */
+    public static StoryTreeBranchMetrics calculateBranchMetrics(Story story) {
         StoryTreeBranchMetrics metrics = new StoryTreeBranchMetrics();
         
         StoryState deferred = StoryState.DEFERRED;
@@ -325,7 +354,7 @@ public class StoryHierarchyBusinessImpl implements StoryHierarchyBusiness {
         
         for(Story child : story.getChildren()) {
             if(child.getState() != deferred) {
-                StoryTreeBranchMetrics childMetrics = this.calculateStoryTreeMetrics(child);
+                StoryTreeBranchMetrics childMetrics = calculateBranchMetrics(child);
                 metrics.estimatedDonePoints += childMetrics.estimatedDonePoints;
                 metrics.estimatedPoints += childMetrics.estimatedPoints;
                 metrics.leafPoints += childMetrics.leafPoints;
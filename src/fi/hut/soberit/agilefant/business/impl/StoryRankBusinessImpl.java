@@ -1,10 +1,7 @@
 package fi.hut.soberit.agilefant.business.impl;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -23,6 +20,14 @@ import fi.hut.soberit.agilefant.transfer.StoryTO;
 @Transactional
 public class StoryRankBusinessImpl implements StoryRankBusiness {
 
+    /**
+     * The gap left between the rank numbers. Ranking a story only changes
+     * its own rank number as long as there is room between its new
+     * neighbours. Once the room runs out, the ranks of the backlog are
+     * spaced out again.
+     */
+    public static final int RANK_GAP = 1024;
+
     @Autowired
     private StoryRankDAO storyRankDAO;
     @Autowired
@@ -56,6 +61,8 @@ public class StoryRankBusinessImpl implements StoryRankBusiness {
 
     /**
      * Create a rank for a story in the given context.
+     * <p>
+     * The story is ranked at the bottom of the context.
      */
     public StoryRank createRank(Story story, Backlog context) {
         if(context instanceof Product) {
@@ -66,66 +73,77 @@ public class StoryRankBusinessImpl implements StoryRankBusiness {
         rank = new StoryRank();
         rank.setStory(story);
         rank.setBacklog(context);
+        Integer lastRank = this.storyRankDAO.retrievePreviousRankNumber(
+                context, Integer.MAX_VALUE, null);
+        if (lastRank == null) {
+            rank.setRank(0);
+        } else if (!rankBetween(rank, lastRank, null)) {
+            rebalanceRanks(context);
+            lastRank = this.storyRankDAO.retrievePreviousRankNumber(context,
+                    Integer.MAX_VALUE, null);
+            rankBetween(rank, lastRank, null);
+        }
         int id = (Integer) this.storyRankDAO.create(rank);
         rank = this.storyRankDAO.get(id);
         return rank;
     }
 
     private void rankAbove(StoryRank rank, StoryRank next) {
-        LinkedList<StoryRank> ranks = prepareRankingContext(rank);
-
-        int nextIndex = ranks.indexOf(next);
-        if (nextIndex == -1) {
-            ranks.addLast(rank);
-        } else {
-            ranks.add(nextIndex, rank);
+        Integer previous = this.storyRankDAO.retrievePreviousRankNumber(
+                next.getBacklog(), next.getRank(), rank);
+        if (!rankBetween(rank, previous, next.getRank())) {
+            rebalanceRanks(next.getBacklog());
+            rankAbove(rank, next);
         }
-
-        updateContextRanks(ranks);
     }
 
     private void rankBelow(StoryRank rank, StoryRank previous) {
-        LinkedList<StoryRank> ranks = prepareRankingContext(rank);
-
-        int previousIndex = ranks.indexOf(previous);
-        if (previousIndex == -1 || previousIndex == ranks.size() - 1) {
-            ranks.addLast(rank);
-        } else {
-            ranks.add(previousIndex + 1, rank);
+        Integer next = this.storyRankDAO.retrieveNextRankNumber(
+                previous.getBacklog(), previous.getRank(), rank);
+        if (!rankBetween(rank, previous.getRank(), next)) {
+            rebalanceRanks(previous.getBacklog());
+            rankBelow(rank, previous);
         }
-
-        updateContextRanks(ranks);
     }
 
-    private void updateContextRanks(LinkedList<StoryRank> ranks) {
-        int currentRankNum = 0;
-        for (StoryRank currentRank : ranks) {
-            currentRank.setRank(currentRankNum++);
+    /**
+     * Give the rank a number between the two numbers. A null number stands
+     * for the end of the backlog, in which case the rank is put RANK_GAP
+     * away from the other one.
+     * 
+     * @return false without changing the rank if there is no room between
+     *         the numbers or the number would overflow
+     */
+    private boolean rankBetween(StoryRank rank, Integer lower, Integer upper) {
+        long number;
+        if (lower == null) {
+            number = (long) upper - RANK_GAP;
+        } else if (upper == null) {
+            number = (long) lower + RANK_GAP;
+        } else if ((long) upper - lower < 2) {
+            return false;
+        } else {
+            number = ((long) lower + upper) / 2;
         }
-    }
-
-    private LinkedList<StoryRank> prepareRankingContext(StoryRank rank) {
-        LinkedList<StoryRank> ranks = retrieveLinkedList(rank);
-        if (ranks.contains(rank)) {
-            ranks.remove(rank);
+        if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            return false;
         }
-        return ranks;
-    }
-
-    private LinkedList<StoryRank> retrieveLinkedList(StoryRank rank) {
-        LinkedList<StoryRank> ranks = new LinkedList<StoryRank>();
-        ranks.addAll(this.storyRankDAO.retrieveRanksByBacklog(rank.getBacklog()));
-        return ranks;
+        rank.setRank((int) number);
+        return true;
     }
 
     /**
-     * Remove item from the linked list.
+     * Space the ranks of the backlog RANK_GAP apart again, keeping their
+     * order. This updates every rank of the backlog, but it is only needed
+     * once the gaps around a position have been used up or the numbers
+     * reach the limits of an int.
      */
-
-    private void skipRank(StoryRank rank) {
-        LinkedList<StoryRank> ranks = retrieveLinkedList(rank);
-        ranks.remove(rank);
-        updateContextRanks(ranks);
+    private void rebalanceRanks(Backlog backlog) {
+        int number = 0;
+        for (StoryRank rank : this.storyRankDAO.retrieveRanksByBacklog(backlog)) {
+            rank.setRank(number);
+            number += RANK_GAP;
+        }
     }
 
     /**
@@ -184,7 +202,6 @@ public class StoryRankBusinessImpl implements StoryRankBusiness {
         }
         StoryRank rank = this.storyRankDAO.retrieveByBacklogAndStory(context,story);
         if (rank != null) {
-            skipRank(rank);
             this.storyRankDAO.remove(rank);
         }
     }
@@ -194,7 +211,6 @@ public class StoryRankBusinessImpl implements StoryRankBusiness {
      */
     public void removeStoryRanks(Story story) {
         for (StoryRank rank : story.getStoryRanks()) {
-            skipRank(rank);
             this.storyRankDAO.remove(rank);
         }
         story.getStoryRanks().clear();
@@ -220,27 +236,22 @@ public class StoryRankBusinessImpl implements StoryRankBusiness {
         }
         
         StoryRank rank = this.storyRankDAO.retrieveByBacklogAndStory(context, story);
-        LinkedList<StoryRank> ranks = new LinkedList<StoryRank>();
-        ranks.addAll(this.storyRankDAO.retrieveRanksByBacklog(context));
-        StoryRank tailRank = null;
-        try {
-            tailRank = ranks.getLast();
-        } catch (Exception e) {
-
-        }
         if (rank == null) {
-            rank = createRank(story, context);
+            // New ranks are created at the bottom
+            createRank(story, context);
+            return;
         }
         
-        if(tailRank != null && (rank.getRank() == tailRank.getRank())){
+        Integer lastRank = this.storyRankDAO.retrievePreviousRankNumber(
+                context, Integer.MAX_VALUE, rank);
+        if (lastRank == null || rank.getRank() > lastRank) {
             //story is already at the bottom
             return;
         }
-        
-        if (tailRank != null) {
-            rankBelow(rank, tailRank);
+        if (!rankBetween(rank, lastRank, null)) {
+            rebalanceRanks(context);
+            rankToBottom(story, context);
         }
-
     }
 
     public void rankToHead(Story story, Backlog backlog) {
@@ -249,27 +260,19 @@ public class StoryRankBusinessImpl implements StoryRankBusiness {
         }
         
         StoryRank rank = this.storyRankDAO.retrieveByBacklogAndStory(backlog, story);
-        
-        LinkedList<StoryRank> ranks = new LinkedList<StoryRank>();
-        ranks.addAll(this.storyRankDAO.retrieveRanksByBacklog(backlog));
-        
-        StoryRank topRank = null;
-        
-        try {
-            topRank = ranks.getFirst();
-        } catch (Exception e) {
-        }
-        
         if (rank == null) {
             rank = createRank(story, backlog);
-        } 
-        else if (rank.getRank() == 0 && (topRank == null || topRank == rank)) {
+        }
+        
+        Integer firstRank = this.storyRankDAO.retrieveNextRankNumber(
+                backlog, Integer.MIN_VALUE, rank);
+        if (firstRank == null || rank.getRank() < firstRank) {
             //story is already at top
             return;
         }
-        
-        if (topRank != null) {
-            rankAbove(rank, topRank);
+        if (!rankBetween(rank, null, firstRank)) {
+            rebalanceRanks(backlog);
+            rankToHead(story, backlog);
         }
     }
 
@@ -0,0 +1,198 @@
+package fi.hut.soberit.agilefant.business.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import fi.hut.soberit.agilefant.business.StoryFilterBusiness;
+import fi.hut.soberit.agilefant.business.StoryTreeBusiness;
+import fi.hut.soberit.agilefant.db.StoryHierarchyDAO;
+import fi.hut.soberit.agilefant.model.Label;
+import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.transfer.StoryTO;
+import fi.hut.soberit.agilefant.util.StoryFilters;
+
+@Service("storyTreeBusiness")
+@Transactional(readOnly = true)
+public class StoryTreeBusinessImpl implements StoryTreeBusiness {
+
+    @Autowired
+    private StoryHierarchyDAO storyHierarchyDAO;
+
+    @Autowired
+    private StoryFilterBusiness storyFilterBusiness;
+
+    public List<StoryTO> retrieveProductStoryTree(int productId,
+            StoryFilters storyFilters, Integer maxDepth) {
+        List<Story> roots = storyHierarchyDAO
+                .retrieveProductRootStories(productId);
+        StoryTreeLoader loader = new StoryTreeLoader(roots,
+                new ArrayList<Story>(), storyFilters, maxDepth);
+        return loader.buildBranches(roots, 1);
+    }
+
+    public List<StoryTO> retrieveProjectStoryTree(int projectId,
+            StoryFilters storyFilters, Integer maxDepth) {
+        List<Story> roots = storyHierarchyDAO
+                .retrieveProjectRootStories(projectId);
+        Set<Story> ancestors = new LinkedHashSet<Story>();
+        for (Story root : roots) {
+            for (Story parent = root.getParent(); parent != null; parent = parent
+                    .getParent()) {
+                ancestors.add(parent);
+            }
+        }
+        StoryTreeLoader loader = new StoryTreeLoader(roots, ancestors,
+                storyFilters, maxDepth);
+        return loader.attachToAncestors(loader.buildBranches(roots, 1));
+    }
+
+    /**
+     * Loads the stories of one tree and builds the transfer objects.
+     */
+    private class StoryTreeLoader {
+        private final StoryFilters storyFilters;
+        private final Integer maxDepth;
+
+        private final Map<Integer, Story> storiesById = new HashMap<Integer, Story>();
+        private final Map<Integer, List<Story>> childrenByParentId = new HashMap<Integer, List<Story>>();
+        private final Map<Integer, Set<User>> responsibles;
+        private final Map<Integer, Set<Label>> labels;
+
+        public StoryTreeLoader(List<Story> roots, Collection<Story> ancestors,
+                StoryFilters storyFilters, Integer maxDepth) {
+            this.storyFilters = storyFilters;
+            this.maxDepth = maxDepth;
+            for (Story story : storyHierarchyDAO.retrieveSubtrees(roots)) {
+                storiesById.put(story.getId(), story);
+                if (story.getParent() != null) {
+                    List<Story> children = childrenByParentId.get(story
+                            .getParent().getId());
+                    if (children == null) {
+                        children = new ArrayList<Story>();
+                        childrenByParentId.put(story.getParent().getId(),
+                                children);
+                    }
+                    children.add(story);
+                }
+            }
+            for (Story ancestor : ancestors) {
+                storiesById.put(ancestor.getId(), ancestor);
+            }
+            responsibles = storyHierarchyDAO
+                    .retrieveResponsiblesByStoryIds(storiesById.keySet());
+            labels = storyHierarchyDAO.retrieveLabelsByStoryIds(storiesById
+                    .keySet());
+        }
+
+        public List<StoryTO> buildBranches(List<Story> stories, int depth) {
+            List<StoryTO> nodes = new ArrayList<StoryTO>();
+            for (Story story : stories) {
+                StoryTO node = buildBranch(story, depth);
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+            return nodes;
+        }
+
+        /**
+         * Returns null if neither the story nor any of its descendants
+         * matches the filters. The descendants are checked even below the
+         * maximum depth.
+         */
+        private StoryTO buildBranch(Story story, int depth) {
+            StoryTO node = createNode(story);
+            boolean belowMaxDepth = maxDepth != null && depth >= maxDepth;
+            if (storyFilters == null && belowMaxDepth) {
+                return node;
+            }
+            List<StoryTO> children = buildBranches(
+                    getChildren(story.getId()), depth + 1);
+            if (children.isEmpty() && !matches(node)) {
+                return null;
+            }
+            if (!belowMaxDepth) {
+                node.getChildren().addAll(children);
+            }
+            return node;
+        }
+
+        /**
+         * Places the nodes under their ancestors the same way as
+         * {@link StoryHierarchyBusinessImpl#replaceStoryNodesWithRoots(List)}.
+         */
+        public List<StoryTO> attachToAncestors(List<StoryTO> nodes) {
+            List<StoryTO> results = new ArrayList<StoryTO>();
+            Map<Integer, StoryTO> ancestorNodes = new HashMap<Integer, StoryTO>();
+            for (StoryTO node : nodes) {
+                StoryTO result = node;
+                Story parent = storiesById.get(node.getId()).getParent();
+                while (parent != null) {
+                    StoryTO parentNode = ancestorNodes.get(parent.getId());
+                    if (parentNode != null) {
+                        parentNode.getChildren().add(result);
+                        result = null;
+                        break;
+                    }
+                    parentNode = createNode(parent);
+                    parentNode.getChildren().add(result);
+                    ancestorNodes.put(parent.getId(), parentNode);
+                    result = parentNode;
+                    parent = parent.getParent();
+                }
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+            return results;
+        }
+
+        private List<Story> getChildren(int storyId) {
+            List<Story> children = childrenByParentId.get(storyId);
+            if (children == null) {
+                return new ArrayList<Story>();
+            }
+            return children;
+        }
+
+        private boolean matches(StoryTO node) {
+            return storyFilters == null
+                    || storyFilterBusiness.filterStory(node, storyFilters);
+        }
+
+        private StoryTO createNode(Story story) {
+            StoryTO node = new StoryTO();
+            node.setId(story.getId());
+            node.setName(story.getName());
+            node.setState(story.getState());
+            node.setStoryPoints(story.getStoryPoints());
+            node.setStoryValue(story.getStoryValue());
+            node.setTreeRank(story.getTreeRank());
+            node.setBacklog(story.getBacklog());
+            node.setIteration(story.getIteration());
+            node.setResponsibles(getOrEmpty(responsibles, story.getId()));
+            node.setLabels(getOrEmpty(labels, story.getId()));
+            node.setChildren(new ArrayList<Story>());
+            return node;
+        }
+    }
+
+    private static <T> Set<T> getOrEmpty(Map<Integer, Set<T>> values, int id) {
+        Set<T> value = values.get(id);
+        if (value == null) {
+            return new HashSet<T>();
+        }
+        return value;
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import fi.hut.soberit.agilefant.business.BacklogBusiness;
 import fi.hut.soberit.agilefant.business.StoryTreeIntegrityBusiness;
+import fi.hut.soberit.agilefant.db.StoryHierarchyDAO;
 import fi.hut.soberit.agilefant.exception.StoryTreeIntegrityViolationException;
 import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Iteration;
@@ -30,11 +31,16 @@ public class StoryTreeIntegrityBusinessImpl implements StoryTreeIntegrityBusines
     @Autowired
     private BacklogBusiness backlogBusiness;
 
+    @Autowired
+    private StoryHierarchyDAO storyHierarchyDAO;
+
     /** {@inheritDoc} */
     public List<StoryTreeIntegrityMessage> checkChangeBacklog(
             Story story, Backlog newBacklog) {
         List<StoryTreeIntegrityMessage> messages = new ArrayList<StoryTreeIntegrityMessage>();
         
+        storyHierarchyDAO.initializeSubtree(story);
+        
         // If story has children
         if (!story.getChildren().isEmpty()) {
             /*
@@ -184,6 +190,8 @@ public class StoryTreeIntegrityBusinessImpl implements StoryTreeIntegrityBusines
         if (newParent.getBacklog() instanceof Project) {
             Set<Backlog> allowedBacklogs = getAllowedBacklogsForChildren(newParent.getBacklog());
             
+            storyHierarchyDAO.initializeSubtree(story);
+            
             checkTargetBacklogInWrongBranch(story, newParent, messages, allowedBacklogs);
             
             checkChildBacklogRule(story, messages, allowedBacklogs, StoryHierarchyIntegrityViolationType.TARGET_PARENT_IN_WRONG_BRANCH);
@@ -252,6 +260,7 @@ public class StoryTreeIntegrityBusinessImpl implements StoryTreeIntegrityBusines
             List<StoryTreeIntegrityMessage> messages) {
         MoveStoryNode node;
         // 1. lookup children
+        storyHierarchyDAO.initializeSubtree(movedStory);
         node = recurseChangedStoryTreeChildren(movedStory, messages);
         // 2. lookup parents
     
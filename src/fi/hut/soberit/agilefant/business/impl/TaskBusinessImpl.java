@@ -154,6 +154,9 @@ public class TaskBusinessImpl extends GenericBusinessImpl<Task> implements
             task.setStory(storyBusiness.retrieve(storyId));
             task.setIteration(null);
         }
+        if (task.getId() != 0) {
+            hourEntryBusiness.updateBacklogPath(task);
+        }
     }
 
     private void checkArgumentsForMoving(Task task, Integer iterationId,
@@ -380,4 +383,4 @@ public class TaskBusinessImpl extends GenericBusinessImpl<Task> implements
     public void setHourEntryBusiness(HourEntryBusiness hourEntryBusiness) {
         this.hourEntryBusiness = hourEntryBusiness;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import fi.hut.soberit.agilefant.business.BacklogAccessBusiness;
 import fi.hut.soberit.agilefant.business.IterationBusiness;
 import fi.hut.soberit.agilefant.business.TeamBusiness;
 import fi.hut.soberit.agilefant.business.UserBusiness;
@@ -32,6 +33,8 @@ public class TeamBusinessImpl extends GenericBusinessImpl<Team> implements
     @Autowired
     private IterationBusiness iterationBusiness;
     
+    private BacklogAccessBusiness backlogAccessBusiness;
+    
     public TeamBusinessImpl() {
         super(Team.class);
     }
@@ -46,6 +49,12 @@ public class TeamBusinessImpl extends GenericBusinessImpl<Team> implements
     public void setUserBusiness(UserBusiness userBusiness) {
         this.userBusiness = userBusiness;
     }
+    
+    @Autowired
+    public void setBacklogAccessBusiness(
+            BacklogAccessBusiness backlogAccessBusiness) {
+        this.backlogAccessBusiness = backlogAccessBusiness;
+    }
 
 
     /** {@inheritDoc} */
@@ -91,9 +100,16 @@ public class TeamBusinessImpl extends GenericBusinessImpl<Team> implements
             int newId = (Integer)teamDAO.create(team);
             stored = teamDAO.get(newId);
         }
+        backlogAccessBusiness.invalidate();
         
         return stored;
     }
+    
+    @Override
+    public void delete(int id) {
+        super.delete(id);
+        backlogAccessBusiness.invalidate();
+    }
 
 
 }
@@ -0,0 +1,164 @@
+package fi.hut.soberit.agilefant.business.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fi.hut.soberit.agilefant.business.PersonalLoadBusiness;
+import fi.hut.soberit.agilefant.business.TeamLoadBusiness;
+import fi.hut.soberit.agilefant.db.UserDAO;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.transfer.TeamLoadData;
+import fi.hut.soberit.agilefant.transfer.UserLoadTO;
+
+/**
+ * Calculates the users' loads in a fixed size thread pool, so that a large
+ * team doesn't use up the database connections.
+ * <p>
+ * The transactions are started here instead of with annotations, because
+ * each worker thread needs a transaction, and so a Hibernate session, of
+ * its own. No entities are passed between the sessions: the workers get the
+ * user ids and the values in {@link TeamLoadData}, and the loads they return
+ * only hold copies of the backlogs.
+ */
+@Service("teamLoadBusiness")
+public class TeamLoadBusinessImpl implements TeamLoadBusiness {
+
+    /**
+     * The number of users whose load is calculated at the same time.
+     */
+    public static final int THREAD_COUNT = 4;
+
+    @Autowired
+    private PersonalLoadBusiness personalLoadBusiness;
+
+    @Autowired
+    private UserDAO userDAO;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            THREAD_COUNT, new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "team-load-"
+                            + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    public void retrieveUsersLoad(final Collection<Integer> userIds,
+            final int weeksAhead, UserLoadListener listener) {
+        final TransactionTemplate readOnly = new TransactionTemplate(
+                transactionManager);
+        readOnly.setReadOnly(true);
+
+        final TeamLoadData teamData = (TeamLoadData) readOnly
+                .execute(new TransactionCallback() {
+                    public Object doInTransaction(TransactionStatus status) {
+                        return personalLoadBusiness.retrieveTeamLoadData(
+                                userIds, weeksAhead);
+                    }
+                });
+
+        Set<Integer> uniqueIds = new LinkedHashSet<Integer>(userIds);
+        CompletionService<UserLoadTO> completionService = new ExecutorCompletionService<UserLoadTO>(
+                executor);
+        List<Future<UserLoadTO>> futures = new ArrayList<Future<UserLoadTO>>();
+        for (final Integer userId : uniqueIds) {
+            futures.add(completionService.submit(new Callable<UserLoadTO>() {
+                public UserLoadTO call() {
+                    return (UserLoadTO) readOnly
+                            .execute(new TransactionCallback() {
+                                public Object doInTransaction(
+                                        TransactionStatus status) {
+                                    return calculateUserLoad(userId,
+                                            weeksAhead, teamData);
+                                }
+                            });
+                }
+            }));
+        }
+
+        boolean completed = false;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                UserLoadTO load = completionService.take().get();
+                if (load != null) {
+                    listener.loadCompleted(load);
+                }
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while calculating the load", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if (!completed) {
+                cancelAll(futures);
+            }
+        }
+    }
+
+    private UserLoadTO calculateUserLoad(int userId, int weeksAhead,
+            TeamLoadData teamData) {
+        User user = userDAO.get(userId);
+        if (user == null) {
+            return null;
+        }
+        return new UserLoadTO(userId, personalLoadBusiness.retrieveUserLoad(
+                user, weeksAhead, teamData));
+    }
+
+    private static void cancelAll(List<Future<UserLoadTO>> futures) {
+        for (Future<UserLoadTO> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void setPersonalLoadBusiness(
+            PersonalLoadBusiness personalLoadBusiness) {
+        this.personalLoadBusiness = personalLoadBusiness;
+    }
+
+    public void setUserDAO(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+
+    public void setTransactionManager(
+            PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+}
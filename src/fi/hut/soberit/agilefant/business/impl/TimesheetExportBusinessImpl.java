@@ -1,8 +1,15 @@
 package fi.hut.soberit.agilefant.business.impl;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
@@ -14,6 +21,8 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,8 +34,11 @@ import fi.hut.soberit.agilefant.db.HourEntryDAO;
 import fi.hut.soberit.agilefant.model.BacklogHourEntry;
 import fi.hut.soberit.agilefant.model.StoryHourEntry;
 import fi.hut.soberit.agilefant.model.TaskHourEntry;
+import fi.hut.soberit.agilefant.util.TimesheetExportRow;
+import fi.hut.soberit.agilefant.util.TimesheetExportRowHandler;
 import fi.hut.soberit.agilefant.util.TimesheetExportRowData;
 import fi.hut.soberit.agilefant.util.TimesheetExportRowDataComparator;
+import fi.hut.soberit.agilefant.util.XlsxSheetWriter;
 
 @Service("timesheetExportBusiness")
 @Transactional
@@ -81,6 +93,106 @@ public class TimesheetExportBusinessImpl implements TimesheetExportBusiness {
         return timesheetData;
     }
 
+    @Transactional(readOnly = true)
+    public int writeTimesheetXlsx(TextProvider textProvider,
+            Set<Integer> backlogIds, DateTime startDate, DateTime endDate,
+            Set<Integer> userIds, OutputStream out) throws IOException {
+        final XlsxSheetWriter writer = new XlsxSheetWriter(out,
+                "Agilefant Timesheet", XLSX_COLUMN_WIDTHS, DATE_FORMAT,
+                EFFORT_FORMAT);
+        writer.startRow();
+        for (String columnName : COLUMN_NAMES) {
+            writer.addString(textProvider.getText(columnName),
+                    XlsxSheetWriter.STYLE_HEADER);
+        }
+        writer.endRow();
+        int count = this.hourEntryDAO.processTimesheetRows(backlogIds,
+                startDate, endDate, userIds, new TimesheetExportRowHandler() {
+                    public void handleRow(TimesheetExportRow row)
+                            throws IOException {
+                        writer.startRow();
+                        for (String value : getNameValues(row)) {
+                            writer.addString(value, XlsxSheetWriter.STYLE_NONE);
+                        }
+                        writer.addDate(row.getDate(), XlsxSheetWriter.STYLE_DATE);
+                        writer.addNumber((double) row.getEffort() / 60.0,
+                                XlsxSheetWriter.STYLE_DECIMAL);
+                        writer.endRow();
+                    }
+                });
+        writer.finish();
+        return count;
+    }
+
+    @Transactional(readOnly = true)
+    public int writeTimesheetCsv(TextProvider textProvider,
+            Set<Integer> backlogIds, DateTime startDate, DateTime endDate,
+            Set<Integer> userIds, OutputStream out) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out,
+                "UTF-8"));
+        final DateTimeFormatter dateFormatter = DateTimeFormat
+                .forPattern(CSV_DATE_FORMAT);
+        // byte order mark, so that Excel recognizes the encoding
+        writer.write('\uFEFF');
+        String[] header = new String[COLUMN_NAMES.length];
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            header[i] = textProvider.getText(COLUMN_NAMES[i]);
+        }
+        writeCsvRow(writer, header);
+        int count = this.hourEntryDAO.processTimesheetRows(backlogIds,
+                startDate, endDate, userIds, new TimesheetExportRowHandler() {
+                    public void handleRow(TimesheetExportRow row)
+                            throws IOException {
+                        String[] values = Arrays.copyOf(getNameValues(row),
+                                COLUMN_NAMES.length);
+                        if (row.getDate() != null) {
+                            values[DATE_COLUMN_NUM] = dateFormatter.print(row
+                                    .getDate());
+                        }
+                        values[EFFORT_COLUMN_NUM] = String.format(Locale.ENGLISH,
+                                "%.2f", (double) row.getEffort() / 60.0);
+                        writeCsvRow(writer, values);
+                    }
+                });
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * The values of the columns before the date column.
+     */
+    private static String[] getNameValues(TimesheetExportRow row) {
+        String productName = row.getProductName();
+        if (productName == null) {
+            productName = "";
+        }
+        return new String[] { productName, row.getProjectName(),
+                row.getIterationName(), row.getStoryName(), row.getTaskName(),
+                row.getDescription(), row.getUserName() };
+    }
+
+    protected static void writeCsvRow(Writer writer, String[] values)
+            throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
     protected void renderSheetData(Sheet sheet,
             List<TimesheetExportRowData> dataRows) {
         for (TimesheetExportRowData rowData : dataRows) {
@@ -2,8 +2,10 @@ package fi.hut.soberit.agilefant.business.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.joda.time.Interval;
@@ -11,7 +13,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import fi.hut.soberit.agilefant.business.BacklogAccessBusiness;
 import fi.hut.soberit.agilefant.business.BacklogBusiness;
+import fi.hut.soberit.agilefant.business.BacklogHierarchyBusiness;
 import fi.hut.soberit.agilefant.business.HourEntryBusiness;
 import fi.hut.soberit.agilefant.business.IterationBusiness;
 import fi.hut.soberit.agilefant.business.ProductBusiness;
@@ -20,6 +24,7 @@ import fi.hut.soberit.agilefant.business.StoryBusiness;
 import fi.hut.soberit.agilefant.business.TeamBusiness;
 import fi.hut.soberit.agilefant.business.TransferObjectBusiness;
 import fi.hut.soberit.agilefant.business.UserBusiness;
+import fi.hut.soberit.agilefant.exception.ObjectNotFoundException;
 import fi.hut.soberit.agilefant.model.Assignment;
 import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Iteration;
@@ -34,12 +39,15 @@ import fi.hut.soberit.agilefant.model.WhatsNextEntry;
 import fi.hut.soberit.agilefant.security.SecurityUtil;
 import fi.hut.soberit.agilefant.transfer.AssignedWorkTO;
 import fi.hut.soberit.agilefant.transfer.AutocompleteDataNode;
+import fi.hut.soberit.agilefant.transfer.BacklogType;
 import fi.hut.soberit.agilefant.transfer.DailyWorkTaskTO;
 import fi.hut.soberit.agilefant.transfer.IterationTO;
 import fi.hut.soberit.agilefant.transfer.ProjectTO;
 import fi.hut.soberit.agilefant.transfer.ScheduleStatus;
 import fi.hut.soberit.agilefant.transfer.StoryTO;
 import fi.hut.soberit.agilefant.transfer.TaskTO;
+import fi.hut.soberit.agilefant.util.BacklogHierarchy;
+import fi.hut.soberit.agilefant.util.IntSet;
 
 @Service("transferObjectBusiness")
 @Transactional(readOnly = true)
@@ -68,6 +76,12 @@ public class TransferObjectBusinessImpl implements TransferObjectBusiness {
     
     @Autowired
     private StoryBusiness storyBusiness;
+
+    @Autowired
+    private BacklogHierarchyBusiness backlogHierarchyBusiness;
+
+    @Autowired
+    private BacklogAccessBusiness backlogAccessBusiness;
     
     
     private void fillInEffortSpent(TaskTO taskTO) {
@@ -172,37 +186,36 @@ public class TransferObjectBusinessImpl implements TransferObjectBusiness {
     /** {@inheritDoc} */
     @Transactional(readOnly = true)
     public List<AutocompleteDataNode> constructBacklogAutocompleteData(Integer backlogId) {
-        Collection<Backlog> allBacklogs = this.backlogBusiness.retrieveAll();
+        BacklogHierarchy hierarchy = backlogHierarchyBusiness.getHierarchy();
+        BacklogHierarchy.Node filterBy = null;
         if (backlogId != null) {
-            Collection<Backlog> filteredBacklogs = new ArrayList<Backlog>();
-            Backlog original = this.backlogBusiness.retrieve(backlogId);
-            Product filterBy = this.backlogBusiness.getParentProduct(original);
-            for (Backlog backlog : allBacklogs) {
-                if (this.backlogBusiness.getParentProduct(backlog) == filterBy) {
-                    filteredBacklogs.add(backlog);
-                }
+            BacklogHierarchy.Node original = hierarchy.get(backlogId);
+            if (original == null) {
+                throw new ObjectNotFoundException("Object with id " + backlogId
+                        + " was not found", Backlog.class);
             }
-            allBacklogs = filteredBacklogs;
+            filterBy = hierarchy.getRoot(original);
         }
-        List<AutocompleteDataNode> autocompleteData = getBacklogDataRecurseNames(allBacklogs);
-        return autocompleteData; 
+        List<BacklogHierarchy.Node> backlogs = new ArrayList<BacklogHierarchy.Node>();
+        for (BacklogHierarchy.Node node : hierarchy.getAll()) {
+            if (filterBy == null || hierarchy.getRoot(node) == filterBy) {
+                backlogs.add(node);
+            }
+        }
+        return getBacklogDataRecurseNames(hierarchy, backlogs);
     }
 
 
     /** {@inheritDoc} */
     @Transactional(readOnly = true)
     public List<AutocompleteDataNode> constructProductAutocompleteData() {
-        Collection<Product> allBacklogs = this.productBusiness.retrieveAll();
-        List<AutocompleteDataNode> autocompleteData = getBacklogDataRecurseNames(allBacklogs);
-        return autocompleteData; 
+        return getBacklogDataRecurseNames(BacklogType.PRODUCT);
     }
     
     /** {@inheritDoc} */
     @Transactional(readOnly = true)
     public List<AutocompleteDataNode> constructProjectAutocompleteData() {
-        Collection<Project> allBacklogs = this.projectBusiness.retrieveAll();
-        List<AutocompleteDataNode> autocompleteData = getBacklogDataRecurseNames(allBacklogs);
-        return autocompleteData; 
+        return getBacklogDataRecurseNames(BacklogType.PROJECT);
     }
 
     
@@ -215,47 +228,72 @@ public class TransferObjectBusinessImpl implements TransferObjectBusiness {
     }
     
     private List<AutocompleteDataNode> getBacklogDataRecurseNames(
-            Collection<? extends Backlog> allBacklogs) {
+            BacklogType type) {
+        BacklogHierarchy hierarchy = backlogHierarchyBusiness.getHierarchy();
+        List<BacklogHierarchy.Node> backlogs = new ArrayList<BacklogHierarchy.Node>();
+        for (BacklogHierarchy.Node node : hierarchy.getAll()) {
+            if (node.getType() == type) {
+                backlogs.add(node);
+            }
+        }
+        return getBacklogDataRecurseNames(hierarchy, backlogs);
+    }
+
+    /**
+     * Creates the autocomplete nodes of the products and projects the user
+     * can access.
+     * <p>
+     * The names and access rights are resolved from the hierarchy snapshot.
+     * Only the listed backlogs are loaded, with a single query, as the
+     * choosers need the whole objects.
+     */
+    private List<AutocompleteDataNode> getBacklogDataRecurseNames(
+            BacklogHierarchy hierarchy, List<BacklogHierarchy.Node> backlogs) {
         List<AutocompleteDataNode> autocompleteData = new ArrayList<AutocompleteDataNode>();
         
-        User user = SecurityUtil.getLoggedUser();
-        for (Backlog blog : allBacklogs) { 
-            Product prod = null;
-            if(blog instanceof Project){
-                //look at product
-                prod = (Product)blog.getParent();
-            } else if(blog instanceof Iteration){
+        IntSet allowedProducts = backlogAccessBusiness.getAccessibleBacklogs(
+                SecurityUtil.getLoggedUser()).getProductIds();
+        List<BacklogHierarchy.Node> allowedBacklogs = new ArrayList<BacklogHierarchy.Node>();
+        List<Integer> allowedIds = new ArrayList<Integer>();
+        for (BacklogHierarchy.Node node : backlogs) {
+            if (node.getType() == BacklogType.ITERATION) {
                 continue; // iterations should not be included in backlogs list.
-            } else if(blog instanceof Product){
-                prod = (Product)blog;
             }
-            
-            Set<Product> allowedProducts = new HashSet<Product>();
-            for(Team team : user.getTeams()){
-                allowedProducts.addAll(team.getProducts());
+            //check if we have access
+            if (allowedProducts.contains(hierarchy.getRoot(node).getId())) {
+                allowedBacklogs.add(node);
+                allowedIds.add(node.getId());
             }
-   
-            //check if we have access 
-            if(allowedProducts.contains(prod)){
-                String name = recurseBacklogNameWithParents(blog);
-                AutocompleteDataNode node = new AutocompleteDataNode(Backlog.class, blog.getId(), name);
-                node.setMatchedString(name);
-                autocompleteData.add(node);
-                node.setOriginalObject(blog);
-            } 
+        }
+        if (allowedIds.isEmpty()) {
+            return autocompleteData;
+        }
+
+        Map<Integer, Backlog> loaded = new HashMap<Integer, Backlog>();
+        for (Backlog blog : backlogBusiness.retrieveMultiple(allowedIds)) {
+            loaded.put(blog.getId(), blog);
+        }
+        for (BacklogHierarchy.Node node : allowedBacklogs) {
+            Backlog blog = loaded.get(node.getId());
+            if (blog == null) {
+                continue;
+            }
+            String name = node.getPathName();
+            AutocompleteDataNode autocompleteNode = new AutocompleteDataNode(Backlog.class, blog.getId(), name);
+            autocompleteNode.setMatchedString(name);
+            autocompleteNode.setOriginalObject(blog);
+            autocompleteData.add(autocompleteNode);
         }
         
         return autocompleteData;
     }
     
-    private String recurseBacklogNameWithParents(Backlog blog) {
-        Backlog parent = blog.getParent();
-        String name = blog.getName();
-        while (parent != null) {
-            name = parent.getName() + " > " + name;
-            parent = parent.getParent();
+    private String getPathName(BacklogHierarchy hierarchy, Backlog blog) {
+        BacklogHierarchy.Node node = hierarchy.get(blog.getId());
+        if (node == null) {
+            return blog.getName();
         }
-        return name;
+        return node.getPathName();
     }
     
     
@@ -280,9 +318,10 @@ public class TransferObjectBusinessImpl implements TransferObjectBusiness {
     @Transactional(readOnly = true)
     public List<AutocompleteDataNode> constructCurrentIterationAutocompleteData() {
         Collection<Iteration> currentAndFutureIterations = this.iterationBusiness.retrieveCurrentAndFutureIterations();
+        BacklogHierarchy hierarchy = backlogHierarchyBusiness.getHierarchy();
         List<AutocompleteDataNode> autocompleteData = new ArrayList<AutocompleteDataNode>();
         for (Backlog blog : currentAndFutureIterations) {
-            String name = recurseBacklogNameWithParents(blog);
+            String name = getPathName(hierarchy, blog);
             AutocompleteDataNode node = new AutocompleteDataNode(Backlog.class,
                     blog.getId(), name);
             node.setOriginalObject(blog);
@@ -387,4 +426,14 @@ public class TransferObjectBusinessImpl implements TransferObjectBusiness {
     public void setStoryBusiness(StoryBusiness storyBusiness) {
         this.storyBusiness = storyBusiness;
     }
+
+    public void setBacklogHierarchyBusiness(
+            BacklogHierarchyBusiness backlogHierarchyBusiness) {
+        this.backlogHierarchyBusiness = backlogHierarchyBusiness;
+    }
+
+    public void setBacklogAccessBusiness(
+            BacklogAccessBusiness backlogAccessBusiness) {
+        this.backlogAccessBusiness = backlogAccessBusiness;
+    }
 }
@@ -3,25 +3,34 @@ package fi.hut.soberit.agilefant.business.impl;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.joda.time.DateTime;
-import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
 import org.joda.time.Duration;
 import org.joda.time.Interval;
-import org.joda.time.MutableDateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import fi.hut.soberit.agilefant.business.BacklogAccessBusiness;
 import fi.hut.soberit.agilefant.business.TeamBusiness;
 import fi.hut.soberit.agilefant.business.UserBusiness;
+import fi.hut.soberit.agilefant.db.HourEntryDailySumDAO;
+import fi.hut.soberit.agilefant.db.StoryAccessDAO;
 import fi.hut.soberit.agilefant.db.UserDAO;
 import fi.hut.soberit.agilefant.model.ExactEstimate;
-import fi.hut.soberit.agilefant.model.Holiday;
 import fi.hut.soberit.agilefant.model.Team;
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.security.SecurityUtil;
+import fi.hut.soberit.agilefant.util.HolidayIndex;
+import fi.hut.soberit.agilefant.util.WorkingDays;
 
 /**
  * 
@@ -36,6 +45,25 @@ public class UserBusinessImpl extends GenericBusinessImpl<User> implements
     private UserDAO userDAO;
     
     private TeamBusiness teamBusiness;
+    
+    private BacklogAccessBusiness backlogAccessBusiness;
+
+    private HourEntryDailySumDAO hourEntryDailySumDAO;
+
+    private StoryAccessDAO storyAccessDAO;
+
+    /**
+     * Starts from a random value, so that a version stored in a session
+     * before a restart doesn't match the data after it.
+     */
+    private final AtomicLong userDataVersion = new AtomicLong(new Random().nextLong());
+
+    /**
+     * The holiday indexes of the persisted users by user id.
+     */
+    private final ConcurrentMap<Integer, HolidayIndex> holidayIndexes = new ConcurrentHashMap<Integer, HolidayIndex>();
+
+    private final AtomicLong holidayVersion = new AtomicLong();
 
     public UserBusinessImpl() {
         super(User.class);
@@ -52,6 +80,23 @@ public class UserBusinessImpl extends GenericBusinessImpl<User> implements
         this.teamBusiness = teamBusiness;
     }
     
+    @Autowired
+    public void setBacklogAccessBusiness(
+            BacklogAccessBusiness backlogAccessBusiness) {
+        this.backlogAccessBusiness = backlogAccessBusiness;
+    }
+
+    @Autowired
+    public void setHourEntryDailySumDAO(
+            HourEntryDailySumDAO hourEntryDailySumDAO) {
+        this.hourEntryDailySumDAO = hourEntryDailySumDAO;
+    }
+
+    @Autowired
+    public void setStoryAccessDAO(StoryAccessDAO storyAccessDAO) {
+        this.storyAccessDAO = storyAccessDAO;
+    }
+    
     
 
     @Transactional(readOnly = true)
@@ -79,6 +124,7 @@ public class UserBusinessImpl extends GenericBusinessImpl<User> implements
         
         changePassword(data, password, passwordConfirm);
         changeTeams(data, teamIds);
+        changeUserDataVersion();
         
         return storeOrCreate(data);
     }
@@ -90,6 +136,7 @@ public class UserBusinessImpl extends GenericBusinessImpl<User> implements
                 teams.add(teamBusiness.retrieve(tid));
             }
             data.setTeams(teams);
+            backlogAccessBusiness.invalidate();
         }
     }
 
@@ -120,33 +167,63 @@ public class UserBusinessImpl extends GenericBusinessImpl<User> implements
     }
     
     public boolean isDayUserHoliday(DateTime date, User user) {
-        for(Holiday holiday : user.getHolidays()) {
-            if(holiday.getInterval().contains(date)) {
-                return true;
-            }
-        }
-        return false;
+        return getHolidayIndex(user, date.getZone()).isHoliday(
+                date.toLocalDate());
     }
     
     public Duration calculateWorktimePerPeriod(User user, Interval interval) {
-        MutableDateTime iterator = new MutableDateTime(interval.getStart());
-        int deductDays = 0;
-        
-        while(iterator.isBefore(interval.getEnd())) {
-            if(iterator.getDayOfWeek() == DateTimeConstants.SATURDAY || iterator.getDayOfWeek() == DateTimeConstants.SUNDAY) {
-                deductDays++;
-            }
-            if(this.isDayUserHoliday(iterator.toDateTime(), user)) {
-                deductDays++;
+        return this.getWorkingDays(user, interval).calculateWorktime(interval);
+    }
+
+    public WorkingDays getWorkingDays(User user, Interval interval) {
+        return new WorkingDays(getHolidayIndex(user, interval.getChronology()
+                .getZone()));
+    }
+
+    /**
+     * Get the user's holiday index from the cache, or build it from the
+     * user's holidays.
+     * <p>
+     * The index is cached only if the holidays weren't changed while it was
+     * built, and it's removed again if they were changed right after it was
+     * cached, so that an index of the uncommitted holidays is never left in
+     * the cache.
+     */
+    private HolidayIndex getHolidayIndex(User user, DateTimeZone zone) {
+        if (user.getId() == 0) {
+            return new HolidayIndex(user.getHolidays(), zone);
+        }
+        HolidayIndex index = holidayIndexes.get(user.getId());
+        if (index != null && index.getZone().equals(zone)) {
+            return index;
+        }
+        long version = holidayVersion.get();
+        index = new HolidayIndex(user.getHolidays(), zone);
+        if (holidayVersion.get() == version) {
+            holidayIndexes.put(user.getId(), index);
+            if (holidayVersion.get() != version) {
+                holidayIndexes.remove(user.getId(), index);
             }
-            iterator.addDays(1);
         }
-        //if interval ends on a holiday at 00:00 the result would be negative
-        Duration worktime = new Duration(interval.getStart(), interval.getEnd().minusDays(deductDays));
-        if(worktime.getMillis() < 0 ) {
-            return new Duration(0);
+        return index;
+    }
+
+    public void invalidateHolidays(final User user) {
+        removeHolidayIndex(user.getId());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager
+                    .registerSynchronization(new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            removeHolidayIndex(user.getId());
+                        }
+                    });
         }
-        return worktime;
+    }
+
+    private void removeHolidayIndex(int userId) {
+        holidayVersion.incrementAndGet();
+        holidayIndexes.remove(userId);
     }
 
     public ExactEstimate calculateWorkHoursPerPeriod(User user,
@@ -159,16 +236,64 @@ public class UserBusinessImpl extends GenericBusinessImpl<User> implements
     public void disableUser(int id) {
         User user = userDAO.get(id);
         user.setEnabled(false);        
+        changeUserDataVersion();
     }
 
     public void enableUser(int id) {
         User user = userDAO.get(id);
         user.setEnabled(true);  
+        changeUserDataVersion();
     }
     
     public void setAdmin(int id, boolean admin) {
         User user = userDAO.get(id);
         user.setAdmin(admin);
+        changeUserDataVersion();
+    }
+
+    @Override
+    public void delete(int id) {
+        hourEntryDailySumDAO.removeByUser(id);
+        storyAccessDAO.removeCountsByUser(id);
+        super.delete(id);
+        changeUserDataVersion();
+        removeHolidayIndex(id);
+    }
+
+    @Override
+    public void delete(User object) {
+        hourEntryDailySumDAO.removeByUser(object.getId());
+        storyAccessDAO.removeCountsByUser(object.getId());
+        super.delete(object);
+        changeUserDataVersion();
+        removeHolidayIndex(object.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public User retrieveReference(int id) {
+        return userDAO.load(id);
+    }
+
+    public long getUserDataVersion() {
+        return userDataVersion.get();
+    }
+
+    /**
+     * Changes the version now and again when the transaction has completed,
+     * so that a request running meanwhile can't cache the data it read
+     * before the changes were committed.
+     */
+    private void changeUserDataVersion() {
+        userDataVersion.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager
+                    .registerSynchronization(new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            userDataVersion.incrementAndGet();
+                        }
+                    });
+        }
     }
     
     public User retrieveByCredentials(String loginName, String password) {
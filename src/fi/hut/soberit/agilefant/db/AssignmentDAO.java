@@ -1,5 +1,6 @@
 package fi.hut.soberit.agilefant.db;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.joda.time.Interval;
@@ -9,4 +10,11 @@ import fi.hut.soberit.agilefant.model.User;
 
 public interface AssignmentDAO extends GenericDAO<Assignment> {
     public List<Assignment> assigmentsInBacklogTimeframe(Interval interval, User user); 
+
+    /**
+     * Get the assignments of several users to the backlogs overlapping the
+     * interval.
+     */
+    public List<Assignment> assigmentsInBacklogTimeframe(Interval interval,
+            Collection<Integer> userIds);
 }
@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.List;
 
 import fi.hut.soberit.agilefant.model.Backlog;
+import fi.hut.soberit.agilefant.util.BacklogHierarchy;
 
 /**
  * Interface for a DAO of a Backlog.
@@ -28,4 +29,10 @@ public interface BacklogDAO extends GenericDAO<Backlog> {
     public List<Backlog> searchByName(String name, Class<?> type);
     
     public Collection<Backlog> retrieveStandaloneIterations();
+
+    /**
+     * Read the whole backlog hierarchy with a single query without loading
+     * the backlogs.
+     */
+    public BacklogHierarchy retrieveHierarchy();
 }
@@ -32,6 +32,18 @@ public interface GenericDAO<T> {
      */
     T get(int id);
 
+    /**
+     * Get a reference to the data model object of this type by id.
+     * <p>
+     * The object is not read from the database before it's used, so the
+     * object must exist.
+     * 
+     * @param id
+     *            requested id
+     * @return reference to the object with given id
+     */
+    T load(int id);
+
     /**
      * Get multiple model objects of the type by id collection.
      * 
@@ -8,5 +8,11 @@ import fi.hut.soberit.agilefant.model.User;
 public interface HolidayDAO extends GenericDAO<Holiday> {
 
     public List<Holiday> retrieveFutureHolidaysByUser(User user);
+
+    /**
+     * Get the user the holiday belongs to in the database, ignoring any
+     * unflushed changes to the holiday.
+     */
+    public User retrieveStoredUser(int holidayId);
 }
 
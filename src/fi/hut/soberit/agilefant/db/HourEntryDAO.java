@@ -1,16 +1,21 @@
 package fi.hut.soberit.agilefant.db;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
+import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.BacklogHourEntry;
 import fi.hut.soberit.agilefant.model.HourEntry;
+import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryHourEntry;
+import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.model.TaskHourEntry;
 import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.TimesheetExportRowHandler;
 
 public interface HourEntryDAO extends GenericDAO<HourEntry> {
 
@@ -55,6 +60,45 @@ public interface HourEntryDAO extends GenericDAO<HourEntry> {
      */
     public List<StoryHourEntry> getStoryHourEntriesByFilter(Set<Integer> backlogIds,
             DateTime startDate, DateTime endDate, Set<Integer> userIds);
+
+    /**
+     * Update the product, project and iteration ids of the story's entries
+     * and its tasks' entries after the story has been moved.
+     * 
+     * @return the number of entries updated
+     */
+    public int updateBacklogPath(Story story);
+
+    /**
+     * Update the product, project and iteration ids of the task's entries
+     * after the task has been moved.
+     * 
+     * @return the number of entries updated
+     */
+    public int updateBacklogPath(Task task);
+
+    /**
+     * Update the product and project ids of the entries in the backlog after
+     * the backlog has been moved to another parent.
+     * 
+     * @return the number of entries updated
+     */
+    public int updateBacklogPath(Backlog backlog);
+
+    /**
+     * Pass the backlog, story and task hour entries matching the filter to
+     * the handler as timesheet export rows.
+     * <p>
+     * The rows are sorted by the product, project, iteration, story and task
+     * names, and newest first within them. The rows are read from a cursor,
+     * so only one row is in memory at a time.
+     * 
+     * @see getBacklogHourEntriesByFilter
+     * @return the number of rows
+     */
+    public int processTimesheetRows(Set<Integer> backlogIds,
+            DateTime startDate, DateTime endDate, Set<Integer> userIds,
+            TimesheetExportRowHandler handler) throws IOException;
     
     /**
      * Gets the iterations backlog, story and task hour entries and
@@ -75,4 +119,12 @@ public interface HourEntryDAO extends GenericDAO<HourEntry> {
     List<HourEntry> getStoryHourEntries(int storyId, int limit);
     
     public List<HourEntry> retrieveByUserAndInterval(User user, Interval interval);
+
+    /**
+     * Get a detached copy of the entry as it is stored in the database,
+     * without the changes not yet written.
+     * 
+     * @return the stored copy or null, if the entry has not been saved
+     */
+    public HourEntry retrieveStoredCopy(HourEntry hourEntry);
 }
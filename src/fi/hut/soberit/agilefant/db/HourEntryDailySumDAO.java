@@ -0,0 +1,55 @@
+package fi.hut.soberit.agilefant.db;
+
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+
+import fi.hut.soberit.agilefant.model.HourEntry;
+import fi.hut.soberit.agilefant.model.HourEntryDailySum;
+
+/**
+ * Maintains and reads the daily sums of the logged effort.
+ *
+ * @see fi.hut.soberit.agilefant.model.HourEntryDailySum
+ */
+public interface HourEntryDailySumDAO extends GenericDAO<HourEntryDailySum> {
+
+    /**
+     * Add minutes to the sum of the entry's user, day and parent.
+     * <p>
+     * Use negative minutes to remove the entry's effort from the sum. Sums
+     * that drop to zero are removed.
+     */
+    public void add(HourEntry hourEntry, long minutes);
+
+    /**
+     * Remove all the sums of the user.
+     */
+    public void removeByUser(int userId);
+
+    /**
+     * Recalculate all the sums from the hour entries.
+     *
+     * @return the number of sums
+     */
+    public int rebuild();
+
+    /**
+     * Calculate the effort the user has logged between the days, inclusive.
+     */
+    public long calculateSumByUserAndInterval(int userId, LocalDate start,
+            LocalDate end);
+
+    /**
+     * Calculate the effort the user has logged per day between the days,
+     * inclusive. Days without effort are not included.
+     */
+    public Map<LocalDate, Long> calculateDailySumsByUserAndInterval(
+            int userId, LocalDate start, LocalDate end);
+
+    /**
+     * Calculate the effort logged per day to the iteration and its stories
+     * and tasks. Days without effort are not included.
+     */
+    public Map<LocalDate, Long> calculateDailySumsByIteration(int iterationId);
+}
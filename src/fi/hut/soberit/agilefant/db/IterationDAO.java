@@ -1,15 +1,18 @@
 package fi.hut.soberit.agilefant.db;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
 
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.StoryState;
 import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.IterationMetricsData;
 import fi.hut.soberit.agilefant.util.Pair;
 import fi.hut.soberit.agilefant.util.StoryMetrics;
 
@@ -41,6 +44,13 @@ public interface IterationDAO extends GenericDAO<Iteration> {
     
     public List<Iteration> retrieveAllStandAloneIterations();
 
+    /**
+     * Retrieve those of the given iterations that are standalone, ordered by
+     * name.
+     */
+    public List<Iteration> retrieveStandAloneIterations(
+            Collection<Integer> iterationIds);
+
     /**
      * Retrieves an iteration by id and fetches eagerly the following
      * associations:
@@ -56,11 +66,38 @@ public interface IterationDAO extends GenericDAO<Iteration> {
      * <li>stories.tasks.whatsNextEntries</li>
      * </ul>
      * 
+     * The associations are fetched with a single join, so the result set
+     * holds a row for every combination of a story's labels and its tasks'
+     * responsibles and what's next entries.
+     * 
      * @param iterationId
      * @return retrieved iteration object
      */
     public Iteration retrieveDeep(int iterationId);
 
+    /**
+     * Retrieves an iteration by id and initializes the following
+     * associations:
+     * 
+     * <ul>
+     * <li>tasks</li>
+     * <li>assignedStories</li>
+     * <li>assignedStories.labels</li>
+     * <li>assignedStories.tasks</li>
+     * <li>tasks.responsibles and assignedStories.tasks.responsibles</li>
+     * <li>tasks.whatsNextEntries and assignedStories.tasks.whatsNextEntries</li>
+     * </ul>
+     * 
+     * Each association is fetched with a query of its own, restricted by the
+     * ids loaded by the previous queries. The number of rows read thus
+     * grows linearly with the contents of the iteration.
+     * 
+     * @param iterationId
+     * @return retrieved iteration object, or null if there is no such
+     *         iteration
+     */
+    public Iteration retrieveWithContents(int iterationId);
+
     List<Iteration> retrieveActiveWithUserAssigned(int userId);
     
     public Map<Integer, StoryMetrics> calculateIterationDirectStoryMetrics(
@@ -68,7 +105,24 @@ public interface IterationDAO extends GenericDAO<Iteration> {
     
     public Map<Integer, Long> calculateIterationTaskEffortSpent(Iteration iteration);
     
-    public Iteration getIterationFromReadonlyToken(String token);
-    
     public int getIterationCountFromReadonlyToken(String token);
+
+    /**
+     * Retrieves the ids of all the iterations, which have a readonly token.
+     * 
+     * @return the iteration ids by the tokens
+     */
+    public Map<String, Integer> retrieveReadonlyTokens();
+
+    /**
+     * Calculates the figures needed for the metrics of the given iterations.
+     * <p>
+     * Uses a fixed number of grouped queries regardless of the number of
+     * iterations. Every given id has an entry in the returned map.
+     * 
+     * @param yesterday
+     *            the date of the history entry used for the daily velocity
+     */
+    public Map<Integer, IterationMetricsData> calculateIterationMetricsData(
+            Set<Integer> iterationIds, LocalDate yesterday);
 }
@@ -1,7 +1,9 @@
 package fi.hut.soberit.agilefant.db;
 
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.joda.time.LocalDate;
 
@@ -16,6 +18,15 @@ public interface IterationHistoryEntryDAO extends
 
     Pair<ExactEstimate, ExactEstimate> calculateCurrentHistoryData(int iterationId);
 
+    /**
+     * Calculates the effort left and original estimate sums of several
+     * iterations with grouped queries.
+     * <p>
+     * Every given iteration is included in the map.
+     */
+    Map<Integer, Pair<ExactEstimate, ExactEstimate>> calculateCurrentHistoryData(
+            Collection<Integer> iterationIds);
+
     public List<IterationHistoryEntry> getHistoryEntriesForIteration(
             int iterationId);
 
@@ -1,6 +1,9 @@
 package fi.hut.soberit.agilefant.db;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import fi.hut.soberit.agilefant.model.Label;
 import fi.hut.soberit.agilefant.model.Story;
@@ -11,4 +14,20 @@ public interface LabelDAO extends GenericDAO<Label> {
 
     List<Label> lookupLabelsLike(String labelName);
 
-}
\ No newline at end of file
+    /**
+     * Get the names of the stories' labels by story id. Stories without
+     * labels are not included.
+     */
+    public Map<Integer, Set<String>> getLabelNamesByStory(
+            Collection<Integer> storyIds);
+
+    /**
+     * Insert the labels with batched JDBC statements.
+     * <p>
+     * The given labels are not attached to the session. The inserted labels
+     * are loaded into the session instead, and added to the label
+     * collections of the stories.
+     */
+    public void createLabels(Collection<Label> labels);
+
+}
\ No newline at end of file
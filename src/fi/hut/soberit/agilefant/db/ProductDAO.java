@@ -20,6 +20,12 @@ public interface ProductDAO extends GenericDAO<Product> {
     
     public List<Product> retrieveBacklogTree();
 
+    /**
+     * Retrieve the given products ordered by name, with their projects and
+     * iterations fetched.
+     */
+    public List<Product> retrieveBacklogTree(Collection<Integer> productIds);
+
     public List<Story> retrieveLeafStories(Product product);
     
     public Pair<DateTime, DateTime> retrieveScheduleStartAndEnd(Product product);
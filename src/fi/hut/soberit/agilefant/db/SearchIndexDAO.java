@@ -0,0 +1,51 @@
+package fi.hut.soberit.agilefant.db;
+
+import java.util.List;
+
+/**
+ * Interface for the full text search index of backlogs, stories, tasks and
+ * users.
+ * <p>
+ * The index is built from the database on first use and kept up to date with
+ * the committed inserts, updates and deletes of the indexed objects. Bulk
+ * HQL and SQL updates bypass the index; code changing names or descriptions
+ * with them must call <code>update</code> or <code>rebuild</code>.
+ *
+ * @see fi.hut.soberit.agilefant.util.SearchIndex
+ */
+public interface SearchIndexDAO {
+
+    /**
+     * Add or update the object in the index. The change is applied at once,
+     * not when the transaction commits.
+     * <p>
+     * Objects of other than the indexed types are ignored.
+     */
+    public void update(Object object);
+
+    /**
+     * Remove the object from the index.
+     * <p>
+     * Objects of other than the indexed types are ignored.
+     */
+    public void remove(Object object);
+
+    /**
+     * Search the index for objects of the given type.
+     *
+     * @param type
+     *            the searched type; <code>Backlog</code>, one of its
+     *            subclasses, <code>Story</code>, <code>Task</code> or
+     *            <code>User</code>
+     * @return ids of the matching objects, best matches first
+     */
+    public List<Integer> search(Class<?> type, String searchTerm,
+            int maxResults);
+
+    /**
+     * Discard the index and build it again from the database.
+     *
+     * @return the number of indexed objects
+     */
+    public int rebuild();
+}
@@ -1,13 +1,34 @@
 package fi.hut.soberit.agilefant.db;
 
+import java.util.Collection;
 import java.util.Map;
 
 import org.joda.time.DateTime;
 
-import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryAccess;
 import fi.hut.soberit.agilefant.model.User;
 
 public interface StoryAccessDAO extends GenericDAO<StoryAccess> {
-    public Map<Story, Long> calculateAccessCounts(DateTime start, DateTime end, User user);
+    /**
+     * Count the user's accesses per story id between the days of the
+     * times, inclusive.
+     */
+    public Map<Integer, Long> calculateAccessCounts(DateTime start, DateTime end, User user);
+
+    /**
+     * Store the accesses and add them to the daily access counts with JDBC
+     * batches. Only the ids of the accesses' stories and users are used.
+     * Accesses to stories, which have been deleted, are skipped.
+     */
+    public void createAccesses(Collection<StoryAccess> accesses);
+
+    /**
+     * Remove the daily access counts of the story.
+     */
+    public void removeCountsByStory(int storyId);
+
+    /**
+     * Remove the daily access counts of the user.
+     */
+    public void removeCountsByUser(int userId);
 }
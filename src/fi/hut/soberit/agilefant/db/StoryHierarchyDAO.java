@@ -1,10 +1,15 @@
 package fi.hut.soberit.agilefant.db;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Label;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.model.User;
 
 public interface StoryHierarchyDAO {
     /**
@@ -91,4 +96,51 @@ public interface StoryHierarchyDAO {
      * @return
      */
     public long totalBranchStoryPoints(Project project);
+
+    /**
+     * Load the story's descendants and initialize the children of the story
+     * and its descendants with a single query, so that the subtree can be
+     * walked without loading the levels one at a time.
+     * 
+     * @param story
+     */
+    public void initializeSubtree(Story story);
+
+    /**
+     * Initialize the subtrees of all the given stories with a single query.
+     * 
+     * @see #initializeSubtree(Story)
+     * @param stories
+     */
+    public void initializeSubtrees(Collection<? extends Story> stories);
+
+    /**
+     * Retrieve the given stories and all their descendants with a single
+     * query, ordered by their tree rank. The children collections are not
+     * initialized.
+     * 
+     * @param roots
+     * @return the stories in the subtrees, including the roots
+     */
+    public List<Story> retrieveSubtrees(Collection<? extends Story> roots);
+
+    /**
+     * Retrieve the responsible users of the stories with a single query.
+     * 
+     * @param storyIds
+     * @return the responsibles by story id, stories without responsibles are
+     *         not included
+     */
+    public Map<Integer, Set<User>> retrieveResponsiblesByStoryIds(
+            Collection<Integer> storyIds);
+
+    /**
+     * Retrieve the labels of the stories with a single query.
+     * 
+     * @param storyIds
+     * @return the labels by story id, stories without labels are not
+     *         included
+     */
+    public Map<Integer, Set<Label>> retrieveLabelsByStoryIds(
+            Collection<Integer> storyIds);
 }
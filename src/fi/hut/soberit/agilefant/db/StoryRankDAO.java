@@ -13,4 +13,16 @@ public interface StoryRankDAO extends GenericDAO<StoryRank> {
     List<StoryRank> retrieveRanksByBacklog(Backlog backlog);
     
     public Collection<StoryRank> getIterationRanksForStories(Collection<Story> stories);
+    
+    /**
+     * Get the greatest rank number below the given one in the backlog,
+     * ignoring the excluded rank. Returns null if there is none.
+     */
+    Integer retrievePreviousRankNumber(Backlog backlog, int rank, StoryRank excluded);
+    
+    /**
+     * Get the smallest rank number above the given one in the backlog,
+     * ignoring the excluded rank. Returns null if there is none.
+     */
+    Integer retrieveNextRankNumber(Backlog backlog, int rank, StoryRank excluded);
 }
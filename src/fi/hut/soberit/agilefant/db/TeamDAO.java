@@ -1,5 +1,7 @@
 package fi.hut.soberit.agilefant.db;
 
+import java.util.List;
+
 import fi.hut.soberit.agilefant.model.Team;
 
 /**
@@ -9,4 +11,13 @@ import fi.hut.soberit.agilefant.model.Team;
  */
 public interface TeamDAO extends GenericDAO<Team> {
 
+    /**
+     * Get the ids of the products assigned to any of the user's teams.
+     */
+    public List<Integer> retrieveProductIdsByUser(int userId);
+
+    /**
+     * Get the ids of the iterations assigned to any of the user's teams.
+     */
+    public List<Integer> retrieveIterationIdsByUser(int userId);
 }
@@ -1,21 +1,34 @@
 package fi.hut.soberit.agilefant.db.export;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.util.ArrayList;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.log4j.Logger;
+
 /**
  * Generates a zipped database dump with mysqldump and provides it in a 
  * ByteArrayOutputStream for access.
+ * <p>
+ * The dump can also be written straight to an output stream, in which case
+ * only a fixed size buffer is held in memory regardless of the database size.
  */
 public class DbBackupStreamGenerator {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final long PROGRESS_INTERVAL = 64L * 1024 * 1024;
+    
+    private static final Logger log = Logger.getLogger(DbBackupStreamGenerator.class);
+
     private String dbLogin;
     private String dbPassword;
     private String dbHost;
@@ -23,6 +36,8 @@ public class DbBackupStreamGenerator {
     private boolean anonymouse=false;
     private String errorMessage;
     private ByteArrayOutputStream zippedDbOutputStream;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private volatile long bytesDumped;
 
     /**
      * Initializes the class for taking a mysql dump 
@@ -58,8 +73,7 @@ public class DbBackupStreamGenerator {
      * 
      */
     public int generateZippedDbOutputStream() { 
-        String dumpcommand = ("mysqldump" + " -h " + dbHost + " -u " + dbLogin + " -p" + dbPassword + " " + dbName);
-        return executeDumpCmd(dumpcommand, "fantbackup.sql");
+        return executeDumpCmd(getDumpCommand(), "fantbackup.sql");
     }
 
     /**
@@ -68,80 +82,189 @@ public class DbBackupStreamGenerator {
      * Only generate anonymous data
      */
     public int generateZippedAnonymousDbOutputStream(ArrayList<String> excludedTables) { 
+        anonymouse=true;
+        return executeDumpCmd(getAnonymousDumpCommand(excludedTables), "AnonymousFantBackup.sql");
+    }
+
+    /**
+     * Calls mysqldump and writes the zipped dump to the given stream as it is
+     * produced. Returns 0 if backup was written correctly and >1 for
+     * mysqldump errors, in which case the errors are added to the zip.
+     * The stream is not closed.
+     */
+    public int writeZippedDbDump(OutputStream out) throws IOException {
+        return writeDump(getDumpCommand(), "fantbackup.sql", out);
+    }
+
+    /**
+     * Anonymous version of {@link #writeZippedDbDump(OutputStream)}.
+     */
+    public int writeZippedAnonymousDbDump(OutputStream out,
+            ArrayList<String> excludedTables) throws IOException {
+        anonymouse=true;
+        return writeDump(getAnonymousDumpCommand(excludedTables),
+                "AnonymousFantBackup.sql", out);
+    }
+
+    private String getDumpCommand() {
+        return ("mysqldump" + " -h " + dbHost + " -u " + dbLogin + " -p" + dbPassword + " " + dbName);
+    }
 
-        String dumpcommand = ("mysqldump" + " -h " + dbHost + " -u " + dbLogin + " -p" + dbPassword + " " + dbName);
+    private String getAnonymousDumpCommand(ArrayList<String> excludedTables) {
+        String dumpcommand = getDumpCommand();
 
         // ignore original tables
         for(int i=0; i< excludedTables.size(); i++ )
         {
             dumpcommand += " --ignore-table=" + dbName + "." + excludedTables.get(i);
         }
-        anonymouse=true;
-        return executeDumpCmd(dumpcommand, "AnonymousFantBackup.sql");
+        return dumpcommand;
     }
 
     public int executeDumpCmd(String dumpcommand, String fileName)
     {
-
         try {
-            Runtime dbb = Runtime.getRuntime();
-            Process process = dbb.exec(dumpcommand);
-            InputStream in = process.getInputStream();
             zippedDbOutputStream = new ByteArrayOutputStream();
-            ZipOutputStream outzip = new ZipOutputStream(zippedDbOutputStream);
-            int len;
+            return writeDump(dumpcommand, fileName, zippedDbOutputStream);
+        } catch (Exception e) {
+            log.error("Database dump failed", e);
+            this.errorMessage = String.valueOf(e.getMessage());
+        }
+        return -1; // return -1 if try didn't finish
+    }
+
+    private int writeDump(String dumpcommand, String fileName, OutputStream out)
+            throws IOException {
+        Process process = Runtime.getRuntime().exec(dumpcommand);
+        
+        // mysqldump blocks if its error output is not read
+        ErrorStreamReader errorReader = new ErrorStreamReader(process.getErrorStream());
+        errorReader.start();
+        
+        try {
+            process.getOutputStream().close();
+            
+            ZipOutputStream outzip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+            outzip.setLevel(compressionLevel);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            
             if (anonymouse==true) {
                 outzip.putNextEntry(new ZipEntry("importscript.sql"));
-                InputStream inscript = new ByteArrayInputStream(Sqlfilecontentgenerator.generateSqlScript().getBytes("UTF-8"));
-                while ((len = inscript.read()) != -1) {
-                    outzip.write(len);                
-                }
-            outzip.closeEntry();
+                outzip.write(Sqlfilecontentgenerator.generateSqlScript().getBytes("UTF-8"));
+                outzip.closeEntry();
             }
             
             outzip.putNextEntry(new ZipEntry(fileName));
-
+            
             // loop through the inputstream that contains mysqldump output and zip it
-               
-            while ((len = in.read()) != -1) {
-                outzip.write(len);                
+            InputStream in = process.getInputStream();
+            try {
+                bytesDumped = 0;
+                long nextProgress = PROGRESS_INTERVAL;
+                int len;
+                while ((len = in.read(buffer)) != -1) {
+                    outzip.write(buffer, 0, len);
+                    bytesDumped += len;
+                    if (bytesDumped >= nextProgress) {
+                        log.info("Database dump in progress, " + (bytesDumped / (1024 * 1024)) + " MB dumped");
+                        nextProgress += PROGRESS_INTERVAL;
+                    }
+                }
+            } finally {
+                in.close();
             }
-
-            in.close();
             outzip.closeEntry();
-            outzip.close();            
-
-            // read the error stream to a field
-            this.readProcessErrors(process);            
-
+            
             // 0 means success, 1+ are mysqldump error codes
-            int exitval = process.exitValue();            
+            int exitval = waitFor(process, errorReader);
+            this.errorMessage = errorReader.getMessages();
+            
+            if (exitval != 0) {
+                // the response may already be sent, so mark the dump failed in the zip
+                log.error("Database dump failed with exit value " + exitval + ": " + errorMessage);
+                outzip.putNextEntry(new ZipEntry("errors.txt"));
+                outzip.write(errorMessage.getBytes("UTF-8"));
+                outzip.closeEntry();
+            }
+            else {
+                log.info("Database dump finished, " + bytesDumped + " bytes dumped");
+            }
+            
+            outzip.finish();
+            outzip.flush();
             return exitval;
+        } finally {
+            process.destroy();
+        }
+    }
 
-        } catch (Throwable t) {
-            t.printStackTrace();
+    private static int waitFor(Process process, Thread errorReader) throws IOException {
+        try {
+            int exitval = process.waitFor();
+            errorReader.join();
+            return exitval;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for mysqldump");
         }
-        return -1; // return -1 if try didn't finish
     }
 
     /**
-     * Stores error messages from process's error stream for later access
-     * @param stdErr
-     * @throws IOException
+     * Reads the process's error stream in a separate thread so that
+     * the process can't block on a full error pipe.
      */
-    private void readProcessErrors(Process process) throws IOException {
-
-        InputStream stdErr = process.getErrorStream();
-
-        InputStreamReader stdErrReader = new InputStreamReader(stdErr);
-        BufferedReader bufferedStdErrReader = new BufferedReader(stdErrReader);
+    private static class ErrorStreamReader extends Thread {
+        
+        private final InputStream stdErr;
+        
+        private final StringBuffer messages = new StringBuffer();
+        
+        public ErrorStreamReader(InputStream stdErr) {
+            super("mysqldump-stderr");
+            setDaemon(true);
+            this.stdErr = stdErr;
+        }
+        
+        @Override
+        public void run() {
+            BufferedReader bufferedStdErrReader = new BufferedReader(new InputStreamReader(stdErr));
+            try {
+                String line = null;
+                while ((line = bufferedStdErrReader.readLine()) != null) {
+                    messages.append(line);
+                }
+            } catch (IOException e) {
+                messages.append(e.getMessage());
+            } finally {
+                try {
+                    bufferedStdErrReader.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+        
+        public String getMessages() {
+            return messages.toString();
+        }
+    }
 
-        String line = null;
-        while ((line = bufferedStdErrReader.readLine()) != null) {
-            this.errorMessage = this.errorMessage + line;
+    /**
+     * Sets the zip compression level, 0-9 or -1 for the default level.
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if ((compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)
+                && compressionLevel != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
         }
-    }    
+        this.compressionLevel = compressionLevel;
+    }
 
+    /**
+     * Returns the number of uncompressed bytes dumped so far
+     */
+    public long getBytesDumped() {
+        return bytesDumped;
+    }
 
     /**
      * Shows error message generated by mysqldump Returns errormessage
@@ -1,6 +1,8 @@
 package fi.hut.soberit.agilefant.db.export;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 
 import fi.hut.soberit.agilefant.util.DbConnectionInfo;
@@ -70,6 +72,34 @@ public class DbBackupper {
         return dbbackup.getZippedDbOutputStream();
     }
     
+    /**
+     * Writes the zipped DBdump to the given stream while mysqldump produces it.
+     * Returns the mysqldump exit value, 0 meaning success.
+     */
+    public int writeDBDump(OutputStream out, int compressionLevel) throws IOException {
+        DbBackupStreamGenerator dbbackup = createGenerator(compressionLevel);
+        return dbbackup.writeZippedDbDump(out);
+    }
+    
+    /**Anonymous dumping
+     * Writes the zipped DBdump to the given stream while mysqldump produces it.
+     * Returns the mysqldump exit value, 0 meaning success.
+     */
+    public int writeAnonymousDBDump(OutputStream out, ArrayList<String> excludedTables,
+            int compressionLevel) throws IOException {
+        DbBackupStreamGenerator dbbackup = createGenerator(compressionLevel);
+        return dbbackup.writeZippedAnonymousDbDump(out, excludedTables);
+    }
+    
+    private DbBackupStreamGenerator createGenerator(int compressionLevel) {
+        DbBackupStreamGenerator dbbackup = new DbBackupStreamGenerator(dbinfo.getDbName(),
+                                         dbinfo.getHostname(),
+                                         dbinfo.getUsername(),
+                                         dbinfo.getPassword());
+        dbbackup.setCompressionLevel(compressionLevel);
+        return dbbackup;
+    }
+    
     /**
      * Returns and output stream that contains the zipped dbdump
      */
@@ -1,5 +1,7 @@
 package fi.hut.soberit.agilefant.db.hibernate;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.hibernate.Criteria;
@@ -24,8 +26,25 @@ public class AssignmentDAOHibernate extends GenericDAOHibernate<Assignment> impl
     public List<Assignment> assigmentsInBacklogTimeframe(Interval interval,
             User user) {
         Criteria crit = getCurrentSession().createCriteria(Assignment.class);
-        Criteria backlog = crit.createCriteria("backlog");
         crit.createCriteria("user").add(Restrictions.idEq(user.getId()));
+        addBacklogTimeframeRestriction(crit, interval);
+        return asList(crit);
+    }
+
+    public List<Assignment> assigmentsInBacklogTimeframe(Interval interval,
+            Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Criteria crit = getCurrentSession().createCriteria(Assignment.class);
+        crit.createCriteria("user").add(Restrictions.in("id", userIds));
+        addBacklogTimeframeRestriction(crit, interval);
+        return asList(crit);
+    }
+
+    private void addBacklogTimeframeRestriction(Criteria crit,
+            Interval interval) {
+        Criteria backlog = crit.createCriteria("backlog");
         DateTime startDate = interval.getStart();
         DateTime endDate = interval.getEnd();
         //iteration may start during the interval
@@ -39,7 +58,6 @@ public class AssignmentDAOHibernate extends GenericDAOHibernate<Assignment> impl
         Criterion withinIteration = Restrictions.and(Restrictions.le(
                 "startDate", startDate), Restrictions.ge("endDate", endDate));
         backlog.add(Restrictions.or(overlaps, withinIteration));
-        return asList(crit);
     }
 
 }
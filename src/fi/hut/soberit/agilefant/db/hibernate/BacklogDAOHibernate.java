@@ -1,13 +1,17 @@
 package fi.hut.soberit.agilefant.db.hibernate;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.hibernate.Criteria;
+import org.hibernate.Hibernate;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
 import org.springframework.stereotype.Repository;
 
 import fi.hut.soberit.agilefant.business.SearchBusiness;
@@ -15,6 +19,8 @@ import fi.hut.soberit.agilefant.db.BacklogDAO;
 import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryState;
+import fi.hut.soberit.agilefant.transfer.BacklogType;
+import fi.hut.soberit.agilefant.util.BacklogHierarchy;
 
 /**
  * Hibernate implementation of BacklogDAO interface using GenericDAOHibernate.
@@ -83,4 +89,39 @@ public class BacklogDAOHibernate extends GenericDAOHibernate<Backlog> implements
         crit.setMaxResults(SearchBusiness.MAX_RESULTS_PER_TYPE);
         return asCollection(crit);
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The columns are read with SQL, as the dates are only mapped in the
+     * subclasses.
+     */
+    @SuppressWarnings("unchecked")
+    public BacklogHierarchy retrieveHierarchy() {
+        List<Object[]> rows = getCurrentSession().createSQLQuery(
+                "select id, backlogtype, name, parent_id, startDate, endDate from backlogs")
+                .addScalar("id")
+                .addScalar("backlogtype")
+                .addScalar("name")
+                .addScalar("parent_id")
+                .addScalar("startDate")
+                .addScalar("endDate")
+                .list();
+        List<BacklogHierarchy.Node> nodes = new ArrayList<BacklogHierarchy.Node>(rows.size());
+        for (Object[] row : rows) {
+            Number parentId = (Number) row[3];
+            nodes.add(new BacklogHierarchy.Node(((Number) row[0]).intValue(),
+                    BacklogType.valueOf(((String) row[1]).toUpperCase()),
+                    (String) row[2], toDateTime(row[4]), toDateTime(row[5]),
+                    parentId == null ? 0 : parentId.intValue()));
+        }
+        return new BacklogHierarchy(nodes);
+    }
+
+    private static DateTime toDateTime(Object date) {
+        if (date == null) {
+            return null;
+        }
+        return new DateTime(((Date) date).getTime());
+    }
 }
@@ -65,6 +65,12 @@ public abstract class GenericDAOHibernate<T> implements GenericDAO<T> {
         return (T) hibernateTemplate.get(this.getPersistentClass(), id);
     }
 
+    /** {@inheritDoc} */
+    @SuppressWarnings("unchecked")
+    public T load(int id) {
+        return (T) hibernateTemplate.load(this.getPersistentClass(), id);
+    }
+
     /** {@inheritDoc} */
     public T getAndDetach(int id) {
         T object = (T) this.get(id);
@@ -4,6 +4,8 @@ package fi.hut.soberit.agilefant.db.hibernate;
 import java.util.List;
 
 import org.hibernate.Criteria;
+import org.hibernate.FlushMode;
+import org.hibernate.Query;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.joda.time.DateTime;
@@ -29,4 +31,12 @@ public class HolidayDAOHibernate extends GenericDAOHibernate<Holiday> implements
         return asList(crit);
     }
 
+    public User retrieveStoredUser(int holidayId) {
+        Query query = getCurrentSession().createQuery(
+                "SELECT h.user FROM Holiday h WHERE h.id = :id");
+        query.setInteger("id", holidayId);
+        query.setFlushMode(FlushMode.MANUAL);
+        return (User) query.uniqueResult();
+    }
+
 }
@@ -1,35 +1,157 @@
 package fi.hut.soberit.agilefant.db.hibernate;
 
+import java.io.IOException;
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
 import org.hibernate.Criteria;
-import org.hibernate.criterion.CriteriaSpecification;
-import org.hibernate.criterion.Criterion;
+import org.hibernate.EntityMode;
+import org.hibernate.Query;
+import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.EntityEntry;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.springframework.stereotype.Repository;
 
 import fi.hut.soberit.agilefant.db.HourEntryDAO;
+import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.BacklogHourEntry;
 import fi.hut.soberit.agilefant.model.HourEntry;
+import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Project;
+import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryHourEntry;
+import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.model.TaskHourEntry;
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.model.TaskState;
+import fi.hut.soberit.agilefant.util.TimesheetExportRow;
+import fi.hut.soberit.agilefant.util.TimesheetExportRowHandler;
 
 @Repository("hourEntryDAO")
 public class HourEntryDAOHibernate extends GenericDAOHibernate<HourEntry>
         implements HourEntryDAO {
 
+    private static final int TIMESHEET_FETCH_SIZE = 500;
+
     public HourEntryDAOHibernate() {
         super(HourEntry.class);
     }
 
+    @Override
+    public Serializable create(HourEntry object) {
+        object.updateBacklogPath();
+        return super.create(object);
+    }
+
+    @Override
+    public void store(HourEntry object) {
+        object.updateBacklogPath();
+        super.store(object);
+    }
+
+    public int updateBacklogPath(Story story) {
+        StoryHourEntry path = new StoryHourEntry();
+        path.setStory(story);
+        path.updateBacklogPath();
+        Query storyEntries = getCurrentSession().createQuery(
+                "update StoryHourEntry e set e.productId = :productId, "
+                + "e.projectId = :projectId, e.iterationId = :iterationId "
+                + "where e.story = :story");
+        setBacklogPathParameters(storyEntries, path);
+        storyEntries.setEntity("story", story);
+        Query taskEntries = getCurrentSession().createQuery(
+                "update TaskHourEntry e set e.productId = :productId, "
+                + "e.projectId = :projectId, e.iterationId = :iterationId "
+                + "where e.task.id in (select t.id from Task t where t.story = :story)");
+        setBacklogPathParameters(taskEntries, path);
+        taskEntries.setEntity("story", story);
+        return storyEntries.executeUpdate() + taskEntries.executeUpdate();
+    }
+
+    public int updateBacklogPath(Task task) {
+        TaskHourEntry path = new TaskHourEntry();
+        path.setTask(task);
+        path.updateBacklogPath();
+        Query query = getCurrentSession().createQuery(
+                "update TaskHourEntry e set e.productId = :productId, "
+                + "e.projectId = :projectId, e.iterationId = :iterationId "
+                + "where e.task = :task");
+        setBacklogPathParameters(query, path);
+        query.setEntity("task", task);
+        return query.executeUpdate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The entries, which belong to the backlog, have their ids above the
+     * backlog set from the backlog's parents, whichever way they belong to
+     * it. The entries of an iteration's stories may also take their project
+     * and product from the story's backlog, so they are updated story by
+     * story.
+     */
+    public int updateBacklogPath(Backlog backlog) {
+        BacklogHourEntry path = new BacklogHourEntry();
+        path.setBacklog(backlog);
+        path.updateBacklogPath();
+        if (backlog instanceof Iteration) {
+            return updateIterationPath((Iteration) backlog, path);
+        } else if (backlog instanceof Project) {
+            Query query = getCurrentSession().createQuery(
+                    "update HourEntry e set e.productId = :productId "
+                    + "where e.projectId = :backlogId");
+            query.setParameter("productId", path.getProductId());
+            query.setInteger("backlogId", backlog.getId());
+            return query.executeUpdate();
+        }
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int updateIterationPath(Iteration iteration, HourEntry path) {
+        Query backlogEntries = getCurrentSession().createQuery(
+                "update BacklogHourEntry e set e.productId = :productId, "
+                + "e.projectId = :projectId, e.iterationId = :iterationId "
+                + "where e.backlog = :iteration");
+        setBacklogPathParameters(backlogEntries, path);
+        backlogEntries.setEntity("iteration", iteration);
+        Query taskEntries = getCurrentSession().createQuery(
+                "update TaskHourEntry e set e.productId = :productId, "
+                + "e.projectId = :projectId, e.iterationId = :iterationId "
+                + "where e.task.id in (select t.id from Task t "
+                + "where t.story is null and t.iteration = :iteration)");
+        setBacklogPathParameters(taskEntries, path);
+        taskEntries.setEntity("iteration", iteration);
+        int updated = backlogEntries.executeUpdate() + taskEntries.executeUpdate();
+
+        Query stories = getCurrentSession().createQuery(
+                "from Story s where s.iteration = :iteration");
+        stories.setEntity("iteration", iteration);
+        for (Story story : (List<Story>) stories.list()) {
+            updated += updateBacklogPath(story);
+        }
+        return updated;
+    }
+
+    private static void setBacklogPathParameters(Query query, HourEntry path) {
+        query.setParameter("productId", path.getProductId());
+        query.setParameter("projectId", path.getProjectId());
+        query.setParameter("iterationId", path.getIterationId());
+    }
+
     public long calculateSumByUserAndTimeInterval(int userId,
             DateTime startDate, DateTime endDate) {
         Criteria crit = getCurrentSession().createCriteria(HourEntry.class);
@@ -87,6 +209,17 @@ public class HourEntryDAOHibernate extends GenericDAOHibernate<HourEntry>
         }
     }
 
+    /**
+     * Matches the entries, which belong to one of the backlogs directly or
+     * through their parents. Uses the stored product, project and iteration
+     * ids, so no parents are joined.
+     */
+    private void setBacklogFilter(Criteria crit, Set<Integer> backlogIds) {
+        crit.add(Restrictions.or(Restrictions.in("productId", backlogIds),
+                Restrictions.or(Restrictions.in("projectId", backlogIds),
+                        Restrictions.in("iterationId", backlogIds))));
+    }
+
     public List<BacklogHourEntry> getBacklogHourEntriesByFilter(
             Set<Integer> backlogIds, DateTime startDate, DateTime endDate,
             Set<Integer> userIds) {
@@ -95,14 +228,7 @@ public class HourEntryDAOHibernate extends GenericDAOHibernate<HourEntry>
         }
         Criteria crit = getCurrentSession().createCriteria(
                 BacklogHourEntry.class);
-        crit.createAlias("backlog", "bl", CriteriaSpecification.LEFT_JOIN);
-        crit.createAlias("backlog.parent", "blParent",
-                CriteriaSpecification.LEFT_JOIN);
-        crit.createAlias("backlog.parent.parent", "blParentParent",
-                CriteriaSpecification.LEFT_JOIN);
-        crit.add(Restrictions.or(Restrictions.in("bl.id", backlogIds),
-                Restrictions.or(Restrictions.in("blParent.id", backlogIds),
-                        Restrictions.in("blParentParent.id", backlogIds))));
+        this.setBacklogFilter(crit, backlogIds);
         crit.addOrder(Order.desc("date"));
         this.setDateUserFilter(crit, startDate, endDate, userIds);
         return asList(crit);
@@ -114,20 +240,9 @@ public class HourEntryDAOHibernate extends GenericDAOHibernate<HourEntry>
         if (backlogIds == null || backlogIds.size() == 0) {
             return Collections.emptyList();
         }
-
         Criteria crit = getCurrentSession()
                 .createCriteria(StoryHourEntry.class);
-        crit
-                .createAlias("story.iteration", "iteration",
-                        CriteriaSpecification.LEFT_JOIN);
-        crit.createAlias("story.backlog", "backlog",
-                CriteriaSpecification.LEFT_JOIN);
-        crit.createAlias("story.backlog.parent", "backlogParent",
-                CriteriaSpecification.LEFT_JOIN);
-
-        crit.add(Restrictions.or(Restrictions.in("iteration.id", backlogIds),
-                Restrictions.or(Restrictions.in("backlog.id", backlogIds),
-                        Restrictions.in("backlogParent.id", backlogIds))));
+        this.setBacklogFilter(crit, backlogIds);
         crit.addOrder(Order.desc("date"));
         this.setDateUserFilter(crit, startDate, endDate, userIds);
         return asList(crit);
@@ -139,39 +254,117 @@ public class HourEntryDAOHibernate extends GenericDAOHibernate<HourEntry>
         if(backlogIds == null || backlogIds.size() == 0) {
             return Collections.emptyList();
         }
-        
         Criteria crit = getCurrentSession().createCriteria(TaskHourEntry.class);
-        
-        String[] backlogs = {
-                "iteration",
-                "backlog",
-                "backlogParent",
-                "task_without_story_iteration",
-                "task_without_story_project",
-                "task_without_story_product"
-        };
- 
-        crit.createAlias("task.story", "story", CriteriaSpecification.LEFT_JOIN);
-        crit.createAlias("task.story.iteration", "iteration", CriteriaSpecification.LEFT_JOIN);
-        crit.createAlias("task.story.backlog", "backlog", CriteriaSpecification.LEFT_JOIN);
-        crit.createAlias("task.story.backlog.parent", "backlogParent", CriteriaSpecification.LEFT_JOIN);
-        crit.createAlias("task.iteration", "task_without_story_iteration", CriteriaSpecification.LEFT_JOIN);
-        crit.createAlias("task.iteration.parent", "task_without_story_project", CriteriaSpecification.LEFT_JOIN);
-        crit.createAlias("task.iteration.parent.parent", "task_without_story_product", CriteriaSpecification.LEFT_JOIN);      
-
-        
-        Criterion condition = Restrictions.isNull("task.id");
-        for(String alias : backlogs) {
-            condition = Restrictions.or(Restrictions.in(alias + ".id", backlogIds), condition);
-        }
-        
-        crit.add(condition);
+        this.setBacklogFilter(crit, backlogIds);
         crit.addOrder(Order.desc("date"));
         this.setDateUserFilter(crit, startDate, endDate, userIds);
-        
         return asList(crit);
     }
-    
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The backlogs are found by the product, project and iteration ids stored
+     * in the entries.
+     */
+    public int processTimesheetRows(Set<Integer> backlogIds,
+            DateTime startDate, DateTime endDate, Set<Integer> userIds,
+            TimesheetExportRowHandler handler) throws IOException {
+        if (backlogIds == null || backlogIds.size() == 0) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder(
+                "select prod.name as productName, proj.name as projectName, "
+                + "iter.name as iterationName, s.name as storyName, t.name as taskName, "
+                + "he.description as description, u.fullName as userName, "
+                + "he.date as entryDate, he.minutesSpent as effort "
+                + "from hourentries he "
+                + "left join users u on u.id = he.user_id "
+                + "left join tasks t on t.id = he.task_id "
+                + "left join stories s on s.id = coalesce(he.story_id, t.story_id) "
+                + "left join backlogs prod on prod.id = he.product_id "
+                + "left join backlogs proj on proj.id = he.project_id "
+                + "left join backlogs iter on iter.id = he.iteration_id "
+                + "where (he.product_id in (:backlogIds) or he.project_id in (:backlogIds) "
+                + "or he.iteration_id in (:backlogIds))");
+        if (startDate != null) {
+            sql.append(" and he.date >= :startDate");
+        }
+        if (endDate != null) {
+            sql.append(" and he.date <= :endDate");
+        }
+        if (userIds != null && userIds.size() > 0) {
+            sql.append(" and he.user_id in (:userIds)");
+        }
+        sql.append(" order by 1, 2, 3, 4, 5, 8 desc");
+
+        SQLQuery query = getCurrentSession().createSQLQuery(sql.toString());
+        query.addScalar("productName");
+        query.addScalar("projectName");
+        query.addScalar("iterationName");
+        query.addScalar("storyName");
+        query.addScalar("taskName");
+        query.addScalar("description");
+        query.addScalar("userName");
+        query.addScalar("entryDate");
+        query.addScalar("effort");
+        query.setParameterList("backlogIds", backlogIds);
+        if (startDate != null) {
+            query.setTimestamp("startDate", startDate.toDate());
+        }
+        if (endDate != null) {
+            query.setTimestamp("endDate", endDate.toDate());
+        }
+        if (userIds != null && userIds.size() > 0) {
+            query.setParameterList("userIds", userIds);
+        }
+        query.setReadOnly(true);
+        query.setFetchSize(getStreamingFetchSize());
+
+        int count = 0;
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                handler.handleRow(toTimesheetExportRow(results.get()));
+                count++;
+            }
+        } finally {
+            results.close();
+        }
+        return count;
+    }
+
+    private static TimesheetExportRow toTimesheetExportRow(Object[] values) {
+        TimesheetExportRow row = new TimesheetExportRow();
+        row.setProductName((String) values[0]);
+        row.setProjectName((String) values[1]);
+        row.setIterationName((String) values[2]);
+        row.setStoryName((String) values[3]);
+        row.setTaskName((String) values[4]);
+        row.setDescription((String) values[5]);
+        row.setUserName((String) values[6]);
+        if (values[7] != null) {
+            row.setDate(new DateTime(values[7]));
+        }
+        if (values[8] != null) {
+            row.setEffort(((Number) values[8]).longValue());
+        }
+        return row;
+    }
+
+    /**
+     * MySQL's driver reads the whole result into memory, unless the fetch
+     * size is Integer.MIN_VALUE.
+     */
+    private int getStreamingFetchSize() {
+        Dialect dialect = ((SessionFactoryImplementor) getCurrentSession()
+                .getSessionFactory()).getDialect();
+        if (dialect instanceof MySQLDialect) {
+            return Integer.MIN_VALUE;
+        }
+        return TIMESHEET_FETCH_SIZE;
+    }
+
     public long calculateIterationHourEntriesSum(int iterationId) {
         long tasksEntrySum = getSumForTaskHourEntriesWithoutStoryForIteration(iterationId);
         long tasksWithStoryEntrySum = getSumForTaskHourEntriesWithStoryForIteration(iterationId);
@@ -355,4 +548,25 @@ public class HourEntryDAOHibernate extends GenericDAOHibernate<HourEntry>
       
         return asList(crit);
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The copy is built from the state the session loaded the entry with.
+     */
+    public HourEntry retrieveStoredCopy(HourEntry hourEntry) {
+        if (hourEntry.getId() == 0) {
+            return null;
+        }
+        SessionImplementor session = (SessionImplementor) getCurrentSession();
+        EntityEntry entry = session.getPersistenceContext().getEntry(hourEntry);
+        if (entry == null || entry.getLoadedState() == null) {
+            return getAndDetach(hourEntry.getId());
+        }
+        EntityPersister persister = entry.getPersister();
+        HourEntry copy = (HourEntry) persister.instantiate(entry.getId(), session);
+        persister.setPropertyValues(copy, entry.getLoadedState(),
+                EntityMode.POJO);
+        return copy;
+    }
 }
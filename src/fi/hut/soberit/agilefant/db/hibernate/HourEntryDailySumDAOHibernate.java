@@ -0,0 +1,197 @@
+package fi.hut.soberit.agilefant.db.hibernate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.LocalDate;
+import org.springframework.stereotype.Repository;
+
+import fi.hut.soberit.agilefant.db.HourEntryDailySumDAO;
+import fi.hut.soberit.agilefant.model.BacklogHourEntry;
+import fi.hut.soberit.agilefant.model.HourEntry;
+import fi.hut.soberit.agilefant.model.HourEntryDailySum;
+import fi.hut.soberit.agilefant.model.StoryHourEntry;
+import fi.hut.soberit.agilefant.model.TaskHourEntry;
+
+@Repository("hourEntryDailySumDAO")
+public class HourEntryDailySumDAOHibernate extends
+        GenericDAOHibernate<HourEntryDailySum> implements HourEntryDailySumDAO {
+
+    public HourEntryDailySumDAOHibernate() {
+        super(HourEntryDailySum.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The sum is updated in the database, so concurrent additions are not
+     * lost. The user's row is locked first, so that two transactions can't
+     * both find the sum missing and create it twice. A unique key would not
+     * help here, as two of the parent columns are always null.
+     */
+    public void add(HourEntry hourEntry, long minutes) {
+        if (minutes == 0 || hourEntry.getUser() == null
+                || hourEntry.getDate() == null) {
+            return;
+        }
+        HourEntryDailySum sum = createSum(hourEntry);
+        getCurrentSession().createSQLQuery(
+                "select id from users where id = :userId for update")
+                .setInteger("userId", sum.getUserId()).list();
+        Query update = getCurrentSession().createQuery(
+                "update HourEntryDailySum s set s.minutesSpent = s.minutesSpent + :minutes where "
+                + keyRestriction(sum));
+        setKeyParameters(update, sum);
+        update.setLong("minutes", minutes);
+        int updated = update.executeUpdate();
+        if (updated == 0) {
+            if (minutes > 0) {
+                sum.setMinutesSpent(minutes);
+                create(sum);
+            }
+        } else if (minutes < 0) {
+            Query delete = getCurrentSession().createQuery(
+                    "delete from HourEntryDailySum s where s.minutesSpent <= 0 and "
+                    + keyRestriction(sum));
+            setKeyParameters(delete, sum);
+            delete.executeUpdate();
+        }
+    }
+
+    public void removeByUser(int userId) {
+        getCurrentSession().createQuery(
+                "delete from HourEntryDailySum s where s.userId = :userId")
+                .setInteger("userId", userId).executeUpdate();
+    }
+
+    private HourEntryDailySum createSum(HourEntry hourEntry) {
+        HourEntryDailySum sum = new HourEntryDailySum();
+        sum.setUserId(hourEntry.getUser().getId());
+        sum.setDay(new LocalDate(hourEntry.getDate().getMillis()));
+        if (hourEntry instanceof BacklogHourEntry) {
+            BacklogHourEntry entry = (BacklogHourEntry) hourEntry;
+            if (entry.getBacklog() != null) {
+                sum.setBacklogId(entry.getBacklog().getId());
+            }
+        } else if (hourEntry instanceof StoryHourEntry) {
+            StoryHourEntry entry = (StoryHourEntry) hourEntry;
+            if (entry.getStory() != null) {
+                sum.setStoryId(entry.getStory().getId());
+            }
+        } else if (hourEntry instanceof TaskHourEntry) {
+            TaskHourEntry entry = (TaskHourEntry) hourEntry;
+            if (entry.getTask() != null) {
+                sum.setTaskId(entry.getTask().getId());
+            }
+        }
+        return sum;
+    }
+
+    private static String keyRestriction(HourEntryDailySum sum) {
+        return "s.userId = :userId and s.day = :day"
+                + parentRestriction("backlogId", sum.getBacklogId())
+                + parentRestriction("storyId", sum.getStoryId())
+                + parentRestriction("taskId", sum.getTaskId());
+    }
+
+    private static void setKeyParameters(Query query, HourEntryDailySum sum) {
+        query.setInteger("userId", sum.getUserId());
+        query.setParameter("day", sum.getDay());
+        if (sum.getBacklogId() != null) {
+            query.setInteger("backlogId", sum.getBacklogId());
+        }
+        if (sum.getStoryId() != null) {
+            query.setInteger("storyId", sum.getStoryId());
+        }
+        if (sum.getTaskId() != null) {
+            query.setInteger("taskId", sum.getTaskId());
+        }
+    }
+
+    private static String parentRestriction(String property, Integer id) {
+        if (id == null) {
+            return " and s." + property + " is null";
+        }
+        return " and s." + property + " = :" + property;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The sums are inserted with a single statement, so the hour entries
+     * are never loaded.
+     */
+    public int rebuild() {
+        getCurrentSession().flush();
+        getCurrentSession().createQuery("delete from HourEntryDailySum")
+                .executeUpdate();
+        return getCurrentSession().createSQLQuery(
+                "insert into hourentry_daily_sums "
+                + "(user_id, day, backlog_id, story_id, task_id, minutesSpent) "
+                + "select user_id, cast(date as date), backlog_id, story_id, task_id, sum(minutesSpent) "
+                + "from hourentries where user_id is not null and date is not null "
+                + "group by user_id, cast(date as date), backlog_id, story_id, task_id "
+                + "having sum(minutesSpent) <> 0")
+                .executeUpdate();
+    }
+
+    public long calculateSumByUserAndInterval(int userId, LocalDate start,
+            LocalDate end) {
+        Criteria crit = getCurrentSession().createCriteria(
+                HourEntryDailySum.class);
+        crit.add(Restrictions.eq("userId", userId));
+        crit.add(Restrictions.between("day", start, end));
+        crit.setProjection(Projections.sum("minutesSpent"));
+        Long result = uniqueResult(crit);
+        if (result == null) {
+            return 0;
+        }
+        return result;
+    }
+
+    public Map<LocalDate, Long> calculateDailySumsByUserAndInterval(
+            int userId, LocalDate start, LocalDate end) {
+        Criteria crit = getCurrentSession().createCriteria(
+                HourEntryDailySum.class);
+        crit.add(Restrictions.eq("userId", userId));
+        crit.add(Restrictions.between("day", start, end));
+        ProjectionList projections = Projections.projectionList();
+        projections.add(Projections.groupProperty("day"));
+        projections.add(Projections.sum("minutesSpent"));
+        crit.setProjection(projections);
+        return toDailySums(this.<Object[]> asList(crit));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The tasks in a story belong to the story's iteration, the other tasks
+     * to their own iteration, as with the hour entries.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<LocalDate, Long> calculateDailySumsByIteration(int iterationId) {
+        Query query = getCurrentSession().createQuery(
+                "select s.day, sum(s.minutesSpent) from HourEntryDailySum s "
+                + "where s.backlogId = :iterationId "
+                + "or s.storyId in (select st.id from Story st where st.iteration.id = :iterationId) "
+                + "or s.taskId in (select t.id from Task t where t.story is null and t.iteration.id = :iterationId) "
+                + "or s.taskId in (select t.id from Task t where t.story.iteration.id = :iterationId) "
+                + "group by s.day");
+        query.setInteger("iterationId", iterationId);
+        return toDailySums((List<Object[]>) query.list());
+    }
+
+    private static Map<LocalDate, Long> toDailySums(List<Object[]> rows) {
+        Map<LocalDate, Long> sums = new HashMap<LocalDate, Long>();
+        for (Object[] row : rows) {
+            sums.put((LocalDate) row[0], (Long) row[1]);
+        }
+        return sums;
+    }
+}
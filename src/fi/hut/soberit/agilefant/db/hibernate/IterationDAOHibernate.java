@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -15,15 +16,20 @@ import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.CriteriaSpecification;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.Subqueries;
 import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
 import org.springframework.stereotype.Repository;
 
 import fi.hut.soberit.agilefant.db.IterationDAO;
+import fi.hut.soberit.agilefant.model.BacklogHourEntry;
 import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.IterationHistoryEntry;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryHourEntry;
 import fi.hut.soberit.agilefant.model.StoryState;
@@ -31,6 +37,7 @@ import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.model.TaskHourEntry;
 import fi.hut.soberit.agilefant.model.TaskState;
 import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.IterationMetricsData;
 import fi.hut.soberit.agilefant.util.Pair;
 import fi.hut.soberit.agilefant.util.StoryMetrics;
 
@@ -249,6 +256,18 @@ public class IterationDAOHibernate extends GenericDAOHibernate<Iteration>
         crit.addOrder(Order.asc("name"));
         return asList(crit);
     }
+
+    public List<Iteration> retrieveStandAloneIterations(
+            Collection<Integer> iterationIds) {
+        if (iterationIds.isEmpty()) {
+            return new ArrayList<Iteration>();
+        }
+        final Criteria crit = getCurrentSession().createCriteria(Iteration.class);
+        crit.add(Restrictions.isNull("parent"));
+        crit.add(Restrictions.in("id", iterationIds));
+        crit.addOrder(Order.asc("name"));
+        return asList(crit);
+    }
     
     public Iteration retrieveDeep(int iterationId) {
         Criteria crit = getCurrentSession().createCriteria(Iteration.class);
@@ -274,6 +293,56 @@ public class IterationDAOHibernate extends GenericDAOHibernate<Iteration>
         return (Iteration) crit.uniqueResult();
     }
 
+    public Iteration retrieveWithContents(int iterationId) {
+        List<Integer> iterationIds = Arrays.asList(iterationId);
+        List<Iteration> iterations = initializeCollection(Iteration.class,
+                "tasks", iterationIds);
+        if (iterations.isEmpty()) {
+            return null;
+        }
+        Iteration iteration = iterations.get(0);
+        initializeCollection(Iteration.class, "assignedStories", iterationIds);
+
+        Set<Integer> taskIds = new HashSet<Integer>();
+        for (Task task : iteration.getTasks()) {
+            taskIds.add(task.getId());
+        }
+        Set<Integer> storyIds = new HashSet<Integer>();
+        for (Story story : iteration.getAssignedStories()) {
+            storyIds.add(story.getId());
+        }
+
+        if (!storyIds.isEmpty()) {
+            initializeCollection(Story.class, "labels", storyIds);
+            List<Story> stories = initializeCollection(Story.class, "tasks",
+                    storyIds);
+            for (Story story : stories) {
+                for (Task task : story.getTasks()) {
+                    taskIds.add(task.getId());
+                }
+            }
+        }
+
+        if (!taskIds.isEmpty()) {
+            initializeCollection(Task.class, "responsibles", taskIds);
+            initializeCollection(Task.class, "whatsNextEntries", taskIds);
+        }
+        return iteration;
+    }
+
+    /**
+     * Loads the entities with the given ids and joins one of their
+     * collections, so that the result set has a row per collection element.
+     */
+    private <T> List<T> initializeCollection(Class<T> type, String collection,
+            Collection<Integer> ids) {
+        Criteria crit = getCurrentSession().createCriteria(type);
+        crit.add(Restrictions.in("id", ids));
+        crit.setFetchMode(collection, FetchMode.JOIN);
+        crit.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+        return asList(crit);
+    }
+
     public Map<Integer, StoryMetrics> calculateIterationDirectStoryMetrics(
             Iteration iteration) {
         
@@ -388,63 +457,214 @@ public class IterationDAOHibernate extends GenericDAOHibernate<Iteration>
     }
     
     /**
-     * This function determines whether a given readonly token is valid of not. 
-     * A token is valid if it exists in the backlog db. 
+     * This function fetches the count associated with a given token in case we need to
+     * create another one to be unique
      * 
      * @param token
-     * @return true if the readonly token exists in the database, false otherwise.
+     * @return the number of iterations with the token, 0 for an empty token
      */
-    public boolean isValidReadonlyToken(String token) {
+    public int getIterationCountFromReadonlyToken(String token) {
         
         // Empty or null tokens can never be valid.
         if (token == null || token.equals("")) {
-            return false;
+            return 0;
         }
         
         Criteria crit = getCurrentSession().createCriteria(Iteration.class);
         crit.add(Restrictions.eq("readonlyToken", token));
-        
-        return !asList(crit).isEmpty();
+        crit.setProjection(Projections.rowCount());
+        return ((Number) uniqueResult(crit)).intValue();
     }
-    
-    /**
-     * This function fetches the iteration id associated with a given token. 
-     * 
-     * @param token
-     * @return if the token is valid the associated iteration id is returned, 
-     *          if the token is not valid null is returned. 
-     */
-    public Iteration getIterationFromReadonlyToken(String token) {
-        
-        // First ensure token is valid.
-        if (!isValidReadonlyToken(token)) {
-            return null;
-        }
-        
+
+    public Map<String, Integer> retrieveReadonlyTokens() {
         Criteria crit = getCurrentSession().createCriteria(Iteration.class);
-        crit.add(Restrictions.eq("readonlyToken", token));
-        List<Iteration> dummy = asList(crit);
-        return dummy.get(0);
+        crit.add(Restrictions.isNotNull("readonlyToken"));
+        crit.add(Restrictions.ne("readonlyToken", ""));
+        crit.setProjection(Projections.projectionList().add(
+                Projections.property("readonlyToken")).add(
+                Projections.id()));
+        Map<String, Integer> tokens = new HashMap<String, Integer>();
+        List<Object[]> rows = asList(crit);
+        for (Object[] row : rows) {
+            tokens.put((String) row[0], (Integer) row[1]);
+        }
+        return tokens;
     }
-    
+
+    public Map<Integer, IterationMetricsData> calculateIterationMetricsData(
+            Set<Integer> iterationIds, LocalDate yesterday) {
+        if (iterationIds == null || iterationIds.size() == 0) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, IterationMetricsData> result = new HashMap<Integer, IterationMetricsData>();
+        for (Integer iterationId : iterationIds) {
+            result.put(iterationId, new IterationMetricsData());
+        }
+        addStoryMetricsData(result, iterationIds);
+        addTaskMetricsData(result, iterationIds);
+        addSpentEffortMetricsData(result, iterationIds);
+        addHistoryMetricsData(result, iterationIds, yesterday);
+        return result;
+    }
+
+    private void addStoryMetricsData(Map<Integer, IterationMetricsData> result,
+            Set<Integer> iterationIds) {
+        Criteria crit = getCurrentSession().createCriteria(Story.class);
+        crit.add(Restrictions.in("iteration.id", iterationIds));
+        crit.add(Restrictions.ne("state", StoryState.DEFERRED));
+        crit.setProjection(Projections.projectionList().add(
+                Projections.groupProperty("iteration.id")).add(
+                Projections.groupProperty("state")).add(
+                Projections.rowCount()).add(Projections.sum("storyPoints"))
+                .add(Projections.sum("storyValue")));
+        List<Object[]> rows = asList(crit);
+        for (Object[] row : rows) {
+            IterationMetricsData data = result.get(row[0]);
+            int count = toInt(row[2]);
+            int points = toInt(row[3]);
+            int value = toInt(row[4]);
+            data.setTotalStories(data.getTotalStories() + count);
+            data.setStoryPoints(data.getStoryPoints() + points);
+            data.setTotalValue(data.getTotalValue() + value);
+            if (row[1] == StoryState.DONE) {
+                data.setCompletedStories(data.getCompletedStories() + count);
+                data.setDoneStoryPoints(data.getDoneStoryPoints() + points);
+                data.setCompletedValue(data.getCompletedValue() + value);
+            }
+        }
+    }
+
+    private void addTaskMetricsData(Map<Integer, IterationMetricsData> result,
+            Set<Integer> iterationIds) {
+        Criteria storyTasks = getCurrentSession().createCriteria(Task.class);
+        storyTasks.createAlias("story", "story");
+        storyTasks.add(Restrictions.in("story.iteration.id", iterationIds));
+        storyTasks.add(Restrictions.ne("state", TaskState.DEFERRED));
+        storyTasks.add(Restrictions.ne("story.state", StoryState.DEFERRED));
+        storyTasks.setProjection(Projections.projectionList().add(
+                Projections.groupProperty("story.iteration.id")).add(
+                Projections.groupProperty("state")).add(
+                Projections.rowCount()));
+
+        Criteria iterationTasks = getCurrentSession().createCriteria(Task.class);
+        iterationTasks.add(Restrictions.in("iteration.id", iterationIds));
+        iterationTasks.add(Restrictions.isNull("story"));
+        iterationTasks.add(Restrictions.ne("state", TaskState.DEFERRED));
+        iterationTasks.setProjection(Projections.projectionList().add(
+                Projections.groupProperty("iteration.id")).add(
+                Projections.groupProperty("state")).add(
+                Projections.rowCount()));
+
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.addAll(this.<Object[]>asList(storyTasks));
+        rows.addAll(this.<Object[]>asList(iterationTasks));
+        for (Object[] row : rows) {
+            IterationMetricsData data = result.get(row[0]);
+            int count = toInt(row[2]);
+            data.setTotalTasks(data.getTotalTasks() + count);
+            if (row[1] == TaskState.DONE) {
+                data.setCompletedTasks(data.getCompletedTasks() + count);
+            }
+        }
+    }
+
+    private void addSpentEffortMetricsData(
+            Map<Integer, IterationMetricsData> result, Set<Integer> iterationIds) {
+        Criteria iterationTaskEntries = getCurrentSession().createCriteria(
+                TaskHourEntry.class);
+        iterationTaskEntries.createAlias("task", "task");
+        iterationTaskEntries.add(Restrictions.isNull("task.story"));
+        iterationTaskEntries.add(Restrictions.in("task.iteration.id",
+                iterationIds));
+        iterationTaskEntries.setProjection(Projections.projectionList().add(
+                Projections.groupProperty("task.iteration.id")).add(
+                Projections.sum("minutesSpent")));
+
+        Criteria storyTaskEntries = getCurrentSession().createCriteria(
+                TaskHourEntry.class);
+        storyTaskEntries.createAlias("task", "task");
+        storyTaskEntries.createAlias("task.story", "story");
+        storyTaskEntries.add(Restrictions.in("story.iteration.id",
+                iterationIds));
+        storyTaskEntries.setProjection(Projections.projectionList().add(
+                Projections.groupProperty("story.iteration.id")).add(
+                Projections.sum("minutesSpent")));
+
+        Criteria storyEntries = getCurrentSession().createCriteria(
+                StoryHourEntry.class);
+        storyEntries.createAlias("story", "story");
+        storyEntries.add(Restrictions.in("story.iteration.id", iterationIds));
+        storyEntries.setProjection(Projections.projectionList().add(
+                Projections.groupProperty("story.iteration.id")).add(
+                Projections.sum("minutesSpent")));
+
+        Criteria backlogEntries = getCurrentSession().createCriteria(
+                BacklogHourEntry.class);
+        backlogEntries.add(Restrictions.in("backlog.id", iterationIds));
+        backlogEntries.setProjection(Projections.projectionList().add(
+                Projections.groupProperty("backlog.id")).add(
+                Projections.sum("minutesSpent")));
+
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.addAll(this.<Object[]>asList(iterationTaskEntries));
+        rows.addAll(this.<Object[]>asList(storyTaskEntries));
+        rows.addAll(this.<Object[]>asList(storyEntries));
+        rows.addAll(this.<Object[]>asList(backlogEntries));
+        for (Object[] row : rows) {
+            IterationMetricsData data = result.get(row[0]);
+            if (row[1] != null) {
+                data.setSpentEffort(data.getSpentEffort()
+                        + ((Number) row[1]).longValue());
+            }
+        }
+    }
+
     /**
-     * This function fetches the count associated with a given token in case we need to
-     * create another one to be unique
-     * 
-     * @param token
-     * @return if the token is valid the associated iteration id is returned, 
-     *          if the token is not valid null is returned. 
+     * Fetches the latest history entry and the latest entry not after
+     * yesterday of each iteration. Both are often the same entry.
      */
-    public int getIterationCountFromReadonlyToken(String token) {
-        
-        // First ensure token is valid.
-        if (!isValidReadonlyToken(token)) {
+    private void addHistoryMetricsData(
+            Map<Integer, IterationMetricsData> result,
+            Set<Integer> iterationIds, LocalDate yesterday) {
+        DetachedCriteria latest = DetachedCriteria.forClass(
+                IterationHistoryEntry.class, "latest");
+        latest.add(Restrictions.eqProperty("latest.iteration", "entry.iteration"));
+        latest.setProjection(Projections.max("latest.timestamp"));
+
+        DetachedCriteria previous = DetachedCriteria.forClass(
+                IterationHistoryEntry.class, "previous");
+        previous.add(Restrictions.eqProperty("previous.iteration",
+                "entry.iteration"));
+        previous.add(Restrictions.le("previous.timestamp", yesterday));
+        previous.setProjection(Projections.max("previous.timestamp"));
+
+        Criteria crit = getCurrentSession().createCriteria(
+                IterationHistoryEntry.class, "entry");
+        crit.add(Restrictions.in("entry.iteration.id", iterationIds));
+        crit.add(Restrictions.or(Subqueries.propertyEq("entry.timestamp",
+                latest), Subqueries.propertyEq("entry.timestamp", previous)));
+
+        List<IterationHistoryEntry> entries = asList(crit);
+        for (IterationHistoryEntry entry : entries) {
+            IterationMetricsData data = result.get(entry.getIteration().getId());
+            IterationHistoryEntry latestEntry = data.getLatestHistoryEntry();
+            if (latestEntry == null
+                    || entry.getTimestamp().isAfter(latestEntry.getTimestamp())) {
+                data.setLatestHistoryEntry(entry);
+            }
+            IterationHistoryEntry yesterdayEntry = data.getYesterdayHistoryEntry();
+            if (!entry.getTimestamp().isAfter(yesterday)
+                    && (yesterdayEntry == null || entry.getTimestamp()
+                            .isAfter(yesterdayEntry.getTimestamp()))) {
+                data.setYesterdayHistoryEntry(entry);
+            }
+        }
+    }
+
+    private static int toInt(Object number) {
+        if (number == null) {
             return 0;
         }
-        
-        Criteria crit = getCurrentSession().createCriteria(Iteration.class);
-        crit.add(Restrictions.eq("readonlyToken", token));
-        List<Iteration> dummy = asList(crit);
-        return dummy.size();
+        return ((Number) number).intValue();
     }
 }
@@ -1,6 +1,9 @@
 package fi.hut.soberit.agilefant.db.hibernate;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
@@ -53,6 +56,51 @@ public class IterationHistoryEntryDAOHibernate extends
         return extractPairSum(tasksWithoutStorySum, tasksInsideStorySum);
     }
 
+    public Map<Integer, Pair<ExactEstimate, ExactEstimate>> calculateCurrentHistoryData(
+            Collection<Integer> iterationIds) {
+        Map<Integer, long[]> sums = new HashMap<Integer, long[]>();
+        for (Integer iterationId : iterationIds) {
+            sums.put(iterationId, new long[2]);
+        }
+        if (!iterationIds.isEmpty()) {
+            Criteria tasksWithoutStory = getCurrentSession().createCriteria(Task.class);
+            tasksWithoutStory.add(Restrictions.in("iteration.id", iterationIds));
+            tasksWithoutStory.add(Restrictions.ne("state", TaskState.DEFERRED));
+            addGroupedSums(sums, tasksWithoutStory, "iteration.id");
+            
+            Criteria tasksInsideStory = getCurrentSession().createCriteria(Task.class);
+            tasksInsideStory.add(Restrictions.ne("state", TaskState.DEFERRED));
+            tasksInsideStory.createAlias("story", "story");
+            tasksInsideStory.add(Restrictions.ne("story.state", StoryState.DEFERRED));
+            tasksInsideStory.add(Restrictions.in("story.iteration.id", iterationIds));
+            addGroupedSums(sums, tasksInsideStory, "story.iteration.id");
+        }
+        
+        Map<Integer, Pair<ExactEstimate, ExactEstimate>> result = new HashMap<Integer, Pair<ExactEstimate, ExactEstimate>>();
+        for (Map.Entry<Integer, long[]> entry : sums.entrySet()) {
+            result.put(entry.getKey(), Pair.create(new ExactEstimate(
+                    entry.getValue()[0]), new ExactEstimate(entry.getValue()[1])));
+        }
+        return result;
+    }
+    
+    private void addGroupedSums(Map<Integer, long[]> sums, Criteria crit, String iterationIdProperty) {
+        crit.setProjection(Projections.projectionList().add(
+                Projections.groupProperty(iterationIdProperty)).add(
+                Projections.sum("effortLeft")).add(
+                Projections.sum("originalEstimate")));
+        List<Object[]> rows = asList(crit);
+        for (Object[] row : rows) {
+            long[] iterationSums = sums.get((Integer) row[0]);
+            if (row[1] != null) {
+                iterationSums[0] += (Long) row[1];
+            }
+            if (row[2] != null) {
+                iterationSums[1] += (Long) row[2];
+            }
+        }
+    }
+
     private Pair<ExactEstimate, ExactEstimate> extractPairSum(
             Pair<ExactEstimate, ExactEstimate> tasksWithoutStorySum,
             Pair<ExactEstimate, ExactEstimate> tasksInsideStorySum) {
@@ -1,9 +1,20 @@
 package fi.hut.soberit.agilefant.db.hibernate;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.hibernate.Criteria;
+import org.hibernate.jdbc.Work;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
@@ -18,6 +29,15 @@ import fi.hut.soberit.agilefant.model.Story;
 public class LabelDAOHibernate extends GenericDAOHibernate<Label> implements
 LabelDAO {
 
+    /**
+     * The number of labels inserted with one JDBC batch.
+     */
+    private static final int BATCH_SIZE = 50;
+
+    private static final String INSERT_LABEL = "INSERT INTO labels "
+            + "(displayName, name, creator_id, story_id, timestamp) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
     public LabelDAOHibernate() {
         super(Label.class);
     }
@@ -54,5 +74,95 @@ LabelDAO {
         
     }
 
+    public Map<Integer, Set<String>> getLabelNamesByStory(
+            Collection<Integer> storyIds) {
+        Map<Integer, Set<String>> labelNames = new HashMap<Integer, Set<String>>();
+        if (storyIds.isEmpty()) {
+            return labelNames;
+        }
+        Criteria crit = getCurrentSession().createCriteria(Label.class);
+        crit.createAlias("story", "story");
+        crit.add(Restrictions.in("story.id", storyIds));
+        crit.setProjection(Projections.projectionList().add(
+                Projections.property("story.id")).add(
+                Projections.property("name")));
+        List<Object[]> rows = asList(crit);
+        for (Object[] row : rows) {
+            Integer storyId = (Integer) row[0];
+            if (!labelNames.containsKey(storyId)) {
+                labelNames.put(storyId, new HashSet<String>());
+            }
+            labelNames.get(storyId).add((String) row[1]);
+        }
+        return labelNames;
+    }
+
+    public void createLabels(final Collection<Label> labels) {
+        if (labels.isEmpty()) {
+            return;
+        }
+        getCurrentSession().doWork(new Work() {
+            public void execute(Connection connection) throws SQLException {
+                PreparedStatement insert = connection
+                        .prepareStatement(INSERT_LABEL);
+                try {
+                    int batched = 0;
+                    for (Label label : labels) {
+                        addInsertBatch(insert, label);
+                        if (++batched % BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                    if (batched % BATCH_SIZE != 0) {
+                        insert.executeBatch();
+                    }
+                } finally {
+                    insert.close();
+                }
+            }
+        });
+        addToStories(labels);
+    }
+
+    /**
+     * The JDBC inserts bypass the session, so the inserted labels are loaded
+     * and added to the label collections of their stories.
+     */
+    private void addToStories(Collection<Label> labels) {
+        Set<Integer> storyIds = new HashSet<Integer>();
+        Set<String> names = new HashSet<String>();
+        for (Label label : labels) {
+            storyIds.add(label.getStory().getId());
+            names.add(label.getName());
+        }
+        Criteria crit = getCurrentSession().createCriteria(Label.class);
+        crit.createAlias("story", "story");
+        crit.add(Restrictions.in("story.id", storyIds));
+        crit.add(Restrictions.in("name", names));
+        List<Label> inserted = asList(crit);
+        for (Label label : inserted) {
+            label.getStory().getLabels().add(label);
+        }
+    }
+
+    private static void addInsertBatch(PreparedStatement insert, Label label)
+            throws SQLException {
+        insert.setString(1, label.getDisplayName());
+        insert.setString(2, label.getName());
+        if (label.getCreator() != null) {
+            insert.setInt(3, label.getCreator().getId());
+        } else {
+            insert.setNull(3, Types.INTEGER);
+        }
+        insert.setInt(4, label.getStory().getId());
+        if (label.getTimestamp() != null) {
+            insert.setTimestamp(5, new Timestamp(label.getTimestamp()
+                    .getMillis()));
+        } else {
+            insert.setNull(5, Types.TIMESTAMP);
+        }
+        insert.addBatch();
+    }
+
 }
     
@@ -1,5 +1,6 @@
 package fi.hut.soberit.agilefant.db.hibernate;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -38,12 +39,25 @@ public class ProductDAOHibernate extends GenericDAOHibernate<Product> implements
     }
     
     public List<Product> retrieveBacklogTree() {
+        return asList(createBacklogTreeCriteria());
+    }
+
+    public List<Product> retrieveBacklogTree(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<Product>();
+        }
+        Criteria crit = createBacklogTreeCriteria();
+        crit.add(Restrictions.in("id", productIds));
+        return asList(crit);
+    }
+
+    private Criteria createBacklogTreeCriteria() {
         Criteria crit = this.getCurrentSession().createCriteria(this.getPersistentClass());
         crit.createAlias("children", "projects", CriteriaSpecification.LEFT_JOIN);
         crit.createAlias("projects.children", "iterations", CriteriaSpecification.LEFT_JOIN);
         crit.addOrder(Order.asc("name"));
         crit.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
-        return asList(crit);
+        return crit;
     }
 
     public List<Story> retrieveLeafStories(Product product) {
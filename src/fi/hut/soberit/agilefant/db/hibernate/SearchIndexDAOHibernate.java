@@ -0,0 +1,386 @@
+package fi.hut.soberit.agilefant.db.hibernate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.hibernate.Criteria;
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Projections;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.event.EventListeners;
+import org.hibernate.event.PostDeleteEvent;
+import org.hibernate.event.PostDeleteEventListener;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.event.PostInsertEventListener;
+import org.hibernate.event.PostUpdateEvent;
+import org.hibernate.event.PostUpdateEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fi.hut.soberit.agilefant.db.SearchIndexDAO;
+import fi.hut.soberit.agilefant.model.Backlog;
+import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.NamedObject;
+import fi.hut.soberit.agilefant.model.Product;
+import fi.hut.soberit.agilefant.model.Project;
+import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.model.Task;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.SearchIndex;
+
+/**
+ * Hibernate implementation of SearchIndexDAO interface.
+ * <p>
+ * Keeps one in-memory index per indexed type. The indexes are built lazily
+ * on the first search; until then changes are ignored, as the build reads
+ * the current state from the database anyway.
+ * <p>
+ * The DAO registers itself as an insert, update and delete listener of the
+ * session factory, so the index follows the changes Hibernate finds by dirty
+ * checking too. The changes are collected per transaction and applied after
+ * the transaction has committed, so rolled back changes never reach the
+ * index. Hibernate's post-commit listeners can't be used for this, as they
+ * are called after a rollback as well.
+ * <p>
+ * Rebuilding doesn't block searches; they use the old index until the new
+ * one is ready. The changes committed during the rebuild are applied to the
+ * new index before it replaces the old one.
+ */
+@Repository("searchIndexDAO")
+public class SearchIndexDAOHibernate implements SearchIndexDAO,
+        PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+
+    private static final long serialVersionUID = -4671360312785224610L;
+
+    private static final Class<?>[] INDEXED_TYPES = { Backlog.class,
+            Story.class, Task.class, User.class };
+
+    private static final Class<?>[] BACKLOG_TYPES = { Product.class,
+            Project.class, Iteration.class };
+
+    private transient SessionFactory sessionFactory;
+
+    private transient volatile Map<Class<?>, SearchIndex> indexes;
+
+    /**
+     * The changes made while the index is rebuilt, <code>null</code> when no
+     * rebuild is running. Guarded by <code>changeLock</code>.
+     */
+    private transient List<Change> changesDuringRebuild;
+
+    private final Object changeLock = new Object();
+
+    private final Object rebuildLock = new Object();
+
+    @Autowired
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * A change to one indexed object.
+     */
+    private static class Change {
+        final Class<?> indexedType;
+        final int id;
+        final Class<?> type;
+        final String name;
+        final String description;
+
+        /**
+         * @param type
+         *            the type of the document, or <code>null</code> if the
+         *            object is removed
+         */
+        Change(Class<?> indexedType, int id, Class<?> type, String name,
+                String description) {
+            this.indexedType = indexedType;
+            this.id = id;
+            this.type = type;
+            this.name = name;
+            this.description = description;
+        }
+
+        void applyTo(Map<Class<?>, SearchIndex> target) {
+            SearchIndex index = target.get(indexedType);
+            if (type == null) {
+                index.remove(id);
+            } else {
+                index.put(id, type, name, description);
+            }
+        }
+    }
+
+    /**
+     * The changes made in one transaction.
+     */
+    private class TransactionChanges extends TransactionSynchronizationAdapter {
+        final List<Change> changes = new ArrayList<Change>();
+
+        @Override
+        public void afterCommit() {
+            for (Change change : changes) {
+                applyChange(change);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager
+                    .unbindResourceIfPossible(SearchIndexDAOHibernate.this);
+        }
+    }
+
+    /**
+     * The sessions share the listeners of the session factory, which are
+     * reached through a session.
+     */
+    @PostConstruct
+    public void registerListeners() {
+        EventListeners listeners;
+        Session session = sessionFactory.openSession();
+        try {
+            listeners = ((SessionImplementor) session).getListeners();
+        } finally {
+            session.close();
+        }
+
+        PostInsertEventListener[] inserts = listeners
+                .getPostInsertEventListeners();
+        PostInsertEventListener[] newInserts = new PostInsertEventListener[inserts.length + 1];
+        System.arraycopy(inserts, 0, newInserts, 0, inserts.length);
+        newInserts[inserts.length] = this;
+        listeners.setPostInsertEventListeners(newInserts);
+
+        PostUpdateEventListener[] updates = listeners
+                .getPostUpdateEventListeners();
+        PostUpdateEventListener[] newUpdates = new PostUpdateEventListener[updates.length + 1];
+        System.arraycopy(updates, 0, newUpdates, 0, updates.length);
+        newUpdates[updates.length] = this;
+        listeners.setPostUpdateEventListeners(newUpdates);
+
+        PostDeleteEventListener[] deletes = listeners
+                .getPostDeleteEventListeners();
+        PostDeleteEventListener[] newDeletes = new PostDeleteEventListener[deletes.length + 1];
+        System.arraycopy(deletes, 0, newDeletes, 0, deletes.length);
+        newDeletes[deletes.length] = this;
+        listeners.setPostDeleteEventListeners(newDeletes);
+    }
+
+    public void onPostInsert(PostInsertEvent event) {
+        applyAfterCommit(createUpdate(event.getEntity()));
+    }
+
+    public void onPostUpdate(PostUpdateEvent event) {
+        applyAfterCommit(createUpdate(event.getEntity()));
+    }
+
+    public void onPostDelete(PostDeleteEvent event) {
+        applyAfterCommit(createRemove(event.getEntity()));
+    }
+
+    /** {@inheritDoc} */
+    public void update(Object object) {
+        Change change = createUpdate(object);
+        if (change != null) {
+            applyChange(change);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void remove(Object object) {
+        Change change = createRemove(object);
+        if (change != null) {
+            applyChange(change);
+        }
+    }
+
+    /**
+     * The values are copied when the change is made, as the entity may
+     * change again before the commit.
+     */
+    private static Change createUpdate(Object object) {
+        Change change = null;
+        if (object instanceof Backlog) {
+            Backlog backlog = (Backlog) object;
+            change = new Change(Backlog.class, backlog.getId(), Hibernate
+                    .getClass(backlog), backlog.getName(), backlog
+                    .getDescription());
+        } else if (object instanceof Story) {
+            Story story = (Story) object;
+            change = new Change(Story.class, story.getId(), Story.class,
+                    story.getName(), story.getDescription());
+        } else if (object instanceof Task) {
+            Task task = (Task) object;
+            change = new Change(Task.class, task.getId(), Task.class, task
+                    .getName(), task.getDescription());
+        } else if (object instanceof User) {
+            User user = (User) object;
+            change = new Change(User.class, user.getId(), User.class, user
+                    .getFullName(), user.getInitials());
+        }
+        return change;
+    }
+
+    private static Change createRemove(Object object) {
+        for (Class<?> indexedType : INDEXED_TYPES) {
+            if (indexedType.isInstance(object)) {
+                return new Change(indexedType, ((NamedObject) object).getId(),
+                        null, null, null);
+            }
+        }
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    public List<Integer> search(Class<?> type, String searchTerm,
+            int maxResults) {
+        Map<Class<?>, SearchIndex> current = getIndexes();
+        for (Class<?> indexedType : INDEXED_TYPES) {
+            if (indexedType.isAssignableFrom(type)) {
+                return current.get(indexedType).search(searchTerm, type,
+                        maxResults);
+            }
+        }
+        throw new IllegalArgumentException("Type " + type.getName()
+                + " is not indexed");
+    }
+
+    /** {@inheritDoc} */
+    public int rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (changeLock) {
+                changesDuringRebuild = new ArrayList<Change>();
+            }
+            Map<Class<?>, SearchIndex> built;
+            try {
+                built = build();
+            } catch (RuntimeException e) {
+                synchronized (changeLock) {
+                    changesDuringRebuild = null;
+                }
+                throw e;
+            }
+            synchronized (changeLock) {
+                for (Change change : changesDuringRebuild) {
+                    change.applyTo(built);
+                }
+                changesDuringRebuild = null;
+                indexes = built;
+            }
+            int size = 0;
+            for (SearchIndex index : built.values()) {
+                size += index.size();
+            }
+            return size;
+        }
+    }
+
+    private Map<Class<?>, SearchIndex> build() {
+        Map<Class<?>, SearchIndex> built = new HashMap<Class<?>, SearchIndex>();
+        SearchIndex backlogIndex = new SearchIndex();
+        for (Class<?> backlogType : BACKLOG_TYPES) {
+            addAll(backlogIndex, backlogType, "name", "description");
+        }
+        built.put(Backlog.class, backlogIndex);
+
+        SearchIndex storyIndex = new SearchIndex();
+        addAll(storyIndex, Story.class, "name", "description");
+        built.put(Story.class, storyIndex);
+
+        SearchIndex taskIndex = new SearchIndex();
+        addAll(taskIndex, Task.class, "name", "description");
+        built.put(Task.class, taskIndex);
+
+        SearchIndex userIndex = new SearchIndex();
+        addAll(userIndex, User.class, "fullName", "initials");
+        built.put(User.class, userIndex);
+        return built;
+    }
+
+    /**
+     * Gets the indexes, building them on the first call. Only the searches
+     * made before the first build has finished wait for it.
+     */
+    private Map<Class<?>, SearchIndex> getIndexes() {
+        Map<Class<?>, SearchIndex> current = indexes;
+        if (current == null) {
+            synchronized (rebuildLock) {
+                if (indexes == null) {
+                    rebuild();
+                }
+                current = indexes;
+            }
+        }
+        return current;
+    }
+
+    private void addAll(SearchIndex index, Class<?> type, String nameField,
+            String descriptionField) {
+        Criteria crit = sessionFactory.getCurrentSession().createCriteria(type);
+        crit.setProjection(Projections.projectionList().add(Projections.id())
+                .add(Projections.property(nameField)).add(
+                        Projections.property(descriptionField)));
+        ScrollableResults results = crit.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                Object[] row = results.get();
+                index.put((Integer) row[0], type, (String) row[1],
+                        (String) row[2]);
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * Records the change to be applied when the current transaction has
+     * committed. Without a transaction the change is applied at once.
+     */
+    private void applyAfterCommit(Change change) {
+        if (change == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyChange(change);
+            return;
+        }
+        TransactionChanges transactionChanges = (TransactionChanges) TransactionSynchronizationManager
+                .getResource(this);
+        if (transactionChanges == null) {
+            transactionChanges = new TransactionChanges();
+            TransactionSynchronizationManager.bindResource(this,
+                    transactionChanges);
+            TransactionSynchronizationManager
+                    .registerSynchronization(transactionChanges);
+        }
+        transactionChanges.changes.add(change);
+    }
+
+    /**
+     * Applies the change to the current indexes, and records it for the new
+     * indexes if a rebuild is running.
+     */
+    private void applyChange(Change change) {
+        synchronized (changeLock) {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+            Map<Class<?>, SearchIndex> current = indexes;
+            if (current != null) {
+                change.applyTo(current);
+            }
+        }
+    }
+}
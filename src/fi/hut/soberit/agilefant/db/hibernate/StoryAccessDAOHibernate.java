@@ -1,5 +1,12 @@
 package fi.hut.soberit.agilefant.db.hibernate;
 
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,40 +15,228 @@ import org.hibernate.Criteria;
 import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.jdbc.Work;
 import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
 import org.springframework.stereotype.Repository;
 
 import fi.hut.soberit.agilefant.db.StoryAccessDAO;
-import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryAccess;
+import fi.hut.soberit.agilefant.model.StoryAccessDailyCount;
 import fi.hut.soberit.agilefant.model.User;
 
 @Repository("storyAccessDAO")
 public class StoryAccessDAOHibernate extends GenericDAOHibernate<StoryAccess> implements
         StoryAccessDAO {
 
+    /**
+     * The number of rows written with one JDBC batch.
+     */
+    private static final int BATCH_SIZE = 50;
+
+    private static final String INSERT_ACCESS = "INSERT INTO story_access "
+            + "(date, story_id, user_id) SELECT ?, s.id, ? FROM stories s "
+            + "WHERE s.id = ?";
+
+    private static final String UPSERT_COUNT = "INSERT INTO story_access_daily_counts "
+            + "(user_id, story_id, day, accessCount) SELECT ?, s.id, ?, ? FROM stories s "
+            + "WHERE s.id = ? ON DUPLICATE KEY UPDATE accessCount = accessCount + ?";
+
+    private static final String INSERT_COUNT = "INSERT INTO story_access_daily_counts "
+            + "(user_id, story_id, day, accessCount) SELECT ?, s.id, ?, 0 FROM stories s "
+            + "WHERE s.id = ? AND NOT EXISTS (SELECT c.id FROM story_access_daily_counts c "
+            + "WHERE c.user_id = ? AND c.story_id = ? AND c.day = ?)";
+
+    private static final String UPDATE_COUNT = "UPDATE story_access_daily_counts "
+            + "SET accessCount = accessCount + ? "
+            + "WHERE user_id = ? AND story_id = ? AND day = ?";
+
     protected StoryAccessDAOHibernate() {
         super(StoryAccess.class);
     }
 
-    public Map<Story, Long> calculateAccessCounts(DateTime start,
+    public Map<Integer, Long> calculateAccessCounts(DateTime start,
             DateTime end, User user) {
-        Criteria crit = this.getCurrentSession().createCriteria(StoryAccess.class);
-        crit.add(Restrictions.eq("user", user));
-        crit.add(Restrictions.between("date", start, end));
+        Criteria crit = this.getCurrentSession().createCriteria(StoryAccessDailyCount.class);
+        crit.add(Restrictions.eq("userId", user.getId()));
+        crit.add(Restrictions.between("day", start.toLocalDate(), end.toLocalDate()));
         ProjectionList proj = Projections.projectionList();
-        proj.add(Projections.groupProperty("story"));
-        proj.add(Projections.count("id"));
+        proj.add(Projections.groupProperty("storyId"));
+        proj.add(Projections.sum("accessCount"));
         crit.setProjection(proj);
-        
-        Map<Story, Long> res = new HashMap<Story, Long>();
-        
+
+        Map<Integer, Long> res = new HashMap<Integer, Long>();
+
         List<Object[]> data = asList(crit);
         for(Object[] row : data) {
-            res.put((Story)row[0], (Long)row[1]);
+            res.put((Integer)row[0], (Long)row[1]);
         }
         return res;
     }
 
-    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The accesses of a batch are summed per user, story and day before the
+     * counts are updated, so a batch updates each count once.
+     */
+    public void createAccesses(final Collection<StoryAccess> accesses) {
+        if (accesses.isEmpty()) {
+            return;
+        }
+        Map<List<Object>, StoryAccessDailyCount> counts = new HashMap<List<Object>, StoryAccessDailyCount>();
+        for (StoryAccess access : accesses) {
+            int userId = access.getUser().getId();
+            int storyId = access.getStory().getId();
+            LocalDate day = new LocalDate(access.getDate().getMillis());
+            List<Object> key = Arrays.<Object> asList(userId, storyId, day);
+            StoryAccessDailyCount count = counts.get(key);
+            if (count == null) {
+                count = new StoryAccessDailyCount();
+                count.setUserId(userId);
+                count.setStoryId(storyId);
+                count.setDay(day);
+                counts.put(key, count);
+            }
+            count.setAccessCount(count.getAccessCount() + 1);
+        }
+        final Collection<StoryAccessDailyCount> dailyCounts = counts.values();
+        final boolean upsert = isMySQL();
+        getCurrentSession().doWork(new Work() {
+            public void execute(Connection connection) throws SQLException {
+                insertAccesses(connection, accesses);
+                if (upsert) {
+                    upsertCounts(connection, dailyCounts);
+                } else {
+                    updateCounts(connection, dailyCounts);
+                }
+            }
+        });
+    }
+
+    public void removeCountsByStory(int storyId) {
+        getCurrentSession().createQuery(
+                "delete from StoryAccessDailyCount c where c.storyId = :storyId")
+                .setParameter("storyId", storyId).executeUpdate();
+    }
+
+    public void removeCountsByUser(int userId) {
+        getCurrentSession().createQuery(
+                "delete from StoryAccessDailyCount c where c.userId = :userId")
+                .setParameter("userId", userId).executeUpdate();
+    }
+
+    private boolean isMySQL() {
+        Dialect dialect = ((SessionFactoryImplementor) getCurrentSession()
+                .getSessionFactory()).getDialect();
+        return dialect instanceof MySQLDialect;
+    }
+
+    private static void insertAccesses(Connection connection,
+            Collection<StoryAccess> accesses) throws SQLException {
+        PreparedStatement insert = connection.prepareStatement(INSERT_ACCESS);
+        try {
+            int batched = 0;
+            for (StoryAccess access : accesses) {
+                insert.setTimestamp(1, new Timestamp(access.getDate()
+                        .getMillis()));
+                insert.setInt(2, access.getUser().getId());
+                insert.setInt(3, access.getStory().getId());
+                insert.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            if (batched % BATCH_SIZE != 0) {
+                insert.executeBatch();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    /**
+     * Each count is inserted or incremented with one statement, which relies
+     * on the unique key of the user, story and day.
+     */
+    private static void upsertCounts(Connection connection,
+            Collection<StoryAccessDailyCount> counts) throws SQLException {
+        PreparedStatement upsert = connection.prepareStatement(UPSERT_COUNT);
+        try {
+            int batched = 0;
+            for (StoryAccessDailyCount count : counts) {
+                upsert.setInt(1, count.getUserId());
+                upsert.setDate(2, new Date(count.getDay().toDateMidnight()
+                        .getMillis()));
+                upsert.setLong(3, count.getAccessCount());
+                upsert.setInt(4, count.getStoryId());
+                upsert.setLong(5, count.getAccessCount());
+                upsert.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    upsert.executeBatch();
+                }
+            }
+            if (batched % BATCH_SIZE != 0) {
+                upsert.executeBatch();
+            }
+        } finally {
+            upsert.close();
+        }
+    }
+
+    /**
+     * For databases without <code>ON DUPLICATE KEY UPDATE</code>. The missing
+     * counts are first inserted as zeros, so that all the counts can then be
+     * incremented in batches without relying on the update counts the driver
+     * reports.
+     */
+    private static void updateCounts(Connection connection,
+            Collection<StoryAccessDailyCount> counts) throws SQLException {
+        PreparedStatement insert = connection.prepareStatement(INSERT_COUNT);
+        try {
+            int batched = 0;
+            for (StoryAccessDailyCount count : counts) {
+                Date day = new Date(count.getDay().toDateMidnight().getMillis());
+                insert.setInt(1, count.getUserId());
+                insert.setDate(2, day);
+                insert.setInt(3, count.getStoryId());
+                insert.setInt(4, count.getUserId());
+                insert.setInt(5, count.getStoryId());
+                insert.setDate(6, day);
+                insert.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            if (batched % BATCH_SIZE != 0) {
+                insert.executeBatch();
+            }
+        } finally {
+            insert.close();
+        }
+
+        PreparedStatement update = connection.prepareStatement(UPDATE_COUNT);
+        try {
+            int batched = 0;
+            for (StoryAccessDailyCount count : counts) {
+                update.setLong(1, count.getAccessCount());
+                update.setInt(2, count.getUserId());
+                update.setInt(3, count.getStoryId());
+                update.setDate(4, new Date(count.getDay().toDateMidnight()
+                        .getMillis()));
+                update.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    update.executeBatch();
+                }
+            }
+            if (batched % BATCH_SIZE != 0) {
+                update.executeBatch();
+            }
+        } finally {
+            update.close();
+        }
+    }
 }
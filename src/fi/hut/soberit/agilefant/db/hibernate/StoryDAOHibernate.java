@@ -1,5 +1,6 @@
 package fi.hut.soberit.agilefant.db.hibernate;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -37,6 +38,12 @@ public class StoryDAOHibernate extends GenericDAOHibernate<Story> implements
         super(Story.class);
     }
 
+    @Override
+    public Serializable create(Story object) {
+        object.updateTreePath();
+        return super.create(object);
+    }
+
     public StoryMetrics calculateMetrics(int storyId) {
         StoryMetrics metrics = new StoryMetrics();
         Criteria criteria = getCurrentSession().createCriteria(Task.class);
@@ -1,15 +1,22 @@
 package fi.hut.soberit.agilefant.db.hibernate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.Query;
 import org.hibernate.criterion.CriteriaSpecification;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.LogicalExpression;
+import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
@@ -19,9 +26,11 @@ import org.springframework.stereotype.Repository;
 import fi.hut.soberit.agilefant.business.impl.StoryHierarchyBusinessImpl;
 import fi.hut.soberit.agilefant.db.StoryHierarchyDAO;
 import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Label;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryState;
+import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.transfer.StoryTreeBranchMetrics;
 
 @Repository("storyHierarchyDAO")
@@ -263,14 +272,124 @@ public class StoryHierarchyDAOHibernate extends GenericDAOHibernate<Story>
      */
     public long totalBranchStoryPoints(Project project)
     {
-        StoryHierarchyBusinessImpl impl = new StoryHierarchyBusinessImpl();
+        List<Story> roots = this.retrieveProjectRootStories(project.getId());
+        this.initializeSubtrees(roots);
         long sum = 0;
-        for (Story s : this.retrieveProjectRootStories(project.getId())) {
-            StoryTreeBranchMetrics m = impl.calculateStoryTreeMetrics(s);
+        for (Story s : roots) {
+            StoryTreeBranchMetrics m = StoryHierarchyBusinessImpl.calculateBranchMetrics(s);
             sum += m.getEstimatedPoints();
         }
         return sum;
     }
+
+    /** {@inheritDoc} */
+    public void initializeSubtree(Story story) {
+        this.initializeSubtrees(Collections.singletonList(story));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The descendants are found by the prefix of their tree path. The
+     * children collections are join fetched, so each story in the result has
+     * its children initialized.
+     */
+    public void initializeSubtrees(Collection<? extends Story> stories) {
+        Criteria crit = createSubtreeCriteria(stories);
+        if (crit == null) {
+            return;
+        }
+        crit.setFetchMode("children", FetchMode.JOIN);
+        crit.setResultTransformer(CriteriaSpecification.DISTINCT_ROOT_ENTITY);
+        crit.list();
+    }
+
+    /** {@inheritDoc} */
+    public List<Story> retrieveSubtrees(Collection<? extends Story> roots) {
+        Criteria crit = createSubtreeCriteria(roots);
+        if (crit == null) {
+            return new ArrayList<Story>();
+        }
+        crit.addOrder(Order.asc("treeRank"));
+        return asList(crit);
+    }
+
+    /**
+     * Creates a criteria matching the stories and their descendants, or null
+     * if none of the stories is persisted.
+     */
+    private Criteria createSubtreeCriteria(Collection<? extends Story> stories) {
+        Set<Integer> storyIds = new HashSet<Integer>();
+        Disjunction subtrees = Restrictions.disjunction();
+        for (Story story : stories) {
+            if (story.getId() == 0) {
+                continue;
+            }
+            storyIds.add(story.getId());
+            subtrees.add(Restrictions.like("treePath", subtreePath(story),
+                    MatchMode.START));
+        }
+        if (storyIds.isEmpty()) {
+            return null;
+        }
+        subtrees.add(Restrictions.in("id", storyIds));
+        Criteria crit = getCurrentSession().createCriteria(Story.class);
+        crit.add(subtrees);
+        return crit;
+    }
+
+    private static String subtreePath(Story story) {
+        String path = story.getTreePath();
+        if (path == null) {
+            path = "";
+        }
+        return path + story.getId() + "/";
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unchecked")
+    public Map<Integer, Set<User>> retrieveResponsiblesByStoryIds(
+            Collection<Integer> storyIds) {
+        Map<Integer, Set<User>> responsibles = new HashMap<Integer, Set<User>>();
+        if (storyIds.isEmpty()) {
+            return responsibles;
+        }
+        Query query = getCurrentSession().createQuery(
+                "select s.id, u from Story s join s.responsibles u "
+                + "where s.id in (:storyIds)");
+        query.setParameterList("storyIds", storyIds);
+        for (Object[] row : (List<Object[]>) query.list()) {
+            Integer storyId = (Integer) row[0];
+            Set<User> users = responsibles.get(storyId);
+            if (users == null) {
+                users = new HashSet<User>();
+                responsibles.put(storyId, users);
+            }
+            users.add((User) row[1]);
+        }
+        return responsibles;
+    }
+
+    /** {@inheritDoc} */
+    public Map<Integer, Set<Label>> retrieveLabelsByStoryIds(
+            Collection<Integer> storyIds) {
+        Map<Integer, Set<Label>> labels = new HashMap<Integer, Set<Label>>();
+        if (storyIds.isEmpty()) {
+            return labels;
+        }
+        Criteria crit = getCurrentSession().createCriteria(Label.class);
+        crit.add(Restrictions.in("story.id", storyIds));
+        for (Label label : this.<Label> asList(crit)) {
+            Integer storyId = label.getStory().getId();
+            Set<Label> storyLabels = labels.get(storyId);
+            if (storyLabels == null) {
+                storyLabels = new HashSet<Label>();
+                labels.put(storyId, storyLabels);
+            }
+            storyLabels.add(label);
+        }
+        return labels;
+    }
      
     private Criteria getRootStoryCriteria(int productId) {
         Criteria rootFilter = getCurrentSession().createCriteria(Story.class);
@@ -5,7 +5,10 @@ import java.util.Collection;
 import java.util.List;
 
 import org.hibernate.Criteria;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projection;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.springframework.stereotype.Repository;
 
@@ -35,6 +38,7 @@ public class StoryRankDAOHibernate extends GenericDAOHibernate<StoryRank>
                 StoryRank.class);
         crit.add(Restrictions.eq("backlog", backlog));
         crit.addOrder(Order.asc("rank"));
+        crit.addOrder(Order.asc("id"));
         return asList(crit);
     }
     
@@ -52,4 +56,28 @@ public class StoryRankDAOHibernate extends GenericDAOHibernate<StoryRank>
         return asCollection(filter);
     }
 
+    public Integer retrievePreviousRankNumber(Backlog backlog, int rank,
+            StoryRank excluded) {
+        return retrieveRankNumber(backlog, Restrictions.lt("rank", rank),
+                Projections.max("rank"), excluded);
+    }
+
+    public Integer retrieveNextRankNumber(Backlog backlog, int rank,
+            StoryRank excluded) {
+        return retrieveRankNumber(backlog, Restrictions.gt("rank", rank),
+                Projections.min("rank"), excluded);
+    }
+
+    private Integer retrieveRankNumber(Backlog backlog, Criterion range,
+            Projection projection, StoryRank excluded) {
+        Criteria crit = getCurrentSession().createCriteria(StoryRank.class);
+        crit.add(Restrictions.eq("backlog", backlog));
+        crit.add(range);
+        if (excluded != null) {
+            crit.add(Restrictions.ne("id", excluded.getId()));
+        }
+        crit.setProjection(projection);
+        return (Integer) crit.uniqueResult();
+    }
+
 }
@@ -1,5 +1,10 @@
 package fi.hut.soberit.agilefant.db.hibernate;
 
+import java.util.List;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
 import org.springframework.stereotype.Repository;
 
 import fi.hut.soberit.agilefant.db.TeamDAO;
@@ -13,4 +18,23 @@ public class TeamDAOHibernate extends GenericDAOHibernate<Team> implements
         super(Team.class);
     }
 
+    public List<Integer> retrieveProductIdsByUser(int userId) {
+        return retrieveBacklogIdsByUser(userId, "products");
+    }
+
+    public List<Integer> retrieveIterationIdsByUser(int userId) {
+        return retrieveBacklogIdsByUser(userId, "iterations");
+    }
+
+    private List<Integer> retrieveBacklogIdsByUser(int userId,
+            String backlogProperty) {
+        Criteria crit = getCurrentSession().createCriteria(Team.class);
+        crit.createAlias("users", "user");
+        crit.createAlias(backlogProperty, "backlog");
+        crit.add(Restrictions.eq("user.id", userId));
+        crit.setProjection(Projections.distinct(Projections
+                .property("backlog.id")));
+        return asList(crit);
+    }
+
 }
@@ -4,9 +4,20 @@ import java.util.List;
 
 import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.transfer.AgilefantHistoryEntry;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
 
 public interface BacklogHistoryDAO extends GenericHistoryDAO<Backlog> {
     public List<AgilefantHistoryEntry> retrieveAddedStories(Backlog backlog);
     public List<AgilefantHistoryEntry> retrieveDeletedStories(Backlog backlog);
-    public List<AgilefantHistoryEntry> retrieveModifiedStories(Backlog backlog);
+
+    /**
+     * Retrieves the stories added to, removed from and modified in the
+     * backlog after the cursor, in the order of the history feed. Only the
+     * ids of the entries' stories are set.
+     * 
+     * @param after
+     *            the cursor, or <code>null</code> for the newest changes
+     */
+    public List<AgilefantHistoryEntry> retrieveStoryChanges(Backlog backlog,
+            HistoryFeedCursor after, int maxResults);
 }
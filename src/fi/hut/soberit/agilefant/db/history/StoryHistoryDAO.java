@@ -1,14 +1,34 @@
 package fi.hut.soberit.agilefant.db.history;
 
+import java.util.Collection;
 import java.util.Map;
 
 import org.joda.time.DateTime;
 
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.Pair;
 
 public interface StoryHistoryDAO extends GenericHistoryDAO<Story> {
-    public Story retrieveClosestRevision(int storyId, int revisionId);
+    /**
+     * Retrieves the closest revisions of several stories.
+     * The closest revision is the story's first revision at or after the
+     * revision, or if there is no such revision, its last revision before
+     * it.
+     * 
+     * @param storyRevisions
+     *            pairs of story id and revision id
+     * @return the story revisions by the pairs, which have one
+     */
+    public Map<Pair<Integer, Integer>, Story> retrieveClosestRevisions(
+            Collection<Pair<Integer, Integer>> storyRevisions);
     
-    public Map<Integer, Long> calculateAccessCounts(DateTime start, DateTime end, User user);
+    /**
+     * Count the revisions the user has made to each story between the
+     * times. Removed stories are not counted.
+     * 
+     * @return the counts by story id, the highest first
+     */
+    public Map<Integer, Long> calculateAccessCounts(DateTime start,
+            DateTime end, User user, int maxResults);
 }
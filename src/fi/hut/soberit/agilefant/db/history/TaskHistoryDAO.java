@@ -11,7 +11,16 @@ import java.util.List;
 
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.transfer.AgilefantHistoryEntry;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
 
 public interface TaskHistoryDAO extends GenericHistoryDAO<Iteration> {
-    public List<AgilefantHistoryEntry> retrieveAllTaskRevisions(Iteration iteration);
+    /**
+     * Retrieves the task revisions of the iteration after the cursor, in the
+     * order of the history feed.
+     * 
+     * @param after
+     *            the cursor, or <code>null</code> for the newest changes
+     */
+    public List<AgilefantHistoryEntry> retrieveTaskChanges(Iteration iteration,
+            HistoryFeedCursor after, int maxResults);
 }
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import org.hibernate.SQLQuery;
 import org.hibernate.envers.RevisionType;
 import org.hibernate.envers.query.AuditEntity;
 import org.hibernate.envers.query.AuditQuery;
@@ -15,6 +16,7 @@ import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryRank;
 import fi.hut.soberit.agilefant.transfer.AgilefantHistoryEntry;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
 import fi.hut.soberit.agilefant.transfer.HistoryRowTO;
 
 @Repository("backlogHistoryDAO")
@@ -75,37 +77,42 @@ public class BacklogHistoryDAOImpl extends GenericHistoryDAOImpl<Backlog>
     }
 
     
+    
     @SuppressWarnings("unchecked")
-    public List<AgilefantHistoryEntry> retrieveModifiedStories(Backlog backlog) {
-        AuditQuery query = this.getAuditReader().createQuery()
-                .forRevisionsOfEntity(StoryRank.class, false, true);
-        query.add(AuditEntity.property("backlog_id").eq(backlog.getId()));
-        query.add(AuditEntity.revisionType().eq(RevisionType.MOD));
-        query.addProjection(AuditEntity.revisionType());
-        query.addProjection(AuditEntity.property("story"));
-        
-        query.addProjection(AuditEntity.revisionNumber());
-        query.addProjection(AuditEntity.revisionProperty("timestamp"));
-        query.addProjection(AuditEntity.revisionProperty("userId"));
-        query.addProjection(AuditEntity.revisionProperty("userName"));
-
-        List<Object[]> data = query.getResultList();
+    public List<AgilefantHistoryEntry> retrieveStoryChanges(Backlog backlog,
+            HistoryFeedCursor after, int maxResults) {
+        SQLQuery query = getCurrentSession().createSQLQuery(
+                "SELECT a.story_id AS storyId, a.REVTYPE AS revType, r.id AS revId,"
+                + " r.timestamp AS revTimestamp, r.userId AS userId, r.userName AS userName"
+                + " FROM storyrank_AUD a JOIN agilefant_revisions r ON a.REV = r.id"
+                + " WHERE a.backlog_id = :backlogId"
+                + createFeedRestriction(after, HistoryFeedCursor.STORY, "a.story_id")
+                + " ORDER BY r.timestamp DESC, r.id DESC, a.story_id DESC");
+        query.addScalar("storyId");
+        query.addScalar("revType");
+        query.addScalar("revId");
+        query.addScalar("revTimestamp");
+        query.addScalar("userId");
+        query.addScalar("userName");
+        query.setParameter("backlogId", backlog.getId());
+        setFeedParameters(query, after, HistoryFeedCursor.STORY);
+        query.setMaxResults(maxResults);
 
         List<AgilefantHistoryEntry> result = new ArrayList<AgilefantHistoryEntry>();
-        
-        for (Object[] row : data) {
-            Map<String, Object> rowData = (Map<String, Object>)row[1];
+        for (Object[] row : (List<Object[]>) query.list()) {
             AgilefantRevisionEntity rev = new AgilefantRevisionEntity();
-            rev.setId((Integer)row[2]);
-            rev.setTimestamp((Long)row[3]);
-            rev.setUserId((Integer)row[4]);
-            rev.setUserName((String)row[5]);
-            result.add(new AgilefantHistoryEntry((Integer)rowData.get("story_id"), (RevisionType)row[0], rev));
+            rev.setId(((Number) row[2]).intValue());
+            rev.setTimestamp(((Number) row[3]).longValue());
+            rev.setUserId(row[4] == null ? 0 : ((Number) row[4]).intValue());
+            rev.setUserName((String) row[5]);
+            Story story = new Story();
+            story.setId(((Number) row[0]).intValue());
+            result.add(new AgilefantHistoryEntry(story, rev, RevisionType
+                    .fromRepresentation(((Number) row[1]).byteValue())));
         }
         return result;
     }
-    
-    
+
     public List<HistoryRowTO> retrieveLatestChanges(int objectId,
             Integer numberOfChanges) {
         // TODO Auto-generated method stub
@@ -3,6 +3,8 @@ package fi.hut.soberit.agilefant.db.history.impl;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.SQLQuery;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.envers.AuditReader;
 import org.hibernate.envers.AuditReaderFactory;
@@ -12,6 +14,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import fi.hut.soberit.agilefant.db.history.GenericHistoryDAO;
 import fi.hut.soberit.agilefant.model.AgilefantRevisionEntity;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
 import fi.hut.soberit.agilefant.transfer.HistoryRowTO;
 
 public abstract class GenericHistoryDAOImpl<T> implements GenericHistoryDAO<T> {
@@ -32,6 +35,55 @@ public abstract class GenericHistoryDAOImpl<T> implements GenericHistoryDAO<T> {
                 .getCurrentSession());
     }
 
+    protected Session getCurrentSession() {
+        return this.sessionFactory.getCurrentSession();
+    }
+
+    /**
+     * Creates the SQL restriction, which limits a history feed query to the
+     * changes after the cursor. The revision table must be aliased as
+     * <code>r</code>.
+     * 
+     * @param kind
+     *            the kind of the changes the query selects
+     * @param objectIdColumn
+     *            the column of the changed object's id
+     * @return the restriction to be appended to the where clause
+     */
+    protected static String createFeedRestriction(HistoryFeedCursor after,
+            int kind, String objectIdColumn) {
+        if (after == null) {
+            return "";
+        }
+        StringBuilder restriction = new StringBuilder();
+        restriction.append(" AND (r.timestamp < :afterTimestamp");
+        restriction.append(" OR (r.timestamp = :afterTimestamp AND r.id < :afterRevision)");
+        if (kind == after.getKind()) {
+            restriction.append(" OR (r.timestamp = :afterTimestamp AND r.id = :afterRevision AND ");
+            restriction.append(objectIdColumn).append(" < :afterObjectId)");
+        } else if (kind > after.getKind()) {
+            restriction.append(" OR (r.timestamp = :afterTimestamp AND r.id = :afterRevision)");
+        }
+        restriction.append(")");
+        return restriction.toString();
+    }
+
+    /**
+     * Binds the parameters of the restriction created with
+     * {@link #createFeedRestriction(HistoryFeedCursor, int, String)}.
+     */
+    protected static void setFeedParameters(SQLQuery query,
+            HistoryFeedCursor after, int kind) {
+        if (after == null) {
+            return;
+        }
+        query.setLong("afterTimestamp", after.getTimestamp());
+        query.setInteger("afterRevision", after.getRevisionId());
+        if (kind == after.getKind()) {
+            query.setInteger("afterObjectId", after.getObjectId());
+        }
+    }
+
     protected AuditQuery createQuery() {
         return this.getAuditReader().createQuery().forRevisionsOfEntity(this.clazz,
                 false, true);
@@ -1,19 +1,27 @@
 package fi.hut.soberit.agilefant.db.history.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
-import javax.persistence.NoResultException;
-
+import org.hibernate.SQLQuery;
+import org.hibernate.envers.RevisionType;
 import org.hibernate.envers.query.AuditEntity;
 import org.hibernate.envers.query.AuditQuery;
+import org.hibernate.envers.query.criteria.AuditDisjunction;
 import org.joda.time.DateTime;
 import org.springframework.stereotype.Repository;
 
 import fi.hut.soberit.agilefant.db.history.StoryHistoryDAO;
+import fi.hut.soberit.agilefant.model.AgilefantRevisionEntity;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.Pair;
 
 @Repository("storyHistoryDAO")
 public class StoryHistoryDAOImpl extends GenericHistoryDAOImpl<Story> implements
@@ -23,44 +31,125 @@ public class StoryHistoryDAOImpl extends GenericHistoryDAOImpl<Story> implements
         super(Story.class);
     }
 
-    public Story retrieveClosestRevision(int storyId, int revisionId) {
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The closest revision numbers are first selected in the database with
+     * one bounded subquery in each direction per pair, and only those story
+     * revisions are then loaded.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Pair<Integer, Integer>, Story> retrieveClosestRevisions(
+            Collection<Pair<Integer, Integer>> storyRevisions) {
+        Map<Pair<Integer, Integer>, Story> result = new HashMap<Pair<Integer, Integer>, Story>();
+        List<Pair<Integer, Integer>> pairs = new ArrayList<Pair<Integer, Integer>>(
+                new LinkedHashSet<Pair<Integer, Integer>>(storyRevisions));
+        if (pairs.isEmpty()) {
+            return result;
+        }
+        Map<Pair<Integer, Integer>, Pair<Integer, Integer>> closestRevisions = retrieveClosestRevisionNumbers(pairs);
+        if (closestRevisions.isEmpty()) {
+            return result;
+        }
+
+        AuditDisjunction revisions = AuditEntity.disjunction();
+        for (Pair<Integer, Integer> closest : new HashSet<Pair<Integer, Integer>>(
+                closestRevisions.values())) {
+            revisions.add(AuditEntity.and(AuditEntity.id().eq(closest.first),
+                    AuditEntity.revisionNumber().eq(closest.second)));
+        }
         AuditQuery query = this.getAuditReader().createQuery()
-                .forRevisionsOfEntity(Story.class, true, true);
-        query.add(AuditEntity.revisionNumber().ge(revisionId));
-        query.setMaxResults(1);
-        try {
-            return (Story) query.getSingleResult();
-        } catch (NoResultException nre) {
+                .forRevisionsOfEntity(Story.class, false, true);
+        query.add(revisions);
+        Map<Pair<Integer, Integer>, Story> stories = new HashMap<Pair<Integer, Integer>, Story>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            Story story = (Story) row[0];
+            stories.put(Pair.create(story.getId(),
+                    ((AgilefantRevisionEntity) row[1]).getId()), story);
+        }
+
+        for (Map.Entry<Pair<Integer, Integer>, Pair<Integer, Integer>> entry : closestRevisions
+                .entrySet()) {
+            Story story = stories.get(entry.getValue());
+            if (story != null) {
+                result.put(entry.getKey(), story);
+            }
+        }
+        return result;
+    }
 
+    /**
+     * Selects the closest revision number of each pair of story id and
+     * revision id.
+     * 
+     * @return the pairs of story id and closest revision id by the given
+     *         pairs, which have one
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Pair<Integer, Integer>, Pair<Integer, Integer>> retrieveClosestRevisionNumbers(
+            List<Pair<Integer, Integer>> pairs) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < pairs.size(); i++) {
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT ").append(i).append(" AS pairIndex,")
+                    .append(" (SELECT MIN(a.REV) FROM stories_AUD a")
+                    .append(" WHERE a.id = :story").append(i)
+                    .append(" AND a.REV >= :rev").append(i).append(") AS ceilingRev,")
+                    .append(" (SELECT MAX(a.REV) FROM stories_AUD a")
+                    .append(" WHERE a.id = :story").append(i)
+                    .append(" AND a.REV < :rev").append(i).append(") AS floorRev");
+        }
+        SQLQuery query = getCurrentSession().createSQLQuery(sql.toString());
+        query.addScalar("pairIndex");
+        query.addScalar("ceilingRev");
+        query.addScalar("floorRev");
+        for (int i = 0; i < pairs.size(); i++) {
+            query.setParameter("story" + i, pairs.get(i).first);
+            query.setParameter("rev" + i, pairs.get(i).second);
         }
-        try {
-            query = this.getAuditReader().createQuery()
-                    .forRevisionsOfEntity(Story.class, true, true);
-            query.add(AuditEntity.revisionNumber().lt(revisionId));
-            query.addOrder(AuditEntity.revisionProperty("id").desc());
-            query.setMaxResults(1);
-            return (Story) query.getSingleResult();
-        } catch (NoResultException nre) {
-            return null;
+
+        Map<Pair<Integer, Integer>, Pair<Integer, Integer>> result = new HashMap<Pair<Integer, Integer>, Pair<Integer, Integer>>();
+        for (Object[] row : (List<Object[]>) query.list()) {
+            Number closest = (Number) (row[1] != null ? row[1] : row[2]);
+            if (closest != null) {
+                Pair<Integer, Integer> pair = pairs.get(((Number) row[0])
+                        .intValue());
+                result.put(pair, Pair.create(pair.first, closest.intValue()));
+            }
         }
+        return result;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The revisions are counted in the database, so the story revisions are
+     * never loaded.
+     */
     @SuppressWarnings("unchecked")
     public Map<Integer, Long> calculateAccessCounts(DateTime start,
-            DateTime end, User user) {
+            DateTime end, User user, int maxResults) {
+        SQLQuery query = getCurrentSession().createSQLQuery(
+                "SELECT a.id AS storyId, COUNT(*) AS revisions"
+                + " FROM stories_AUD a JOIN agilefant_revisions r ON a.REV = r.id"
+                + " JOIN stories s ON s.id = a.id"
+                + " WHERE r.userId = :userId AND r.timestamp BETWEEN :start AND :end"
+                + " AND a.REVTYPE <> :deleted"
+                + " GROUP BY a.id ORDER BY revisions DESC, a.id");
+        query.addScalar("storyId");
+        query.addScalar("revisions");
+        query.setParameter("userId", user.getId());
+        query.setParameter("start", start.getMillis());
+        query.setParameter("end", end.getMillis());
+        query.setParameter("deleted", RevisionType.DEL.getRepresentation());
+        query.setMaxResults(maxResults);
 
-        AuditQuery query = this.getAuditReader().createQuery()
-                .forRevisionsOfEntity(Story.class, true, false);
-        query.add(AuditEntity.revisionProperty("userId").eq(user.getId()));
-        query.add(AuditEntity.revisionProperty("timestamp").between(
-                start.getMillis(), end.getMillis()));
-        List<Story> data = query.getResultList();
-        Map<Integer, Long> result = new HashMap<Integer, Long>();
-        for (Story row : data) {
-            if (!result.containsKey(row.getId())) {
-                result.put(row.getId(), 0l);
-            }
-            result.put(row.getId(), result.get(row.getId()) + 1);
+        Map<Integer, Long> result = new LinkedHashMap<Integer, Long>();
+        for (Object[] row : (List<Object[]>) query.list()) {
+            result.put(((Number) row[0]).intValue(), ((Number) row[1])
+                    .longValue());
         }
         return result;
     }
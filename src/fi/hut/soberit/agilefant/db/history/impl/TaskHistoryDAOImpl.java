@@ -7,11 +7,12 @@
 package fi.hut.soberit.agilefant.db.history.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.hibernate.SQLQuery;
 import org.hibernate.envers.RevisionType;
-import org.hibernate.envers.query.AuditEntity;
-import org.hibernate.envers.query.AuditQuery;
 import org.springframework.stereotype.Repository;
 
 import fi.hut.soberit.agilefant.db.history.TaskHistoryDAO;
@@ -20,80 +21,62 @@ import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.transfer.AgilefantHistoryEntry;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
 
 @Repository("taskHistoryDAO")
 public class TaskHistoryDAOImpl extends GenericHistoryDAOImpl<Iteration> 
                                 implements TaskHistoryDAO {
 
-    private Task task = new Task();
-    
     public TaskHistoryDAOImpl() {
         super(Iteration.class);
     }
 
-    /**
-     * Retrieves all records in table 'tasks_AUD' for the given iteration.
-     * 
-     * @author aborici
-     */
     @SuppressWarnings("unchecked")
-    public List<AgilefantHistoryEntry> retrieveAllTaskRevisions(
-            Iteration iteration) {
-        
-        List<AgilefantHistoryEntry> result = new ArrayList<AgilefantHistoryEntry>();
-        
-        // generate query on tasks_AUD:
-        AuditQuery query = this.getAuditReader().createQuery()
-                .forRevisionsOfEntity(Task.class, false, true);
-        query.add(AuditEntity.property("iteration_id").eq(iteration.getId()));
-   
-      //row[0]
-        query.addProjection(AuditEntity.revisionType());
-      //row[1]
-        query.addProjection(AuditEntity.property("name")); // tasks by name revisions
-        
-        // the following come from 'agilefant_revisions' table:
-      //row[2]
-        query.addProjection(AuditEntity.revisionNumber());
-      //row[3]
-        query.addProjection(AuditEntity.revisionProperty("timestamp"));
-      //row[4]
-        query.addProjection(AuditEntity.revisionProperty("userId"));
-      //row[5]
-        query.addProjection(AuditEntity.revisionProperty("userName"));
-
-      //row[6]
-        query.addProjection(AuditEntity.property("story_id"));
-      
-        List<Object[]> data = query.getResultList();
+    public List<AgilefantHistoryEntry> retrieveTaskChanges(Iteration iteration,
+            HistoryFeedCursor after, int maxResults) {
+        SQLQuery query = getCurrentSession().createSQLQuery(
+                "SELECT a.id AS taskId, a.REVTYPE AS revType, r.id AS revId,"
+                + " r.timestamp AS revTimestamp, r.userId AS userId, r.userName AS userName,"
+                + " a.name AS name, a.story_id AS storyId"
+                + " FROM tasks_AUD a JOIN agilefant_revisions r ON a.REV = r.id"
+                + " WHERE a.iteration_id = :iterationId"
+                + createFeedRestriction(after, HistoryFeedCursor.TASK, "a.id")
+                + " ORDER BY r.timestamp DESC, r.id DESC, a.id DESC");
+        query.addScalar("taskId");
+        query.addScalar("revType");
+        query.addScalar("revId");
+        query.addScalar("revTimestamp");
+        query.addScalar("userId");
+        query.addScalar("userName");
+        query.addScalar("name");
+        query.addScalar("storyId");
+        query.setParameter("iterationId", iteration.getId());
+        setFeedParameters(query, after, HistoryFeedCursor.TASK);
+        query.setMaxResults(maxResults);
 
-        // return result set:
-        for (Object[] row : data) {
-            // construct task:
-            task.setName(row[1].toString());
-            
-            Story story = null;
-            for(Story st : iteration.getAssignedStories()){
-                if (row[6] == null) continue;
-                if (st.getId() == ((Story) row[6]).getId()) {
-                    story = st;
-                    break;
+        Map<Integer, Story> stories = new HashMap<Integer, Story>();
+        List<AgilefantHistoryEntry> result = new ArrayList<AgilefantHistoryEntry>();
+        for (Object[] row : (List<Object[]>) query.list()) {
+            Task task = new Task();
+            task.setId(((Number) row[0]).intValue());
+            task.setName((String) row[6]);
+            if (row[7] != null) {
+                if (stories.isEmpty()) {
+                    for (Story story : iteration.getAssignedStories()) {
+                        stories.put(story.getId(), story);
+                    }
                 }
-                    
+                task.setStory(stories.get(((Number) row[7]).intValue()));
             }
-            
-            task.setStory(story);
-           
-            
+
             AgilefantRevisionEntity rev = new AgilefantRevisionEntity();
-            rev.setId((Integer)row[2]);
-            rev.setTimestamp((Long)row[3]);
-            rev.setUserId((Integer)row[4]);
-            rev.setUserName((String)row[5]);
-            
-            result.add(new AgilefantHistoryEntry(task, rev, (RevisionType) row[0]));
+            rev.setId(((Number) row[2]).intValue());
+            rev.setTimestamp(((Number) row[3]).longValue());
+            rev.setUserId(row[4] == null ? 0 : ((Number) row[4]).intValue());
+            rev.setUserName((String) row[5]);
+            result.add(new AgilefantHistoryEntry(task, rev, RevisionType
+                    .fromRepresentation(((Number) row[1]).byteValue())));
         }
-        
         return result;
     }
 
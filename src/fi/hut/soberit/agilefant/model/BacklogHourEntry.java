@@ -33,4 +33,9 @@ public class BacklogHourEntry extends HourEntry {
         this.backlog = backlog;
     }
 
+    @Override
+    public void updateBacklogPath() {
+        setBacklogPath(null, backlog);
+    }
+
 }
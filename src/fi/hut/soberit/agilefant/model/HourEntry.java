@@ -18,10 +18,12 @@ import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Index;
 import org.hibernate.annotations.Type;
 import org.joda.time.DateTime;
 
 import fi.hut.soberit.agilefant.util.XmlDateTimeAdapter;
+import flexjson.JSON;
 
 /**
  * Hibernate entity bean which represents an hour entry.
@@ -35,6 +37,11 @@ import fi.hut.soberit.agilefant.util.XmlDateTimeAdapter;
  * information. Class is not defined abstract as it us used as common logged
  * effort information container.
  * 
+ * The ids of the product, project and iteration the entry belongs to are
+ * stored in the entry, so that the entries of a backlog can be found without
+ * joining the parents. They are updated when the entry is stored, and by
+ * HourEntryDAO when the parents are moved.
+ * 
  * @see fi.hut.soberit.agilefant.model.StoryHourEntry
  * @see fi.hut.soberit.agilefant.model.BacklogHourEntry
  * @author Pasi Pekkanen, Roni Tammisalo
@@ -57,6 +64,12 @@ public class HourEntry {
 
     private String description;
 
+    private Integer productId;
+
+    private Integer projectId;
+
+    private Integer iterationId;
+
     public HourEntry() { }
     
     public HourEntry(HourEntry other)
@@ -137,4 +150,72 @@ public class HourEntry {
     public void setMinutesSpent(long minutesSpent) {
         this.minutesSpent = minutesSpent;
     }
+
+    @Index(name = "hourentries_product")
+    @Column(name = "product_id")
+    @JSON(include = false)
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    @Index(name = "hourentries_project")
+    @Column(name = "project_id")
+    @JSON(include = false)
+    public Integer getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Integer projectId) {
+        this.projectId = projectId;
+    }
+
+    @Index(name = "hourentries_iteration")
+    @Column(name = "iteration_id")
+    @JSON(include = false)
+    public Integer getIterationId() {
+        return iterationId;
+    }
+
+    public void setIterationId(Integer iterationId) {
+        this.iterationId = iterationId;
+    }
+
+    /**
+     * Update the product, project and iteration ids from the entry's parent.
+     */
+    public void updateBacklogPath() {
+        setBacklogPath(null, null);
+    }
+
+    /**
+     * Set the product, project and iteration ids.
+     * <p>
+     * The iteration and its parents are used first, and the missing ids are
+     * taken from the backlog and its parents. So the entries of a story in a
+     * standalone iteration belong to the iteration and the story's project.
+     */
+    protected void setBacklogPath(Iteration iteration, Backlog backlog) {
+        this.productId = null;
+        this.projectId = null;
+        this.iterationId = null;
+        addToBacklogPath(iteration);
+        addToBacklogPath(backlog);
+    }
+
+    private void addToBacklogPath(Backlog backlog) {
+        for (Backlog current = backlog; current != null; current = current
+                .getParent()) {
+            if (current instanceof Iteration && iterationId == null) {
+                iterationId = current.getId();
+            } else if (current instanceof Project && projectId == null) {
+                projectId = current.getId();
+            } else if (current instanceof Product && productId == null) {
+                productId = current.getId();
+            }
+        }
+    }
 }
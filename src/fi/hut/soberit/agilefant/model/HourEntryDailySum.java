@@ -0,0 +1,113 @@
+package fi.hut.soberit.agilefant.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Type;
+import org.joda.time.LocalDate;
+
+/**
+ * Sum of the effort a user has logged to one parent on one day.
+ * <p>
+ * The sums are maintained along the hour entries, so that spent effort
+ * totals can be read without loading the entries. Exactly one of the parent
+ * ids is set, the same way as in the hour entries. The parents are plain ids
+ * instead of associations, so that the sums never block deleting a backlog,
+ * story or task, and moving a story or task doesn't change its sums.
+ * <p>
+ * The day is the date of the entry in the server's time zone.
+ *
+ * @see fi.hut.soberit.agilefant.model.HourEntry
+ */
+@Entity
+@Table(name = "hourentry_daily_sums")
+@org.hibernate.annotations.Table(appliesTo = "hourentry_daily_sums", indexes = @Index(name = "hourentry_daily_sums_user_day", columnNames = {
+        "user_id", "day" }))
+public class HourEntryDailySum {
+
+    private int id;
+
+    private int userId;
+
+    private LocalDate day;
+
+    private Integer backlogId;
+
+    private Integer storyId;
+
+    private Integer taskId;
+
+    private long minutesSpent;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @Column(name = "user_id", nullable = false)
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    @Type(type = "org.joda.time.contrib.hibernate.PersistentLocalDate")
+    @Column(nullable = false)
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    @Index(name = "hourentry_daily_sums_backlog")
+    @Column(name = "backlog_id")
+    public Integer getBacklogId() {
+        return backlogId;
+    }
+
+    public void setBacklogId(Integer backlogId) {
+        this.backlogId = backlogId;
+    }
+
+    @Index(name = "hourentry_daily_sums_story")
+    @Column(name = "story_id")
+    public Integer getStoryId() {
+        return storyId;
+    }
+
+    public void setStoryId(Integer storyId) {
+        this.storyId = storyId;
+    }
+
+    @Index(name = "hourentry_daily_sums_task")
+    @Column(name = "task_id")
+    public Integer getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(Integer taskId) {
+        this.taskId = taskId;
+    }
+
+    public long getMinutesSpent() {
+        return minutesSpent;
+    }
+
+    public void setMinutesSpent(long minutesSpent) {
+        this.minutesSpent = minutesSpent;
+    }
+}
@@ -41,12 +41,18 @@ import flexjson.JSON;
 @XmlRootElement
 @XmlAccessorType( XmlAccessType.NONE )
 public class Story implements TimesheetLoggable, LabelContainer, NamedObject, TaskContainer {
+
+    /**
+     * The length of the tree path column.
+     */
+    public static final int MAX_TREE_PATH_LENGTH = 1024;
     private int id;
     private String name;
     private String description;
     private Backlog backlog;
     private StoryState state = StoryState.NOT_STARTED;
     private int treeRank = 0;
+    private String treePath = "";
     private Story parent;
     private Iteration iteration;
     private List<Story> children = new ArrayList<Story>();
@@ -253,6 +259,46 @@ public class Story implements TimesheetLoggable, LabelContainer, NamedObject, Ta
         this.treeRank = treeRank;
     }
 
+    /**
+     * The ids of the story's ancestors from the root down, each followed by
+     * a slash. Root stories have an empty path.
+     * <p>
+     * The path lets a whole subtree be found with a single prefix query.
+     * A story, whose path would not fit the column, has no path. The paths
+     * of its descendants then start from it, so its subtree is still found
+     * from the story itself but not from its ancestors.
+     * <p>
+     * The column is too long for a full InnoDB index, so its prefix index is
+     * created in SQL, see doc/sql/create-indexes.sql.
+     */
+    @JSON(include = false)
+    @NotAudited
+    @Column(length = MAX_TREE_PATH_LENGTH)
+    public String getTreePath() {
+        return treePath;
+    }
+
+    public void setTreePath(String treePath) {
+        this.treePath = treePath;
+    }
+
+    /**
+     * Set the tree path from the parent's path. The paths of the children
+     * are not updated.
+     */
+    public void updateTreePath() {
+        if (parent == null) {
+            treePath = "";
+        } else if (parent.getTreePath() == null) {
+            treePath = parent.getId() + "/";
+        } else {
+            treePath = parent.getTreePath() + parent.getId() + "/";
+        }
+        if (treePath.length() > MAX_TREE_PATH_LENGTH) {
+            treePath = null;
+        }
+    }
+
     public void setLabels(Set<Label> labels) {
         this.labels = labels;
     }
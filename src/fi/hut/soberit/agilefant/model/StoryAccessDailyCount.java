@@ -0,0 +1,90 @@
+package fi.hut.soberit.agilefant.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Type;
+import org.joda.time.LocalDate;
+
+/**
+ * The number of times a user has opened a story on one day.
+ * <p>
+ * The counts are maintained along the story accesses, so that the recently
+ * accessed stories can be read without counting the accesses. The story is a
+ * plain id instead of an association, so that the counts never block
+ * deleting a story.
+ * <p>
+ * The day is the date of the access in the server's time zone. There is one
+ * count per user, story and day.
+ *
+ * @see fi.hut.soberit.agilefant.model.StoryAccess
+ */
+@Entity
+@Table(name = "story_access_daily_counts", uniqueConstraints = @UniqueConstraint(columnNames = {
+        "user_id", "story_id", "day" }))
+@org.hibernate.annotations.Table(appliesTo = "story_access_daily_counts", indexes = @Index(name = "story_access_daily_counts_user_day", columnNames = {
+        "user_id", "day" }))
+public class StoryAccessDailyCount {
+
+    private int id;
+
+    private int userId;
+
+    private int storyId;
+
+    private LocalDate day;
+
+    private long accessCount;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @Column(name = "user_id", nullable = false)
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    @Column(name = "story_id", nullable = false)
+    public int getStoryId() {
+        return storyId;
+    }
+
+    public void setStoryId(int storyId) {
+        this.storyId = storyId;
+    }
+
+    @Type(type = "org.joda.time.contrib.hibernate.PersistentLocalDate")
+    @Column(nullable = false)
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public long getAccessCount() {
+        return accessCount;
+    }
+
+    public void setAccessCount(long accessCount) {
+        this.accessCount = accessCount;
+    }
+}
@@ -39,4 +39,13 @@ public class StoryHourEntry extends HourEntry {
         this.story = story;
     }
 
+    @Override
+    public void updateBacklogPath() {
+        if (story == null) {
+            setBacklogPath(null, null);
+        } else {
+            setBacklogPath(story.getIteration(), story.getBacklog());
+        }
+    }
+
 }
@@ -33,4 +33,16 @@ public class TaskHourEntry extends HourEntry {
         return task;
     }
 
+    @Override
+    public void updateBacklogPath() {
+        if (task == null) {
+            setBacklogPath(null, null);
+        } else if (task.getStory() != null) {
+            Story story = task.getStory();
+            setBacklogPath(story.getIteration(), story.getBacklog());
+        } else {
+            setBacklogPath(task.getIteration(), null);
+        }
+    }
+
 }
@@ -1,8 +1,6 @@
 package fi.hut.soberit.agilefant.readonly;
 
 import java.io.IOException;
-import javax.naming.InitialContext;
-import javax.naming.NamingException;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
@@ -10,19 +8,21 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.filter.GenericFilterBean;
 
-import org.hibernate.SessionFactory;
-import org.hibernate.Session;
-
-import fi.hut.soberit.agilefant.db.hibernate.IterationDAOHibernate;
-import fi.hut.soberit.agilefant.db.hibernate.UserDAOHibernate;
-
+import fi.hut.soberit.agilefant.business.ReadonlyTokenBusiness;
 
+/**
+ * Redirects the readonly token urls to the readonly iteration page.
+ * <p>
+ * The tokens are checked against the tokens cached in
+ * <code>ReadonlyTokenBusiness</code>, so a request doesn't open a database
+ * session of its own.
+ */
 public class ReadonlyFilter extends GenericFilterBean {
     
-    @Transactional(readOnly = true)
+    private ReadonlyTokenBusiness readonlyTokenBusiness;
+    
     public void doFilter(ServletRequest request, ServletResponse response,
             FilterChain chain) throws IOException, ServletException {
         
@@ -30,28 +30,11 @@ public class ReadonlyFilter extends GenericFilterBean {
         HttpServletResponse resp = (HttpServletResponse) response;
         HttpServletRequest reqt = (HttpServletRequest) request;
         
-        // Create a Data Access Object instance and open a Hibernate session.
-        IterationDAOHibernate iterationDao = new IterationDAOHibernate();
-        UserDAOHibernate userDao = new UserDAOHibernate();
-        
-        SessionFactory sessionFactory;
-        try {
-            sessionFactory = (SessionFactory) new InitialContext().lookup("hibernateSessionFactory");
-            iterationDao.setSessionFactory(sessionFactory);
-            userDao.setSessionFactory(sessionFactory);
-        } catch (NamingException e) {
-            e.printStackTrace();
-            return;
-        }
-        Session session = sessionFactory.openSession();
-        
         // Fetch url token from request.
         String requestUrl = reqt.getRequestURL().toString();
         String token = getTokenFromUrl(requestUrl);
-        session.disconnect();
-        session.close();
         
-        if (iterationDao.isValidReadonlyToken(token)) {
+        if (readonlyTokenBusiness.isValidToken(token)) {
             resp.sendRedirect("/agilefant/ROIteration.action?readonlyToken=" + token);
             
         } else if (requestUrl.contains("ROIteration") && !requestUrl.endsWith("ROIteration.action")) {
@@ -83,4 +66,9 @@ public class ReadonlyFilter extends GenericFilterBean {
             return "";
     }
 
+    public void setReadonlyTokenBusiness(
+            ReadonlyTokenBusiness readonlyTokenBusiness) {
+        this.readonlyTokenBusiness = readonlyTokenBusiness;
+    }
+
 }
@@ -0,0 +1,98 @@
+package fi.hut.soberit.agilefant.transfer;
+
+import org.joda.time.DateTime;
+
+import fi.hut.soberit.agilefant.model.Assignment;
+import fi.hut.soberit.agilefant.model.Backlog;
+import fi.hut.soberit.agilefant.model.ExactEstimate;
+import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Project;
+import fi.hut.soberit.agilefant.model.Schedulable;
+
+/**
+ * The values of an assignment that the baseline load is calculated from.
+ * <p>
+ * The values are copied from the entities, so the object can be used after
+ * the session they were loaded in has been closed.
+ */
+public class AssignmentLoadTO {
+    private final int userId;
+    private final int backlogId;
+    private final BacklogType backlogType;
+    private final String backlogName;
+    private final DateTime startDate;
+    private final DateTime endDate;
+    private final long backlogBaselineLoad;
+    private final long personalLoad;
+
+    public AssignmentLoadTO(Assignment assignment) {
+        Backlog backlog = assignment.getBacklog();
+        this.userId = assignment.getUser().getId();
+        this.backlogId = backlog.getId();
+        this.backlogType = BacklogType.forBacklog(backlog);
+        this.backlogName = backlog.getName();
+        if (backlog instanceof Schedulable) {
+            this.startDate = ((Schedulable) backlog).getStartDate();
+            this.endDate = ((Schedulable) backlog).getEndDate();
+        } else {
+            this.startDate = null;
+            this.endDate = null;
+        }
+        ExactEstimate baseline = null;
+        if (backlog instanceof Iteration) {
+            baseline = ((Iteration) backlog).getBaselineLoad();
+        } else if (backlog instanceof Project) {
+            baseline = ((Project) backlog).getBaselineLoad();
+        }
+        this.backlogBaselineLoad = baseline == null ? 0L : baseline
+                .longValue();
+        this.personalLoad = assignment.getPersonalLoad() == null ? 0L
+                : assignment.getPersonalLoad().longValue();
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getBacklogId() {
+        return backlogId;
+    }
+
+    public BacklogType getBacklogType() {
+        return backlogType;
+    }
+
+    public String getBacklogName() {
+        return backlogName;
+    }
+
+    /**
+     * The start date of the backlog, or <code>null</code> if the backlog is
+     * not scheduled.
+     */
+    public DateTime getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * The end date of the backlog, or <code>null</code> if the backlog is
+     * not scheduled.
+     */
+    public DateTime getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * The weekly baseline load of the backlog.
+     */
+    public long getBacklogBaselineLoad() {
+        return backlogBaselineLoad;
+    }
+
+    /**
+     * The user's weekly personal load in the backlog.
+     */
+    public long getPersonalLoad() {
+        return personalLoad;
+    }
+}
@@ -0,0 +1,40 @@
+package fi.hut.soberit.agilefant.transfer;
+
+import java.util.List;
+
+/**
+ * The data of a burndown or burnup chart for drawing it on the client.
+ * <p>
+ * The start and end dates bound the date axis and are given in
+ * milliseconds since the epoch.
+ */
+public class ChartData {
+    private final String title;
+    private final long startDate;
+    private final long endDate;
+    private final List<ChartSeries> series;
+
+    public ChartData(String title, long startDate, long endDate,
+            List<ChartSeries> series) {
+        this.title = title;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.series = series;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getStartDate() {
+        return startDate;
+    }
+
+    public long getEndDate() {
+        return endDate;
+    }
+
+    public List<ChartSeries> getSeries() {
+        return series;
+    }
+}
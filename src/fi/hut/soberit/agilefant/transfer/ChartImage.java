@@ -0,0 +1,34 @@
+package fi.hut.soberit.agilefant.transfer;
+
+import org.joda.time.DateTime;
+
+/**
+ * A rendered chart image along with the version stamp of the data it was
+ * rendered from.
+ * <p>
+ * The version is used as the HTTP entity tag and the render time as the
+ * last modification time, so that clients can revalidate their copies.
+ */
+public class ChartImage {
+    private final byte[] image;
+    private final String version;
+    private final DateTime renderedAt;
+
+    public ChartImage(byte[] image, String version, DateTime renderedAt) {
+        this.image = image;
+        this.version = version;
+        this.renderedAt = renderedAt;
+    }
+
+    public byte[] getImage() {
+        return image;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public DateTime getRenderedAt() {
+        return renderedAt;
+    }
+}
@@ -0,0 +1,58 @@
+package fi.hut.soberit.agilefant.transfer;
+
+import org.jfree.data.time.TimeSeries;
+
+/**
+ * A single chart line as parallel arrays of timestamps and values.
+ * <p>
+ * Timestamps are milliseconds since the epoch. The timestamps are kept
+ * primitive so that the serialized form stays small. A <code>null</code>
+ * value is a gap, which breaks the line.
+ */
+public class ChartSeries {
+    private final String id;
+    private final String name;
+    private final long[] timestamps;
+    private final Double[] values;
+
+    public ChartSeries(String id, String name, long[] timestamps,
+            Double[] values) {
+        this.id = id;
+        this.name = name;
+        this.timestamps = timestamps;
+        this.values = values;
+    }
+
+    /**
+     * Copies the data points of a <code>TimeSeries</code>. Each point is
+     * placed at the start of its time period.
+     */
+    public static ChartSeries fromTimeSeries(String id, TimeSeries series) {
+        int count = series.getItemCount();
+        long[] timestamps = new long[count];
+        Double[] values = new Double[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = series.getTimePeriod(i).getFirstMillisecond();
+            Number value = series.getValue(i);
+            values[i] = (value == null) ? null : value.doubleValue();
+        }
+        return new ChartSeries(id, String.valueOf(series.getKey()),
+                timestamps, values);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public Double[] getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,123 @@
+package fi.hut.soberit.agilefant.transfer;
+
+import fi.hut.soberit.agilefant.model.Story;
+
+/**
+ * A position in the iteration history feed.
+ * <p>
+ * The feed is ordered from the newest change to the oldest by the revision
+ * timestamp and the revision id. The changes of a revision are ordered so
+ * that the stories come before the tasks, and by descending object id. The
+ * cursor points to the last change of a page, and the next page starts
+ * after it.
+ * <p>
+ * The string form of the cursor, which is passed to the client, is
+ * <code>timestamp-revisionId-kind-objectId</code>.
+ */
+public class HistoryFeedCursor implements Comparable<HistoryFeedCursor> {
+
+    public static final int STORY = 0;
+    public static final int TASK = 1;
+
+    private final long timestamp;
+    private final int revisionId;
+    private final int kind;
+    private final int objectId;
+
+    public HistoryFeedCursor(long timestamp, int revisionId, int kind,
+            int objectId) {
+        this.timestamp = timestamp;
+        this.revisionId = revisionId;
+        this.kind = kind;
+        this.objectId = objectId;
+    }
+
+    /**
+     * The position of a story or task change in the feed.
+     */
+    public static HistoryFeedCursor of(AgilefantHistoryEntry entry) {
+        int kind = entry.getObject() instanceof Story ? STORY : TASK;
+        return new HistoryFeedCursor(entry.getRevision().getTimestamp(), entry
+                .getRevision().getId(), kind, entry.getObjectId());
+    }
+
+    /**
+     * Parse the string form of a cursor.
+     *
+     * @throws IllegalArgumentException
+     *             if the string is not a valid cursor
+     */
+    public static HistoryFeedCursor parse(String cursor) {
+        String[] parts = cursor.split("-");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Invalid history cursor: "
+                    + cursor);
+        }
+        try {
+            int kind = Integer.parseInt(parts[2]);
+            if (kind != STORY && kind != TASK) {
+                throw new IllegalArgumentException("Invalid history cursor: "
+                        + cursor);
+            }
+            return new HistoryFeedCursor(Long.parseLong(parts[0]), Integer
+                    .parseInt(parts[1]), kind, Integer.parseInt(parts[3]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid history cursor: "
+                    + cursor, e);
+        }
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getRevisionId() {
+        return revisionId;
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    public int getObjectId() {
+        return objectId;
+    }
+
+    /**
+     * Orders the positions as they are in the feed, newest first.
+     */
+    public int compareTo(HistoryFeedCursor o) {
+        if (timestamp != o.timestamp) {
+            return timestamp > o.timestamp ? -1 : 1;
+        }
+        if (revisionId != o.revisionId) {
+            return revisionId > o.revisionId ? -1 : 1;
+        }
+        if (kind != o.kind) {
+            return kind < o.kind ? -1 : 1;
+        }
+        if (objectId != o.objectId) {
+            return objectId > o.objectId ? -1 : 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof HistoryFeedCursor)) {
+            return false;
+        }
+        return compareTo((HistoryFeedCursor) obj) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (timestamp ^ (timestamp >>> 32)) * 31 * 31 * 31
+                + revisionId * 31 * 31 + kind * 31 + objectId;
+    }
+
+    @Override
+    public String toString() {
+        return timestamp + "-" + revisionId + "-" + kind + "-" + objectId;
+    }
+}
@@ -0,0 +1,32 @@
+package fi.hut.soberit.agilefant.transfer;
+
+import java.util.List;
+
+/**
+ * A page of the iteration history feed.
+ */
+public class HistoryFeedPage {
+    private final List<AgilefantHistoryEntry> entries;
+    private final HistoryFeedCursor next;
+
+    public HistoryFeedPage(List<AgilefantHistoryEntry> entries,
+            HistoryFeedCursor next) {
+        this.entries = entries;
+        this.next = next;
+    }
+
+    /**
+     * The changes on the page, newest first.
+     */
+    public List<AgilefantHistoryEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * The cursor of the next page, or <code>null</code> if this is the last
+     * page.
+     */
+    public HistoryFeedCursor getNext() {
+        return next;
+    }
+}
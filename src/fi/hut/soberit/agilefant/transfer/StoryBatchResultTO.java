@@ -0,0 +1,82 @@
+package fi.hut.soberit.agilefant.transfer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import fi.hut.soberit.agilefant.model.StoryState;
+import flexjson.JSON;
+
+/**
+ * The report of a batch update of several stories.
+ */
+public class StoryBatchResultTO {
+    private final StoryState state;
+    private final Set<Integer> changedStateStoryIds = new TreeSet<Integer>();
+    private final Map<Integer, List<String>> addedLabels = new TreeMap<Integer, List<String>>();
+    private final Set<Integer> notFoundStoryIds = new TreeSet<Integer>();
+    private final Set<Integer> updatedIterationIds = new TreeSet<Integer>();
+    private final Set<Integer> updatedProjectIds = new TreeSet<Integer>();
+
+    public StoryBatchResultTO(StoryState state) {
+        this.state = state;
+    }
+
+    /**
+     * The state the stories were set to, or <code>null</code> if it wasn't
+     * changed.
+     */
+    @JSON
+    public StoryState getState() {
+        return state;
+    }
+
+    /**
+     * The stories, which were not already in the state.
+     */
+    @JSON
+    public Set<Integer> getChangedStateStoryIds() {
+        return changedStateStoryIds;
+    }
+
+    /**
+     * The names of the labels added to each story by story id.
+     */
+    @JSON
+    public Map<Integer, List<String>> getAddedLabels() {
+        return addedLabels;
+    }
+
+    public void setAddedLabels(Map<Integer, List<String>> addedLabels) {
+        this.addedLabels.clear();
+        this.addedLabels.putAll(addedLabels);
+    }
+
+    @JSON
+    public Set<Integer> getNotFoundStoryIds() {
+        return notFoundStoryIds;
+    }
+
+    /**
+     * The iterations, whose history was recalculated.
+     */
+    @JSON
+    public Set<Integer> getUpdatedIterationIds() {
+        return updatedIterationIds;
+    }
+
+    /**
+     * The projects, whose history was recalculated.
+     */
+    @JSON
+    public Set<Integer> getUpdatedProjectIds() {
+        return updatedProjectIds;
+    }
+
+    public void addNotFoundStoryIds(Collection<Integer> storyIds) {
+        notFoundStoryIds.addAll(storyIds);
+    }
+}
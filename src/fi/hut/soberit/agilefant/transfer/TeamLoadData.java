@@ -0,0 +1,65 @@
+package fi.hut.soberit.agilefant.transfer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fi.hut.soberit.agilefant.model.Assignment;
+
+/**
+ * The data loaded once for calculating the load of several users.
+ * <p>
+ * The data is not modified after it has been created, and it holds no
+ * entities, so the load of the users can be calculated in separate threads
+ * and sessions.
+ */
+public class TeamLoadData {
+    private final Map<Integer, List<AssignmentLoadTO>> assignmentsByUser = new HashMap<Integer, List<AssignmentLoadTO>>();
+    private final Map<Integer, Integer> totalAvailabilities;
+
+    /**
+     * The values of the assignments are copied, so this must be called in
+     * the session the assignments were loaded in.
+     *
+     * @param assignments
+     *            the users' assignments to the backlogs overlapping the
+     *            calculated interval
+     * @param totalAvailabilities
+     *            the sums of the assignment availabilities by iteration id
+     */
+    public TeamLoadData(Collection<Assignment> assignments,
+            Map<Integer, Integer> totalAvailabilities) {
+        for (Assignment assignment : assignments) {
+            AssignmentLoadTO load = new AssignmentLoadTO(assignment);
+            if (!assignmentsByUser.containsKey(load.getUserId())) {
+                assignmentsByUser.put(load.getUserId(),
+                        new ArrayList<AssignmentLoadTO>());
+            }
+            assignmentsByUser.get(load.getUserId()).add(load);
+        }
+        this.totalAvailabilities = new HashMap<Integer, Integer>(
+                totalAvailabilities);
+    }
+
+    /**
+     * Get the user's assignments.
+     */
+    public List<AssignmentLoadTO> getAssignments(int userId) {
+        List<AssignmentLoadTO> assignments = assignmentsByUser.get(userId);
+        if (assignments == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(assignments);
+    }
+
+    /**
+     * Get the sum of the assignment availabilities of the iteration, or
+     * <code>null</code> if it was not loaded.
+     */
+    public Integer getTotalAvailability(int iterationId) {
+        return totalAvailabilities.get(iterationId);
+    }
+}
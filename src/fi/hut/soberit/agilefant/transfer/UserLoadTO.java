@@ -0,0 +1,26 @@
+package fi.hut.soberit.agilefant.transfer;
+
+import flexjson.JSON;
+
+/**
+ * The load of one user in a team's load.
+ */
+public class UserLoadTO {
+    private final int userId;
+    private final ComputedLoadData loadData;
+
+    public UserLoadTO(int userId, ComputedLoadData loadData) {
+        this.userId = userId;
+        this.loadData = loadData;
+    }
+
+    @JSON
+    public int getUserId() {
+        return userId;
+    }
+
+    @JSON
+    public ComputedLoadData getLoadData() {
+        return loadData;
+    }
+}
@@ -0,0 +1,73 @@
+package fi.hut.soberit.agilefant.util;
+
+import fi.hut.soberit.agilefant.model.Backlog;
+
+/**
+ * The backlogs a user may access through their teams.
+ * <p>
+ * A user may access the products of their teams, including the projects and
+ * iterations under them, and the standalone iterations of their teams.
+ */
+public class AccessibleBacklogs {
+
+    private final IntSet productIds;
+    private final IntSet iterationIds;
+
+    public AccessibleBacklogs(IntSet productIds, IntSet iterationIds) {
+        this.productIds = productIds;
+        this.iterationIds = iterationIds;
+    }
+
+    /**
+     * Check whether the backlog is accessible.
+     * <p>
+     * The check only walks up the parents of the backlog, which are needed
+     * for displaying it anyway.
+     */
+    public boolean canAccess(Backlog backlog) {
+        if (backlog == null) {
+            return false;
+        }
+        Backlog root = backlog;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        if (root == backlog) {
+            // A product or a standalone iteration
+            return productIds.contains(backlog.getId())
+                    || iterationIds.contains(backlog.getId());
+        }
+        return productIds.contains(root.getId());
+    }
+
+    /**
+     * Check whether the backlog is accessible using the backlog hierarchy
+     * snapshot instead of the loaded parents.
+     */
+    public boolean canAccess(int backlogId, BacklogHierarchy hierarchy) {
+        BacklogHierarchy.Node node = hierarchy.get(backlogId);
+        if (node == null) {
+            return false;
+        }
+        BacklogHierarchy.Node root = hierarchy.getRoot(node);
+        if (root == node) {
+            return productIds.contains(backlogId)
+                    || iterationIds.contains(backlogId);
+        }
+        return productIds.contains(root.getId());
+    }
+
+    /**
+     * Get the ids of the products of the user's teams.
+     */
+    public IntSet getProductIds() {
+        return productIds;
+    }
+
+    /**
+     * Get the ids of the standalone iterations of the user's teams.
+     */
+    public IntSet getIterationIds() {
+        return iterationIds;
+    }
+}
@@ -0,0 +1,270 @@
+package fi.hut.soberit.agilefant.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+
+import fi.hut.soberit.agilefant.transfer.BacklogType;
+import fi.hut.soberit.agilefant.transfer.ScheduleStatus;
+
+/**
+ * An immutable snapshot of the product, project and iteration hierarchy.
+ * <p>
+ * The snapshot holds only the fields needed for listing the backlogs, so
+ * that the menus and backlog choosers can be built without loading the
+ * backlogs. The nodes are kept in an array sorted by id, and looked up with
+ * a binary search.
+ */
+public class BacklogHierarchy {
+
+    public static final String PATH_SEPARATOR = " > ";
+
+    private static final int[] NO_CHILDREN = new int[0];
+
+    private static final Comparator<Node> NAME_COMPARATOR = new Comparator<Node>() {
+        public int compare(Node o1, Node o2) {
+            if (o1.name == null || o2.name == null) {
+                return (o1.name == null ? 0 : 1) - (o2.name == null ? 0 : 1);
+            }
+            return o1.name.compareToIgnoreCase(o2.name);
+        }
+    };
+
+    private static final Comparator<Node> START_DATE_COMPARATOR = new Comparator<Node>() {
+        public int compare(Node o1, Node o2) {
+            if (o1.startDate == null || o2.startDate == null) {
+                return (o1.startDate == null ? 0 : 1)
+                        - (o2.startDate == null ? 0 : 1);
+            }
+            return o1.startDate.compareTo(o2.startDate);
+        }
+    };
+
+    public static final BacklogHierarchy EMPTY = new BacklogHierarchy(
+            new ArrayList<Node>());
+
+    private final int[] ids;
+    private final Node[] nodes;
+    private final List<Node> products;
+    private final List<Node> standAloneIterations;
+
+    /**
+     * A backlog in the hierarchy.
+     */
+    public static class Node {
+        private final int id;
+        private final BacklogType type;
+        private final String name;
+        private final DateTime startDate;
+        private final DateTime endDate;
+        private final int parentId;
+        private String pathName;
+        private int[] childIds = NO_CHILDREN;
+
+        /**
+         * @param parentId
+         *            the id of the parent backlog, zero for products and
+         *            standalone iterations
+         */
+        public Node(int id, BacklogType type, String name,
+                DateTime startDate, DateTime endDate, int parentId) {
+            this.id = id;
+            this.type = type;
+            this.name = name;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.parentId = parentId;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public BacklogType getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DateTime getStartDate() {
+            return startDate;
+        }
+
+        public DateTime getEndDate() {
+            return endDate;
+        }
+
+        public int getParentId() {
+            return parentId;
+        }
+
+        public boolean isRoot() {
+            return parentId == 0;
+        }
+
+        /**
+         * Get the name prefixed with the names of the parents, e.g.
+         * <code>Product &gt; Project &gt; Iteration</code>.
+         */
+        public String getPathName() {
+            return pathName;
+        }
+
+        /**
+         * Get the schedule status of the backlog. Products are always
+         * ongoing.
+         */
+        public ScheduleStatus getScheduleStatus() {
+            if (type == BacklogType.PRODUCT || startDate == null
+                    || endDate == null || endDate.isBefore(startDate)) {
+                return ScheduleStatus.ONGOING;
+            }
+            Interval interval = new Interval(startDate, endDate);
+            if (interval.isBeforeNow()) {
+                return ScheduleStatus.PAST;
+            } else if (interval.isAfterNow()) {
+                return ScheduleStatus.FUTURE;
+            }
+            return ScheduleStatus.ONGOING;
+        }
+    }
+
+    /**
+     * Build the hierarchy from the backlogs.
+     * <p>
+     * The path names and children are resolved here, so the nodes are not
+     * modified after the constructor returns. Nodes whose parent is not
+     * among the given nodes are treated as roots.
+     */
+    public BacklogHierarchy(Collection<Node> backlogs) {
+        nodes = backlogs.toArray(new Node[backlogs.size()]);
+        Arrays.sort(nodes, new Comparator<Node>() {
+            public int compare(Node o1, Node o2) {
+                return o1.id < o2.id ? -1 : (o1.id == o2.id ? 0 : 1);
+            }
+        });
+        ids = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            ids[i] = nodes[i].id;
+        }
+
+        List<Node> productList = new ArrayList<Node>();
+        List<Node> iterationList = new ArrayList<Node>();
+        List<List<Node>> children = new ArrayList<List<Node>>(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            children.add(null);
+        }
+        for (Node node : nodes) {
+            int parentIndex = node.isRoot() ? -1 : Arrays.binarySearch(ids,
+                    node.parentId);
+            if (parentIndex >= 0) {
+                if (children.get(parentIndex) == null) {
+                    children.set(parentIndex, new ArrayList<Node>());
+                }
+                children.get(parentIndex).add(node);
+            } else if (node.type == BacklogType.PRODUCT) {
+                productList.add(node);
+            } else if (node.type == BacklogType.ITERATION) {
+                iterationList.add(node);
+            }
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            List<Node> childList = children.get(i);
+            if (childList != null) {
+                Collections.sort(childList, START_DATE_COMPARATOR);
+                nodes[i].childIds = toIds(childList);
+            }
+        }
+        for (Node node : nodes) {
+            resolvePathName(node);
+        }
+
+        Collections.sort(productList, NAME_COMPARATOR);
+        Collections.sort(iterationList, NAME_COMPARATOR);
+        products = Collections.unmodifiableList(productList);
+        standAloneIterations = Collections.unmodifiableList(iterationList);
+    }
+
+    private String resolvePathName(Node node) {
+        if (node.pathName == null) {
+            Node parent = node.isRoot() ? null : get(node.parentId);
+            node.pathName = (parent == null) ? node.name : resolvePathName(parent)
+                    + PATH_SEPARATOR + node.name;
+        }
+        return node.pathName;
+    }
+
+    private static int[] toIds(List<Node> nodeList) {
+        int[] result = new int[nodeList.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = nodeList.get(i).id;
+        }
+        return result;
+    }
+
+    /**
+     * Get the backlog by id, or <code>null</code> if it is not in the
+     * hierarchy.
+     */
+    public Node get(int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index < 0 ? null : nodes[index];
+    }
+
+    /**
+     * Get the topmost parent of the backlog, which is the backlog itself for
+     * products and standalone iterations.
+     */
+    public Node getRoot(Node node) {
+        Node root = node;
+        Node parent;
+        while (!root.isRoot() && (parent = get(root.parentId)) != null) {
+            root = parent;
+        }
+        return root;
+    }
+
+    /**
+     * Get the children of the backlog ordered by start date.
+     */
+    public List<Node> getChildren(Node node) {
+        List<Node> children = new ArrayList<Node>(node.childIds.length);
+        for (int childId : node.childIds) {
+            children.add(get(childId));
+        }
+        return children;
+    }
+
+    /**
+     * Get all the backlogs ordered by id.
+     */
+    public List<Node> getAll() {
+        return Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+
+    /**
+     * Get the products ordered by name.
+     */
+    public List<Node> getProducts() {
+        return products;
+    }
+
+    /**
+     * Get the iterations without a parent ordered by name.
+     */
+    public List<Node> getStandAloneIterations() {
+        return standAloneIterations;
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+}
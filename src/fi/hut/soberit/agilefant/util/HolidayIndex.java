@@ -0,0 +1,194 @@
+package fi.hut.soberit.agilefant.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+
+import fi.hut.soberit.agilefant.model.Holiday;
+
+/**
+ * The days a user is on holiday, as sorted and non-overlapping ranges of
+ * days.
+ * <p>
+ * A day is a holiday if one of the user's holidays contains the start of the
+ * day. The ranges are found with a binary search, and the holiday days that
+ * are not weekend days are counted with the running count of them, so both
+ * take logarithmic time in the number of holidays whatever the length of
+ * the counted period.
+ * <p>
+ * The index is not modified after it has been created, so it may be shared
+ * between threads.
+ */
+public class HolidayIndex {
+
+    private static final long MILLIS_PER_DAY = DateTimeConstants.MILLIS_PER_DAY;
+
+    private final DateTimeZone zone;
+
+    /**
+     * The first day of each range, in days since 1970-01-01.
+     */
+    private final long[] startDays;
+
+    /**
+     * The day after the last day of each range.
+     */
+    private final long[] endDays;
+
+    /**
+     * The number of holiday days, not counting weekend days, in the ranges
+     * before each range, and in all ranges as the last element.
+     */
+    private final long[] weekdaysBefore;
+
+    /**
+     * @param holidays
+     *            the user's holidays
+     * @param zone
+     *            the time zone, in which the days start
+     */
+    public HolidayIndex(Collection<Holiday> holidays, DateTimeZone zone) {
+        this.zone = zone;
+        List<long[]> ranges = new ArrayList<long[]>(holidays.size());
+        for (Holiday holiday : holidays) {
+            long start = firstDayStartingAtOrAfter(holiday.getStartDate()
+                    .getTime());
+            long end = firstDayStartingAtOrAfter(holiday.getEndDate()
+                    .getTime());
+            if (start < end) {
+                ranges.add(new long[] { start, end });
+            }
+        }
+        Collections.sort(ranges, new Comparator<long[]>() {
+            public int compare(long[] o1, long[] o2) {
+                return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+            }
+        });
+
+        List<long[]> merged = new ArrayList<long[]>(ranges.size());
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged
+                    .get(merged.size() - 1);
+            if (last != null && range[0] <= last[1]) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+
+        int count = merged.size();
+        startDays = new long[count];
+        endDays = new long[count];
+        weekdaysBefore = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            startDays[i] = merged.get(i)[0];
+            endDays[i] = merged.get(i)[1];
+            weekdaysBefore[i + 1] = weekdaysBefore[i]
+                    + countWeekdays(startDays[i], endDays[i]);
+        }
+    }
+
+    public DateTimeZone getZone() {
+        return zone;
+    }
+
+    /**
+     * Check whether the user is on holiday on the day.
+     */
+    public boolean isHoliday(LocalDate date) {
+        return isHoliday(toDay(date));
+    }
+
+    boolean isHoliday(long day) {
+        int index = findLastStartingBefore(day + 1);
+        return index >= 0 && day < endDays[index];
+    }
+
+    /**
+     * Count the holiday days from the first day until the end day, exclusive,
+     * not counting the weekend days.
+     */
+    long countHolidayWeekdays(long from, long to) {
+        if (to <= from) {
+            return 0;
+        }
+        return countHolidayWeekdaysBefore(to)
+                - countHolidayWeekdaysBefore(from);
+    }
+
+    private long countHolidayWeekdaysBefore(long day) {
+        int index = findLastStartingBefore(day);
+        if (index < 0) {
+            return 0;
+        }
+        return weekdaysBefore[index]
+                + countWeekdays(startDays[index], Math.min(day,
+                        endDays[index]));
+    }
+
+    /**
+     * Find the index of the last range, which starts before the day, or -1
+     * if there's no such range.
+     */
+    private int findLastStartingBefore(long day) {
+        int index = Arrays.binarySearch(startDays, day);
+        if (index < 0) {
+            return -index - 2;
+        }
+        return index - 1;
+    }
+
+    private long firstDayStartingAtOrAfter(long millis) {
+        long localMillis = millis + zone.getOffset(millis);
+        long day = localMillis / MILLIS_PER_DAY;
+        if (localMillis < 0 && localMillis % MILLIS_PER_DAY != 0) {
+            day--;
+        }
+        if (toLocalDate(day).toDateMidnight(zone).getMillis() < millis) {
+            day++;
+        }
+        return day;
+    }
+
+    /**
+     * Days since 1970-01-01.
+     */
+    static long toDay(LocalDate date) {
+        return date.toDateMidnight(DateTimeZone.UTC).getMillis()
+                / MILLIS_PER_DAY;
+    }
+
+    static LocalDate toLocalDate(long day) {
+        return new LocalDate(day * MILLIS_PER_DAY, DateTimeZone.UTC);
+    }
+
+    /**
+     * Count the days from Monday to Friday from the first day until the end
+     * day, exclusive.
+     */
+    static long countWeekdays(long from, long to) {
+        if (to <= from) {
+            return 0;
+        }
+        return countWeekdaysBefore(to) - countWeekdaysBefore(from);
+    }
+
+    private static long countWeekdaysBefore(long day) {
+        // 1970-01-01 was a Thursday, so count the weeks from Monday
+        // 1969-12-29
+        long daysFromMonday = day + 3;
+        long weeks = daysFromMonday / 7;
+        if (daysFromMonday < 0 && daysFromMonday % 7 != 0) {
+            weeks--;
+        }
+        long dayOfWeek = daysFromMonday - weeks * 7;
+        return weeks * 5 + Math.min(dayOfWeek, 5);
+    }
+}
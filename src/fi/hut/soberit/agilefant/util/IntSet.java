@@ -0,0 +1,62 @@
+package fi.hut.soberit.agilefant.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable set of primitive ints.
+ * <p>
+ * The values are kept in a sorted array, so the set takes four bytes per
+ * value and lookups are binary searches.
+ */
+public final class IntSet {
+
+    public static final IntSet EMPTY = new IntSet(new int[0]);
+
+    private final int[] values;
+
+    private IntSet(int[] values) {
+        this.values = values;
+    }
+
+    public static IntSet of(Collection<Integer> collection) {
+        int[] values = new int[collection.size()];
+        int i = 0;
+        for (Integer value : collection) {
+            values[i++] = value;
+        }
+        Arrays.sort(values);
+        int size = 0;
+        for (i = 0; i < values.length; i++) {
+            if (size == 0 || values[size - 1] != values[i]) {
+                values[size++] = values[i];
+            }
+        }
+        return new IntSet(Arrays.copyOf(values, size));
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * Get the values as a list, e.g. for an <code>in</code> restriction.
+     */
+    public List<Integer> toList() {
+        List<Integer> list = new ArrayList<Integer>(values.length);
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
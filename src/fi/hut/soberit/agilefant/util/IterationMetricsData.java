@@ -0,0 +1,117 @@
+package fi.hut.soberit.agilefant.util;
+
+import fi.hut.soberit.agilefant.model.IterationHistoryEntry;
+
+/**
+ * The raw per-iteration figures the iteration metrics are calculated from.
+ * <p>
+ * Deferred stories and tasks are left out of the totals and the sums, as
+ * are tasks inside deferred stories.
+ */
+public class IterationMetricsData {
+
+    private IterationHistoryEntry latestHistoryEntry;
+    private IterationHistoryEntry yesterdayHistoryEntry;
+
+    private int storyPoints;
+    private int doneStoryPoints;
+    private int totalValue;
+    private int completedValue;
+
+    private int totalStories;
+    private int completedStories;
+    private int totalTasks;
+    private int completedTasks;
+
+    private long spentEffort;
+
+    public IterationHistoryEntry getLatestHistoryEntry() {
+        return latestHistoryEntry;
+    }
+
+    public void setLatestHistoryEntry(IterationHistoryEntry latestHistoryEntry) {
+        this.latestHistoryEntry = latestHistoryEntry;
+    }
+
+    public IterationHistoryEntry getYesterdayHistoryEntry() {
+        return yesterdayHistoryEntry;
+    }
+
+    public void setYesterdayHistoryEntry(
+            IterationHistoryEntry yesterdayHistoryEntry) {
+        this.yesterdayHistoryEntry = yesterdayHistoryEntry;
+    }
+
+    public int getStoryPoints() {
+        return storyPoints;
+    }
+
+    public void setStoryPoints(int storyPoints) {
+        this.storyPoints = storyPoints;
+    }
+
+    public int getDoneStoryPoints() {
+        return doneStoryPoints;
+    }
+
+    public void setDoneStoryPoints(int doneStoryPoints) {
+        this.doneStoryPoints = doneStoryPoints;
+    }
+
+    public int getTotalValue() {
+        return totalValue;
+    }
+
+    public void setTotalValue(int totalValue) {
+        this.totalValue = totalValue;
+    }
+
+    public int getCompletedValue() {
+        return completedValue;
+    }
+
+    public void setCompletedValue(int completedValue) {
+        this.completedValue = completedValue;
+    }
+
+    public int getTotalStories() {
+        return totalStories;
+    }
+
+    public void setTotalStories(int totalStories) {
+        this.totalStories = totalStories;
+    }
+
+    public int getCompletedStories() {
+        return completedStories;
+    }
+
+    public void setCompletedStories(int completedStories) {
+        this.completedStories = completedStories;
+    }
+
+    public int getTotalTasks() {
+        return totalTasks;
+    }
+
+    public void setTotalTasks(int totalTasks) {
+        this.totalTasks = totalTasks;
+    }
+
+    public int getCompletedTasks() {
+        return completedTasks;
+    }
+
+    public void setCompletedTasks(int completedTasks) {
+        this.completedTasks = completedTasks;
+    }
+
+    public long getSpentEffort() {
+        return spentEffort;
+    }
+
+    public void setSpentEffort(long spentEffort) {
+        this.spentEffort = spentEffort;
+    }
+
+}
@@ -0,0 +1,217 @@
+package fi.hut.soberit.agilefant.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index of object names and descriptions.
+ * <p>
+ * Texts are split into lower case words. A query matches an object when
+ * every word of the query is a prefix of some word of the object's name or
+ * description. Matches are ranked so that name matches come before
+ * description matches and whole word matches before prefix matches; equally
+ * ranked objects are ordered by name.
+ * <p>
+ * The documents are typed, so that e.g. products, projects and iterations
+ * can share an index and still be searched separately.
+ */
+public class SearchIndex {
+
+    private static final Pattern MARKUP = Pattern.compile("<[^>]*>|&#?\\w+;");
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int NAME_WORD_SCORE = 4;
+    private static final int NAME_PREFIX_SCORE = 3;
+    private static final int TEXT_WORD_SCORE = 2;
+    private static final int TEXT_PREFIX_SCORE = 1;
+    private static final int NAME_START_SCORE = 5;
+
+    private static class Document {
+        final Class<?> type;
+        final String name;
+        final Set<String> nameWords;
+        final Set<String> words;
+
+        Document(Class<?> type, String name, Set<String> nameWords,
+                Set<String> words) {
+            this.type = type;
+            this.name = name;
+            this.nameWords = nameWords;
+            this.words = words;
+        }
+    }
+
+    private final TreeMap<String, Set<Integer>> postings = new TreeMap<String, Set<Integer>>();
+    private final Map<Integer, Document> documents = new HashMap<Integer, Document>();
+
+    /**
+     * Split a text into distinct lower case words. Html tags and entities
+     * are ignored.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<String>();
+        if (text == null) {
+            return tokens;
+        }
+        String plain = MARKUP.matcher(text).replaceAll(" ").toLowerCase();
+        for (String token : SEPARATOR.split(plain)) {
+            if (token.length() > 0 && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Add an object to the index, replacing any previous entry with the same
+     * id.
+     */
+    public synchronized void put(int id, Class<?> type, String name,
+            String description) {
+        remove(id);
+        Set<String> nameWords = new HashSet<String>(tokenize(name));
+        Set<String> words = new HashSet<String>(nameWords);
+        words.addAll(tokenize(description));
+        documents.put(id, new Document(type, name == null ? "" : name
+                .toLowerCase(), nameWords, words));
+        for (String word : words) {
+            Set<Integer> ids = postings.get(word);
+            if (ids == null) {
+                ids = new HashSet<Integer>();
+                postings.put(word, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Remove an object from the index. Does nothing if the id is not indexed.
+     */
+    public synchronized void remove(int id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String word : document.words) {
+            Set<Integer> ids = postings.get(word);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Find the ids of the objects matching the query, best matches first.
+     *
+     * @param type
+     *            the type of objects to search for, subclasses included
+     * @param maxResults
+     *            the maximum number of ids to return
+     * @return the matching ids, or an empty list if the query has no words
+     */
+    public synchronized List<Integer> search(String query, Class<?> type,
+            int maxResults) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty()) {
+            return new ArrayList<Integer>();
+        }
+
+        Set<Integer> candidates = null;
+        for (String queryWord : queryWords) {
+            Set<Integer> matches = new HashSet<Integer>();
+            for (Set<Integer> ids : withPrefix(queryWord).values()) {
+                matches.addAll(ids);
+            }
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.retainAll(matches);
+            }
+            if (candidates.isEmpty()) {
+                return new ArrayList<Integer>();
+            }
+        }
+
+        final Map<Integer, Integer> scores = new HashMap<Integer, Integer>();
+        String normalizedQuery = query.trim().toLowerCase();
+        for (Integer id : candidates) {
+            Document document = documents.get(id);
+            if (type.isAssignableFrom(document.type)) {
+                scores.put(id, score(document, queryWords, normalizedQuery));
+            }
+        }
+
+        List<Integer> result = new ArrayList<Integer>(scores.keySet());
+        Collections.sort(result, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                int diff = scores.get(o2) - scores.get(o1);
+                if (diff == 0) {
+                    diff = documents.get(o1).name.compareTo(documents.get(o2).name);
+                }
+                return diff == 0 ? o1 - o2 : diff;
+            }
+        });
+        if (result.size() > maxResults) {
+            return new ArrayList<Integer>(result.subList(0, maxResults));
+        }
+        return result;
+    }
+
+    /**
+     * Remove all objects from the index.
+     */
+    public synchronized void clear() {
+        postings.clear();
+        documents.clear();
+    }
+
+    /**
+     * Get the number of indexed objects.
+     */
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    private SortedMap<String, Set<Integer>> withPrefix(String prefix) {
+        return postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    private int score(Document document, List<String> queryWords,
+            String normalizedQuery) {
+        int score = 0;
+        for (String queryWord : queryWords) {
+            if (document.nameWords.contains(queryWord)) {
+                score += NAME_WORD_SCORE;
+            } else if (hasPrefix(document.nameWords, queryWord)) {
+                score += NAME_PREFIX_SCORE;
+            } else if (document.words.contains(queryWord)) {
+                score += TEXT_WORD_SCORE;
+            } else {
+                score += TEXT_PREFIX_SCORE;
+            }
+        }
+        if (document.name.startsWith(normalizedQuery)) {
+            score += NAME_START_SCORE;
+        }
+        return score;
+    }
+
+    private static boolean hasPrefix(Set<String> words, String prefix) {
+        for (String word : words) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
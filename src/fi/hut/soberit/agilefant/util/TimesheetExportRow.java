@@ -0,0 +1,95 @@
+package fi.hut.soberit.agilefant.util;
+
+import org.joda.time.DateTime;
+
+/**
+ * A timesheet export row as read from the database.
+ * <p>
+ * Contains only the names of the entry's backlogs, story and task, so the
+ * rows can be exported without loading the hour entries.
+ * 
+ * @see TimesheetExportRowData
+ */
+public class TimesheetExportRow {
+    private String productName;
+    private String projectName;
+    private String iterationName;
+    private String storyName;
+    private String taskName;
+    private String description;
+    private String userName;
+    private DateTime date;
+    private long effort;
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    public String getIterationName() {
+        return iterationName;
+    }
+
+    public void setIterationName(String iterationName) {
+        this.iterationName = iterationName;
+    }
+
+    public String getStoryName() {
+        return storyName;
+    }
+
+    public void setStoryName(String storyName) {
+        this.storyName = storyName;
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    public void setTaskName(String taskName) {
+        this.taskName = taskName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public DateTime getDate() {
+        return date;
+    }
+
+    public void setDate(DateTime date) {
+        this.date = date;
+    }
+
+    public long getEffort() {
+        return effort;
+    }
+
+    public void setEffort(long effort) {
+        this.effort = effort;
+    }
+}
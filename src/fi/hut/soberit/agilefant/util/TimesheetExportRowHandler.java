@@ -0,0 +1,13 @@
+package fi.hut.soberit.agilefant.util;
+
+import java.io.IOException;
+
+/**
+ * Receives the timesheet export rows one at a time, while they are read from
+ * the database.
+ */
+public interface TimesheetExportRowHandler {
+
+    public void handleRow(TimesheetExportRow row) throws IOException;
+
+}
@@ -0,0 +1,100 @@
+package fi.hut.soberit.agilefant.util;
+
+import java.util.Collection;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.joda.time.Interval;
+import org.joda.time.LocalDate;
+
+import fi.hut.soberit.agilefant.model.Holiday;
+
+/**
+ * The working days of a user.
+ * <p>
+ * Saturdays, Sundays and the days the user is on holiday are not working
+ * days. The weekend days are counted arithmetically and the holidays with
+ * the user's {@link HolidayIndex}, so the worktime of an interval is
+ * calculated without walking through the days.
+ */
+public class WorkingDays {
+
+    private static final long MILLIS_PER_DAY = DateTimeConstants.MILLIS_PER_DAY;
+
+    private final HolidayIndex holidays;
+    private final DateTimeZone zone;
+
+    public WorkingDays(HolidayIndex holidays) {
+        this.holidays = holidays;
+        this.zone = holidays.getZone();
+    }
+
+    /**
+     * @param holidays
+     *            the user's holidays, whose days start in the default time
+     *            zone
+     */
+    public WorkingDays(Collection<Holiday> holidays) {
+        this(new HolidayIndex(holidays, DateTimeZone.getDefault()));
+    }
+
+    /**
+     * Check whether the day is a working day.
+     */
+    public boolean isWorkingDay(LocalDate date) {
+        long day = HolidayIndex.toDay(date);
+        return countNonWorkingDays(day, day + 1) == 0;
+    }
+
+    /**
+     * Calculate the time the user can work within the interval.
+     * <p>
+     * One day is deducted from the end of the interval for each weekend day
+     * and holiday, counting the days from the start of the interval. The
+     * worktime is never negative.
+     */
+    public Duration calculateWorktime(Interval interval) {
+        long startMillis = interval.getStartMillis();
+        long endMillis = interval.getEndMillis();
+        long localStart = startMillis + zone.getOffset(startMillis);
+        long localEnd = endMillis + zone.getOffset(endMillis);
+        long days = 0;
+        if (localEnd > localStart) {
+            days = (localEnd - localStart + MILLIS_PER_DAY - 1) / MILLIS_PER_DAY;
+        }
+        long startDay = toDay(startMillis);
+        long deductDays = countNonWorkingDays(startDay, startDay + days);
+        if (deductDays == 0) {
+            return new Duration(startMillis, endMillis);
+        }
+        if (deductDays >= days) {
+            return new Duration(0);
+        }
+        DateTime end = new DateTime(endMillis, zone).minusDays((int) deductDays);
+        if (end.getMillis() < startMillis) {
+            return new Duration(0);
+        }
+        return new Duration(startMillis, end.getMillis());
+    }
+
+    /**
+     * Count the non-working days from the first day until the end day,
+     * exclusive.
+     */
+    private long countNonWorkingDays(long from, long to) {
+        return (to - from) - HolidayIndex.countWeekdays(from, to)
+                + holidays.countHolidayWeekdays(from, to);
+    }
+
+    /**
+     * Days since 1970-01-01 in the time zone of the holidays.
+     */
+    private long toDay(long millis) {
+        long localMillis = millis + zone.getOffset(millis);
+        long day = localMillis / MILLIS_PER_DAY;
+        return localMillis < 0 && localMillis % MILLIS_PER_DAY != 0 ? day - 1
+                : day;
+    }
+}
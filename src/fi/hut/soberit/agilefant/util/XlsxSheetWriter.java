@@ -0,0 +1,230 @@
+package fi.hut.soberit.agilefant.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.joda.time.DateTime;
+
+/**
+ * Writes a single sheet Excel 2007 (.xlsx) workbook row by row.
+ * <p>
+ * The rows are written to the stream as they are added, so the number of
+ * rows doesn't affect the memory used. The strings are written inline into
+ * the sheet, and only the styles needed by the exports are available.
+ */
+public class XlsxSheetWriter {
+
+    public static final int STYLE_NONE = 0;
+    public static final int STYLE_HEADER = 1;
+    public static final int STYLE_DATE = 2;
+    public static final int STYLE_DECIMAL = 3;
+
+    /**
+     * Excel's serial number for 1970-01-01.
+     */
+    private static final double EPOCH_SERIAL = 25569.0;
+    private static final double MILLIS_PER_DAY = 24 * 60 * 60 * 1000.0;
+
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private int rowNumber = 0;
+    private int columnNumber = 0;
+
+    /**
+     * @param out
+     *            the stream to write the workbook to
+     * @param sheetName
+     *            the name of the sheet
+     * @param columnWidths
+     *            the column widths in characters, zero for the default width
+     * @param dateFormat
+     *            the Excel number format of the date cells
+     * @param decimalFormat
+     *            the Excel number format of the decimal cells
+     */
+    public XlsxSheetWriter(OutputStream out, String sheetName,
+            int[] columnWidths, String dateFormat, String decimalFormat)
+            throws IOException {
+        this.zip = new ZipOutputStream(out);
+        this.writer = new OutputStreamWriter(zip, "UTF-8");
+        writeStaticParts(sheetName, dateFormat, decimalFormat);
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+        writeColumns(columnWidths);
+        writer.write("<sheetData>");
+    }
+
+    public void startRow() throws IOException {
+        rowNumber++;
+        columnNumber = 0;
+        writer.write("<row r=\"" + rowNumber + "\">");
+    }
+
+    public void endRow() throws IOException {
+        writer.write("</row>");
+    }
+
+    /**
+     * Add a string cell. Null values leave the cell empty.
+     */
+    public void addString(String value, int style) throws IOException {
+        String reference = nextCellReference();
+        if (value == null) {
+            return;
+        }
+        writer.write("<c r=\"" + reference + "\" t=\"inlineStr\"" + styleAttribute(style)
+                + "><is><t xml:space=\"preserve\">");
+        writer.write(escape(value));
+        writer.write("</t></is></c>");
+    }
+
+    public void addNumber(double value, int style) throws IOException {
+        writer.write("<c r=\"" + nextCellReference() + "\"" + styleAttribute(style)
+                + "><v>" + value + "</v></c>");
+    }
+
+    /**
+     * Add a date cell. The date is written in its own time zone.
+     */
+    public void addDate(DateTime value, int style) throws IOException {
+        if (value == null) {
+            nextCellReference();
+            return;
+        }
+        long localMillis = value.getMillis()
+                + value.getZone().getOffset(value.getMillis());
+        addNumber(EPOCH_SERIAL + localMillis / MILLIS_PER_DAY, style);
+    }
+
+    /**
+     * Finish the workbook. The underlying stream is not closed.
+     */
+    public void finish() throws IOException {
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+        zip.finish();
+    }
+
+    private void writeStaticParts(String sheetName, String dateFormat,
+            String decimalFormat) throws IOException {
+        writeEntry("[Content_Types].xml",
+                "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+                + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+                + "</Types>");
+        writeEntry("_rels/.rels",
+                "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        writeEntry("xl/workbook.xml",
+                "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                + "<sheets><sheet name=\"" + escape(sheetName) + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets>"
+                + "</workbook>");
+        writeEntry("xl/_rels/workbook.xml.rels",
+                "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+                + "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>"
+                + "</Relationships>");
+        writeEntry("xl/styles.xml",
+                "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                + "<numFmts count=\"2\">"
+                + "<numFmt numFmtId=\"164\" formatCode=\"" + escape(dateFormat) + "\"/>"
+                + "<numFmt numFmtId=\"165\" formatCode=\"" + escape(decimalFormat) + "\"/>"
+                + "</numFmts>"
+                + "<fonts count=\"2\"><font><sz val=\"10\"/><name val=\"Arial\"/></font>"
+                + "<font><b/><sz val=\"10\"/><name val=\"Arial\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+                + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"4\">"
+                + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>"
+                + "<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"165\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "</cellXfs>"
+                + "</styleSheet>");
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private void writeColumns(int[] columnWidths) throws IOException {
+        StringBuilder cols = new StringBuilder();
+        for (int i = 0; i < columnWidths.length; i++) {
+            if (columnWidths[i] > 0) {
+                cols.append("<col min=\"").append(i + 1).append("\" max=\"")
+                        .append(i + 1).append("\" width=\"")
+                        .append(columnWidths[i]).append("\" customWidth=\"1\"/>");
+            }
+        }
+        if (cols.length() > 0) {
+            writer.write("<cols>" + cols + "</cols>");
+        }
+    }
+
+    private String nextCellReference() {
+        String column = columnName(columnNumber++);
+        return column + rowNumber;
+    }
+
+    static String columnName(int columnIndex) {
+        StringBuilder name = new StringBuilder();
+        for (int i = columnIndex + 1; i > 0; i = (i - 1) / 26) {
+            name.insert(0, (char) ('A' + (i - 1) % 26));
+        }
+        return name.toString();
+    }
+
+    private static String styleAttribute(int style) {
+        if (style == STYLE_NONE) {
+            return "";
+        }
+        return " s=\"" + style + "\"";
+    }
+
+    /**
+     * Escapes the XML special characters and leaves out the control
+     * characters, which aren't allowed in XML.
+     */
+    static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '<':
+                escaped.append("&lt;");
+                break;
+            case '>':
+                escaped.append("&gt;");
+                break;
+            case '&':
+                escaped.append("&amp;");
+                break;
+            case '"':
+                escaped.append("&quot;");
+                break;
+            default:
+                if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped.toString();
+    }
+}
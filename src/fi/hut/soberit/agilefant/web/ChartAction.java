@@ -3,6 +3,11 @@ package fi.hut.soberit.agilefant.web;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.struts2.interceptor.ServletRequestAware;
+import org.apache.struts2.interceptor.ServletResponseAware;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -16,13 +21,18 @@ import fi.hut.soberit.agilefant.business.ProjectBurnupBusiness;
 import fi.hut.soberit.agilefant.business.ProjectBusiness;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.Project;
+import fi.hut.soberit.agilefant.transfer.ChartData;
+import fi.hut.soberit.agilefant.transfer.ChartImage;
 
 @Component("chartAction")
 @Scope("prototype")
-public class ChartAction extends ActionSupport {
+public class ChartAction extends ActionSupport implements
+        ServletRequestAware, ServletResponseAware {
 
     private static final long serialVersionUID = -2860355939047563512L;
     
+    public static final String NOT_MODIFIED = "notModified";
+    
     @Autowired
     private IterationBurndownBusiness iterationBurndownBusiness;
     @Autowired
@@ -38,12 +48,18 @@ public class ChartAction extends ActionSupport {
     
     private byte[] result;
     
+    private ChartData chartData;
+    
     private Integer customBdWidth = 1024;
     
     private Integer customBdHeight = 768;
     
     private Integer timeZoneOffset = 0;
     
+    private HttpServletRequest request;
+    
+    private HttpServletResponse response;
+    
     public void setIterationBurndownBusiness(
             IterationBurndownBusiness iterationBurndownBusiness) {
         this.iterationBurndownBusiness = iterationBurndownBusiness;
@@ -68,14 +84,14 @@ public class ChartAction extends ActionSupport {
 
     public String getIterationBurndown() {
         Iteration iteration = iterationBusiness.retrieve(backlogId);
-        result = iterationBurndownBusiness.getIterationBurndown(iteration, timeZoneOffset);
-        return Action.SUCCESS;
+        return burndownResult(iterationBurndownBusiness.getIterationBurndownImage(
+                iteration, null, null, false, timeZoneOffset));
     }
     
     public String getIterationBurndownByToken() {
         Iteration iteration = iterationBusiness.retreiveIterationByReadonlyToken(readonlyToken);
-        result = iterationBurndownBusiness.getIterationBurndown(iteration, timeZoneOffset);
-        return Action.SUCCESS;
+        return burndownResult(iterationBurndownBusiness.getIterationBurndownImage(
+                iteration, null, null, false, timeZoneOffset));
     }
     
     public String getProjectBurnup() {
@@ -92,25 +108,71 @@ public class ChartAction extends ActionSupport {
 
     public String getSmallIterationBurndown() {
         Iteration iteration = iterationBusiness.retrieve(backlogId);
-        result = iterationBurndownBusiness.getSmallIterationBurndown(iteration, timeZoneOffset);
-        return Action.SUCCESS;
+        return burndownResult(iterationBurndownBusiness.getIterationBurndownImage(
+                iteration, null, null, true, timeZoneOffset));
     }
     
     public String getSmallIterationBurndownByToken() {
         Iteration iteration = iterationBusiness.retreiveIterationByReadonlyToken(readonlyToken);
-        result = iterationBurndownBusiness.getSmallIterationBurndown(iteration, timeZoneOffset);
-        return Action.SUCCESS;
+        return burndownResult(iterationBurndownBusiness.getIterationBurndownImage(
+                iteration, null, null, true, timeZoneOffset));
     }
                   
     public String getCustomIterationBurndown() {
         Iteration iteration = iterationBusiness.retrieve(backlogId);
-        result = iterationBurndownBusiness.getCustomIterationBurndown(iteration, customBdWidth, customBdHeight, timeZoneOffset);
-        return Action.SUCCESS;
+        return burndownResult(iterationBurndownBusiness.getIterationBurndownImage(
+                iteration, customBdWidth, customBdHeight, false, timeZoneOffset));
     }
     
     public String getCustomIterationBurndownByToken() {
         Iteration iteration = iterationBusiness.retreiveIterationByReadonlyToken(readonlyToken);
-        result = iterationBurndownBusiness.getCustomIterationBurndown(iteration, customBdWidth, customBdHeight, timeZoneOffset);
+        return burndownResult(iterationBurndownBusiness.getIterationBurndownImage(
+                iteration, customBdWidth, customBdHeight, false, timeZoneOffset));
+    }
+
+    public String getIterationBurndownData() {
+        Iteration iteration = iterationBusiness.retrieve(backlogId);
+        chartData = iterationBurndownBusiness.getIterationBurndownData(
+                iteration, timeZoneOffset);
+        return Action.SUCCESS;
+    }
+    
+    public String getIterationBurndownDataByToken() {
+        Iteration iteration = iterationBusiness.retreiveIterationByReadonlyToken(readonlyToken);
+        chartData = iterationBurndownBusiness.getIterationBurndownData(
+                iteration, timeZoneOffset);
+        return Action.SUCCESS;
+    }
+    
+    public String getProjectBurnupData() {
+        Project project = projectBusiness.retrieve(backlogId);
+        chartData = projectBurnupBusiness.getBurnupData(project);
+        return Action.SUCCESS;
+    }
+  
+    /**
+     * Sets the validators of the burndown image to the response and checks
+     * whether the client's copy of the image is still valid.
+     */
+    private String burndownResult(ChartImage image) {
+        result = image.getImage();
+        if (request == null || response == null) {
+            return Action.SUCCESS;
+        }
+        String etag = "\"" + image.getVersion() + "\"";
+        long lastModified = image.getRenderedAt().getMillis();
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Cache-Control", "no-cache");
+        
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return etag.equals(ifNoneMatch) ? NOT_MODIFIED : Action.SUCCESS;
+        }
+        long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        if (ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000) {
+            return NOT_MODIFIED;
+        }
         return Action.SUCCESS;
     }
   
@@ -138,5 +200,17 @@ public class ChartAction extends ActionSupport {
 
     public byte[] getResult() {
         return result;
-    }    
+    }
+    
+    public ChartData getChartData() {
+        return chartData;
+    }
+    
+    public void setServletRequest(HttpServletRequest request) {
+        this.request = request;
+    }
+    
+    public void setServletResponse(HttpServletResponse response) {
+        this.response = response;
+    }
 }
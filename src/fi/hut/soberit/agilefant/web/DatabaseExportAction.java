@@ -1,9 +1,13 @@
 package fi.hut.soberit.agilefant.web;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+import org.apache.struts2.interceptor.ServletResponseAware;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
@@ -13,58 +17,123 @@ import com.opensymphony.xwork2.ActionSupport;
 import fi.hut.soberit.agilefant.db.export.Atablesmodifier;
 import fi.hut.soberit.agilefant.db.export.DbBackupper;
 
+/**
+ * Streams the database exports to the response while mysqldump produces
+ * them, so the size of the database doesn't affect the memory used.
+ */
 @Component("dbExportAction")
 @Scope("prototype")
-public class DatabaseExportAction extends ActionSupport {
-    
+public class DatabaseExportAction extends ActionSupport implements ServletResponseAware {
+
     private static final long serialVersionUID = -1639488740106383276L;
-    
+
+    private Logger log = Logger.getLogger(DatabaseExportAction.class);
+
     private DbBackupper takeDbBackup;
-    private ByteArrayOutputStream databaseStream;
-    
+
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    private HttpServletResponse response;
+
     public String edit()  {
-        this.takeDbBackup = new DbBackupper();
-       
+        this.takeDbBackup = createDbBackupper();
+
         return Action.SUCCESS;
     }
-    
+
     public String generateDatabaseExport() {
         try {
-         
-            this.takeDbBackup = new DbBackupper();
-            this.databaseStream = takeDbBackup.generateDBDumpStream();
-            return Action.SUCCESS;
+            this.takeDbBackup = createDbBackupper();
+            OutputStream out = prepareResponse("AgilefantDatabaseExport.zip");
+            int exitValue = takeDbBackup.writeDBDump(out, compressionLevel);
+            if (exitValue != 0) {
+                return dumpFailed(exitValue);
+            }
+            out.flush();
+            return Action.NONE;
         }
         catch (Exception e)
         {
-            return Action.ERROR;
+            return exportFailed(e);
         }
     }
-    
-    public String generateAnonymousDatabaseExport() throws InstantiationException, IllegalAccessException, ClassNotFoundException{
+
+    public String generateAnonymousDatabaseExport() {
+        Atablesmodifier anonymousTableModifier = null;
         try {
-            this.takeDbBackup = new DbBackupper();
-            Atablesmodifier anonymousTableModifier = new Atablesmodifier();
+            this.takeDbBackup = createDbBackupper();
+            anonymousTableModifier = new Atablesmodifier();
             anonymousTableModifier.dublicaTables();
             anonymousTableModifier.anonymizeTables();
-            
-            this.databaseStream = takeDbBackup.generateAnonymousDBDumpStream(anonymousTableModifier.getOriginalTables());
-            anonymousTableModifier.deletetables();
-            return Action.SUCCESS;
+
+            OutputStream out = prepareResponse("AgilefantAnonymousDatabaseExport.zip");
+            int exitValue = takeDbBackup.writeAnonymousDBDump(out,
+                    anonymousTableModifier.getOriginalTables(), compressionLevel);
+            if (exitValue != 0) {
+                return dumpFailed(exitValue);
+            }
+            out.flush();
+            return Action.NONE;
         }
         catch (Throwable e) {
-            System.out.println("Generate Anonymous data failed "+ e.getCause());
-            System.out.println("Generate Anonymous data failed "+ e.getMessage());
-            return Action.ERROR;
+            return exportFailed(e);
+        }
+        finally {
+            if (anonymousTableModifier != null) {
+                try {
+                    anonymousTableModifier.deletetables();
+                } catch (Exception e) {
+                    log.error("Removing the anonymized tables failed", e);
+                }
+            }
+        }
+    }
+
+    private OutputStream prepareResponse(String fileName) throws IOException {
+        response.setContentType("application/octet-stream");
+        response.setHeader("Content-Disposition", "filename=\"" + fileName + "\"");
+        return response.getOutputStream();
+    }
+
+    protected DbBackupper createDbBackupper() {
+        return new DbBackupper();
+    }
+
+    /**
+     * A failed mysqldump has already added its errors to the zip.
+     */
+    private String dumpFailed(int exitValue) {
+        log.error("Database export failed, mysqldump exit value " + exitValue);
+        return showErrorIfPossible();
+    }
+
+    private String exportFailed(Throwable e) {
+        log.error("Database export failed", e);
+        return showErrorIfPossible();
+    }
+
+    /**
+     * The error page can only be shown if nothing has been sent yet.
+     */
+    private String showErrorIfPossible() {
+        if (response.isCommitted()) {
+            return Action.NONE;
         }
+        response.reset();
+        addActionError("Database export failed");
+        return Action.ERROR;
     }
-    
-    public InputStream getDatabaseStream() {        
-        return new ByteArrayInputStream(this.databaseStream.toByteArray());               
+
+    public int getCompressionLevel() {
+        return compressionLevel;
     }
-    
-    public void setDatabaseStream(ByteArrayOutputStream databaseStream) { 
-        this.databaseStream = databaseStream; 
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
     }
-    
+
+    public void setServletResponse(HttpServletResponse response) {
+        this.response = response;
+    }
+
 }
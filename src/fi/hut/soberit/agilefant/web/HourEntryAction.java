@@ -30,6 +30,7 @@ public class HourEntryAction extends ActionSupport implements CRUDAction, Prefet
     private HourEntryBusiness hourEntryBusiness;
     private Set<Integer> userIds = new HashSet<Integer>();
     private boolean limited;
+    private int dailySumCount;
     
     private List<HourEntry> hourEntries = new ArrayList<HourEntry>();
    
@@ -97,6 +98,11 @@ public class HourEntryAction extends ActionSupport implements CRUDAction, Prefet
         return Action.SUCCESS;
     }
 
+    public String rebuildDailySums() {
+        this.dailySumCount = this.hourEntryBusiness.rebuildDailySums();
+        return Action.SUCCESS;
+    }
+
     public int getHourEntryId() {
         return hourEntryId;
     }
@@ -139,6 +145,10 @@ public class HourEntryAction extends ActionSupport implements CRUDAction, Prefet
     public List<HourEntry> getHourEntries() {
         return hourEntries;
     }
+    public int getDailySumCount() {
+        return dailySumCount;
+    }
+
     public void initializePrefetchedData(int objectId) {
         this.hourEntry = hourEntryBusiness.retrieve(objectId);
     }
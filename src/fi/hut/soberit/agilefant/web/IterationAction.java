@@ -16,6 +16,7 @@ import com.opensymphony.xwork2.Action;
 
 import fi.hut.soberit.agilefant.annotations.PrefetchId;
 import fi.hut.soberit.agilefant.business.IterationBusiness;
+import fi.hut.soberit.agilefant.business.ReadonlyTokenBusiness;
 import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.transfer.AssignmentTO;
@@ -56,6 +57,9 @@ public class IterationAction implements CRUDAction, Prefetching, ContextAware {
     
     @Autowired
     private IterationBusiness iterationBusiness;
+    
+    @Autowired
+    private ReadonlyTokenBusiness readonlyTokenBusiness;
 
     public String create() {
         iterationId = 0;
@@ -127,6 +131,7 @@ public class IterationAction implements CRUDAction, Prefetching, ContextAware {
         }
         
         this.iterationBusiness.store(iterationId, parentBacklogId, iteration, assigneeIds, teams);
+        this.readonlyTokenBusiness.invalidate();
         
         this.readonlyToken = iteration.getReadonlyToken();
 
@@ -143,6 +148,7 @@ public class IterationAction implements CRUDAction, Prefetching, ContextAware {
         }
         
         this.iterationBusiness.store(iterationId, parentBacklogId, iteration, assigneeIds, teams);
+        this.readonlyTokenBusiness.invalidate();
         
         this.readonlyToken = iteration.getReadonlyToken();
 
@@ -254,6 +260,11 @@ public class IterationAction implements CRUDAction, Prefetching, ContextAware {
         this.iterationBusiness = iterationBusiness;
     }
 
+    public void setReadonlyTokenBusiness(
+            ReadonlyTokenBusiness readonlyTokenBusiness) {
+        this.readonlyTokenBusiness = readonlyTokenBusiness;
+    }
+
     public IterationMetrics getIterationMetrics() {
         return iterationMetrics;
     }
@@ -6,8 +6,6 @@ package fi.hut.soberit.agilefant.web;
  * @author aborici
  * 
  */
-import java.util.List;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -16,7 +14,8 @@ import com.opensymphony.xwork2.ActionSupport;
 
 import fi.hut.soberit.agilefant.business.IterationBusiness;
 import fi.hut.soberit.agilefant.model.Iteration;
-import fi.hut.soberit.agilefant.transfer.AgilefantHistoryEntry;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedPage;
 
 @Component("iterationHistoryAction")
 @Scope("prototype")
@@ -26,44 +25,46 @@ public class IterationHistoryAction extends ActionSupport {
     @Autowired
     private IterationBusiness iterationBusiness;
     
-    private List<AgilefantHistoryEntry> storyHistory;
-    private List<AgilefantHistoryEntry> taskHistory;
-    private List<AgilefantHistoryEntry> mingledHistory;
+    /**
+     * The number of changes on a page of the history.
+     */
+    public static final int PAGE_SIZE = 50;
+    
+    private HistoryFeedPage historyPage;
     
     private int iterationId;
     
     private String readonlyToken;
+    
+    private String after;
 
     
     @Override
     public String execute() {
         Iteration iteration = this.iterationBusiness.retrieve(iterationId);
-        storyHistory = this.iterationBusiness.retrieveChangesInIterationStories(iteration);
-        taskHistory = this.iterationBusiness.retrieveChangesInIterationTasks(iteration);
-        mingledHistory = this.iterationBusiness.renderSortedTaskAndStoryRevisions(iteration);
+        historyPage = this.iterationBusiness.retrieveHistoryPage(iteration,
+                getAfterCursor(), PAGE_SIZE);
 
         return SUCCESS;
     }
     
     public String executeByToken() {
         Iteration iteration = this.iterationBusiness.retreiveIterationByReadonlyToken(readonlyToken);
-        storyHistory = this.iterationBusiness.retrieveChangesInIterationStories(iteration);
-        taskHistory = this.iterationBusiness.retrieveChangesInIterationTasks(iteration);
-        mingledHistory = this.iterationBusiness.renderSortedTaskAndStoryRevisions(iteration);
+        historyPage = this.iterationBusiness.retrieveHistoryPage(iteration,
+                getAfterCursor(), PAGE_SIZE);
 
         return SUCCESS;
     }
     
-    public List<AgilefantHistoryEntry> getStoryHistory() {
-        return storyHistory;
-    }
-
-    public List<AgilefantHistoryEntry> getTaskHistory() {
-        return taskHistory;
+    private HistoryFeedCursor getAfterCursor() {
+        if (after == null || after.length() == 0) {
+            return null;
+        }
+        return HistoryFeedCursor.parse(after);
     }
     
-    public List<AgilefantHistoryEntry> getMingledHistory() {
-        return mingledHistory;
+    public HistoryFeedPage getHistoryPage() {
+        return historyPage;
     }
     
     public int getIterationId() {
@@ -82,5 +83,16 @@ public class IterationHistoryAction extends ActionSupport {
         this.readonlyToken = readonlyToken;
     }
     
+    public String getAfter() {
+        return after;
+    }
+    
+    /**
+     * The cursor of the requested page, or empty for the first page.
+     */
+    public void setAfter(String after) {
+        this.after = after;
+    }
+    
 
 }
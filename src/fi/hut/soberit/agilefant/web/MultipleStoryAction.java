@@ -13,6 +13,7 @@ import com.opensymphony.xwork2.Action;
 
 import fi.hut.soberit.agilefant.business.StoryBatchBusiness;
 import fi.hut.soberit.agilefant.model.StoryState;
+import fi.hut.soberit.agilefant.transfer.StoryBatchResultTO;
 
 @Scope("prototype")
 @Component("multipleStoryAction")
@@ -21,15 +22,20 @@ public class MultipleStoryAction {
     private List<String> labelNames = new ArrayList<String>();
     private StoryState state = null;
     private Set<Integer> storyIds = new HashSet<Integer>();
+    private StoryBatchResultTO result;
     
     @Autowired
     private StoryBatchBusiness storyBatchBusiness;
     
     
     public String updateMultipleStories() {
-        storyBatchBusiness.modifyMultiple(storyIds, state, labelNames);
+        result = storyBatchBusiness.modifyMultiple(storyIds, state, labelNames);
         return Action.SUCCESS;
     }
+    
+    public StoryBatchResultTO getResult() {
+        return result;
+    }
 
     
     public StoryState getState() {
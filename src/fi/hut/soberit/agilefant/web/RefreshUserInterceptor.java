@@ -1,15 +1,13 @@
 package fi.hut.soberit.agilefant.web;
 
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.io.StringWriter;
 import java.io.Writer;
-
-import javax.naming.InitialContext;
-import javax.naming.NamingException;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
-import org.hibernate.Session;
-import org.hibernate.SessionFactory;
+import org.hibernate.proxy.HibernateProxy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -18,7 +16,6 @@ import com.opensymphony.xwork2.ActionInvocation;
 import com.opensymphony.xwork2.interceptor.Interceptor;
 
 import fi.hut.soberit.agilefant.business.UserBusiness;
-import fi.hut.soberit.agilefant.db.hibernate.UserDAOHibernate;
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.security.SecurityUtil;
 import flexjson.JSONSerializer;
@@ -26,6 +23,11 @@ import flexjson.JSONSerializer;
 /**
  * Interceptor, which ensures proper user-id is set during each request. Ie.
  * makes getLoggedUser - calls valid for struts stuff.
+ * <p>
+ * The user checked during a previous request is kept in the session. As long
+ * as the user data version hasn't changed, the user isn't read again, and the
+ * logged user is a reference, which is read only if the action uses it. The
+ * JSON of the user is serialized only when a page renders it.
  */
 @Component("refreshUserInterceptor")
 @Scope("prototype")
@@ -37,6 +39,9 @@ public class RefreshUserInterceptor implements Interceptor {
     
     private static boolean isUnderReadOnlyAction = false;
 
+    static final String USER_SNAPSHOT_KEY = RefreshUserInterceptor.class
+            .getName() + ".userSnapshot";
+
     @Autowired
     private UserBusiness userBusiness;
 
@@ -94,16 +99,35 @@ public class RefreshUserInterceptor implements Interceptor {
             return invocation.invoke();
         }
 
-        // get the user object corresponding to the id
-        User user = userBusiness.retrieve(userId);
+        Map<String, Object> session = invocation.getInvocationContext()
+                .getSession();
+        long version = userBusiness.getUserDataVersion();
+        UserSnapshot snapshot = getSnapshot(session);
+        User user;
 
-        // check that user hasn't been removed during the session
-        if (user == null) {
-            SecurityUtil.logoutCurrentUser();
-        }
-        // check that user hasn't been disabled during the session
-        if (!user.isEnabled()) {
-            SecurityUtil.logoutCurrentUser();
+        if (snapshot != null && snapshot.isValid(userId, version)) {
+            // the user has been checked and hasn't changed since
+            user = userBusiness.retrieveReference(userId);
+        } else {
+            // get the user object corresponding to the id
+            user = userBusiness.retrieve(userId);
+
+            // check that user hasn't been removed during the session
+            if (user == null) {
+                SecurityUtil.logoutCurrentUser();
+            }
+            // check that user hasn't been disabled during the session
+            if (!user.isEnabled()) {
+                SecurityUtil.logoutCurrentUser();
+                snapshot = null;
+            } else {
+                snapshot = new UserSnapshot(userId, version);
+            }
+            if (session != null && snapshot != null) {
+                session.put(USER_SNAPSHOT_KEY, snapshot);
+            } else if (session != null) {
+                session.remove(USER_SNAPSHOT_KEY);
+            }
         }
 
         // before the request:
@@ -112,7 +136,7 @@ public class RefreshUserInterceptor implements Interceptor {
         
         //push current user to the value stack
         invocation.getStack().set("currentUser", user);
-        invocation.getStack().set("currentUserJson", new JSONSerializer().serialize(user));
+        invocation.getStack().set("currentUserJson", new UserJson(user, snapshot));
         
         // perform request
         String result = invocation.invoke();
@@ -137,18 +161,6 @@ public class RefreshUserInterceptor implements Interceptor {
     private String readonlyAccess(ActionInvocation invocation) throws Exception {
         isUnderReadOnlyAction = true;
 
-        //log in read only user if we got to here
-        UserDAOHibernate userDao = new UserDAOHibernate();
-
-        SessionFactory sessionFactory = null;
-        try {
-            sessionFactory = (SessionFactory) new InitialContext().lookup("hibernateSessionFactory");
-            userDao.setSessionFactory(sessionFactory);
-        } catch (NamingException e) {
-            e.printStackTrace();
-        }
-        Session session = sessionFactory.openSession();
-
         try {
             // Re-authorize the current user if there is one logged in.
 
@@ -163,23 +175,20 @@ public class RefreshUserInterceptor implements Interceptor {
 
             //push current user to the value stack
             invocation.getStack().set("currentUser", user);
-            invocation.getStack().set("currentUserJson", new JSONSerializer().serialize(user));
+            invocation.getStack().set("currentUserJson", new UserJson(user, null));
             
         } catch (Exception e) {
             // No logged in user, so log in the Readonly user. 
             
-            User user = userDao.getByLoginName("readonly");
+            User user = userBusiness.retrieveByLoginName("readonly");
 
             SecurityUtil.setLoggedUser(user);
 
             //push current user to the value stack
             invocation.getStack().set("currentUser", user);
-            invocation.getStack().set("currentUserJson", new JSONSerializer().serialize(user));
+            invocation.getStack().set("currentUserJson", new UserJson(user, null));
         }
 
-        session.disconnect();
-        session.close();
-
         // perform request
         String result = invocation.invoke();
 
@@ -192,7 +201,73 @@ public class RefreshUserInterceptor implements Interceptor {
         return result;
     }
 
-    
+    private static UserSnapshot getSnapshot(Map<String, Object> session) {
+        if (session == null) {
+            return null;
+        }
+        Object snapshot = session.get(USER_SNAPSHOT_KEY);
+        if (snapshot instanceof UserSnapshot) {
+            return (UserSnapshot) snapshot;
+        }
+        return null;
+    }
+
+    /**
+     * The logged user as checked during a request.
+     */
+    static class UserSnapshot implements Serializable {
+        private static final long serialVersionUID = -3512617374312079946L;
+
+        private final int userId;
+
+        private final long version;
+
+        private volatile String json;
+
+        UserSnapshot(int userId, long version) {
+            this.userId = userId;
+            this.version = version;
+        }
+
+        boolean isValid(int userId, long version) {
+            return this.userId == userId && this.version == version;
+        }
+    }
+
+    /**
+     * Serializes the user when a page reads it. The JSON is kept in the
+     * snapshot, so it's serialized once per user data version.
+     */
+    static class UserJson {
+        private final User user;
+
+        private final UserSnapshot snapshot;
+
+        UserJson(User user, UserSnapshot snapshot) {
+            this.user = user;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public String toString() {
+            if (snapshot == null) {
+                return serialize();
+            }
+            if (snapshot.json == null) {
+                snapshot.json = serialize();
+            }
+            return snapshot.json;
+        }
+
+        private String serialize() {
+            Object implementation = user;
+            if (user instanceof HibernateProxy) {
+                implementation = ((HibernateProxy) user)
+                        .getHibernateLazyInitializer().getImplementation();
+            }
+            return new JSONSerializer().serialize(implementation);
+        }
+    }
     
     public void setUserBusiness(UserBusiness userBusiness) {
         this.userBusiness = userBusiness;
@@ -23,6 +23,8 @@ public class SearchAction extends ActionSupport {
     
     private String term;
     
+    private int indexSize;
+    
     @Override
     public String execute() {
         results = this.searchBusiness.searchStoriesAndBacklog(term);
@@ -54,10 +56,19 @@ public class SearchAction extends ActionSupport {
         return Action.SUCCESS;
     }
 
+    public String rebuildIndex() {
+        indexSize = this.searchBusiness.rebuildSearchIndex();
+        return Action.SUCCESS;
+    }
+
     public List<SearchResultRow> getResults() {
         return results;
     }
 
+    public int getIndexSize() {
+        return indexSize;
+    }
+
     public void setTerm(String term) {
         this.term = term;
     }
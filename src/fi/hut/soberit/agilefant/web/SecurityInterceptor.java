@@ -76,7 +76,9 @@ public class SecurityInterceptor implements Interceptor {
                     || actionName.equals("deleteTeam")
                     || actionName.equals("deleteTeamForm")
                     || actionName.equals("storeTeam")
-                    || actionName.equals("storeNewTeam")){
+                    || actionName.equals("storeNewTeam")
+                    || actionName.equals("rebuildSearchIndex")
+                    || actionName.equals("rebuildHourEntryDailySums")){
                 
                 //these are admin-only operations
                 access = false;
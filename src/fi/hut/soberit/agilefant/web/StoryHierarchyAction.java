@@ -12,6 +12,7 @@ import com.opensymphony.xwork2.ActionSupport;
 
 import fi.hut.soberit.agilefant.business.StoryBusiness;
 import fi.hut.soberit.agilefant.business.StoryHierarchyBusiness;
+import fi.hut.soberit.agilefant.business.StoryTreeBusiness;
 import fi.hut.soberit.agilefant.exception.StoryTreeIntegrityViolationException;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.transfer.StoryTreeBranchMetrics;
@@ -29,6 +30,9 @@ public class StoryHierarchyAction extends ActionSupport {
     
     @Autowired
     private StoryHierarchyBusiness storyHierarchyBusiness;
+    
+    @Autowired
+    private StoryTreeBusiness storyTreeBusiness;
         
     private List<Story> stories;
     private StoryFilters storyFilters = new StoryFilters();
@@ -36,6 +40,7 @@ public class StoryHierarchyAction extends ActionSupport {
     private Integer[] storyIds;
     private Integer projectId;
     private Integer productId;
+    private Integer maxDepth;
     private Story story;
     private Story topmostStory;
     private Integer referenceStoryId;
@@ -157,11 +162,13 @@ public class StoryHierarchyAction extends ActionSupport {
     }
         
     public String retrieveProductRootStories() {
-        stories = storyHierarchyBusiness.retrieveProductRootStories(productId, storyFilters);
+        stories = new ArrayList<Story>(storyTreeBusiness
+                .retrieveProductStoryTree(productId, storyFilters, maxDepth));
         return Action.SUCCESS;
     }
     public String retrieveProjectRootStories() {
-        stories = storyHierarchyBusiness.retrieveProjectRootStories(projectId, storyFilters);
+        stories = new ArrayList<Story>(storyTreeBusiness
+                .retrieveProjectStoryTree(projectId, storyFilters, maxDepth));
         return Action.SUCCESS;
     }
 
@@ -197,6 +204,10 @@ public class StoryHierarchyAction extends ActionSupport {
             StoryHierarchyBusiness storyHierarchyBusiness) {
         this.storyHierarchyBusiness = storyHierarchyBusiness;
     }
+
+    public void setStoryTreeBusiness(StoryTreeBusiness storyTreeBusiness) {
+        this.storyTreeBusiness = storyTreeBusiness;
+    }
     
     public List<Story> getStories() {
         return stories;
@@ -210,6 +221,10 @@ public class StoryHierarchyAction extends ActionSupport {
         this.projectId = projectId;
     }
 
+    public void setMaxDepth(Integer maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
     public StoryFilters getStoryFilters() {
         return storyFilters;
     }
@@ -230,4 +245,4 @@ public class StoryHierarchyAction extends ActionSupport {
         return branchMetrics;
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
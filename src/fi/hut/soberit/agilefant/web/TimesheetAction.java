@@ -6,6 +6,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -14,7 +15,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.struts2.interceptor.ServletResponseAware;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
@@ -40,9 +45,11 @@ import flexjson.JSONSerializer;
  */
 @Component("timesheetAction")
 @Scope("prototype")
-public class TimesheetAction extends ActionSupport {
+public class TimesheetAction extends ActionSupport implements ServletResponseAware {
 
     private static final long serialVersionUID = -8988740967426943267L;
+
+    private Logger log = Logger.getLogger(TimesheetAction.class);
     
     @Autowired
     private TimesheetBusiness timesheetBusiness;
@@ -77,6 +84,8 @@ public class TimesheetAction extends ActionSupport {
     private long effortSum = 0;
     
     private ByteArrayOutputStream exportableReport;
+
+    private HttpServletResponse response;
    
     
     public Set<Integer> getSelectedBacklogs() {
@@ -89,6 +98,19 @@ public class TimesheetAction extends ActionSupport {
         }
         return new HashSet<Integer>();
     }
+
+    private void addStandAloneIterations(Set<Integer> selectedBacklogIds) {
+        if (selectedBacklogIds.contains(0))
+        {
+            // Standalone Iterations
+            selectedBacklogIds.remove(0);
+            Collection<Backlog> iters = backlogBusiness.retrieveAllStandAloneIterations();
+            for (Iterator<Backlog> i = iters.iterator();i.hasNext();){
+                selectedBacklogIds.add(i.next().getId());
+            }
+        }
+    }
+
     public String initialize() {
         this.interval = "TODAY";
         this.onlyOngoing = false;
@@ -101,15 +123,7 @@ public class TimesheetAction extends ActionSupport {
             addActionError("No backlogs selected.");
             return Action.ERROR;
         }        
-        if (selectedBacklogIds.contains(0))
-        {
-            // Standalone Iterations
-            selectedBacklogIds.remove(0);
-            Collection<Backlog> iters = backlogBusiness.retrieveAllStandAloneIterations();
-            for (Iterator<Backlog> i = iters.iterator();i.hasNext();){
-                selectedBacklogIds.add(i.next().getId());
-            }
-        }
+        this.addStandAloneIterations(selectedBacklogIds);
         products = timesheetBusiness.getRootNodes(selectedBacklogIds, startDate, endDate, this.userIds);
         effortSum = timesheetBusiness.getRootNodeSum(products);
         return Action.SUCCESS;
@@ -121,15 +135,7 @@ public class TimesheetAction extends ActionSupport {
             addActionError("No backlogs selected.");
             return Action.ERROR;
         }        
-        if (selectedBacklogIds.contains(0))
-        {
-            // Standalone Iterations
-            selectedBacklogIds.remove(0);
-            Collection<Backlog> iters = backlogBusiness.retrieveAllStandAloneIterations();
-            for (Iterator<Backlog> i = iters.iterator();i.hasNext();){
-                selectedBacklogIds.add(i.next().getId());
-            }
-        }
+        this.addStandAloneIterations(selectedBacklogIds);
         Workbook wb = this.timesheetExportBusiness.generateTimesheet(this, selectedBacklogIds, startDate, endDate, userIds);
         this.exportableReport = new ByteArrayOutputStream();
         try {
@@ -140,6 +146,49 @@ public class TimesheetAction extends ActionSupport {
         return Action.SUCCESS;
     }
 
+    /**
+     * Streams the timesheet to the response as an Excel 2007 workbook, which
+     * has no limit on the number of rows.
+     */
+    public String exportXlsx() {
+        return this.export("agilefantTimesheet.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    }
+
+    /**
+     * Streams the timesheet to the response as comma separated values.
+     */
+    public String exportCsv() {
+        return this.export("agilefantTimesheet.csv", "text/csv; charset=UTF-8");
+    }
+
+    private String export(String fileName, String contentType) {
+        Set<Integer> selectedBacklogIds = this.getSelectedBacklogs();
+        if(selectedBacklogIds == null || selectedBacklogIds.size() == 0) {
+            addActionError("No backlogs selected.");
+            return Action.ERROR;
+        }
+        this.addStandAloneIterations(selectedBacklogIds);
+        response.setContentType(contentType);
+        response.setHeader("Content-Disposition", "filename=\"" + fileName + "\"");
+        try {
+            OutputStream out = response.getOutputStream();
+            if (fileName.endsWith(".csv")) {
+                this.timesheetExportBusiness.writeTimesheetCsv(this, selectedBacklogIds, startDate, endDate, userIds, out);
+            } else {
+                this.timesheetExportBusiness.writeTimesheetXlsx(this, selectedBacklogIds, startDate, endDate, userIds, out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            log.error("Timesheet export failed", e);
+            if (!response.isCommitted()) {
+                response.reset();
+                return Action.ERROR;
+            }
+        }
+        return Action.NONE;
+    }
+
     public List<User> getSelectedUsers() {
         if(this.userIds == null) {
             return Collections.emptyList();
@@ -261,5 +310,9 @@ public class TimesheetAction extends ActionSupport {
     public void setExportableReport(ByteArrayOutputStream exportableReport) {
         this.exportableReport = exportableReport;
     }
+
+    public void setServletResponse(HttpServletResponse response) {
+        this.response = response;
+    }
     
 }
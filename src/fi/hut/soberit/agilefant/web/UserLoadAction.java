@@ -1,6 +1,13 @@
 package fi.hut.soberit.agilefant.web;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Set;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.struts2.interceptor.ServletResponseAware;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -9,14 +16,19 @@ import com.opensymphony.xwork2.Action;
 import com.opensymphony.xwork2.ActionSupport;
 
 import fi.hut.soberit.agilefant.business.PersonalLoadBusiness;
+import fi.hut.soberit.agilefant.business.TeamBusiness;
+import fi.hut.soberit.agilefant.business.TeamLoadBusiness;
 import fi.hut.soberit.agilefant.business.UserBusiness;
+import fi.hut.soberit.agilefant.model.Team;
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.transfer.ComputedLoadData;
 import fi.hut.soberit.agilefant.transfer.UserLoadLimits;
+import fi.hut.soberit.agilefant.transfer.UserLoadTO;
+import flexjson.JSONSerializer;
 
 @Component("userLoadAction")
 @Scope("prototype")
-public class UserLoadAction extends ActionSupport {
+public class UserLoadAction extends ActionSupport implements ServletResponseAware {
     private static final long serialVersionUID = -3387270060869450376L;
 
     public static final int DEFAULT_LOAD_INTERVAL_LENGTH = 5;
@@ -27,14 +39,26 @@ public class UserLoadAction extends ActionSupport {
     @Autowired
     private UserBusiness userBusiness;
     
+    @Autowired
+    private TeamLoadBusiness teamLoadBusiness;
+    
+    @Autowired
+    private TeamBusiness teamBusiness;
+    
     private int userId;
     
+    private Set<Integer> userIds = new HashSet<Integer>();
+    
+    private Integer teamId = null;
+    
     private ComputedLoadData userLoadData;
     
     private Integer loadIntervalLength = null;
     
     private UserLoadLimits loadLimits;
     
+    private HttpServletResponse response;
+    
     public String retrieveUserLoad() {
         if(loadIntervalLength == null) {
             loadIntervalLength = DEFAULT_LOAD_INTERVAL_LENGTH;
@@ -44,6 +68,53 @@ public class UserLoadAction extends ActionSupport {
         return Action.SUCCESS;
     }
 
+    /**
+     * Retrieve the load of the given users and the members of the given team.
+     * <p>
+     * The loads are written to the response as a JSON array, each one as soon
+     * as it has been calculated. The calculation is cancelled if the client
+     * has gone away.
+     */
+    public String retrieveTeamLoad() throws IOException {
+        if(loadIntervalLength == null) {
+            loadIntervalLength = DEFAULT_LOAD_INTERVAL_LENGTH;
+        }
+        Set<Integer> ids = new HashSet<Integer>(userIds);
+        if (teamId != null) {
+            Team team = teamBusiness.retrieve(teamId);
+            for (User user : team.getUsers()) {
+                ids.add(user.getId());
+            }
+        }
+        response.setContentType("application/json;charset=utf-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Pragma", "No-cache");
+        response.setDateHeader("Expires", 0);
+        final PrintWriter out = response.getWriter();
+        final JSONSerializer serializer = new JSONSerializer();
+        out.print('[');
+        teamLoadBusiness.retrieveUsersLoad(ids, loadIntervalLength,
+                new TeamLoadBusiness.UserLoadListener() {
+                    private boolean first = true;
+
+                    public void loadCompleted(UserLoadTO load) {
+                        if (!first) {
+                            out.print(',');
+                        }
+                        first = false;
+                        out.print(serializer.serialize(load));
+                        out.flush();
+                        if (out.checkError()) {
+                            throw new IllegalStateException(
+                                    "Writing the team load failed");
+                        }
+                    }
+                });
+        out.print(']');
+        out.flush();
+        return Action.NONE;
+    }
+
     public String dailyLoadLimits() {
         User user = userBusiness.retrieve(userId);
         loadLimits = personalLoadBusiness.getDailyLoadLimitsByUser(user);
@@ -66,10 +137,26 @@ public class UserLoadAction extends ActionSupport {
         this.userBusiness = userBusiness;
     }
 
+    public void setTeamLoadBusiness(TeamLoadBusiness teamLoadBusiness) {
+        this.teamLoadBusiness = teamLoadBusiness;
+    }
+
+    public void setTeamBusiness(TeamBusiness teamBusiness) {
+        this.teamBusiness = teamBusiness;
+    }
+
     public void setUserId(int userId) {
         this.userId = userId;
     }
 
+    public void setUserIds(Set<Integer> userIds) {
+        this.userIds = userIds;
+    }
+
+    public void setTeamId(Integer teamId) {
+        this.teamId = teamId;
+    }
+
     public UserLoadLimits getLoadLimits() {
         return loadLimits;
     }
@@ -77,4 +164,8 @@ public class UserLoadAction extends ActionSupport {
     public void setLoadIntervalLength(Integer loadIntervalLength) {
         this.loadIntervalLength = loadIntervalLength;
     }
+
+    public void setServletResponse(HttpServletResponse response) {
+        this.response = response;
+    }
 }
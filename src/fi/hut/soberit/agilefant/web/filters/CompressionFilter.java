@@ -0,0 +1,224 @@
+package fi.hut.soberit.agilefant.web.filters;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Compresses the responses to the clients, which accept gzip.
+ * <p>
+ * Static files, for which the build has generated a precompressed
+ * <code>.gz</code> variant, are served from that file. Other responses are
+ * compressed on the fly, unless their content type is already compressed,
+ * like the PNG charts.
+ */
+public class CompressionFilter implements Filter {
+
+    private static final Set<String> COMPRESSIBLE_TYPES = new HashSet<String>(
+            Arrays.asList("application/json", "application/javascript",
+                    "application/x-javascript", "application/xml",
+                    "application/xhtml+xml", "image/svg+xml"));
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * The most paths, whose precompressed variants are cached. The requested
+     * paths are not limited to the existing files, so the cache must be.
+     */
+    private static final int MAX_CACHED_PATHS = 10000;
+
+    private static final Precompressed NOT_PRECOMPRESSED = new Precompressed(
+            null, null);
+
+    private final ConcurrentMap<String, Precompressed> precompressed = new ConcurrentHashMap<String, Precompressed>();
+
+    private ServletContext servletContext;
+
+    public void init(FilterConfig filterConfig) throws ServletException {
+        servletContext = filterConfig.getServletContext();
+    }
+
+    public void doFilter(ServletRequest request, ServletResponse response,
+            FilterChain filterChain) throws IOException, ServletException {
+        HttpServletRequest httpReq = (HttpServletRequest) request;
+        HttpServletResponse httpResp = (HttpServletResponse) response;
+
+        if (!acceptsGzip(httpReq)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (servePrecompressed(httpReq, httpResp)) {
+            return;
+        }
+        GzipResponseWrapper wrapper = new GzipResponseWrapper(httpResp);
+        filterChain.doFilter(request, wrapper);
+        wrapper.finish();
+    }
+
+    /**
+     * Check whether a response of the content type should be compressed.
+     */
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ENGLISH);
+        int parameters = type.indexOf(';');
+        if (parameters >= 0) {
+            type = type.substring(0, parameters);
+        }
+        type = type.trim();
+        return type.startsWith("text/") || COMPRESSIBLE_TYPES.contains(type);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null
+                && acceptEncoding.toLowerCase(Locale.ENGLISH).contains("gzip");
+    }
+
+    /**
+     * Serve the precompressed variant of the requested file, if there is one,
+     * which is not older than the file itself.
+     *
+     * @return whether the response was served
+     */
+    private boolean servePrecompressed(HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (!"GET".equals(request.getMethod())
+                && !"HEAD".equals(request.getMethod())) {
+            return false;
+        }
+        String path = request.getServletPath();
+        if (request.getPathInfo() != null) {
+            path += request.getPathInfo();
+        }
+        if (path.endsWith(GZIP_SUFFIX)) {
+            return false;
+        }
+        Precompressed files = getPrecompressed(path);
+        if (files == null) {
+            return false;
+        }
+        long lastModified = files.compressed.lastModified();
+        if (lastModified == 0L
+                || lastModified < files.original.lastModified()) {
+            return false;
+        }
+        InputStream in;
+        try {
+            in = new FileInputStream(files.compressed);
+        } catch (FileNotFoundException e) {
+            precompressed.remove(path);
+            return false;
+        }
+        try {
+            writePrecompressed(request, response, path, files.compressed
+                    .length(), lastModified, in);
+        } finally {
+            in.close();
+        }
+        return true;
+    }
+
+    /**
+     * Find the files of the path and its precompressed variant. The result is
+     * cached, also when there is no variant, so that a request for a static
+     * file normally doesn't look up any resources.
+     *
+     * @return the files, or <code>null</code> if there is no variant
+     */
+    private Precompressed getPrecompressed(String path) {
+        Precompressed files = precompressed.get(path);
+        if (files == null) {
+            files = findPrecompressed(path);
+            if (precompressed.size() < MAX_CACHED_PATHS) {
+                precompressed.put(path, files);
+            }
+        }
+        return files == NOT_PRECOMPRESSED ? null : files;
+    }
+
+    /**
+     * The files are only found when the application is deployed as a
+     * directory. Otherwise the responses are compressed on the fly.
+     */
+    private Precompressed findPrecompressed(String path) {
+        String original = servletContext.getRealPath(path);
+        String compressed = servletContext.getRealPath(path + GZIP_SUFFIX);
+        if (original == null || compressed == null) {
+            return NOT_PRECOMPRESSED;
+        }
+        Precompressed files = new Precompressed(new File(original), new File(
+                compressed));
+        if (!files.original.isFile() || !files.compressed.isFile()) {
+            return NOT_PRECOMPRESSED;
+        }
+        return files;
+    }
+
+    private void writePrecompressed(HttpServletRequest request,
+            HttpServletResponse response, String path, long length,
+            long lastModified, InputStream in) throws IOException {
+        String etag = "W/\"" + length + "-" + lastModified + "-gzip\"";
+        response.addHeader("Vary", "Accept-Encoding");
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String mimeType = servletContext.getMimeType(path);
+        if (mimeType != null) {
+            response.setContentType(mimeType);
+        }
+        response.setHeader("Content-Encoding", "gzip");
+        response.setContentLength((int) length);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * A file and its precompressed variant.
+     */
+    private static class Precompressed {
+        private final File original;
+        private final File compressed;
+
+        Precompressed(File original, File compressed) {
+            this.original = original;
+            this.compressed = compressed;
+        }
+    }
+
+    public void destroy() {
+    }
+
+}
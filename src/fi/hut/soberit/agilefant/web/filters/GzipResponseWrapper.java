@@ -0,0 +1,323 @@
+package fi.hut.soberit.agilefant.web.filters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Compresses the response body with gzip, if the content type of the response
+ * is compressible.
+ * <p>
+ * The decision is made when the first byte of the body is written, as the
+ * content type is then known. The content length set by the wrapped code is
+ * held back until then, because it's not valid for the compressed body.
+ */
+public class GzipResponseWrapper extends HttpServletResponseWrapper {
+
+    private final HttpServletResponse response;
+
+    private GzipOutputStream outputStream;
+    private PrintWriter writer;
+
+    private int contentLength = -1;
+    private boolean encoded = false;
+
+    public GzipResponseWrapper(HttpServletResponse response) {
+        super(response);
+        this.response = response;
+        response.addHeader("Vary", "Accept-Encoding");
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new GzipOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            outputStream = new GzipOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream,
+                    getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        if (outputStream != null && outputStream.isDecided()) {
+            if (!outputStream.isCompressing()) {
+                super.setContentLength(length);
+            }
+        } else {
+            contentLength = length;
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLength(Integer.parseInt(value));
+            return;
+        }
+        checkContentEncoding(name);
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLength(Integer.parseInt(value));
+            return;
+        }
+        checkContentEncoding(name);
+        super.addHeader(name, value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLength(value);
+            return;
+        }
+        super.setIntHeader(name, value);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    /**
+     * The compressed part of the body written so far is discarded with the
+     * buffer, and the body is compressed again from its start.
+     */
+    @Override
+    public void resetBuffer() {
+        if (isCommitted()) {
+            throw new IllegalStateException("The response has already been committed");
+        }
+        if (outputStream != null) {
+            outputStream.discard(writer);
+        }
+        super.resetBuffer();
+        if (outputStream != null) {
+            try {
+                outputStream.restart();
+            } catch (IOException e) {
+                throw new IllegalStateException("Restarting the compression failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        if (outputStream != null && outputStream.isDecided()) {
+            throw new IllegalStateException("The response body has already been written");
+        }
+        super.reset();
+        response.addHeader("Vary", "Accept-Encoding");
+        outputStream = null;
+        writer = null;
+        contentLength = -1;
+        encoded = false;
+    }
+
+    /**
+     * Write the end of the compressed body.
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.finish();
+        } else if (contentLength >= 0) {
+            super.setContentLength(contentLength);
+        }
+    }
+
+    /**
+     * A body, which is already encoded by the wrapped code, is not compressed
+     * again.
+     */
+    private void checkContentEncoding(String name) {
+        if ("Content-Encoding".equalsIgnoreCase(name)) {
+            encoded = true;
+        }
+    }
+
+    private boolean shouldCompress() {
+        return !encoded && CompressionFilter.isCompressible(getContentType());
+    }
+
+    private class GzipOutputStream extends ServletOutputStream {
+
+        private ServletOutputStream original;
+        private FlushableGZIPOutputStream gzip;
+        private boolean discarding = false;
+
+        boolean isDecided() {
+            return original != null;
+        }
+
+        boolean isCompressing() {
+            return gzip != null;
+        }
+
+        private void decide() throws IOException {
+            if (original != null) {
+                return;
+            }
+            if (shouldCompress()) {
+                response.setHeader("Content-Encoding", "gzip");
+                original = response.getOutputStream();
+                gzip = new FlushableGZIPOutputStream(original);
+            } else {
+                if (contentLength >= 0) {
+                    response.setContentLength(contentLength);
+                }
+                original = response.getOutputStream();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (discarding) {
+                return;
+            }
+            decide();
+            if (gzip != null) {
+                gzip.write(b);
+            } else {
+                original.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0 || discarding) {
+                return;
+            }
+            decide();
+            if (gzip != null) {
+                gzip.write(b, off, len);
+            } else {
+                original.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (discarding) {
+                return;
+            }
+            if (gzip != null) {
+                gzip.flush();
+            } else if (original != null) {
+                original.flush();
+            }
+        }
+
+        void finish() throws IOException {
+            if (gzip != null) {
+                gzip.finish();
+            } else if (original == null && contentLength >= 0) {
+                response.setContentLength(contentLength);
+            }
+        }
+
+        /**
+         * Drop the characters the writer holds and the data the deflater
+         * holds.
+         */
+        void discard(PrintWriter writer) {
+            if (writer != null) {
+                discarding = true;
+                try {
+                    writer.flush();
+                } finally {
+                    discarding = false;
+                }
+            }
+            if (gzip != null) {
+                gzip.end();
+            }
+        }
+
+        /**
+         * Start a new gzip stream, after the buffer has been reset.
+         */
+        void restart() throws IOException {
+            if (gzip != null) {
+                gzip = new FlushableGZIPOutputStream(original);
+            }
+        }
+    }
+
+    /**
+     * The <code>flush</code> of <code>GZIPOutputStream</code> doesn't write
+     * the data the deflater holds before Java 7, which has no sync flush
+     * either. Changing the compression level makes the deflater write it:
+     * the data is first flushed as compressed, and then as an empty stored
+     * block, which ends at a byte boundary.
+     */
+    private static class FlushableGZIPOutputStream extends GZIPOutputStream {
+
+        private boolean hasData = false;
+
+        FlushableGZIPOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len)
+                throws IOException {
+            super.write(b, off, len);
+            if (len > 0) {
+                hasData = true;
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (hasData) {
+                def.setLevel(Deflater.NO_COMPRESSION);
+                deflate();
+                def.setLevel(Deflater.DEFAULT_COMPRESSION);
+                deflate();
+                hasData = false;
+            }
+            out.flush();
+        }
+
+        /**
+         * Release the deflater without writing the rest of the stream.
+         */
+        void end() {
+            def.end();
+        }
+    }
+}
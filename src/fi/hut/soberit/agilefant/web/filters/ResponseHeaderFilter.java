@@ -8,8 +8,16 @@ import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Sets the caching headers of the static files.
+ * <p>
+ * The pages refer to the static files with the release id as the query
+ * string, so a request with a query string gets a new URL with every release.
+ * Its response is cached as immutable, when caching is enabled.
+ */
 public class ResponseHeaderFilter implements Filter {
 
     private int expirationTime; 
@@ -21,9 +29,15 @@ public class ResponseHeaderFilter implements Filter {
     public void doFilter(ServletRequest request, ServletResponse response,
             FilterChain filterChain) throws IOException, ServletException {
         
+        HttpServletRequest httpReq = (HttpServletRequest)request;
         HttpServletResponse httpResp = (HttpServletResponse)response;
         
-        httpResp.addHeader("Cache-Control", "max-age=" + expirationTime);
+        if (expirationTime > 0 && httpReq.getQueryString() != null) {
+            httpResp.addHeader("Cache-Control", "public, max-age="
+                    + expirationTime + ", immutable");
+        } else {
+            httpResp.addHeader("Cache-Control", "max-age=" + expirationTime);
+        }
         
         filterChain.doFilter(request, response);
     }
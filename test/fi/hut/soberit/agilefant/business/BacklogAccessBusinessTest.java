@@ -0,0 +1,81 @@
+package fi.hut.soberit.agilefant.business;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fi.hut.soberit.agilefant.business.impl.BacklogAccessBusinessImpl;
+import fi.hut.soberit.agilefant.db.TeamDAO;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.AccessibleBacklogs;
+
+public class BacklogAccessBusinessTest {
+
+    private BacklogAccessBusinessImpl backlogAccessBusiness;
+    private TeamDAO teamDAO;
+    private User user;
+
+    @Before
+    public void setUp() {
+        backlogAccessBusiness = new BacklogAccessBusinessImpl();
+        teamDAO = createMock(TeamDAO.class);
+        backlogAccessBusiness.setTeamDAO(teamDAO);
+        user = new User();
+        user.setId(5);
+    }
+
+    private void expectRetrieve() {
+        expect(teamDAO.retrieveProductIdsByUser(5)).andReturn(Arrays.asList(3, 1));
+        expect(teamDAO.retrieveIterationIdsByUser(5)).andReturn(Arrays.asList(7));
+    }
+
+    @Test
+    public void testGetAccessibleBacklogs() {
+        expectRetrieve();
+        replay(teamDAO);
+        AccessibleBacklogs actual = backlogAccessBusiness.getAccessibleBacklogs(user);
+        assertSame(actual, backlogAccessBusiness.getAccessibleBacklogs(user));
+        verify(teamDAO);
+        assertEquals(Arrays.asList(1, 3), actual.getProductIds().toList());
+        assertEquals(Arrays.asList(7), actual.getIterationIds().toList());
+    }
+
+    @Test
+    public void testInvalidate() {
+        expectRetrieve();
+        expectRetrieve();
+        replay(teamDAO);
+        AccessibleBacklogs first = backlogAccessBusiness.getAccessibleBacklogs(user);
+        backlogAccessBusiness.invalidate();
+        assertNotSame(first, backlogAccessBusiness.getAccessibleBacklogs(user));
+        verify(teamDAO);
+    }
+
+    @Test
+    public void testInvalidate_clearedAfterCompletion() {
+        expectRetrieve();
+        expectRetrieve();
+        replay(teamDAO);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            backlogAccessBusiness.invalidate();
+            // Cached by a request running before the commit
+            AccessibleBacklogs beforeCommit = backlogAccessBusiness.getAccessibleBacklogs(user);
+            for (Object synchronization : TransactionSynchronizationManager
+                    .getSynchronizations()) {
+                ((TransactionSynchronization) synchronization)
+                        .afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            assertNotSame(beforeCommit, backlogAccessBusiness.getAccessibleBacklogs(user));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(teamDAO);
+    }
+}
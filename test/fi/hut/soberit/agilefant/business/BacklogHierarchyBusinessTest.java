@@ -0,0 +1,54 @@
+package fi.hut.soberit.agilefant.business;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.hut.soberit.agilefant.business.impl.BacklogHierarchyBusinessImpl;
+import fi.hut.soberit.agilefant.db.BacklogDAO;
+import fi.hut.soberit.agilefant.util.BacklogHierarchy;
+
+public class BacklogHierarchyBusinessTest {
+
+    private BacklogHierarchyBusinessImpl backlogHierarchyBusiness;
+    private BacklogDAO backlogDAO;
+
+    @Before
+    public void setUp() {
+        backlogHierarchyBusiness = new BacklogHierarchyBusinessImpl();
+        backlogDAO = createMock(BacklogDAO.class);
+        backlogHierarchyBusiness.setBacklogDAO(backlogDAO);
+    }
+
+    private BacklogHierarchy newHierarchy() {
+        return new BacklogHierarchy(new ArrayList<BacklogHierarchy.Node>());
+    }
+
+    @Test
+    public void testGetHierarchy() {
+        BacklogHierarchy hierarchy = newHierarchy();
+        expect(backlogDAO.retrieveHierarchy()).andReturn(hierarchy);
+        replay(backlogDAO);
+        assertSame(hierarchy, backlogHierarchyBusiness.getHierarchy());
+        assertSame(hierarchy, backlogHierarchyBusiness.getHierarchy());
+        verify(backlogDAO);
+    }
+
+    @Test
+    public void testInvalidate() {
+        BacklogHierarchy first = newHierarchy();
+        BacklogHierarchy second = newHierarchy();
+        expect(backlogDAO.retrieveHierarchy()).andReturn(first);
+        expect(backlogDAO.retrieveHierarchy()).andReturn(second);
+        replay(backlogDAO);
+        assertSame(first, backlogHierarchyBusiness.getHierarchy());
+        backlogHierarchyBusiness.invalidate();
+        assertSame(second, backlogHierarchyBusiness.getHierarchy());
+        assertSame(second, backlogHierarchyBusiness.getHierarchy());
+        verify(backlogDAO);
+    }
+}
@@ -30,6 +30,9 @@ public class HolidayBusinessTest extends MockedTestCase {
     @Mock(strict=true)
     private HolidayDAO holidayDAO;
     
+    @Mock
+    private UserBusiness userBusiness;
+    
     @Test
     @DirtiesContext
     public void testRetrieveFutureHolidaysByUser() {
@@ -42,4 +45,72 @@ public class HolidayBusinessTest extends MockedTestCase {
         assertEquals(holidays, holidayBusiness.retrieveFutureHolidaysByUser(user));
         verifyAll();
     }
+    
+    @Test
+    @DirtiesContext
+    public void testStore() {
+        User user = new User();
+        Holiday holiday = new Holiday();
+        holiday.setUser(user);
+        
+        expect(holidayDAO.retrieveStoredUser(0)).andReturn(user);
+        holidayDAO.store(holiday);
+        userBusiness.invalidateHolidays(user);
+        
+        replayAll();
+        holidayBusiness.store(holiday);
+        verifyAll();
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testStore_userChanged() {
+        User previous = new User();
+        previous.setId(4);
+        User user = new User();
+        user.setId(5);
+        Holiday holiday = new Holiday();
+        holiday.setId(10);
+        holiday.setUser(user);
+        
+        expect(holidayDAO.retrieveStoredUser(10)).andReturn(previous);
+        holidayDAO.store(holiday);
+        userBusiness.invalidateHolidays(user);
+        userBusiness.invalidateHolidays(previous);
+        
+        replayAll();
+        holidayBusiness.store(holiday);
+        verifyAll();
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testCreate() {
+        User user = new User();
+        Holiday holiday = new Holiday();
+        holiday.setUser(user);
+        
+        expect(holidayDAO.create(holiday)).andReturn(5);
+        userBusiness.invalidateHolidays(user);
+        
+        replayAll();
+        assertEquals(5, holidayBusiness.create(holiday));
+        verifyAll();
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testDelete() {
+        User user = new User();
+        Holiday holiday = new Holiday();
+        holiday.setUser(user);
+        
+        expect(holidayDAO.get(3)).andReturn(holiday);
+        userBusiness.invalidateHolidays(user);
+        holidayDAO.remove(3);
+        
+        replayAll();
+        holidayBusiness.delete(3);
+        verifyAll();
+    }
 }
@@ -8,19 +8,23 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.easymock.Capture;
 import org.easymock.classextension.EasyMock;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
 import org.junit.Before;
 import org.junit.Test;
 
 import fi.hut.soberit.agilefant.business.impl.HourEntryBusinessImpl;
 import fi.hut.soberit.agilefant.db.BacklogHourEntryDAO;
 import fi.hut.soberit.agilefant.db.HourEntryDAO;
+import fi.hut.soberit.agilefant.db.HourEntryDailySumDAO;
 import fi.hut.soberit.agilefant.exception.ObjectNotFoundException;
 import fi.hut.soberit.agilefant.model.BacklogHourEntry;
 import fi.hut.soberit.agilefant.model.HourEntry;
@@ -39,10 +43,12 @@ public class HourEntryBusinessTest {
     private HourEntryBusinessImpl hourEntryBusiness;
     private BacklogHourEntryDAO backlogHourEntryDAO;
     private HourEntryDAO hourEntryDAO;
+    private HourEntryDailySumDAO hourEntryDailySumDAO;
     private StoryBusiness storyBusiness;
     private UserBusiness userBusiness;
     private TaskBusiness taskBusiness;
     private BacklogBusiness backlogBusiness;
+    private IterationBurndownCacheBusiness iterationBurndownCacheBusiness;
     
     private Collection<User> targetUsers;
     private Set<Integer> targetUserIds;
@@ -72,8 +78,14 @@ public class HourEntryBusinessTest {
         backlogBusiness = createMock(BacklogBusiness.class);
         hourEntryBusiness.setBacklogBusiness(backlogBusiness);
         
+        iterationBurndownCacheBusiness = createMock(IterationBurndownCacheBusiness.class);
+        hourEntryBusiness.setIterationBurndownCacheBusiness(iterationBurndownCacheBusiness);
+        
         hourEntryBusiness.setHourEntryDAO(hourEntryDAO);
         hourEntryBusiness.setBacklogHourEntryDAO(backlogHourEntryDAO);
+        
+        hourEntryDailySumDAO = createMock(HourEntryDailySumDAO.class);
+        hourEntryBusiness.setHourEntryDailySumDAO(hourEntryDailySumDAO);
     }
     
     @Before
@@ -83,11 +95,11 @@ public class HourEntryBusinessTest {
     }
     
     private void replayAll() {
-        replay(hourEntryDAO, backlogHourEntryDAO, storyBusiness, taskBusiness, userBusiness, backlogBusiness);
+        replay(hourEntryDAO, backlogHourEntryDAO, storyBusiness, taskBusiness, userBusiness, backlogBusiness, iterationBurndownCacheBusiness, hourEntryDailySumDAO);
     }
     
     private void verifyAll() {
-        verify(hourEntryDAO, backlogHourEntryDAO, storyBusiness, taskBusiness, userBusiness, backlogBusiness);
+        verify(hourEntryDAO, backlogHourEntryDAO, storyBusiness, taskBusiness, userBusiness, backlogBusiness, iterationBurndownCacheBusiness, hourEntryDailySumDAO);
     }
     
     @Test
@@ -161,15 +173,36 @@ public class HourEntryBusinessTest {
     }
     
     @Test
-    public void calculateWeekSum() {
+    public void testGetDailySpentEffortByWeek_serverTimeZone() {
         DateTime start = new DateTime(2009,6,1,0,0,1,0);
-        DateTime end = new DateTime(2009,6,7,23,59,59,0);
+        int offsetMinutes = DateTimeZone.getDefault().getOffset(start) / 60000;
+        Map<LocalDate, Long> dailySums = new HashMap<LocalDate, Long>();
+        dailySums.put(new LocalDate(2009,6,2), 90L);
+
+        expect(hourEntryDailySumDAO.calculateDailySumsByUserAndInterval(0,
+                new LocalDate(2009,6,1), new LocalDate(2009,6,7))).andReturn(dailySums);
+
+        replayAll();
+        List<DailySpentEffort> res = hourEntryBusiness.getDailySpentEffortByWeek(
+                start.toLocalDate().plusDays(2), 0, offsetMinutes / 60, offsetMinutes % 60);
+        verifyAll();
+        assertEquals(7, res.size());
+        assertEquals(null, res.get(0).getSpentEffort());
+        assertEquals(90L, (long)res.get(1).getSpentEffort());
+        assertEquals(new DateTime(2009,6,2,0,0,0,0), res.get(1).getDay());
+        assertEquals(null, res.get(6).getSpentEffort());
+    }
+    
+    @Test
+    public void calculateWeekSum() {
+        LocalDate start = new LocalDate(2009,6,1);
+        LocalDate end = new LocalDate(2009,6,7);
         
-        expect(hourEntryDAO.calculateSumByUserAndTimeInterval(0, start, end)).andReturn(0L);
+        expect(hourEntryDailySumDAO.calculateSumByUserAndInterval(0, start, end)).andReturn(120L);
 
-        replay(hourEntryDAO);
-        assertEquals(0L, hourEntryBusiness.calculateWeekSum(start.plusDays(3).toLocalDate(), 0,5,0), 0);
-        verify(hourEntryDAO);
+        replay(hourEntryDailySumDAO);
+        assertEquals(120L, hourEntryBusiness.calculateWeekSum(start.plusDays(3), 0,5,0), 0);
+        verify(hourEntryDailySumDAO);
     }
     
     @Test
@@ -288,6 +321,7 @@ public class HourEntryBusinessTest {
 
         Capture<StoryHourEntry> storedEntry = new Capture<StoryHourEntry>();
         expect(hourEntryDAO.create(EasyMock.capture(storedEntry))).andReturn(1);
+        hourEntryDailySumDAO.add(isA(StoryHourEntry.class), eq(10L));
         
         replayAll();
         hourEntryBusiness.logStoryEffort(1, effortEntry, targetUserIds);
@@ -338,6 +372,7 @@ public class HourEntryBusinessTest {
 
         Capture<TaskHourEntry> storedEntry = new Capture<TaskHourEntry>();
         expect(hourEntryDAO.create(EasyMock.capture(storedEntry))).andReturn(1);
+        hourEntryDailySumDAO.add(isA(TaskHourEntry.class), eq(10L));
         
         replayAll();
         hourEntryBusiness.logTaskEffort(1, effortEntry, targetUserIds);
@@ -389,6 +424,8 @@ public class HourEntryBusinessTest {
 
         Capture<BacklogHourEntry> storedEntry = new Capture<BacklogHourEntry>();
         expect(hourEntryDAO.create(EasyMock.capture(storedEntry))).andReturn(1);
+        hourEntryDailySumDAO.add(isA(BacklogHourEntry.class), eq(10L));
+        iterationBurndownCacheBusiness.invalidate(parent.getId());
         
         replayAll();
         hourEntryBusiness.logBacklogEffort(1, effortEntry, targetUserIds);
@@ -479,6 +516,48 @@ public class HourEntryBusinessTest {
         verifyAll();
     }
     
+    @Test
+    public void testLogTaskEffort_invalidatesIterationBurndown() {
+        HourEntry effortEntry = new HourEntry();
+        effortEntry.setDate(new DateTime());
+        effortEntry.setMinutesSpent(10L);
+        
+        Iteration iteration = new Iteration();
+        iteration.setId(5);
+        Story story = new Story();
+        story.setIteration(iteration);
+        Task parent = new Task();
+        parent.setStory(story);
+        
+        expect(taskBusiness.retrieve(1)).andReturn(parent);
+        expect(userBusiness.retrieveMultiple(targetUserIds)).andReturn(targetUsers);
+        expect(hourEntryDAO.create(EasyMock.isA(TaskHourEntry.class))).andReturn(1);
+        hourEntryDailySumDAO.add(isA(TaskHourEntry.class), eq(10L));
+        iterationBurndownCacheBusiness.invalidate(5);
+        
+        replayAll();
+        hourEntryBusiness.logTaskEffort(1, effortEntry, targetUserIds);
+        verifyAll();
+    }
+    
+    @Test
+    public void testDelete_invalidatesIterationBurndown() {
+        Iteration iteration = new Iteration();
+        iteration.setId(5);
+        BacklogHourEntry hourEntry = new BacklogHourEntry();
+        hourEntry.setBacklog(iteration);
+        hourEntry.setMinutesSpent(30L);
+        
+        expect(hourEntryDAO.get(3)).andReturn(hourEntry);
+        iterationBurndownCacheBusiness.invalidate(5);
+        hourEntryDailySumDAO.add(hourEntry, -30L);
+        hourEntryDAO.remove(3);
+        
+        replayAll();
+        hourEntryBusiness.delete(3);
+        verifyAll();
+    }
+    
     @Test
     public void testDeleteAll() {
         List<HourEntry> hourEntries = new ArrayList<HourEntry>();
@@ -486,7 +565,9 @@ public class HourEntryBusinessTest {
         HourEntry hourEntry2 = new HourEntry();
         hourEntries.add(hourEntry1);
         hourEntries.add(hourEntry2);
+        hourEntryDailySumDAO.add(hourEntry1, 0L);
         hourEntryDAO.remove(hourEntry1);
+        hourEntryDailySumDAO.add(hourEntry2, 0L);
         hourEntryDAO.remove(hourEntry2);
         replayAll();
         hourEntryBusiness.deleteAll(hourEntries);
@@ -501,12 +582,17 @@ public class HourEntryBusinessTest {
         HourEntry hourEntry2 = new HourEntry();
         hourEntries.add(hourEntry1);
         hourEntries.add(hourEntry2);
+        hourEntryDailySumDAO.add(hourEntry1, 0L);
         hourEntryDAO.remove(hourEntry1);
+        hourEntryDailySumDAO.add(hourEntry2, 0L);
         hourEntryDAO.remove(hourEntry2);
         Capture<BacklogHourEntry> newHourEntry1 = new Capture<BacklogHourEntry>();
         Capture<BacklogHourEntry> newHourEntry2 = new Capture<BacklogHourEntry>();
         hourEntryDAO.store(EasyMock.capture(newHourEntry1));
         hourEntryDAO.store(EasyMock.capture(newHourEntry2));
+        hourEntryDailySumDAO.add(isA(BacklogHourEntry.class), eq(0L));
+        expectLastCall().times(2);
+        iterationBurndownCacheBusiness.invalidate(backlog.getId());
         replayAll();
         hourEntryBusiness.moveToBacklog(hourEntries, backlog);
         assertSame(backlog, newHourEntry1.getValue().getBacklog());
@@ -526,9 +612,12 @@ public class HourEntryBusinessTest {
         hourEntry1.setDescription("Description");
         hourEntry1.setUser(user);
         hourEntries.add(hourEntry1);
+        hourEntryDailySumDAO.add(hourEntry1, -100L);
         hourEntryDAO.remove(hourEntry1);
         Capture<BacklogHourEntry> newHourEntry1 = new Capture<BacklogHourEntry>();
         hourEntryDAO.store(EasyMock.capture(newHourEntry1));
+        hourEntryDailySumDAO.add(isA(BacklogHourEntry.class), eq(100L));
+        iterationBurndownCacheBusiness.invalidate(backlog.getId());
         replayAll();
         hourEntryBusiness.moveToBacklog(hourEntries, backlog);
         assertEquals(100L, newHourEntry1.getValue().getMinutesSpent());
@@ -538,4 +627,49 @@ public class HourEntryBusinessTest {
         verifyAll();
     }
 
+    @Test
+    public void testStore_movesDailySum() {
+        Iteration iteration = new Iteration();
+        iteration.setId(5);
+        BacklogHourEntry storedEntry = new BacklogHourEntry();
+        storedEntry.setBacklog(iteration);
+        storedEntry.setMinutesSpent(30L);
+        BacklogHourEntry hourEntry = new BacklogHourEntry();
+        hourEntry.setBacklog(iteration);
+        hourEntry.setMinutesSpent(45L);
+
+        expect(hourEntryDAO.retrieveStoredCopy(hourEntry)).andReturn(storedEntry);
+        hourEntryDAO.store(hourEntry);
+        hourEntryDailySumDAO.add(storedEntry, -30L);
+        hourEntryDailySumDAO.add(hourEntry, 45L);
+        iterationBurndownCacheBusiness.invalidate(5);
+        expectLastCall().times(2);
+
+        replayAll();
+        hourEntryBusiness.store(hourEntry);
+        verifyAll();
+    }
+
+    @Test
+    public void testStore_newEntry() {
+        StoryHourEntry hourEntry = new StoryHourEntry();
+        hourEntry.setMinutesSpent(45L);
+
+        expect(hourEntryDAO.retrieveStoredCopy(hourEntry)).andReturn(null);
+        hourEntryDAO.store(hourEntry);
+        hourEntryDailySumDAO.add(hourEntry, 45L);
+
+        replayAll();
+        hourEntryBusiness.store(hourEntry);
+        verifyAll();
+    }
+
+    @Test
+    public void testRebuildDailySums() {
+        expect(hourEntryDailySumDAO.rebuild()).andReturn(12);
+        replayAll();
+        assertEquals(12, hourEntryBusiness.rebuildDailySums());
+        verifyAll();
+    }
+
 }
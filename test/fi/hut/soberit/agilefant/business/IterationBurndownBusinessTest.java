@@ -5,7 +5,9 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
@@ -23,9 +25,11 @@ import org.junit.Test;
 
 import fi.hut.soberit.agilefant.business.impl.IterationBurndownBusinessImpl;
 import fi.hut.soberit.agilefant.model.ExactEstimate;
-import fi.hut.soberit.agilefant.model.HourEntry;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.IterationHistoryEntry;
+import fi.hut.soberit.agilefant.transfer.ChartData;
+import fi.hut.soberit.agilefant.transfer.ChartImage;
+import fi.hut.soberit.agilefant.transfer.ChartSeries;
 import fi.hut.soberit.agilefant.transfer.DailySpentEffort;
 import fi.hut.soberit.agilefant.util.ExactEstimateUtils;
 import fi.hut.soberit.agilefant.util.Pair;
@@ -45,6 +49,7 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
     HourEntryBusiness hourEntryBusiness;
     IterationBusiness iterationBusiness;
     SettingBusiness settingBusiness;
+    IterationBurndownCacheBusiness iterationBurndownCacheBusiness;
     
     Iteration iteration;
     DateTime startDate;
@@ -54,7 +59,7 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
     JFreeChart chart;
     
     List<DailySpentEffort> dailySpentEffortList;
-    List<HourEntry> hourEntryList;
+    Map<LocalDate, Long> dailySpentEffortSums;
     
     IterationHistoryEntry entry1;
     IterationHistoryEntry entry2;
@@ -82,6 +87,10 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         iterationBurndownBusiness.setSettingBusiness(settingBusiness);
         super.setSettingBusiness(settingBusiness);
         
+        iterationBurndownCacheBusiness = createMock(IterationBurndownCacheBusiness.class);
+        iterationBurndownBusiness.setIterationBurndownCacheBusiness(iterationBurndownCacheBusiness);
+        super.setIterationBurndownCacheBusiness(iterationBurndownCacheBusiness);
+        
         startDate = new DateTime(2009,1,1,0,0,0,0);
         endDate = new DateTime(2009,1,10,0,0,0,0);
         iteration = new Iteration();
@@ -112,11 +121,46 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         entriesList = Arrays.asList(entry1, entry2);
         
         dailySpentEffortList = new ArrayList<DailySpentEffort>();
-        hourEntryList = new ArrayList<HourEntry>();
+        dailySpentEffortSums = new HashMap<LocalDate, Long>();
         
         
     }
     
+    private void expectBurndownVersion() {
+        expect(iterationHistoryEntryBusiness.retrieveLatest(iteration)).andReturn(entry);
+        expect(hourEntryBusiness.calculateSumOfIterationsHourEntries(iteration)).andReturn(0L);
+        expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
+        expect(settingBusiness.isWeekendsInBurndown()).andReturn(true);
+    }
+    
+    @Test
+    public void testGetIterationBurndownImage_cached() {
+        ChartImage cached = new ChartImage(new byte[10], "version", new DateTime());
+        expectBurndownVersion();
+        expect(iterationBurndownCacheBusiness.retrieve(eq(123), eq("780x600:0"), isA(String.class))).andReturn(cached);
+        replay(iterationHistoryEntryBusiness, iterationBusiness, hourEntryBusiness, settingBusiness, iterationBurndownCacheBusiness);
+        
+        assertSame(cached, iterationBurndownBusiness.getIterationBurndownImage(iteration, null, null, false, 0));
+        
+        verify(iterationHistoryEntryBusiness, iterationBusiness, hourEntryBusiness, settingBusiness, iterationBurndownCacheBusiness);
+    }
+    
+    @Test
+    public void testGetIterationBurndownVersion_changesWithSpentEffort() {
+        expectBurndownVersion();
+        expect(iterationHistoryEntryBusiness.retrieveLatest(iteration)).andReturn(entry);
+        expect(hourEntryBusiness.calculateSumOfIterationsHourEntries(iteration)).andReturn(30L);
+        expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
+        expect(settingBusiness.isWeekendsInBurndown()).andReturn(true);
+        replay(iterationHistoryEntryBusiness, hourEntryBusiness, settingBusiness);
+        
+        String first = iterationBurndownBusiness.getIterationBurndownVersion(iteration);
+        String second = iterationBurndownBusiness.getIterationBurndownVersion(iteration);
+        assertFalse(first.equals(second));
+        
+        verify(iterationHistoryEntryBusiness, hourEntryBusiness, settingBusiness);
+    }
+    
     @Test
     public void testGetIterationBurndown() {
         expect(iterationHistoryEntryBusiness.getHistoryEntriesForIteration(iteration)).andReturn(Arrays.asList(entry));
@@ -125,15 +169,18 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         expect(iterationBusiness.calculateDailyVelocity(isA(LocalDate.class), isA(IterationHistoryEntry.class))).andReturn(ExactEstimate.ZERO);
         
         expect(hourEntryBusiness.getDailySpentEffortByIteration(iteration)).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getHourEntriesForIteration(iteration)).andReturn(hourEntryList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortSumsForIteration(iteration)).andReturn(dailySpentEffortSums);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
         
         expect(settingBusiness.isWeekendsInBurndown()).andReturn(true);
         expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
         expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
-        replay(iterationHistoryEntryBusiness, iterationBusiness, hourEntryBusiness, settingBusiness);
+        expectBurndownVersion();
+        expect(iterationBurndownCacheBusiness.retrieve(eq(123), isA(String.class), isA(String.class))).andReturn(null);
+        iterationBurndownCacheBusiness.store(eq(123), isA(String.class), isA(ChartImage.class));
+        replay(iterationHistoryEntryBusiness, iterationBusiness, hourEntryBusiness, settingBusiness, iterationBurndownCacheBusiness);
         
         assertNotNull(iterationBurndownBusiness.getIterationBurndown(iteration, 0));
         
@@ -148,15 +195,18 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         
         expect(iterationBusiness.calculateDailyVelocity(isA(LocalDate.class), isA(IterationHistoryEntry.class))).andReturn(ExactEstimate.ZERO);
         
-        expect(hourEntryBusiness.getHourEntriesForIteration(iteration)).andReturn(hourEntryList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortSumsForIteration(iteration)).andReturn(dailySpentEffortSums);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
         
         expect(settingBusiness.isWeekendsInBurndown()).andReturn(true);
         expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
         expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
-        replay(iterationHistoryEntryBusiness, iterationBusiness, hourEntryBusiness, settingBusiness);
+        expectBurndownVersion();
+        expect(iterationBurndownCacheBusiness.retrieve(eq(123), isA(String.class), isA(String.class))).andReturn(null);
+        iterationBurndownCacheBusiness.store(eq(123), isA(String.class), isA(ChartImage.class));
+        replay(iterationHistoryEntryBusiness, iterationBusiness, hourEntryBusiness, settingBusiness, iterationBurndownCacheBusiness);
 
         assertNotNull(iterationBurndownBusiness.getSmallIterationBurndown(iteration, 0));
 
@@ -171,15 +221,18 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         
         expect(iterationBusiness.calculateDailyVelocity(isA(LocalDate.class), isA(IterationHistoryEntry.class))).andReturn(ExactEstimate.ZERO);
         
-        expect(hourEntryBusiness.getHourEntriesForIteration(iteration)).andReturn(hourEntryList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortSumsForIteration(iteration)).andReturn(dailySpentEffortSums);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
         
         expect(settingBusiness.isWeekendsInBurndown()).andReturn(true);
         expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
         expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
-        replay(iterationHistoryEntryBusiness, iterationBusiness, hourEntryBusiness, settingBusiness);
+        expectBurndownVersion();
+        expect(iterationBurndownCacheBusiness.retrieve(eq(123), isA(String.class), isA(String.class))).andReturn(null);
+        iterationBurndownCacheBusiness.store(eq(123), isA(String.class), isA(ChartImage.class));
+        replay(iterationHistoryEntryBusiness, iterationBusiness, hourEntryBusiness, settingBusiness, iterationBurndownCacheBusiness);
         
         assertNotNull(iterationBurndownBusiness.getCustomIterationBurndown(iteration, 1024, 768, 0));
         
@@ -194,10 +247,10 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         
         expect(iterationBusiness.calculateDailyVelocity(isA(LocalDate.class), isA(IterationHistoryEntry.class))).andReturn(ExactEstimate.ZERO);
         
-        expect(hourEntryBusiness.getHourEntriesForIteration(iteration)).andReturn(hourEntryList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortSumsForIteration(iteration)).andReturn(dailySpentEffortSums);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
         
         expect(settingBusiness.isWeekendsInBurndown()).andReturn(true);
         expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
@@ -231,10 +284,10 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         
         expect(iterationBusiness.calculateDailyVelocity(isA(LocalDate.class), isA(IterationHistoryEntry.class))).andReturn(ExactEstimate.ZERO);
         
-        expect(hourEntryBusiness.getHourEntriesForIteration(iteration)).andReturn(hourEntryList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortSumsForIteration(iteration)).andReturn(dailySpentEffortSums);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
         
         expect(settingBusiness.isWeekendsInBurndown()).andReturn(true);
         expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
@@ -364,17 +417,17 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         
         expect(iterationBusiness.calculateDailyVelocity(isA(LocalDate.class), isA(IterationHistoryEntry.class))).andReturn(ExactEstimate.ZERO);
         
-        expect(hourEntryBusiness.getHourEntriesForIteration(iteration)).andReturn(hourEntryList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
-        expect(hourEntryBusiness.getDailySpentEffortForHourEntries(hourEntryList, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortSumsForIteration(iteration)).andReturn(dailySpentEffortSums);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
         
         expect(settingBusiness.isWeekendsInBurndown()).andReturn(true);
         expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
         
         replay(iterationHistoryEntryBusiness, iterationBusiness, hourEntryBusiness, settingBusiness);
         
-        TimeSeriesCollection actualTimeSeries = super.getDataset(iteration);
+        TimeSeriesCollection actualTimeSeries = super.getDataset(iteration, 0);
         assertNotNull(actualTimeSeries.getSeries(REFERENCE_SERIES_NAME));
         assertNotNull(actualTimeSeries.getSeries(EFFORT_LEFT_SERIES_NAME));
         assertNotNull(actualTimeSeries.getSeries(CURRENT_DAY_EFFORT_LEFT_SERIES_NAME));
@@ -384,6 +437,54 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         verify(iterationHistoryEntryBusiness, iterationBusiness);
     }
     
+    @Test
+    public void testGetIterationBurndownData() {
+        iteration.setName("Iteration");
+        expect(iterationHistoryEntryBusiness.getHistoryEntriesForIteration(iteration)).andReturn(Arrays.asList(entry));
+        expect(iterationHistoryEntryBusiness.calculateExpectedEffortDoneDate(isA(LocalDate.class), isA(ExactEstimate.class), isA(ExactEstimate.class))).andReturn(null);
+        
+        expect(iterationBusiness.calculateDailyVelocity(isA(LocalDate.class), isA(IterationHistoryEntry.class))).andReturn(ExactEstimate.ZERO);
+        
+        expect(hourEntryBusiness.getDailySpentEffortSumsForIteration(iteration)).andReturn(dailySpentEffortSums);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), iteration.getEndDate().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate().minusDays(1), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        expect(hourEntryBusiness.getDailySpentEffortForDays(dailySpentEffortSums, iteration.getStartDate(), new DateTime().toDateMidnight().toDateTime().plusDays(1))).andReturn(dailySpentEffortList);
+        
+        expect(settingBusiness.isWeekendsInBurndown()).andReturn(true);
+        expect(settingBusiness.isHourReportingEnabled()).andReturn(true);
+        
+        replay(iterationHistoryEntryBusiness, iterationBusiness, hourEntryBusiness, settingBusiness);
+        
+        ChartData data = super.getIterationBurndownData(iteration, 0);
+        assertEquals("'Iteration' burndown", data.getTitle());
+        assertEquals(startDate.getMillis(), data.getStartDate());
+        assertEquals(endDate.getMillis(), data.getEndDate());
+        
+        ChartSeries effortLeft = data.getSeries().get(EFFORT_LEFT_SERIES_NO);
+        assertEquals("effortLeft", effortLeft.getId());
+        assertEquals(EFFORT_LEFT_SERIES_NAME, effortLeft.getName());
+        assertEquals(effortLeft.getTimestamps().length, effortLeft.getValues().length);
+        
+        ChartSeries reference = data.getSeries().get(REFERENCE_SERIES_NO);
+        assertEquals("referenceVelocity", reference.getId());
+        assertEquals(reference.getTimestamps().length, reference.getValues().length);
+        assertEquals(startDate.getMillis(), reference.getTimestamps()[0]);
+        
+        verify(iterationHistoryEntryBusiness, iterationBusiness);
+    }
+    
+    @Test
+    public void testChartSeries_keepsGaps() {
+        TimeSeries series = new TimeSeries(SCOPING_SERIES_NAME);
+        series.add(new Second(startDate.toDate()), 1.5);
+        series.add(new Second(startDate.plusSeconds(1).toDate()), null);
+        
+        ChartSeries actual = ChartSeries.fromTimeSeries("scoping", series);
+        assertEquals(Double.valueOf(1.5), actual.getValues()[0]);
+        assertNull(actual.getValues()[1]);
+        assertEquals(startDate.plusSeconds(1).getMillis(), actual.getTimestamps()[1]);
+    }
+    
     @Test
     public void testDetermineEndDate_currentDateBeforeEndDate() {
         assertEquals(new LocalDate(), super.determineEndDate(new LocalDate().plusDays(3)));
@@ -515,7 +616,7 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         
         replay(settingBusiness);
         TimeSeries actualSeries
-            = super.getReferenceVelocityTimeSeries(startDate, endDate, originalEstimateSum);
+            = super.getReferenceVelocityTimeSeries(startDate, endDate, originalEstimateSum, 0);
         verify(settingBusiness);
         
         assertEquals("Reference series name incorrect",
@@ -544,7 +645,7 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         
         replay(settingBusiness);
         TimeSeries actualSeries
-            = super.getReferenceVelocityTimeSeries(startDate, endDate, originalEstimateSum);
+            = super.getReferenceVelocityTimeSeries(startDate, endDate, originalEstimateSum, 0);
         verify(settingBusiness);
         
         assertEquals("Reference series name incorrect",
@@ -566,7 +667,7 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         replay(iterationHistoryEntryBusiness);
         
         TimeSeries actualSeries = super.getBurndownTimeSeries(entriesList,
-                startDate.toLocalDate(), endDate.toLocalDate());
+                startDate.toLocalDate(), endDate.toLocalDate(), 0);
         
         Second startInstant = new Second(startDate.plusDays(1).toDateMidnight().toDate());
         Second secondInstant = new Second(startDate.plusDays(2).toDateMidnight().toDate());
@@ -605,14 +706,14 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         List<IterationHistoryEntry> entries = Arrays.asList(firstEntry, secondEntry, thirdEntry);
         
         TimeSeries actualSeries = super.getBurndownTimeSeries(entries,
-                startTime.toLocalDate(), startTime.toLocalDate().plusDays(5));
+                startTime.toLocalDate(), startTime.toLocalDate().plusDays(5), 0);
         
         assertEquals(10, actualSeries.getItemCount());
     }
     
     @Test
     public void testGetBurndownDataItemForDay() {
-        TimeSeriesDataItem actualItem = super.getBurndownDataItemForDay(entry1);
+        TimeSeriesDataItem actualItem = super.getBurndownDataItemForDay(entry1, 0);
         
         assertEquals(ExactEstimateUtils.extractMajorUnits(
                 new ExactEstimate(entry1.getEffortLeftSum())),
@@ -630,7 +731,7 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         DateTime expectedTimestamp = new DateTime(2008, 4, 3, 0, 0, 2, 0);
         
         Pair<TimeSeriesDataItem, TimeSeriesDataItem> scopedEntries
-            = getBurndownScopedDataItemForDay(startEntry, endEntry);
+            = getBurndownScopedDataItemForDay(startEntry, endEntry, 0);
         TimeSeriesDataItem nullEntry = scopedEntries.getFirst();
         TimeSeriesDataItem actualEntry = scopedEntries.getSecond();
         ExactEstimate estimatedValue = new ExactEstimate(128 + 150);
@@ -661,7 +762,7 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
                 startEntry.getEffortLeftSum() + endEntry.getDeltaOriginalEstimate());
         ExactEstimate expectedEndvalue = new ExactEstimate(endEntry.getEffortLeftSum());
         
-        TimeSeries actualSeries = super.getCurrentDayEffortLeftSeries(startEntry, endEntry);
+        TimeSeries actualSeries = super.getCurrentDayEffortLeftSeries(startEntry, endEntry, 0);
         testSeriesStartAndEndCorrect(actualSeries, expectedStartValue, expectedEndvalue);
         
         assertEquals(CURRENT_DAY_EFFORT_LEFT_SERIES_NAME, actualSeries.getKey());
@@ -689,7 +790,7 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         List<IterationHistoryEntry> entries = Arrays.asList(firstEntry, secondEntry, thirdEntry);
         
         TimeSeries actualSeries = super.getScopingTimeSeries(entries,
-                startDate.toLocalDate(), startTime.plusDays(5).toLocalDate());
+                startDate.toLocalDate(), startTime.plusDays(5).toLocalDate(), 0);
         
         assertEquals(SCOPING_SERIES_NAME, actualSeries.getKey());
         assertEquals(6, actualSeries.getItemCount());
@@ -719,7 +820,7 @@ public class IterationBurndownBusinessTest extends IterationBurndownBusinessImpl
         DateTime expectedTimestamp = new DateTime(2008, 4, 3, 0, 0, 0, 0);
         
         List<TimeSeriesDataItem> actualItems
-            = super.getScopeSeriesDataItems(startEntry, endEntry);
+            = super.getScopeSeriesDataItems(startEntry, endEntry, 0);
         
         TimeSeriesDataItem firstItem = actualItems.get(0);
         TimeSeriesDataItem secondItem = actualItems.get(1);
@@ -0,0 +1,52 @@
+package fi.hut.soberit.agilefant.business;
+
+import static org.junit.Assert.*;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.hut.soberit.agilefant.business.impl.IterationBurndownCacheBusinessImpl;
+import fi.hut.soberit.agilefant.transfer.ChartImage;
+
+public class IterationBurndownCacheBusinessTest {
+
+    private IterationBurndownCacheBusinessImpl iterationBurndownCacheBusiness;
+    private ChartImage image;
+
+    @Before
+    public void setUp() {
+        iterationBurndownCacheBusiness = new IterationBurndownCacheBusinessImpl();
+        image = new ChartImage(new byte[10], "version", new DateTime());
+    }
+
+    @Test
+    public void testRetrieve_notCached() {
+        assertNull(iterationBurndownCacheBusiness.retrieve(1, "780x600:0", "version"));
+    }
+
+    @Test
+    public void testRetrieve() {
+        iterationBurndownCacheBusiness.store(1, "780x600:0", image);
+        assertSame(image, iterationBurndownCacheBusiness.retrieve(1, "780x600:0", "version"));
+        assertNull(iterationBurndownCacheBusiness.retrieve(1, "small:110x85:0", "version"));
+        assertNull(iterationBurndownCacheBusiness.retrieve(2, "780x600:0", "version"));
+    }
+
+    @Test
+    public void testRetrieve_otherVersion() {
+        iterationBurndownCacheBusiness.store(1, "780x600:0", image);
+        assertNull(iterationBurndownCacheBusiness.retrieve(1, "780x600:0", "newVersion"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        iterationBurndownCacheBusiness.store(1, "780x600:0", image);
+        iterationBurndownCacheBusiness.store(1, "small:110x85:0", image);
+        iterationBurndownCacheBusiness.store(2, "780x600:0", image);
+        iterationBurndownCacheBusiness.invalidate(1);
+        assertNull(iterationBurndownCacheBusiness.retrieve(1, "780x600:0", "version"));
+        assertNull(iterationBurndownCacheBusiness.retrieve(1, "small:110x85:0", "version"));
+        assertSame(image, iterationBurndownCacheBusiness.retrieve(2, "780x600:0", "version"));
+    }
+}
@@ -7,11 +7,13 @@ import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +37,7 @@ import fi.hut.soberit.agilefant.db.IterationDAO;
 import fi.hut.soberit.agilefant.db.IterationHistoryEntryDAO;
 import fi.hut.soberit.agilefant.db.history.BacklogHistoryDAO;
 import fi.hut.soberit.agilefant.db.history.StoryHistoryDAO;
+import fi.hut.soberit.agilefant.db.history.TaskHistoryDAO;
 import fi.hut.soberit.agilefant.exception.ObjectNotFoundException;
 import fi.hut.soberit.agilefant.model.AgilefantRevisionEntity;
 import fi.hut.soberit.agilefant.model.Assignment;
@@ -42,6 +45,7 @@ import fi.hut.soberit.agilefant.model.BacklogHourEntry;
 import fi.hut.soberit.agilefant.model.ExactEstimate;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.IterationHistoryEntry;
+import fi.hut.soberit.agilefant.model.NamedObject;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.Task;
@@ -51,11 +55,14 @@ import fi.hut.soberit.agilefant.test.MockContextLoader;
 import fi.hut.soberit.agilefant.test.MockedTestCase;
 import fi.hut.soberit.agilefant.test.TestedBean;
 import fi.hut.soberit.agilefant.transfer.AgilefantHistoryEntry;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedPage;
 import fi.hut.soberit.agilefant.transfer.IterationMetrics;
 import fi.hut.soberit.agilefant.transfer.IterationTO;
 import fi.hut.soberit.agilefant.transfer.StoryTO;
 import fi.hut.soberit.agilefant.transfer.TaskTO;
 import fi.hut.soberit.agilefant.util.HourEntryHandlingChoice;
+import fi.hut.soberit.agilefant.util.IterationMetricsData;
 import fi.hut.soberit.agilefant.util.Pair;
 import fi.hut.soberit.agilefant.util.StoryMetrics;
 
@@ -91,6 +98,12 @@ public class IterationBusinessTest  extends MockedTestCase {
     StoryHistoryDAO storyHistoryDAO;
     @Mock
     BacklogHistoryDAO backlogHistoryDAO;
+    @Mock
+    TaskHistoryDAO taskHistoryDAO;
+    @Mock
+    BacklogHierarchyBusiness backlogHierarchyBusiness;
+    @Mock
+    ReadonlyTokenBusiness readonlyTokenBusiness;
     
     Iteration iteration;
     Project project;
@@ -140,7 +153,7 @@ public class IterationBusinessTest  extends MockedTestCase {
         stories.addAll(iteration.getStories());
         IterationTO iterationTO = new IterationTO(iteration);
         
-        expect(iterationDAO.retrieveDeep(iteration.getId())).andReturn(iteration);
+        expect(iterationDAO.retrieveWithContents(iteration.getId())).andReturn(iteration);
         expect(transferObjectBusiness.constructIterationTO(iteration)).andReturn(iterationTO);
         expect(storyBusiness.retrieveStoriesInIteration(iteration)).andReturn(stories);
         Map<Integer, StoryMetrics> emptyMetricsMap = Collections.emptyMap();
@@ -167,7 +180,7 @@ public class IterationBusinessTest  extends MockedTestCase {
         invalidRank.setId(999);
         rankedStories.add(invalidRank);
         
-        expect(iterationDAO.retrieveDeep(iteration.getId())).andReturn(iteration);
+        expect(iterationDAO.retrieveWithContents(iteration.getId())).andReturn(iteration);
         expect(transferObjectBusiness.constructIterationTO(iteration)).andReturn(iterationTO);
         expect(storyBusiness.retrieveStoriesInIteration(iteration)).andReturn(stories);
 
@@ -186,12 +199,22 @@ public class IterationBusinessTest  extends MockedTestCase {
     @Test(expected = ObjectNotFoundException.class)
     @DirtiesContext
     public void testGetIterationContents_nullBacklog() {
-        expect(iterationDAO.retrieveDeep(0)).andReturn(null);
+        expect(iterationDAO.retrieveWithContents(0)).andReturn(null);
         replay(iterationDAO);
         assertNull(iterationBusiness.getIterationContents(0));
         verify(iterationDAO);
     }
 
+    private void expectIterationMetricsData(Iteration iter,
+            IterationMetricsData data) {
+        Map<Integer, IterationMetricsData> result = new HashMap<Integer, IterationMetricsData>();
+        result.put(iter.getId(), data);
+        expect(
+                iterationDAO.calculateIterationMetricsData(Collections
+                        .singleton(iter.getId()), new LocalDate().minusDays(1)))
+                .andReturn(result);
+    }
+
     @Test
     @DirtiesContext
     public void testGetIterationMetrics() {
@@ -199,14 +222,6 @@ public class IterationBusinessTest  extends MockedTestCase {
         latestEntry.setEffortLeftSum(112);
         latestEntry.setOriginalEstimateSum(257);
 
-        BacklogHourEntry he1 = new BacklogHourEntry();
-        BacklogHourEntry he2 = new BacklogHourEntry();
-        he1.setMinutesSpent(39);
-        he2.setMinutesSpent(88);
-
-        List<BacklogHourEntry> hourEntries = new ArrayList<BacklogHourEntry>();
-        hourEntries.addAll(Arrays.asList(he1, he2));
-
         int expectedStoryPoints = 68;
         long expectedSpentEffort = 127;
         Integer expectedPercentDoneTasks = 50;
@@ -214,22 +229,16 @@ public class IterationBusinessTest  extends MockedTestCase {
         int expectedTaskCompletion = 56;
         int expectedStoryCompletion = 15;
 
-        expect(iterationHistoryEntryBusiness.retrieveLatest(iteration))
-                .andReturn(latestEntry).times(2);
-        expect(backlogBusiness.getStoryPointSumByIteration(iteration)).andReturn(
-                expectedStoryPoints);
-        expect(backlogBusiness.calculateDoneStoryPointSum(iteration.getId())).andReturn(10);
-        expect(hourEntryBusiness.calculateSumOfIterationsHourEntries(iteration))
-                .andReturn(expectedSpentEffort);
-        expect(iterationDAO.getCountOfDoneAndNonDeferred(iteration)).andReturn(
-                Pair.create(2, 4));
-        expect(iterationDAO.getCountOfDoneAndAllStories(iteration)).andReturn(
-                Pair.create(1, 2));
-        expect(
-                iterationHistoryEntryDAO.retrieveByDate(iteration.getId(),
-                        new LocalDate().minusDays(1))).andReturn(null).times(2);
-        expect(backlogBusiness.getStoryValueSumByIteration(iteration)).andReturn(0);
-        expect(backlogBusiness.getCompletedStoryValueSumByIteration(iteration)).andReturn(0);
+        IterationMetricsData data = new IterationMetricsData();
+        data.setLatestHistoryEntry(latestEntry);
+        data.setStoryPoints(expectedStoryPoints);
+        data.setDoneStoryPoints(10);
+        data.setSpentEffort(expectedSpentEffort);
+        data.setCompletedTasks(2);
+        data.setTotalTasks(4);
+        data.setCompletedStories(1);
+        data.setTotalStories(2);
+        expectIterationMetricsData(iteration, data);
 
         replayAll();
 
@@ -259,22 +268,7 @@ public class IterationBusinessTest  extends MockedTestCase {
     @Test
     @DirtiesContext
     public void testGetIterationMetricsZeroTotals() {
-        expect(iterationHistoryEntryBusiness.retrieveLatest(iteration))
-                .andReturn(null).times(2);
-        expect(iterationDAO.getCountOfDoneAndNonDeferred(iteration)).andReturn(
-                Pair.create(0, 0));
-        expect(iterationDAO.getCountOfDoneAndAllStories(iteration)).andReturn(
-                Pair.create(0, 0));
-
-        expect(backlogBusiness.getStoryPointSumByIteration(iteration)).andReturn(0);
-        expect(backlogBusiness.calculateDoneStoryPointSum(iteration.getId())).andReturn(0);
-        expect(hourEntryBusiness.calculateSumOfIterationsHourEntries(iteration))
-                .andReturn(0L);
-        expect(
-                iterationHistoryEntryDAO.retrieveByDate(iteration.getId(),
-                        new LocalDate().minusDays(1))).andReturn(null).times(1);
-        expect(backlogBusiness.getStoryValueSumByIteration(iteration)).andReturn(0);
-        expect(backlogBusiness.getCompletedStoryValueSumByIteration(iteration)).andReturn(0);
+        expectIterationMetricsData(iteration, new IterationMetricsData());
 
         replayAll();
 
@@ -290,22 +284,12 @@ public class IterationBusinessTest  extends MockedTestCase {
     @Test
     @DirtiesContext
     public void testGetIterationMetrics_nullLatestHistoryEntry() {
-        expect(iterationHistoryEntryBusiness.retrieveLatest(iteration))
-                .andReturn(null).times(2);
-        expect(iterationDAO.getCountOfDoneAndNonDeferred(iteration)).andReturn(
-                Pair.create(2, 4));
-        expect(iterationDAO.getCountOfDoneAndAllStories(iteration)).andReturn(
-                Pair.create(1, 3));
-        expect(
-                iterationHistoryEntryDAO.retrieveByDate(iteration.getId(),
-                        new LocalDate().minusDays(1))).andReturn(null).times(1);
-
-        expect(backlogBusiness.getStoryPointSumByIteration(iteration)).andReturn(0);
-        expect(backlogBusiness.calculateDoneStoryPointSum(iteration.getId())).andReturn(0);
-        expect(hourEntryBusiness.calculateSumOfIterationsHourEntries(iteration))
-                .andReturn(0L);
-        expect(backlogBusiness.getStoryValueSumByIteration(iteration)).andReturn(0);
-        expect(backlogBusiness.getCompletedStoryValueSumByIteration(iteration)).andReturn(0);
+        IterationMetricsData data = new IterationMetricsData();
+        data.setCompletedTasks(2);
+        data.setTotalTasks(4);
+        data.setCompletedStories(1);
+        data.setTotalStories(3);
+        expectIterationMetricsData(iteration, data);
 
         replayAll();
 
@@ -331,23 +315,18 @@ public class IterationBusinessTest  extends MockedTestCase {
         latestHistoryEntry.setOriginalEstimateSum(10);
         latestHistoryEntry.setEffortLeftSum(10);
 
-        expect(iterationHistoryEntryBusiness.retrieveLatest(iter)).andReturn(
-                latestHistoryEntry).times(2);
+        IterationMetricsData data = new IterationMetricsData();
+        data.setLatestHistoryEntry(latestHistoryEntry);
+        data.setStoryPoints(10);
+        data.setDoneStoryPoints(5);
+        data.setSpentEffort(10);
+        data.setCompletedTasks(2);
+        data.setTotalTasks(4);
+        data.setCompletedStories(1);
+        data.setTotalStories(2);
+        expectIterationMetricsData(iter, data);
 
         expect(backlogBusiness.daysLeftInSchedulableBacklog(iter)).andReturn(Days.days(100));
-        expect(backlogBusiness.getStoryPointSumByIteration(iter)).andReturn(10);
-        expect(backlogBusiness.calculateDoneStoryPointSum(iter.getId())).andReturn(5);
-        expect(hourEntryBusiness.calculateSumOfIterationsHourEntries(iter))
-                .andReturn((long) 10);
-        expect(iterationDAO.getCountOfDoneAndNonDeferred(iter)).andReturn(
-                Pair.create(2, 4));
-        expect(iterationDAO.getCountOfDoneAndAllStories(iter)).andReturn(
-                Pair.create(1, 2));
-        expect(
-                iterationHistoryEntryDAO.retrieveByDate(100, new LocalDate()
-                        .minusDays(1))).andReturn(null).times(2);
-        expect(backlogBusiness.getStoryValueSumByIteration(iter)).andReturn(0);
-        expect(backlogBusiness.getCompletedStoryValueSumByIteration(iter)).andReturn(0);
         replayAll();
         IterationMetrics iterRow = iterationBusiness.getIterationMetrics(iter);
         assertEquals(100, iterRow.getDaysLeft());
@@ -356,6 +335,44 @@ public class IterationBusinessTest  extends MockedTestCase {
         assertEquals(5, iterRow.getDoneStoryPoints().intValue());
         verifyAll();
     }
+
+    @Test
+    @DirtiesContext
+    public void testGetIterationMetrics_multipleIterations() {
+        Iteration other = new Iteration();
+        other.setId(124);
+        other.setStartDate(new DateTime().minusDays(10));
+        other.setEndDate(new DateTime().minusDays(1));
+
+        IterationHistoryEntry yesterdayEntry = new IterationHistoryEntry();
+        yesterdayEntry.setOriginalEstimateSum(100);
+        yesterdayEntry.setEffortLeftSum(40);
+
+        IterationMetricsData data = new IterationMetricsData();
+        data.setTotalStories(4);
+        IterationMetricsData otherData = new IterationMetricsData();
+        otherData.setLatestHistoryEntry(yesterdayEntry);
+        otherData.setYesterdayHistoryEntry(yesterdayEntry);
+
+        Map<Integer, IterationMetricsData> result = new HashMap<Integer, IterationMetricsData>();
+        result.put(iteration.getId(), data);
+        result.put(other.getId(), otherData);
+        expect(
+                iterationDAO.calculateIterationMetricsData(new HashSet<Integer>(
+                        Arrays.asList(iteration.getId(), other.getId())),
+                        new LocalDate().minusDays(1))).andReturn(result);
+        expect(backlogBusiness.daysLeftInSchedulableBacklog(other)).andReturn(Days.days(0));
+        replayAll();
+
+        Map<Integer, IterationMetrics> metrics = iterationBusiness
+                .getIterationMetricsForIterations(Arrays.asList(iteration, other));
+        assertEquals(2, metrics.size());
+        assertEquals(4, metrics.get(iteration.getId()).getTotalStories().intValue());
+        assertEquals(0L, metrics.get(iteration.getId()).getDailyVelocity().longValue());
+        assertEquals(40, metrics.get(other.getId()).getEffortLeft().intValue());
+        assertEquals(6L, metrics.get(other.getId()).getDailyVelocity().longValue());
+        verifyAll();
+    }
     
 
     @Test(expected = IllegalArgumentException.class)
@@ -384,6 +401,8 @@ public class IterationBusinessTest  extends MockedTestCase {
         expect(transferObjectBusiness.constructIterationTO(EasyMock.isA(Iteration.class)))
             .andReturn(new IterationTO(iter));
 
+        backlogHierarchyBusiness.invalidate();
+
         replayAll();
 
         Iteration actual = this.iterationBusiness.store(10, 11, iter, null, null);
@@ -456,6 +475,8 @@ public class IterationBusinessTest  extends MockedTestCase {
         expect(transferObjectBusiness.constructIterationTO(iteration))
                 .andReturn(new IterationTO(iteration));
         
+        backlogHierarchyBusiness.invalidate();
+        
         replayAll();
         
         this.iterationBusiness.store(0, 11, iter, new HashSet<Integer>(Arrays.asList(1)), null);
@@ -479,6 +500,7 @@ public class IterationBusinessTest  extends MockedTestCase {
         expect(iterationDAO.get(16)).andReturn(iteration);
         expect(transferObjectBusiness.constructIterationTO(iteration))
             .andReturn(new IterationTO(iteration));
+        backlogHierarchyBusiness.invalidate();
         replayAll();
         this.iterationBusiness.store(0, 11, iter, null, null);
         verifyAll();
@@ -490,8 +512,10 @@ public class IterationBusinessTest  extends MockedTestCase {
         newParent.setId(911);
         iteration.setParent(project);
         iterationDAO.store(iteration);
+        hourEntryBusiness.updateBacklogPath(iteration);
         backlogHistoryEntryBusiness.updateHistory(911);
         backlogHistoryEntryBusiness.updateHistory(313);
+        backlogHierarchyBusiness.invalidate();
         replayAll();
         this.iterationBusiness.moveTo(iteration, newParent);
         verifyAll();
@@ -601,6 +625,9 @@ public class IterationBusinessTest  extends MockedTestCase {
         
         iterationDAO.remove(iter);
         
+        backlogHierarchyBusiness.invalidate();
+        readonlyTokenBusiness.invalidate();
+        
         replayAll();
         iterationBusiness.delete(iter.getId());
         verifyAll();
@@ -621,39 +648,107 @@ public class IterationBusinessTest  extends MockedTestCase {
         hourEntryBusiness.deleteAll(iteration.getHourEntries());
         iterationDAO.remove(iteration);
         backlogHistoryEntryBusiness.updateHistory(project.getId());
+        backlogHierarchyBusiness.invalidate();
+        readonlyTokenBusiness.invalidate();
         replayAll();
         iterationBusiness.deleteAndUpdateHistory(111);
         verifyAll();
     }
     
+    private AgilefantHistoryEntry createStoryEntry(int storyId, int revisionId, long timestamp) {
+        Story story = new Story();
+        story.setId(storyId);
+        return createHistoryEntry(story, revisionId, timestamp);
+    }
+    
+    private AgilefantHistoryEntry createTaskEntry(int taskId, int revisionId, long timestamp) {
+        Task task = new Task();
+        task.setId(taskId);
+        return createHistoryEntry(task, revisionId, timestamp);
+    }
+    
+    private AgilefantHistoryEntry createHistoryEntry(NamedObject object, int revisionId, long timestamp) {
+        AgilefantRevisionEntity rev = new AgilefantRevisionEntity();
+        rev.setId(revisionId);
+        rev.setTimestamp(timestamp);
+        return new AgilefantHistoryEntry(object, rev, RevisionType.MOD);
+    }
+    
     @Test
     @DirtiesContext
-    public void testRetrieveChangesInIterationStories() {
-        AgilefantRevisionEntity revDeleted = new AgilefantRevisionEntity();
-        revDeleted.setId(1200);
-        revDeleted.setTimestamp(200);
-        AgilefantHistoryEntry deleted = new AgilefantHistoryEntry(200, RevisionType.DEL, revDeleted);
+    public void testRetrieveHistoryPage() {
+        AgilefantHistoryEntry story1 = createStoryEntry(1, 10, 1000);
+        AgilefantHistoryEntry story2 = createStoryEntry(2, 5, 500);
+        AgilefantHistoryEntry task7 = createTaskEntry(7, 10, 1000);
+        AgilefantHistoryEntry task8 = createTaskEntry(8, 3, 300);
+        Story storyRevision = new Story();
+        storyRevision.setName("Story 1");
+        Map<Pair<Integer, Integer>, Story> closest = new HashMap<Pair<Integer, Integer>, Story>();
+        closest.put(Pair.create(1, 10), storyRevision);
         
-        AgilefantRevisionEntity revAdded = new AgilefantRevisionEntity();
-        revAdded.setTimestamp(10000);
-        AgilefantHistoryEntry added = new AgilefantHistoryEntry(new Story(), revAdded, RevisionType.ADD);
+        expect(backlogHistoryDAO.retrieveStoryChanges(iteration, null, 3)).andReturn(Arrays.asList(story1, story2));
+        expect(taskHistoryDAO.retrieveTaskChanges(iteration, null, 3)).andReturn(Arrays.asList(task7, task8));
+        expect(storyHistoryDAO.retrieveClosestRevisions(Arrays.asList(Pair.create(1, 10)))).andReturn(closest);
         
-        AgilefantRevisionEntity revModified = new AgilefantRevisionEntity();
-        revModified.setId(2400);
-        revModified.setTimestamp(20000);
-        AgilefantHistoryEntry modified = new AgilefantHistoryEntry(20000, RevisionType.MOD, revModified);
+        replayAll();
+        HistoryFeedPage actual = this.iterationBusiness.retrieveHistoryPage(iteration, null, 2);
+        verifyAll();
         
-        expect(backlogHistoryDAO.retrieveAddedStories(iteration)).andReturn(Arrays.asList(added));
-        expect(backlogHistoryDAO.retrieveDeletedStories(iteration)).andReturn(Arrays.asList(deleted));
-        expect(backlogHistoryDAO.retrieveModifiedStories(iteration)).andReturn(Arrays.asList(modified));
-        expect(storyHistoryDAO.retrieveClosestRevision(200, 1200)).andReturn(null);
-        expect(storyHistoryDAO.retrieveClosestRevision(20000, 2400)).andReturn(null);
+        assertEquals(2, actual.getEntries().size());
+        assertSame(story1, actual.getEntries().get(0));
+        assertSame(storyRevision, story1.getObject());
+        assertSame(task7, actual.getEntries().get(1));
+        assertEquals(new HistoryFeedCursor(1000, 10, HistoryFeedCursor.TASK, 7), actual.getNext());
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testRetrieveHistoryPage_lastPage() {
+        HistoryFeedCursor after = new HistoryFeedCursor(1000, 10, HistoryFeedCursor.TASK, 7);
+        AgilefantHistoryEntry story2 = createStoryEntry(2, 5, 500);
+        AgilefantHistoryEntry task8 = createTaskEntry(8, 3, 300);
+        
+        expect(backlogHistoryDAO.retrieveStoryChanges(iteration, after, 3)).andReturn(Arrays.asList(story2));
+        expect(taskHistoryDAO.retrieveTaskChanges(iteration, after, 3)).andReturn(Arrays.asList(task8));
+        expect(storyHistoryDAO.retrieveClosestRevisions(Arrays.asList(Pair.create(2, 5))))
+            .andReturn(new HashMap<Pair<Integer, Integer>, Story>());
         
         replayAll();
-        List<AgilefantHistoryEntry> actual = this.iterationBusiness.retrieveChangesInIterationStories(iteration);
+        HistoryFeedPage actual = this.iterationBusiness.retrieveHistoryPage(iteration, after, 2);
+        verifyAll();
+        
+        assertEquals(Arrays.asList(story2, task8), actual.getEntries());
+        assertNull(actual.getNext());
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testRetreiveIterationByReadonlyToken() {
+        iteration.setReadonlyToken("12345");
+        expect(readonlyTokenBusiness.retrieveIterationId("12345")).andReturn(123);
+        expect(iterationDAO.get(123)).andReturn(iteration);
+        replayAll();
+        assertSame(iteration, iterationBusiness.retreiveIterationByReadonlyToken("12345"));
+        verifyAll();
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testRetreiveIterationByReadonlyToken_invalidToken() {
+        expect(readonlyTokenBusiness.retrieveIterationId("12345")).andReturn(null);
+        replayAll();
+        assertNull(iterationBusiness.retreiveIterationByReadonlyToken("12345"));
+        verifyAll();
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testRetreiveIterationByReadonlyToken_revokedToken() {
+        iteration.setReadonlyToken(null);
+        expect(readonlyTokenBusiness.retrieveIterationId("12345")).andReturn(123);
+        expect(iterationDAO.get(123)).andReturn(iteration);
+        replayAll();
+        assertNull(iterationBusiness.retreiveIterationByReadonlyToken("12345"));
         verifyAll();
-        assertEquals(modified, actual.get(0));
-        assertEquals(added, actual.get(1));
-        assertEquals(deleted, actual.get(2));
     }
 }
@@ -3,10 +3,18 @@ package fi.hut.soberit.agilefant.business;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
 import org.easymock.Capture;
 import org.joda.time.LocalDate;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import fi.hut.soberit.agilefant.business.impl.IterationHistoryEntryBusinessImpl;
 import fi.hut.soberit.agilefant.db.IterationDAO;
@@ -25,6 +33,8 @@ public class IterationHistoryEntryBusinessTest {
     
     private IterationDAO iterationDAO;
     
+    private IterationBurndownCacheBusiness iterationBurndownCacheBusiness;
+    
     Iteration iteration;
     IterationHistoryEntry latestEntry;
     
@@ -35,6 +45,8 @@ public class IterationHistoryEntryBusinessTest {
         this.iterationDAO = createMock(IterationDAO.class);
         iterationHistoryEntryBusiness.setIterationDAO(iterationDAO);
         iterationHistoryEntryBusiness.setIterationHistoryEntryDAO(iterationHistoryEntryDAO);
+        this.iterationBurndownCacheBusiness = createMock(IterationBurndownCacheBusiness.class);
+        iterationHistoryEntryBusiness.setIterationBurndownCacheBusiness(iterationBurndownCacheBusiness);
         
         iteration = new Iteration();
         iteration.setId(1);
@@ -82,7 +94,8 @@ public class IterationHistoryEntryBusinessTest {
         expect(iterationHistoryEntryDAO.calculateCurrentHistoryData(1)).andReturn(sums);
         Capture<IterationHistoryEntry> capturedEntry = new Capture<IterationHistoryEntry>();
         iterationHistoryEntryDAO.store(capture(capturedEntry));
-        replay(iterationDAO, iterationHistoryEntryDAO);
+        iterationBurndownCacheBusiness.invalidate(1);
+        replay(iterationDAO, iterationHistoryEntryDAO, iterationBurndownCacheBusiness);
         
         iterationHistoryEntryBusiness.updateIterationHistory(1);
         IterationHistoryEntry entry = capturedEntry.getValue();
@@ -93,7 +106,55 @@ public class IterationHistoryEntryBusinessTest {
         assertNotNull(entry.getTimestamp());
         assertEquals(iteration, entry.getIteration());
        
-        verify(iterationDAO, iterationHistoryEntryDAO);
+        verify(iterationDAO, iterationHistoryEntryDAO, iterationBurndownCacheBusiness);
+    }
+    
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(iterationHistoryEntryBusiness);
+    }
+    
+    @Test
+    public void testUpdateIterationHistory_inTransaction() {
+        Iteration other = new Iteration();
+        other.setId(2);
+        Map<Integer, Pair<ExactEstimate, ExactEstimate>> sums = new HashMap<Integer, Pair<ExactEstimate, ExactEstimate>>();
+        sums.put(1, Pair.create(new ExactEstimate(10), new ExactEstimate(20)));
+        sums.put(2, Pair.create(new ExactEstimate(30), new ExactEstimate(40)));
+        
+        TransactionSynchronizationManager.initSynchronization();
+        replay(iterationDAO, iterationHistoryEntryDAO, iterationBurndownCacheBusiness);
+        iterationHistoryEntryBusiness.updateIterationHistory(1);
+        iterationHistoryEntryBusiness.updateIterationHistory(2);
+        iterationHistoryEntryBusiness.updateIterationHistory(1);
+        verify(iterationDAO, iterationHistoryEntryDAO, iterationBurndownCacheBusiness);
+        
+        reset(iterationDAO, iterationHistoryEntryDAO, iterationBurndownCacheBusiness);
+        expect(iterationHistoryEntryDAO.calculateCurrentHistoryData(new HashSet<Integer>(Arrays.asList(1, 2)))).andReturn(sums);
+        expect(iterationDAO.get(1)).andReturn(iteration);
+        expect(iterationHistoryEntryDAO.retrieveLatest(1)).andReturn(latestEntry);
+        iterationHistoryEntryDAO.store(latestEntry);
+        iterationBurndownCacheBusiness.invalidate(1);
+        expect(iterationDAO.get(2)).andReturn(other);
+        expect(iterationHistoryEntryDAO.retrieveLatest(2)).andReturn(null);
+        Capture<IterationHistoryEntry> capturedEntry = new Capture<IterationHistoryEntry>();
+        iterationHistoryEntryDAO.store(capture(capturedEntry));
+        iterationBurndownCacheBusiness.invalidate(2);
+        replay(iterationDAO, iterationHistoryEntryDAO, iterationBurndownCacheBusiness);
+        
+        for (Object synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            ((TransactionSynchronization) synchronization).beforeCommit(false);
+        }
+        verify(iterationDAO, iterationHistoryEntryDAO, iterationBurndownCacheBusiness);
+        
+        assertEquals(10L, latestEntry.getEffortLeftSum());
+        assertEquals(20L, latestEntry.getOriginalEstimateSum());
+        assertEquals(other, capturedEntry.getValue().getIteration());
+        assertEquals(30L, capturedEntry.getValue().getEffortLeftSum());
+        assertEquals(40L, capturedEntry.getValue().getOriginalEstimateSum());
     }
     
     @Test
@@ -105,7 +166,8 @@ public class IterationHistoryEntryBusinessTest {
         expect(iterationHistoryEntryDAO.calculateCurrentHistoryData(1)).andReturn(sums);
         Capture<IterationHistoryEntry> capturedEntry = new Capture<IterationHistoryEntry>();
         iterationHistoryEntryDAO.store(capture(capturedEntry));
-        replay(iterationDAO, iterationHistoryEntryDAO);
+        iterationBurndownCacheBusiness.invalidate(1);
+        replay(iterationDAO, iterationHistoryEntryDAO, iterationBurndownCacheBusiness);
         
         iterationHistoryEntryBusiness.updateIterationHistory(1);
         IterationHistoryEntry entry = capturedEntry.getValue();
@@ -117,7 +179,7 @@ public class IterationHistoryEntryBusinessTest {
         assertEquals(iteration, entry.getIteration());
         
        
-        verify(iterationDAO, iterationHistoryEntryDAO);
+        verify(iterationDAO, iterationHistoryEntryDAO, iterationBurndownCacheBusiness);
     }
     
     @Test
@@ -7,8 +7,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.easymock.Capture;
 import org.easymock.EasyMock;
@@ -78,5 +83,49 @@ public class LabelBusinessTest extends MockedTestCase {
         assertTrue(addee.getLabels().contains(l1));        
         
     }
+    
+    @Test
+    @DirtiesContext
+    public void testCreateStoryLabels_multipleStories() {
+        User user = new User();
+        
+        this.clearLoggedInUser();
+        this.setCurrentUser(user);
+        
+        Story story1 = new Story();
+        story1.setId(1);
+        Story story2 = new Story();
+        story2.setId(2);
+        List<Story> stories = Arrays.asList(story1, story2);
+        
+        Map<Integer, Set<String>> existing = new HashMap<Integer, Set<String>>();
+        existing.put(2, new HashSet<String>(Arrays.asList("foo")));
+        expect(labelDAO.getLabelNamesByStory(new HashSet<Integer>(Arrays.asList(1, 2))))
+            .andReturn(existing);
+        Capture<Collection<Label>> capt = new Capture<Collection<Label>>();
+        labelDAO.createLabels(EasyMock.capture(capt));
+        
+        replayAll();
+        Map<Integer, List<String>> actual = labelBusiness.createStoryLabels(
+                Arrays.asList("Foo", "Bar", "foo"), stories);
+        verifyAll();
+        
+        assertEquals(Arrays.asList("Foo", "Bar"), actual.get(1));
+        assertEquals(Arrays.asList("Bar"), actual.get(2));
+        assertEquals(3, capt.getValue().size());
+        for (Label label : capt.getValue()) {
+            assertEquals(user, label.getCreator());
+            assertTrue(stories.contains(label.getStory()));
+            assertEquals(label.getDisplayName().toLowerCase(), label.getName());
+        }
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testCreateStoryLabels_noLabels() {
+        replayAll();
+        assertTrue(labelBusiness.createStoryLabels(null, Arrays.asList(new Story())).isEmpty());
+        verifyAll();
+    }
 
 }
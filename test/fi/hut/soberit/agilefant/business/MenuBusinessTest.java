@@ -2,17 +2,13 @@ package fi.hut.soberit.agilefant.business;
 
 import static org.easymock.EasyMock.createStrictMock;
 import static org.easymock.EasyMock.expect;
-import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.joda.time.DateTime;
 import org.junit.Before;
@@ -22,24 +18,25 @@ import fi.hut.soberit.agilefant.business.impl.MenuBusinessImpl;
 import fi.hut.soberit.agilefant.db.IterationDAO;
 import fi.hut.soberit.agilefant.db.ProjectDAO;
 import fi.hut.soberit.agilefant.db.StoryDAO;
-import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Iteration;
-import fi.hut.soberit.agilefant.model.Product;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Story;
-import fi.hut.soberit.agilefant.model.Team;
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.security.SecurityUtil;
+import fi.hut.soberit.agilefant.transfer.BacklogType;
 import fi.hut.soberit.agilefant.transfer.MenuDataNode;
 import fi.hut.soberit.agilefant.transfer.ScheduleStatus;
+import fi.hut.soberit.agilefant.util.AccessibleBacklogs;
+import fi.hut.soberit.agilefant.util.BacklogHierarchy;
+import fi.hut.soberit.agilefant.util.IntSet;
 
 public class MenuBusinessTest {
 
     MenuBusinessImpl menuBusiness;
     
-    ProductBusiness productBusiness;
+    BacklogAccessBusiness backlogAccessBusiness;
     
-    IterationBusiness iterationBusiness;
+    BacklogHierarchyBusiness backlogHierarchyBusiness;
     
     ProjectDAO projectDAO;
     
@@ -47,22 +44,17 @@ public class MenuBusinessTest {
     
     StoryDAO storyDAO;
     
-    TransferObjectBusiness transferObjectBusiness;
-    
-    Set<Product> products;
+    BacklogHierarchy hierarchy;
     
     @Before
     public void setUp_dependencies() {
         menuBusiness = new MenuBusinessImpl();
         
-        productBusiness = createStrictMock(ProductBusiness.class);
-        menuBusiness.setProductBusiness(productBusiness);
-        
-        transferObjectBusiness = createStrictMock(TransferObjectBusiness.class);
-        menuBusiness.setTransferObjectBusiness(transferObjectBusiness);
+        backlogAccessBusiness = createStrictMock(BacklogAccessBusiness.class);
+        menuBusiness.setBacklogAccessBusiness(backlogAccessBusiness);
         
-        iterationBusiness = createStrictMock(IterationBusiness.class);
-        menuBusiness.setIterationBusiness(iterationBusiness);
+        backlogHierarchyBusiness = createStrictMock(BacklogHierarchyBusiness.class);
+        menuBusiness.setBacklogHierarchyBusiness(backlogHierarchyBusiness);
         
         iterationDAO = createStrictMock(IterationDAO.class);
         menuBusiness.setIterationDAO(iterationDAO);
@@ -76,50 +68,39 @@ public class MenuBusinessTest {
 
     @Before
     public void setUp_dataset() {
-        products = new HashSet<Product>();
-        Product prod1 = new Product();
-        prod1.setName("zzz");
-        prod1.setId(2);
-        products.add(prod1);
-        Product prod2 = new Product();
-        prod2.setName("aaa");
-        products.add(prod2);
-        prod2.setId(1);
-        
-        Project proj1 = new Project();
-        proj1.setStartDate(new DateTime(2009,1,1,0,0,0,0));
-        proj1.setId(3);
-        Project proj2 = new Project();
-        proj2.setStartDate(new DateTime(2009,10,1,0,0,0,0));
-        proj2.setId(5);
-        Project proj3 = new Project();
-        proj3.setStartDate(new DateTime(2009,6,1,0,0,0,0));
-        proj3.setId(4);
+        List<BacklogHierarchy.Node> nodes = new ArrayList<BacklogHierarchy.Node>();
+        nodes.add(new BacklogHierarchy.Node(2, BacklogType.PRODUCT, "zzz", null, null, 0));
+        nodes.add(new BacklogHierarchy.Node(1, BacklogType.PRODUCT, "aaa", null, null, 0));
+        nodes.add(new BacklogHierarchy.Node(9, BacklogType.PRODUCT, "bbb", null, null, 0));
         
-        prod1.getChildren().add(proj1);
-        prod1.getChildren().add(proj2);
-        prod1.getChildren().add(proj3);
+        nodes.add(new BacklogHierarchy.Node(3, BacklogType.PROJECT, "proj1",
+                new DateTime(2009,1,1,0,0,0,0), new DateTime(2009,12,31,0,0,0,0), 2));
+        nodes.add(new BacklogHierarchy.Node(5, BacklogType.PROJECT, "proj2",
+                new DateTime(2009,10,1,0,0,0,0), new DateTime(2009,12,31,0,0,0,0), 2));
+        nodes.add(new BacklogHierarchy.Node(4, BacklogType.PROJECT, "proj3",
+                new DateTime(2009,6,1,0,0,0,0), new DateTime(2009,12,31,0,0,0,0), 2));
         
-        Iteration iter1 = new Iteration();
-        iter1.setStartDate(new DateTime(2009,12,1,0,0,0,0));
-        iter1.setId(8);
-        Iteration iter2 = new Iteration();
-        iter2.setStartDate(new DateTime(2009,2,1,0,0,0,0));
-        iter2.setId(6);
-        Iteration iter3 = new Iteration();
-        iter3.setStartDate(new DateTime(2009,7,1,0,0,0,0));
-        iter3.setId(7);
+        nodes.add(new BacklogHierarchy.Node(8, BacklogType.ITERATION, "iter1",
+                new DateTime(2009,12,1,0,0,0,0), new DateTime(2009,12,31,0,0,0,0), 3));
+        nodes.add(new BacklogHierarchy.Node(6, BacklogType.ITERATION, "iter2",
+                new DateTime(2009,2,1,0,0,0,0), new DateTime(2009,3,1,0,0,0,0), 3));
+        nodes.add(new BacklogHierarchy.Node(7, BacklogType.ITERATION, "iter3",
+                new DateTime(2009,7,1,0,0,0,0), new DateTime(2009,8,1,0,0,0,0), 3));
         
-        proj1.getChildren().add(iter1);
-        proj1.getChildren().add(iter2);
-        proj1.getChildren().add(iter3);
+        nodes.add(new BacklogHierarchy.Node(11, BacklogType.ITERATION, "standalone b",
+                new DateTime(2009,7,1,0,0,0,0), new DateTime(2009,8,1,0,0,0,0), 0));
+        nodes.add(new BacklogHierarchy.Node(10, BacklogType.ITERATION, "standalone a",
+                new DateTime(2009,7,1,0,0,0,0), new DateTime(2009,8,1,0,0,0,0), 0));
+        nodes.add(new BacklogHierarchy.Node(12, BacklogType.ITERATION, "standalone c",
+                new DateTime(2009,7,1,0,0,0,0), new DateTime(2009,8,1,0,0,0,0), 0));
+        hierarchy = new BacklogHierarchy(nodes);
     }
     private void replayAll() {
-        replay(iterationDAO, projectDAO, storyDAO, productBusiness, transferObjectBusiness, iterationBusiness);
+        replay(iterationDAO, projectDAO, storyDAO, backlogAccessBusiness, backlogHierarchyBusiness);
     }
 
     private void verifyAll() {
-        verify(iterationDAO, projectDAO, storyDAO, productBusiness, transferObjectBusiness, iterationBusiness);
+        verify(iterationDAO, projectDAO, storyDAO, backlogAccessBusiness, backlogHierarchyBusiness);
     }
     
     @Test
@@ -127,32 +108,22 @@ public class MenuBusinessTest {
         User user = new User();
         user.setId(10);
         SecurityUtil.setLoggedUser(user);
-        Team team = new Team();
-        Collection<User> users = new ArrayList<User>();
-        users.add(user);
-        team.setUsers(users);
-        Collection<Team> teams = new ArrayList<Team>();
-        teams.add(team);
-        user.setTeams(teams);
-        team.setProducts(products);
-        
-        expect(productBusiness.retrieveAllOrderByName()).andReturn(
-                products);
-
-        final ArrayList<Iteration> emptyStandAloneIterations = new ArrayList<Iteration>();
-        expect(iterationBusiness.retrieveAllStandAloneIterations())
-            .andReturn(emptyStandAloneIterations);
         
-        expect(transferObjectBusiness.getBacklogScheduleStatus(isA(Backlog.class)))
-            .andReturn(ScheduleStatus.FUTURE).times(8);
+        expect(backlogAccessBusiness.getAccessibleBacklogs(user)).andReturn(
+                new AccessibleBacklogs(IntSet.of(Arrays.asList(2, 1)), IntSet
+                        .of(Arrays.asList(12, 10))));
+        expect(backlogHierarchyBusiness.getHierarchy()).andReturn(hierarchy);
         
         replayAll();
                
         List<MenuDataNode> actual = menuBusiness.constructBacklogMenuData(user);
         verifyAll();
         
-        assertEquals(2, actual.size());
+        assertEquals(4, actual.size());
         checkProducts(actual);
+        assertEquals(10, actual.get(2).getId());
+        assertEquals(BacklogType.ITERATION, actual.get(2).getAddClass());
+        assertEquals(12, actual.get(3).getId());
     }
     
     @Test
@@ -191,6 +162,9 @@ public class MenuBusinessTest {
         assertEquals(1, nodes.get(0).getId());
         assertEquals(2, nodes.get(1).getId());
         
+        assertEquals("aaa", nodes.get(0).getTitle());
+        assertEquals(BacklogType.PRODUCT, nodes.get(0).getAddClass());
+        assertEquals(ScheduleStatus.ONGOING, nodes.get(0).getScheduleStatus());
         checkProjects(nodes.get(1).getChildren());
     }
     
@@ -198,6 +172,8 @@ public class MenuBusinessTest {
         assertEquals(3, nodes.get(0).getId());
         assertEquals(4, nodes.get(1).getId());
         assertEquals(5, nodes.get(2).getId());
+        assertEquals(BacklogType.PROJECT, nodes.get(0).getAddClass());
+        assertEquals(ScheduleStatus.PAST, nodes.get(0).getScheduleStatus());
         checkIterations(nodes.get(0).getChildren());
     }
     
@@ -3,7 +3,9 @@ package fi.hut.soberit.agilefant.business;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -26,17 +28,23 @@ import fi.hut.soberit.agilefant.db.StoryDAO;
 import fi.hut.soberit.agilefant.db.TaskDAO;
 import fi.hut.soberit.agilefant.model.Assignment;
 import fi.hut.soberit.agilefant.model.ExactEstimate;
+import fi.hut.soberit.agilefant.model.Holiday;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.SignedExactEstimate;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.transfer.AssignmentLoadTO;
+import fi.hut.soberit.agilefant.transfer.BacklogLoadContainer;
+import fi.hut.soberit.agilefant.transfer.BacklogType;
 import fi.hut.soberit.agilefant.transfer.ComputedLoadData;
 import fi.hut.soberit.agilefant.transfer.IntervalLoadContainer;
 import fi.hut.soberit.agilefant.transfer.IterationLoadContainer;
+import fi.hut.soberit.agilefant.transfer.TeamLoadData;
 import fi.hut.soberit.agilefant.transfer.UnassignedLoadTO;
 import fi.hut.soberit.agilefant.transfer.UserLoadLimits;
+import fi.hut.soberit.agilefant.util.WorkingDays;
 
 public class PersonalLoadBusinessTest {
 
@@ -99,6 +107,45 @@ public class PersonalLoadBusinessTest {
         assigneeMap.put(3, 2);
     }
 
+    /**
+     * Working days with fixed worktimes for the given intervals.
+     */
+    private static class FixedWorkingDays extends WorkingDays {
+        private final Map<Interval, Duration> worktimes = new HashMap<Interval, Duration>();
+
+        public FixedWorkingDays() {
+            super(new HashSet<Holiday>());
+        }
+
+        public void put(Interval interval, Duration worktime) {
+            worktimes.put(interval, worktime);
+        }
+
+        @Override
+        public Duration calculateWorktime(Interval interval) {
+            Duration worktime = worktimes.get(interval);
+            assertNotNull("Unexpected interval " + interval, worktime);
+            return worktime;
+        }
+    }
+
+    /**
+     * Working days that count the worktime calculations.
+     */
+    private static class CountingWorkingDays extends WorkingDays {
+        private int calculations = 0;
+
+        public CountingWorkingDays(Collection<Holiday> holidays) {
+            super(holidays);
+        }
+
+        @Override
+        public Duration calculateWorktime(Interval interval) {
+            calculations++;
+            return super.calculateWorktime(interval);
+        }
+    }
+
     private void replayAll() {
         replay(userBusiness, taskDAO, storyDAO, iterationDAO, assignmentDAO,
                 settingBusiness);
@@ -192,14 +239,14 @@ public class PersonalLoadBusinessTest {
         expect(iterationDAO.retrieveEmptyIterationsWithPlannedSize(interval.getStart(), interval.getEnd(), user)).andReturn(Arrays.asList(iter1, iter2));
         expect(iterationDAO.getTotalAvailability(EasyMock.capture(iterationIds))).andReturn(availabilitySums);
         replayAll();
-        personalLoadBusiness.calculateIterationFutureLoad(iterationEffortData, user, interval);
+        personalLoadBusiness.calculateIterationFutureLoad(iterationEffortData, user, interval, null);
         verifyAll();
         assertEquals(400L, iterationEffortData.get(1).getTotalFutureLoad());
         assertEquals(250L, iterationEffortData.get(2).getTotalFutureLoad());
     }
 
     @Test
-    public void testUpdateUserLoadByInterval_iterationStartsBefore() {
+    public void testDistributeIterationLoad_iterationStartsBefore() {
         DateTime baseDate = new DateTime().withMillisOfSecond(0);
         DateTime intervalStart = baseDate;
         DateTime intervalEnd = baseDate.plusDays(5);
@@ -230,14 +277,13 @@ public class PersonalLoadBusinessTest {
         loadContainer.setTotalUnassignedLoad(1000L);
         loadContainer.setTotalFutureLoad(100L);
 
-        expect(userBusiness.calculateWorktimePerPeriod(user, iterationLeftInterval))
-                .andReturn(worktimeInIteration);
-        expect(userBusiness.calculateWorktimePerPeriod(user, containerInterval))
-                .andReturn(worktimeInPeriod);
+        FixedWorkingDays workingDays = new FixedWorkingDays();
+        workingDays.put(iterationLeftInterval, worktimeInIteration);
+        workingDays.put(containerInterval, worktimeInPeriod);
 
         replayAll();
-        personalLoadBusiness.updateUserLoadByInterval(container, loadContainer,
-                user);
+        personalLoadBusiness.distributeIterationLoad(Arrays.asList(container),
+                Arrays.asList(loadContainer), workingDays);
         verifyAll();
         assertEquals(5000L, container.getAssignedLoad());
         assertEquals(500L, container.getUnassignedLoad());
@@ -246,7 +292,7 @@ public class PersonalLoadBusinessTest {
     }
     
     @Test
-    public void testUpdateUserLoadByInterval_iterationStarts() {
+    public void testDistributeIterationLoad_iterationStarts() {
         DateTime baseDate = new DateTime(2009, 6, 1, 0, 0, 0, 0);
         DateTime intervalStart = baseDate;
         DateTime intervalEnd = baseDate.plusDays(6);
@@ -278,14 +324,13 @@ public class PersonalLoadBusinessTest {
         loadContainer.setTotalUnassignedLoad(5000L);
         loadContainer.setTotalFutureLoad(50L);
 
-        expect(userBusiness.calculateWorktimePerPeriod(user, iterationInterval))
-                .andReturn(worktimeInIteration);
-        expect(userBusiness.calculateWorktimePerPeriod(user, actualInterval))
-                .andReturn(worktimeInPeriod);
+        FixedWorkingDays workingDays = new FixedWorkingDays();
+        workingDays.put(iterationInterval, worktimeInIteration);
+        workingDays.put(actualInterval, worktimeInPeriod);
 
         replayAll();
-        personalLoadBusiness.updateUserLoadByInterval(container, loadContainer,
-                user);
+        personalLoadBusiness.distributeIterationLoad(Arrays.asList(container),
+                Arrays.asList(loadContainer), workingDays);
         verifyAll();
         assertEquals(300L, container.getAssignedLoad());
         assertEquals(3000L, container.getUnassignedLoad());
@@ -294,7 +339,7 @@ public class PersonalLoadBusinessTest {
     }
 
     @Test
-    public void testupdateUserLoadByInterval_iterationEnds() {
+    public void testDistributeIterationLoad_iterationEnds() {
         DateTime baseDate = new DateTime(2009, 6, 1, 0, 0, 0, 0);
         DateTime intervalStart = baseDate.plusDays(7);
         DateTime intervalEnd = baseDate.plusDays(11);
@@ -326,14 +371,13 @@ public class PersonalLoadBusinessTest {
         loadContainer.setTotalUnassignedLoad(5000L);
         loadContainer.setTotalFutureLoad(50L);
 
-        expect(userBusiness.calculateWorktimePerPeriod(user, iterationInterval))
-                .andReturn(worktimeInIteration);
-        expect(userBusiness.calculateWorktimePerPeriod(user, actualInterval))
-                .andReturn(worktimeInPeriod);
+        FixedWorkingDays workingDays = new FixedWorkingDays();
+        workingDays.put(iterationInterval, worktimeInIteration);
+        workingDays.put(actualInterval, worktimeInPeriod);
 
         replayAll();
-        personalLoadBusiness.updateUserLoadByInterval(container, loadContainer,
-                user);
+        personalLoadBusiness.distributeIterationLoad(Arrays.asList(container),
+                Arrays.asList(loadContainer), workingDays);
         verifyAll();
         assertEquals(200L, container.getAssignedLoad());
         assertEquals(2000L, container.getUnassignedLoad());
@@ -342,7 +386,7 @@ public class PersonalLoadBusinessTest {
     }
 
     @Test
-    public void testupdateUserLoadByInterval_iterationInBetween() {
+    public void testDistributeIterationLoad_iterationInBetween() {
         DateTime baseDate = new DateTime(2009, 6, 1, 0, 0, 0, 0);
         DateTime intervalStart = baseDate;
         DateTime intervalEnd = baseDate.plusDays(4);
@@ -374,14 +418,13 @@ public class PersonalLoadBusinessTest {
         loadContainer.setTotalUnassignedLoad(5000L);
         loadContainer.setTotalFutureLoad(50L);
 
-        expect(userBusiness.calculateWorktimePerPeriod(user, iterationInterval))
-                .andReturn(worktimeInIteration);
-        expect(userBusiness.calculateWorktimePerPeriod(user, actualInterval))
-                .andReturn(worktimeInPeriod);
+        FixedWorkingDays workingDays = new FixedWorkingDays();
+        workingDays.put(iterationInterval, worktimeInIteration);
+        workingDays.put(actualInterval, worktimeInPeriod);
 
         replayAll();
-        personalLoadBusiness.updateUserLoadByInterval(container, loadContainer,
-                user);
+        personalLoadBusiness.distributeIterationLoad(Arrays.asList(container),
+                Arrays.asList(loadContainer), workingDays);
         verifyAll();
         assertEquals(500L, container.getAssignedLoad());
         assertEquals(5000L, container.getUnassignedLoad());
@@ -390,7 +433,7 @@ public class PersonalLoadBusinessTest {
     }
 
     @Test
-    public void testupdateUserLoadByInterval_iterationNotOngoing() {
+    public void testDistributeIterationLoad_iterationNotOngoing() {
         DateTime baseDate = new DateTime(2009, 6, 1, 0, 0, 0, 0);
         DateTime intervalStart = baseDate;
         DateTime intervalEnd = baseDate.plusDays(4);
@@ -410,12 +453,119 @@ public class PersonalLoadBusinessTest {
         IntervalLoadContainer container = new IntervalLoadContainer();
         Interval containerInterval = new Interval(intervalStart, intervalEnd);
         container.setInterval(containerInterval);
-        personalLoadBusiness.updateUserLoadByInterval(container, loadContainer,
-                user);
+        FixedWorkingDays workingDays = new FixedWorkingDays();
+        personalLoadBusiness.distributeIterationLoad(Arrays.asList(container),
+                Arrays.asList(loadContainer), workingDays);
         assertEquals(0L, container.getTotalLoad());
+        assertTrue(container.getDetailedLoad().isEmpty());
 
     }
 
+    @Test
+    public void testDistributeIterationLoad() {
+        DateTime baseDate = new DateTime(2009, 6, 1, 0, 0, 0, 0);
+        List<IntervalLoadContainer> periods = personalLoadBusiness
+                .initializeLoadContainers(user, baseDate, baseDate.plusDays(14),
+                        new Period().plusDays(1));
+
+        // 8.6 - 10.6
+        Iteration later = new Iteration();
+        later.setId(1);
+        later.setStartDate(baseDate.plusDays(7));
+        later.setEndDate(baseDate.plusDays(9));
+        IterationLoadContainer laterLoad = new IterationLoadContainer();
+        laterLoad.setIteration(later);
+        laterLoad.setTotalAssignedLoad(200L);
+
+        // 1.6 - 3.6
+        Iteration earlier = new Iteration();
+        earlier.setId(2);
+        earlier.setStartDate(baseDate);
+        earlier.setEndDate(baseDate.plusDays(2));
+        IterationLoadContainer earlierLoad = new IterationLoadContainer();
+        earlierLoad.setIteration(earlier);
+        earlierLoad.setTotalAssignedLoad(100L);
+
+        personalLoadBusiness.distributeIterationLoad(periods, Arrays.asList(
+                laterLoad, earlierLoad), new WorkingDays(user
+                .getHolidays()));
+
+        assertEquals(50L, periods.get(0).getAssignedLoad());
+        assertEquals(50L, periods.get(1).getAssignedLoad());
+        assertEquals(0L, periods.get(2).getAssignedLoad());
+        assertEquals(100L, periods.get(7).getAssignedLoad());
+        assertEquals(100L, periods.get(8).getAssignedLoad());
+        assertEquals(0L, periods.get(9).getAssignedLoad());
+        assertEquals(earlier, ((IterationLoadContainer) periods.get(0)
+                .getDetailedLoad().get(0)).getIteration());
+        assertEquals(later, ((IterationLoadContainer) periods.get(7)
+                .getDetailedLoad().get(0)).getIteration());
+        assertTrue(periods.get(2).getDetailedLoad().isEmpty());
+    }
+
+    /**
+     * Distributes the load of a large team over a half year long daily load
+     * view. Checks that no load is lost, and that the worktime is calculated
+     * once per iteration and once per day it overlaps, rather than for every
+     * period of the view.
+     */
+    @Test
+    public void testDistributeIterationLoad_largeTeam() {
+        DateTime baseDate = new DateTime(2009, 6, 1, 0, 0, 0, 0);
+        DateTime endDate = baseDate.plusWeeks(26);
+        int users = 200;
+        int iterationsPerUser = 30;
+
+        for (int u = 0; u < users; u++) {
+            User teamMember = new User();
+            for (int h = 0; h < 5; h++) {
+                Holiday holiday = new Holiday();
+                holiday.setStartDate(baseDate.plusDays(u % 7 + h * 30)
+                        .toDate());
+                holiday.setEndDate(baseDate.plusDays(u % 7 + h * 30 + 3)
+                        .toDate());
+                teamMember.getHolidays().add(holiday);
+            }
+            List<IntervalLoadContainer> periods = personalLoadBusiness
+                    .initializeLoadContainers(teamMember, baseDate, endDate,
+                            new Period().plusDays(1));
+            List<IterationLoadContainer> loads = new ArrayList<IterationLoadContainer>();
+            long totalLoad = 0L;
+            int iterationDays = 0;
+            for (int i = 0; i < iterationsPerUser; i++) {
+                Iteration iteration = new Iteration();
+                iteration.setId(u * iterationsPerUser + i);
+                iteration.setStartDate(baseDate.plusDays((i * 37 + u) % 150));
+                iteration.setEndDate(iteration.getStartDate().plusDays(
+                        14 + i % 14));
+                IterationLoadContainer load = new IterationLoadContainer();
+                load.setIteration(iteration);
+                load.setTotalAssignedLoad(6000L + i);
+                loads.add(load);
+                totalLoad += load.getTotalAssignedLoad();
+                iterationDays += 14 + i % 14;
+            }
+
+            CountingWorkingDays workingDays = new CountingWorkingDays(
+                    teamMember.getHolidays());
+            personalLoadBusiness.distributeIterationLoad(periods, loads,
+                    workingDays);
+
+            long distributedLoad = 0L;
+            int detailedLoads = 0;
+            for (IntervalLoadContainer period : periods) {
+                distributedLoad += period.getAssignedLoad();
+                detailedLoads += period.getDetailedLoad().size();
+            }
+            // each part of an iteration's load may be rounded down
+            assertTrue(distributedLoad <= totalLoad);
+            assertTrue(distributedLoad >= totalLoad - detailedLoads);
+            assertEquals(iterationDays, detailedLoads);
+            assertEquals(iterationsPerUser + iterationDays,
+                    workingDays.calculations);
+        }
+    }
+
     @Test
     public void testInitializeLoadContainers() {
         DateTime start = new DateTime(2009, 6, 1, 0, 0, 0, 0);
@@ -454,7 +604,7 @@ public class PersonalLoadBusinessTest {
 
         replayAll();
         personalLoadBusiness.loadIterationAvailabilitySums(Arrays.asList(transfer1,
-                transfer2));
+                transfer2), null);
         assertEquals(2, iterationIds.getValue().size());
         assertEquals(2, iterationIdsAvailSum.getValue().size());
         assertEquals(iter1, transfer1.iteration);
@@ -464,6 +614,147 @@ public class PersonalLoadBusinessTest {
         verifyAll();
     }
 
+    @Test
+    public void testLoadIterationAvailabilitySums_teamData() {
+        UnassignedLoadTO transfer1 = new UnassignedLoadTO(null, 1, (short) 1);
+        UnassignedLoadTO transfer2 = new UnassignedLoadTO(null, 2, (short) 1);
+
+        Iteration iter1 = new Iteration();
+        iter1.setId(1);
+        Iteration iter2 = new Iteration();
+        iter2.setId(2);
+
+        Map<Integer, Integer> teamAvailabilitySums = new HashMap<Integer, Integer>();
+        teamAvailabilitySums.put(1, 5);
+        TeamLoadData teamData = new TeamLoadData(new ArrayList<Assignment>(),
+                teamAvailabilitySums);
+
+        Map<Integer, Integer> availabilitySums = new HashMap<Integer, Integer>();
+        availabilitySums.put(2, 42);
+
+        expect(iterationDAO.getMultiple(new HashSet<Integer>(Arrays.asList(1, 2))))
+                .andReturn(Arrays.asList(iter1, iter2));
+        expect(iterationDAO.getTotalAvailability(new HashSet<Integer>(Arrays.asList(2))))
+                .andReturn(availabilitySums);
+
+        replayAll();
+        personalLoadBusiness.loadIterationAvailabilitySums(Arrays.asList(transfer1,
+                transfer2), teamData);
+        assertEquals(5, transfer1.availabilitySum);
+        assertEquals(42, transfer2.availabilitySum);
+        verifyAll();
+    }
+
+    @Test
+    public void testRetrieveTeamLoadData() {
+        User other = new User();
+        other.setId(2);
+        user.setId(1);
+        Iteration iteration = new Iteration();
+        iteration.setId(5);
+        iteration.setName("Iteration");
+        iteration.setStartDate(new DateTime(2009, 6, 1, 0, 0, 0, 0));
+        iteration.setEndDate(new DateTime(2009, 6, 7, 0, 0, 0, 0));
+        iteration.setBaselineLoad(new ExactEstimate(20));
+        Project project = new Project();
+        project.setId(6);
+        Assignment iterationAssignment = new Assignment(user, iteration);
+        iterationAssignment.setPersonalLoad(new SignedExactEstimate(30));
+        Assignment projectAssignment = new Assignment(other, project);
+
+        Map<Integer, Integer> availabilitySums = new HashMap<Integer, Integer>();
+        availabilitySums.put(5, 100);
+
+        expect(assignmentDAO.assigmentsInBacklogTimeframe(isA(Interval.class),
+                eq(Arrays.asList(1, 2)))).andReturn(
+                Arrays.asList(iterationAssignment, projectAssignment));
+        expect(iterationDAO.getTotalAvailability(new HashSet<Integer>(Arrays.asList(5))))
+                .andReturn(availabilitySums);
+
+        replayAll();
+        TeamLoadData teamData = personalLoadBusiness.retrieveTeamLoadData(
+                Arrays.asList(1, 2), 3);
+        verifyAll();
+        assertEquals(1, teamData.getAssignments(1).size());
+        AssignmentLoadTO iterationLoad = teamData.getAssignments(1).get(0);
+        assertEquals(5, iterationLoad.getBacklogId());
+        assertEquals(BacklogType.ITERATION, iterationLoad.getBacklogType());
+        assertEquals("Iteration", iterationLoad.getBacklogName());
+        assertEquals(iteration.getStartDate(), iterationLoad.getStartDate());
+        assertEquals(iteration.getEndDate(), iterationLoad.getEndDate());
+        assertEquals(20L, iterationLoad.getBacklogBaselineLoad());
+        assertEquals(30L, iterationLoad.getPersonalLoad());
+        assertEquals(1, teamData.getAssignments(2).size());
+        AssignmentLoadTO projectLoad = teamData.getAssignments(2).get(0);
+        assertEquals(6, projectLoad.getBacklogId());
+        assertEquals(BacklogType.PROJECT, projectLoad.getBacklogType());
+        assertEquals(0L, projectLoad.getBacklogBaselineLoad());
+        assertEquals(0L, projectLoad.getPersonalLoad());
+        assertTrue(teamData.getAssignments(3).isEmpty());
+        assertEquals(100, (int) teamData.getTotalAvailability(5));
+        assertNull(teamData.getTotalAvailability(6));
+    }
+
+    @Test
+    public void testRetrieveUserLoad_teamDataHasNoEntities() {
+        initDataset();
+        DateTime now = new DateTime();
+        iter.setName("Iteration");
+        iter.setStartDate(now.minusDays(1));
+        iter.setEndDate(now.plusDays(10));
+        proj.setName("Project");
+        proj.setStartDate(now.minusDays(1));
+        proj.setEndDate(now.plusDays(10));
+        task1.setIteration(iter);
+        Assignment projectAssignment = new Assignment(user, proj);
+        projectAssignment.setPersonalLoad(new SignedExactEstimate(500));
+        TeamLoadData teamData = new TeamLoadData(Arrays
+                .asList(projectAssignment), new HashMap<Integer, Integer>());
+
+        expect(taskDAO.getIterationTasksWithEffortLeft(eq(user), isA(Interval.class)))
+                .andReturn(Arrays.asList(task1));
+        expect(taskDAO.getStoryTasksWithEffortLeft(eq(user), isA(Interval.class)))
+                .andReturn(new ArrayList<Task>());
+        expect(taskDAO.getNumOfResponsiblesByTask(new HashSet<Integer>(Arrays.asList(1))))
+                .andReturn(assigneeMap);
+        expect(taskDAO.getStoryAssignedTasksWithEffortLeft(eq(user), isA(Interval.class)))
+                .andReturn(new ArrayList<Task>());
+        expect(storyDAO.getNumOfResponsiblesByStory(new HashSet<Integer>()))
+                .andReturn(new HashMap<Integer, Integer>());
+        expect(taskDAO.getUnassignedIterationTasksWithEffortLeft(eq(user), isA(Interval.class)))
+                .andReturn(new ArrayList<UnassignedLoadTO>());
+        expect(taskDAO.getUnassignedStoryTasksWithEffortLeft(eq(user), isA(Interval.class)))
+                .andReturn(new ArrayList<UnassignedLoadTO>());
+        expect(iterationDAO.getMultiple(new HashSet<Integer>()))
+                .andReturn(new ArrayList<Iteration>());
+        expect(iterationDAO.retrieveEmptyIterationsWithPlannedSize(
+                isA(DateTime.class), isA(DateTime.class), eq(user)))
+                .andReturn(new ArrayList<Iteration>());
+        expect(userBusiness.getWorkingDays(eq(user), isA(Interval.class)))
+                .andReturn(new WorkingDays(new HashSet<Holiday>()));
+        replayAll();
+
+        ComputedLoadData loadData = personalLoadBusiness.retrieveUserLoad(
+                user, 1, teamData);
+        verifyAll();
+
+        Set<Integer> backlogIds = new HashSet<Integer>();
+        for (IntervalLoadContainer period : loadData.getLoadContainers()) {
+            for (BacklogLoadContainer load : period.getDetailedLoad()) {
+                assertNotSame(iter, load.getBacklog());
+                assertNotSame(proj, load.getBacklog());
+                backlogIds.add(load.getBacklog().getId());
+                if (load.getBacklog().getId() == iter.getId()) {
+                    assertEquals("Iteration", load.getBacklog().getName());
+                } else {
+                    assertEquals("Project", load.getBacklog().getName());
+                }
+            }
+        }
+        assertEquals(new HashSet<Integer>(Arrays.asList(iter.getId(), proj
+                .getId())), backlogIds);
+    }
+
     @Test
     public void testCalculateUnassignedTaskLoad() {
         Interval interval = new Interval(500, 600);
@@ -499,7 +790,7 @@ public class PersonalLoadBusinessTest {
 
         replayAll();
         personalLoadBusiness.calculateUnassignedTaskLoad(dataPerIteration,
-                user, interval);
+                user, interval, null);
         assertEquals(iter1, dataPerIteration.get(1).getIteration());
         assertEquals(iter2, dataPerIteration.get(2).getIteration());
         assertEquals(100L, dataPerIteration.get(1).getTotalUnassignedLoad());
@@ -543,9 +834,6 @@ public class PersonalLoadBusinessTest {
         preComputed.getLoadContainers().add(containerForFirstInterval);
         preComputed.getLoadContainers().add(containerForSecondInterval);
 
-        expect(assignmentDAO.assigmentsInBacklogTimeframe(null, user))
-                .andReturn(
-                        Arrays.asList(iterationAssignment, projectAssignmnet));
         Interval projectAssignmentInFirst = new Interval(
                 new DateTime(2009, 6, 3, 0, 0, 0, 0),
                 new DateTime(2009, 6, 7, 0, 0, 0, 0)
@@ -554,21 +842,20 @@ public class PersonalLoadBusinessTest {
                 new DateTime(2009, 6, 8, 0, 0, 0, 0),
                 new DateTime(2009, 6, 10, 0, 0, 0, 0)
         );
+        FixedWorkingDays workingDays = new FixedWorkingDays();
         
         // total worktime in the iteration (first week)
-        expect(userBusiness.calculateWorktimePerPeriod(user, iterInterval))
-                .andReturn(new Duration(1000 * 3600 * 24 * 5)).anyTimes();
+        workingDays.put(iterInterval, new Duration(1000 * 3600 * 24 * 5));
 
         // worktime for project assigment (first week)
-        expect(userBusiness.calculateWorktimePerPeriod(user, projectAssignmentInFirst))
-                .andReturn(new Duration(1000 * 3600 * 24 * 3));
+        workingDays.put(projectAssignmentInFirst, new Duration(1000 * 3600 * 24 * 3));
 
         // worktime for project assignemnt (second week)
-        expect(userBusiness.calculateWorktimePerPeriod(user, projectAssigmentInSecond))
-                .andReturn(new Duration(1000 * 3600 * 24 * 3));
+        workingDays.put(projectAssigmentInSecond, new Duration(1000 * 3600 * 24 * 3));
 
         replayAll();
-        personalLoadBusiness.addBaselineLoad(preComputed, user, null);
+        personalLoadBusiness.addBaselineLoad(preComputed,
+                Arrays.asList(iterationAssignment, projectAssignmnet), workingDays);
         assertEquals(350L, containerForFirstInterval.getBaselineLoad());
         assertEquals(300L, containerForSecondInterval.getBaselineLoad());
         verifyAll();
@@ -54,6 +54,8 @@ public class ProductBusinessTest extends MockedTestCase {
     private HourEntryBusiness hourEntryBusiness;
     @Mock
     private TransferObjectBusiness transferObjectBusiness;
+    @Mock
+    private BacklogHierarchyBusiness backlogHierarchyBusiness;
 
     @Test
     @DirtiesContext
@@ -82,11 +84,13 @@ public class ProductBusinessTest extends MockedTestCase {
         expect(productDAO.get(1)).andReturn(prod);
         productDAO.store(prod);
 
-        replay(productDAO);
+        backlogHierarchyBusiness.invalidate();
+
+        replay(productDAO, backlogHierarchyBusiness);
         Product actual = productBusiness.store(1, newData, null);
         assertEquals(newData.getName(), actual.getName());
         assertEquals(newData.getDescription(), actual.getDescription());
-        verify(productDAO);
+        verify(productDAO, backlogHierarchyBusiness);
     }
 
     @Test
@@ -99,11 +103,13 @@ public class ProductBusinessTest extends MockedTestCase {
         expect(productDAO.create(EasyMock.isA(Product.class))).andReturn(1);
         expect(productDAO.get(1)).andReturn(prod);
 
-        replay(productDAO);
+        backlogHierarchyBusiness.invalidate();
+
+        replay(productDAO, backlogHierarchyBusiness);
         Product actual = productBusiness.store(0, prod, null);
         assertEquals(prod.getName(), actual.getName());
         assertEquals(prod.getDescription(), actual.getDescription());
-        verify(productDAO);
+        verify(productDAO, backlogHierarchyBusiness);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -140,6 +146,7 @@ public class ProductBusinessTest extends MockedTestCase {
         storyBusiness.forceDelete(story2);
         hourEntryBusiness.deleteAll(prod.getHourEntries());
         productDAO.remove(prod);
+        backlogHierarchyBusiness.invalidate();
         replayAll();
         productBusiness.delete(prod.getId());
         verifyAll();
@@ -162,6 +169,7 @@ public class ProductBusinessTest extends MockedTestCase {
         iterationBusiness.delete(iteration.getId());
         hourEntryBusiness.deleteAll(prod.getHourEntries());
         productDAO.remove(prod);
+        backlogHierarchyBusiness.invalidate();
         replayAll();
         productBusiness.delete(prod.getId());
         verifyAll();
@@ -184,6 +192,7 @@ public class ProductBusinessTest extends MockedTestCase {
         expect(productDAO.get(prod.getId())).andReturn(prod);
         hourEntryBusiness.deleteAll(hourEntries);
         productDAO.remove(prod);
+        backlogHierarchyBusiness.invalidate();
         replayAll();
         productBusiness.delete(prod.getId());
         verifyAll();
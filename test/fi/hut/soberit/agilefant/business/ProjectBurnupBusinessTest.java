@@ -1,5 +1,6 @@
 package fi.hut.soberit.agilefant.business;
 
+import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
 import java.util.LinkedList;
@@ -10,6 +11,9 @@ import org.joda.time.DateTime;
 import org.junit.Test;
 
 import fi.hut.soberit.agilefant.business.impl.ProjectBurnupBusinessImpl;
+import fi.hut.soberit.agilefant.db.BacklogHistoryEntryDAO;
+import fi.hut.soberit.agilefant.model.Project;
+import fi.hut.soberit.agilefant.transfer.ChartData;
 import fi.hut.soberit.agilefant.util.ProjectBurnupData;
 import fi.hut.soberit.agilefant.util.Triple;
 
@@ -51,4 +55,33 @@ public class ProjectBurnupBusinessTest extends ProjectBurnupBusinessImpl {
         assertEquals(4, datasets.second.getSeries(0).getItemCount());
     }
 
+    @Test
+    public void testGetBurnupData() {
+        BacklogHistoryEntryDAO backlogHistoryEntryDAO = createMock(BacklogHistoryEntryDAO.class);
+        setBacklogHistoryEntryDAO(backlogHistoryEntryDAO);
+        Project project = new Project();
+        project.setId(1);
+        project.setName("Project");
+        project.setStartDate(new DateTime().minusDays(10));
+        project.setEndDate(new DateTime().plusDays(10));
+
+        List<ProjectBurnupData.Entry> entries = new LinkedList<ProjectBurnupData.Entry>();
+        entries.add(new ProjectBurnupData.Entry(new DateTime().minusHours(3), 40, 10, 50));
+        entries.add(new ProjectBurnupData.Entry(new DateTime().minusHours(2), 40, 20, 60));
+        expect(backlogHistoryEntryDAO.retrieveBurnupData(1)).andReturn(new ProjectBurnupData(entries));
+        replay(backlogHistoryEntryDAO);
+
+        ChartData data = getBurnupData(project);
+        assertEquals("'Project' burnup", data.getTitle());
+        assertEquals(project.getStartDate().getMillis(), data.getStartDate());
+        assertEquals(3, data.getSeries().size());
+        assertEquals(PLANNED_ID, data.getSeries().get(0).getId());
+        assertEquals(3, data.getSeries().get(0).getTimestamps().length);
+        assertEquals(40.0, data.getSeries().get(0).getValues()[0], 0.0);
+        assertEquals(DONE_ID, data.getSeries().get(1).getId());
+        assertEquals(20.0, data.getSeries().get(1).getValues()[1], 0.0);
+        assertEquals(BRANCH_MAX_ID, data.getSeries().get(2).getId());
+
+        verify(backlogHistoryEntryDAO);
+    }
 }
@@ -74,6 +74,8 @@ public class ProjectBusinessTest  extends MockedTestCase {
     StoryFilterBusiness storyFilterBusiness;
     @Mock
     BacklogBusiness backlogBusiness;
+    @Mock
+    BacklogHierarchyBusiness backlogHierarchyBusiness;
     
     Project project;
     Product product;
@@ -174,6 +176,8 @@ public class ProjectBusinessTest  extends MockedTestCase {
         expect(storyRankBusiness.retrieveByRankingContext(project)).andReturn(leafStoryList);
         expect(storyFilterBusiness.filterStoryList(leafStoryList, new StoryFilters(null, null))).andReturn(leafStoryList);
 
+        backlogHierarchyBusiness.invalidate();
+
         replayAll();
         assertSame(actual, projectBusiness.store(project.getId(), null, project, null));
         verifyAll();
@@ -188,6 +192,7 @@ public class ProjectBusinessTest  extends MockedTestCase {
         expect(projectDAO.create(EasyMock.isA(Project.class))).andReturn(123);
         expect(projectDAO.get(123)).andReturn(project);
         expect(transferObjectBusiness.constructProjectTO(project)).andReturn(actual);
+        backlogHierarchyBusiness.invalidate();
         replayAll();
         assertSame(actual, projectBusiness.store(0, 313, project, null));
         verifyAll();
@@ -225,6 +230,7 @@ public class ProjectBusinessTest  extends MockedTestCase {
         expect(projectDAO.get(project.getId())).andReturn(project).anyTimes();
         expect(productBusiness.retrieve(313)).andReturn(product);
         projectDAO.store(project);
+        hourEntryBusiness.updateBacklogPath(project);
         expect(transferObjectBusiness.constructProjectTO(project)).andReturn(actual);
 
         final Story leafStory = new Story();
@@ -235,6 +241,8 @@ public class ProjectBusinessTest  extends MockedTestCase {
         expect(storyRankBusiness.retrieveByRankingContext(project)).andReturn(leafStoryList);
         expect(storyFilterBusiness.filterStoryList(leafStoryList, new StoryFilters(null, null))).andReturn(leafStoryList);
 
+        backlogHierarchyBusiness.invalidate();
+
         replayAll();
         assertSame(actual, projectBusiness.store(project.getId(), 313, project, null));
         verifyAll();
@@ -393,6 +401,8 @@ public class ProjectBusinessTest  extends MockedTestCase {
         
         projectDAO.remove(project);
         
+        backlogHierarchyBusiness.invalidate();
+        
         replayAll();
         projectBusiness.delete(project.getId());
         verifyAll();
@@ -0,0 +1,126 @@
+package fi.hut.soberit.agilefant.business;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.easymock.IAnswer;
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import fi.hut.soberit.agilefant.business.impl.ReadonlyTokenBusinessImpl;
+import fi.hut.soberit.agilefant.db.IterationDAO;
+import fi.hut.soberit.agilefant.test.Mock;
+import fi.hut.soberit.agilefant.test.MockContextLoader;
+import fi.hut.soberit.agilefant.test.MockedTestCase;
+import fi.hut.soberit.agilefant.test.TestedBean;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(loader = MockContextLoader.class)
+public class ReadonlyTokenBusinessTest extends MockedTestCase {
+
+    @TestedBean
+    private ReadonlyTokenBusinessImpl readonlyTokenBusiness;
+    @Mock
+    private IterationDAO iterationDAO;
+
+    private Map<String, Integer> tokens;
+
+    @Before
+    public void setUp() {
+        tokens = new HashMap<String, Integer>();
+        tokens.put("12345", 1);
+        tokens.put("67890", 2);
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testRetrieveIterationId_cached() {
+        expect(iterationDAO.retrieveReadonlyTokens()).andReturn(tokens);
+        replayAll();
+        assertEquals(1, (int) readonlyTokenBusiness.retrieveIterationId("12345"));
+        assertEquals(2, (int) readonlyTokenBusiness.retrieveIterationId("67890"));
+        assertNull(readonlyTokenBusiness.retrieveIterationId("11111"));
+        verifyAll();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testRetrieveIterationId_emptyToken() {
+        replayAll();
+        assertNull(readonlyTokenBusiness.retrieveIterationId(null));
+        assertNull(readonlyTokenBusiness.retrieveIterationId(""));
+        verifyAll();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testIsValidToken() {
+        expect(iterationDAO.retrieveReadonlyTokens()).andReturn(tokens);
+        replayAll();
+        assertTrue(readonlyTokenBusiness.isValidToken("12345"));
+        assertFalse(readonlyTokenBusiness.isValidToken("11111"));
+        assertFalse(readonlyTokenBusiness.isValidToken(""));
+        verifyAll();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testInvalidate() {
+        Map<String, Integer> changed = new HashMap<String, Integer>();
+        changed.put("11111", 3);
+        expect(iterationDAO.retrieveReadonlyTokens()).andReturn(tokens);
+        expect(iterationDAO.retrieveReadonlyTokens()).andReturn(changed);
+        replayAll();
+        assertTrue(readonlyTokenBusiness.isValidToken("12345"));
+        readonlyTokenBusiness.invalidate();
+        assertFalse(readonlyTokenBusiness.isValidToken("12345"));
+        assertEquals(3, (int) readonlyTokenBusiness.retrieveIterationId("11111"));
+        verifyAll();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testRetrieveIterationId_expiredTokensUsedWhileReloading() {
+        final Map<String, Integer> changed = new HashMap<String, Integer>();
+        changed.put("11111", 3);
+        final Integer[] duringReload = new Integer[1];
+        expect(iterationDAO.retrieveReadonlyTokens()).andReturn(tokens);
+        expect(iterationDAO.retrieveReadonlyTokens()).andAnswer(
+                new IAnswer<Map<String, Integer>>() {
+                    public Map<String, Integer> answer() throws Throwable {
+                        Thread other = new Thread() {
+                            public void run() {
+                                duringReload[0] = readonlyTokenBusiness
+                                        .retrieveIterationId("12345");
+                            }
+                        };
+                        other.start();
+                        other.join();
+                        return changed;
+                    }
+                });
+        replayAll();
+        DateTimeUtils.setCurrentMillisFixed(1000L);
+        assertEquals(1, (int) readonlyTokenBusiness.retrieveIterationId("12345"));
+        DateTimeUtils.setCurrentMillisFixed(1001L
+                + ReadonlyTokenBusinessImpl.TOKEN_TTL_MILLIS);
+        assertEquals(3, (int) readonlyTokenBusiness.retrieveIterationId("11111"));
+        assertEquals(1, (int) duringReload[0]);
+        assertNull(readonlyTokenBusiness.retrieveIterationId("12345"));
+        verifyAll();
+    }
+}
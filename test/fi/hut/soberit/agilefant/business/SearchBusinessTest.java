@@ -8,7 +8,6 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -21,16 +20,18 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import fi.hut.soberit.agilefant.business.impl.SearchBusinessImpl;
 import fi.hut.soberit.agilefant.db.BacklogDAO;
+import fi.hut.soberit.agilefant.db.GenericDAO;
+import fi.hut.soberit.agilefant.db.SearchIndexDAO;
 import fi.hut.soberit.agilefant.db.StoryDAO;
 import fi.hut.soberit.agilefant.db.TaskDAO;
 import fi.hut.soberit.agilefant.db.UserDAO;
 import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.NamedObject;
 import fi.hut.soberit.agilefant.model.Product;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.Task;
-import fi.hut.soberit.agilefant.model.Team;
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.security.SecurityUtil;
 import fi.hut.soberit.agilefant.test.Mock;
@@ -38,6 +39,8 @@ import fi.hut.soberit.agilefant.test.MockContextLoader;
 import fi.hut.soberit.agilefant.test.MockedTestCase;
 import fi.hut.soberit.agilefant.test.TestedBean;
 import fi.hut.soberit.agilefant.transfer.SearchResultRow;
+import fi.hut.soberit.agilefant.util.AccessibleBacklogs;
+import fi.hut.soberit.agilefant.util.IntSet;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(loader = MockContextLoader.class)
@@ -53,8 +56,12 @@ public class SearchBusinessTest extends MockedTestCase {
     private TaskDAO taskDAO;
     @Mock
     private UserDAO userDAO;
+    @Mock
+    private SearchIndexDAO searchIndexDAO;
+    @Mock
+    private BacklogAccessBusiness backlogAccessBusiness;
     
-    private Team team;
+    private User user;
     
     @Test
     @DirtiesContext
@@ -68,16 +75,19 @@ public class SearchBusinessTest extends MockedTestCase {
         project.setParent(product);
         Set<Product> products = new HashSet<Product>();
         products.add((Product)product);
-        team.setProducts(products);
+        allowAccess(products);
         
         String search = "foo";
         Story story = new Story();
         story.setIteration(iteration);
         story.setBacklog(project);
-        expect(backlogDAO.searchByName(search)).andReturn(Arrays.asList((Backlog)(iteration)));
-        expect(storyDAO.searchByName(search)).andReturn(Arrays.asList(story));
-        expect(storyDAO.searchByID(search)).andReturn(Arrays.asList(story));
-        expect(taskDAO.searchByName(search)).andReturn(Arrays.asList((Task)(new Task())));
+        iteration.setId(1);
+        story.setId(2);
+        Task task = new Task();
+        task.setId(3);
+        expectSearch(backlogDAO, Backlog.class, search, (Backlog)iteration);
+        expectSearch(storyDAO, Story.class, search, story);
+        expectSearch(taskDAO, Task.class, search, task);
         replayAll();
         List<SearchResultRow> result = searchBusiness.searchStoriesAndBacklog(search);
         assertEquals(2, result.size());
@@ -102,13 +112,12 @@ public class SearchBusinessTest extends MockedTestCase {
         project.setParent(product);
         Set<Product> products = new HashSet<Product>();
         products.add((Product)product);
-        team.setProducts(products);
+        allowAccess(products);
         
-        expect(backlogDAO.searchByName(search)).andReturn(new ArrayList<Backlog>());
-        expect(storyDAO.searchByName(search)).andReturn(new ArrayList<Story>());
-        expect(storyDAO.searchByID(search)).andReturn(new ArrayList<Story>());
+        expectSearch(backlogDAO, Backlog.class, search);
+        expectSearch(storyDAO, Story.class, search);
         expect(storyDAO.get(123)).andReturn(story);
-        expect(taskDAO.searchByName(search)).andReturn(Arrays.asList((Task)(new Task())));
+        expectSearch(taskDAO, Task.class, search);
         replayAll();
         List<SearchResultRow> result = searchBusiness.searchStoriesAndBacklog(search);
         assertEquals(1, result.size());
@@ -133,7 +142,7 @@ public class SearchBusinessTest extends MockedTestCase {
         story.setBacklog(project);
         Set<Product> products = new HashSet<Product>();
         products.add((Product)product);
-        team.setProducts(products);
+        allowAccess(products);
 
         expect(storyDAO.get(123)).andReturn(story);
         replayAll();
@@ -168,7 +177,7 @@ public class SearchBusinessTest extends MockedTestCase {
         project.setParent(product);
         Set<Product> products = new HashSet<Product>();
         products.add((Product)product);
-        team.setProducts(products);
+        allowAccess(products);
         
         expect(backlogDAO.get(123)).andReturn(iteration);
         replayAll();
@@ -256,10 +265,11 @@ public class SearchBusinessTest extends MockedTestCase {
         project.setParent(product);
         Set<Product> products = new HashSet<Product>();
         products.add((Product)product);
-        team.setProducts(products);
+        allowAccess(products);
+        iteration.setId(1);
         List<Backlog> res = Arrays.asList((Backlog)(iteration));
         
-        expect(backlogDAO.searchByName(term, Iteration.class)).andReturn(res);
+        expectSearch(backlogDAO, Iteration.class, term, res.get(0));
         replayAll();
         List<SearchResultRow> actual = searchBusiness.searchIterations(term);
         verifyAll();
@@ -278,11 +288,12 @@ public class SearchBusinessTest extends MockedTestCase {
         project.setParent(product);
         Set<Product> products = new HashSet<Product>();
         products.add((Product)product);
-        team.setProducts(products);
+        allowAccess(products);
         
+        project.setId(1);
         List<Backlog> res = Arrays.asList((Backlog)(project));
         
-        expect(backlogDAO.searchByName(term, Project.class)).andReturn(res);
+        expectSearch(backlogDAO, Project.class, term, res.get(0));
         replayAll();
         List<SearchResultRow> actual = searchBusiness.searchProjects(term);
         verifyAll();
@@ -311,10 +322,10 @@ public class SearchBusinessTest extends MockedTestCase {
         
         Set<Product> products = new HashSet<Product>();
         products.add((Product)product);
-        team.setProducts(products);
+        allowAccess(products);
         
-        List<Story> res = Arrays.asList(story);
-        expect(storyDAO.searchByName(term)).andReturn(res);
+        story.setId(1);
+        expectSearch(storyDAO, Story.class, term, story);
         replayAll();
         List<SearchResultRow> actual = searchBusiness.searchStories(term);
         verifyAll();
@@ -328,23 +339,80 @@ public class SearchBusinessTest extends MockedTestCase {
     public void testSearchUsers() {
         String term = "";
         List<User> res = Arrays.asList(new User());
+        res.get(0).setId(1);
         
-        expect(userDAO.searchByName(term)).andReturn(res);
+        expect(searchIndexDAO.search(User.class, term, Integer.MAX_VALUE))
+            .andReturn(Arrays.asList(1));
+        expect(userDAO.getMultiple(Arrays.asList(1))).andReturn(res);
         replayAll();
         List<SearchResultRow> actual = searchBusiness.searchUsers(term);
         verifyAll();
         assertSame(res.get(0), actual.get(0).getOriginalObject());
     }
     
+    @Test
+    @DirtiesContext
+    public void testSearchStories_indexOrder() {
+        setAccess();
+        
+        String term = "foo";
+        
+        Product product = new Product();
+        Set<Product> products = new HashSet<Product>();
+        products.add(product);
+        allowAccess(products);
+        
+        Story first = new Story();
+        first.setId(5);
+        first.setBacklog(product);
+        Story second = new Story();
+        second.setId(3);
+        second.setBacklog(product);
+        
+        expect(searchIndexDAO.search(Story.class, term, SearchBusiness.MAX_RESULTS_PER_TYPE))
+            .andReturn(Arrays.asList(5, 4, 3));
+        // Story 4 has been deleted after indexing
+        expect(storyDAO.getMultiple(Arrays.asList(5, 4, 3)))
+            .andReturn(Arrays.asList(second, first));
+        replayAll();
+        List<SearchResultRow> actual = searchBusiness.searchStories(term);
+        verifyAll();
+        assertEquals(2, actual.size());
+        assertSame(first, actual.get(0).getOriginalObject());
+        assertSame(second, actual.get(1).getOriginalObject());
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testRebuildSearchIndex() {
+        expect(searchIndexDAO.rebuild()).andReturn(10);
+        replayAll();
+        assertEquals(10, searchBusiness.rebuildSearchIndex());
+        verifyAll();
+    }
+    
+    private <T extends NamedObject> void expectSearch(GenericDAO<T> dao,
+            Class<?> type, String term, T... found) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (T object : found) {
+            ids.add(object.getId());
+        }
+        expect(searchIndexDAO.search(type, term, SearchBusiness.MAX_RESULTS_PER_TYPE))
+            .andReturn(ids);
+        expect(dao.getMultiple(ids)).andReturn(Arrays.asList(found));
+    }
+    
     private void setAccess(){
-        User user = new User();
-        team = new Team();
-        Collection<User> users = new ArrayList<User>();
-        users.add(user);
-        team.setUsers(users);
-        Collection<Team> teams = new ArrayList<Team>();
-        teams.add(team);
-        user.setTeams(teams);
+        user = new User();
         SecurityUtil.setLoggedUser(user);
     }
+    
+    private void allowAccess(Set<Product> products) {
+        List<Integer> productIds = new ArrayList<Integer>();
+        for (Product product : products) {
+            productIds.add(product.getId());
+        }
+        expect(backlogAccessBusiness.getAccessibleBacklogs(user)).andStubReturn(
+                new AccessibleBacklogs(IntSet.of(productIds), IntSet.EMPTY));
+    }
 }
@@ -0,0 +1,234 @@
+package fi.hut.soberit.agilefant.business;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.Capture;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import fi.hut.soberit.agilefant.business.impl.StoryAccessBusinessImp;
+import fi.hut.soberit.agilefant.db.StoryAccessDAO;
+import fi.hut.soberit.agilefant.db.history.StoryHistoryDAO;
+import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.model.StoryAccess;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.security.SecurityUtil;
+import fi.hut.soberit.agilefant.test.Mock;
+import fi.hut.soberit.agilefant.test.MockContextLoader;
+import fi.hut.soberit.agilefant.test.MockedTestCase;
+import fi.hut.soberit.agilefant.test.TestedBean;
+import fi.hut.soberit.agilefant.transfer.StoryAccessCloudTO;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(loader = MockContextLoader.class)
+public class StoryAccessBusinessTest extends MockedTestCase {
+
+    @TestedBean
+    private StoryAccessBusinessImp storyAccessBusiness;
+    @Mock
+    private StoryAccessDAO storyAccessDAO;
+    @Mock
+    private StoryBusiness storyBusiness;
+    @Mock
+    private UserBusiness userBusiness;
+    @Mock
+    private StoryHistoryDAO storyHistoryDAO;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    @Before
+    public void setUp() {
+        user = new User();
+        user.setId(10);
+        SecurityUtil.setLoggedUser(user);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityUtil.setLoggedUser(null);
+    }
+
+    private void expectTransactions() {
+        SimpleTransactionStatus status = new SimpleTransactionStatus();
+        expect(transactionManager.getTransaction(isA(TransactionDefinition.class)))
+                .andReturn(status).anyTimes();
+        transactionManager.commit(status);
+        expectLastCall().anyTimes();
+        transactionManager.rollback(status);
+        expectLastCall().anyTimes();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testAddAccessEntry() {
+        Capture<Collection<StoryAccess>> written = new Capture<Collection<StoryAccess>>();
+        expectTransactions();
+        storyAccessDAO.createAccesses(capture(written));
+        replayAll();
+
+        storyAccessBusiness.addAccessEntry(5);
+        storyAccessBusiness.flush();
+        verifyAll();
+
+        assertEquals(1, written.getValue().size());
+        StoryAccess access = written.getValue().iterator().next();
+        assertEquals(5, access.getStory().getId());
+        assertSame(user, access.getUser());
+        assertNotNull(access.getDate());
+    }
+
+    @Test
+    @DirtiesContext
+    public void testAddAccessEntry_noLoggedUser() {
+        SecurityUtil.setLoggedUser(null);
+        replayAll();
+
+        storyAccessBusiness.addAccessEntry(5);
+        storyAccessBusiness.flush();
+        verifyAll();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testFlush_inBatches() {
+        expectTransactions();
+        storyAccessDAO.createAccesses(isA(Collection.class));
+        expectLastCall().times(2);
+        replayAll();
+
+        for (int i = 0; i <= StoryAccessBusinessImp.BATCH_SIZE; i++) {
+            storyAccessBusiness.addAccessEntry(i);
+        }
+        storyAccessBusiness.flush();
+        verifyAll();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testAddAccessEntry_afterShutdown() {
+        expectTransactions();
+        storyAccessDAO.createAccesses(isA(Collection.class));
+        replayAll();
+
+        storyAccessBusiness.shutdown();
+        for (int i = 0; i < StoryAccessBusinessImp.BATCH_SIZE; i++) {
+            storyAccessBusiness.addAccessEntry(i);
+        }
+        storyAccessBusiness.flush();
+        verifyAll();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testFlush_writeFails() {
+        expectTransactions();
+        storyAccessDAO.createAccesses(isA(Collection.class));
+        expectLastCall().andThrow(new RuntimeException("Deadlock"));
+        replayAll();
+
+        storyAccessBusiness.addAccessEntry(5);
+        storyAccessBusiness.flush();
+        storyAccessBusiness.flush();
+        verifyAll();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testCalculateOccurences() {
+        DateTime start = new DateTime(2009, 6, 1, 0, 0, 0, 0);
+        DateTime end = new DateTime(2009, 6, 7, 0, 0, 0, 0);
+        Story story1 = new Story();
+        story1.setId(1);
+        Story story2 = new Story();
+        story2.setId(2);
+        Map<Integer, Long> counts = new HashMap<Integer, Long>();
+        counts.put(1, 3L);
+        counts.put(2, 5L);
+        counts.put(3, 1L);
+
+        expect(storyAccessDAO.calculateAccessCounts(start, end, user)).andReturn(counts);
+        expect(storyBusiness.retrieveMultiple(counts.keySet())).andReturn(
+                Arrays.asList(story1, story2));
+        replayAll();
+
+        List<StoryAccessCloudTO> actual = storyAccessBusiness
+                .calculateOccurences(start, end, user, 20);
+        verifyAll();
+
+        assertEquals(2, actual.size());
+        assertSame(story2, actual.get(0).getStory());
+        assertEquals(5L, actual.get(0).getCount());
+        assertSame(story1, actual.get(1).getStory());
+        assertEquals(3L, actual.get(1).getCount());
+    }
+
+    @Test
+    @DirtiesContext
+    public void testCalculateEditOccurences_cached() {
+        DateTime end = new DateTime();
+        DateTime start = end.minusWeeks(1);
+        Story story = new Story();
+        story.setId(1);
+        Map<Integer, Long> counts = new HashMap<Integer, Long>();
+        counts.put(1, 4L);
+
+        expect(storyHistoryDAO.calculateAccessCounts(start, end, user, 20)).andReturn(counts);
+        expect(storyBusiness.retrieveMultiple(counts.keySet())).andReturn(
+                Arrays.asList(story)).times(2);
+        replayAll();
+
+        List<StoryAccessCloudTO> first = storyAccessBusiness
+                .calculateEditOccurences(start, end, user, 20);
+        List<StoryAccessCloudTO> second = storyAccessBusiness
+                .calculateEditOccurences(start.plusSeconds(1), end
+                        .plusSeconds(1), user, 20);
+        verifyAll();
+
+        assertEquals(1, first.size());
+        assertEquals(4L, first.get(0).getCount());
+        assertEquals(1, second.size());
+        assertEquals(4L, second.get(0).getCount());
+    }
+
+    @Test
+    @DirtiesContext
+    public void testCalculateEditOccurences_differentRequests() {
+        DateTime end = new DateTime();
+        DateTime start = end.minusWeeks(1);
+        User other = new User();
+        other.setId(11);
+        Map<Integer, Long> counts = new HashMap<Integer, Long>();
+
+        expect(storyHistoryDAO.calculateAccessCounts(start, end, user, 20)).andReturn(counts);
+        expect(storyHistoryDAO.calculateAccessCounts(start, end, user, 10)).andReturn(counts);
+        expect(storyHistoryDAO.calculateAccessCounts(start, end, other, 10)).andReturn(counts);
+        expect(storyHistoryDAO.calculateAccessCounts(start.minusWeeks(1), end, other, 10)).andReturn(counts);
+        expect(storyBusiness.retrieveMultiple(counts.keySet())).andReturn(
+                Arrays.<Story> asList()).times(4);
+        replayAll();
+
+        storyAccessBusiness.calculateEditOccurences(start, end, user, 20);
+        storyAccessBusiness.calculateEditOccurences(start, end, user, 10);
+        storyAccessBusiness.calculateEditOccurences(start, end, other, 10);
+        storyAccessBusiness.calculateEditOccurences(start.minusWeeks(1), end, other, 10);
+        verifyAll();
+    }
+}
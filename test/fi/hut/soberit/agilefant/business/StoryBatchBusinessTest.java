@@ -2,8 +2,10 @@ package fi.hut.soberit.agilefant.business;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Test;
@@ -13,12 +15,16 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import fi.hut.soberit.agilefant.business.impl.StoryBatchBusinessImpl;
+import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Product;
+import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryState;
 import fi.hut.soberit.agilefant.test.Mock;
 import fi.hut.soberit.agilefant.test.MockContextLoader;
 import fi.hut.soberit.agilefant.test.MockedTestCase;
 import fi.hut.soberit.agilefant.test.TestedBean;
+import fi.hut.soberit.agilefant.transfer.StoryBatchResultTO;
 
 import static org.junit.Assert.*;
 
@@ -34,6 +40,10 @@ public class StoryBatchBusinessTest extends MockedTestCase{
     private LabelBusiness labelBusiness;
     @Mock
     private StoryBusiness storyBusiness;
+    @Mock
+    private IterationHistoryEntryBusiness iterationHistoryEntryBusiness;
+    @Mock
+    private BacklogHistoryEntryBusiness backlogHistoryEntryBusiness;
     
     @Test
     @DirtiesContext
@@ -51,17 +61,19 @@ public class StoryBatchBusinessTest extends MockedTestCase{
         
         expect(storyBusiness.retrieveMultiple(storyIds)).andReturn(Arrays.asList(story1, story2));
         
-        storyBusiness.store(story1);
-        storyBusiness.store(story2);
-        
-        labelBusiness.createStoryLabels(labels, 1);
-        labelBusiness.createStoryLabels(labels, 2);
+        Map<Integer, List<String>> addedLabels = new HashMap<Integer, List<String>>();
+        addedLabels.put(2, labels);
+        expect(labelBusiness.createStoryLabels(labels, new HashSet<Story>(Arrays.asList(story1, story2))))
+            .andReturn(addedLabels);
         
         replayAll();
-        storyBatchBusiness.modifyMultiple(storyIds, state, labels);
+        StoryBatchResultTO result = storyBatchBusiness.modifyMultiple(storyIds, state, labels);
         verifyAll();
         assertEquals(state, story1.getState());
         assertEquals(state, story2.getState());
+        assertEquals(storyIds, result.getChangedStateStoryIds());
+        assertEquals(addedLabels, result.getAddedLabels());
+        assertTrue(result.getNotFoundStoryIds().isEmpty());
     }
     
     @Test
@@ -79,9 +91,6 @@ public class StoryBatchBusinessTest extends MockedTestCase{
         
         expect(storyBusiness.retrieveMultiple(storyIds)).andReturn(Arrays.asList(story1, story2));
 
-        storyBusiness.store(story1);
-        storyBusiness.store(story2);
-        
         replayAll();
         storyBatchBusiness.modifyMultiple(storyIds, state, null);
         verifyAll();
@@ -105,10 +114,71 @@ public class StoryBatchBusinessTest extends MockedTestCase{
         expect(storyBusiness.retrieveMultiple(storyIds)).andReturn(Arrays.asList(story1, story2));
         
         replayAll();
-        storyBatchBusiness.modifyMultiple(storyIds, null, labels);
+        StoryBatchResultTO result = storyBatchBusiness.modifyMultiple(storyIds, null, labels);
         verifyAll();
 
         assertEquals(StoryState.NOT_STARTED, story1.getState());
         assertEquals(StoryState.NOT_STARTED, story2.getState());
+        assertTrue(result.getChangedStateStoryIds().isEmpty());
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testmodifyMultiple_historyUpdatedOnce() {
+        Product product = new Product();
+        product.setId(1);
+        Project project = new Project();
+        project.setId(2);
+        project.setParent(product);
+        Iteration iteration = new Iteration();
+        iteration.setId(3);
+        iteration.setParent(project);
+        Iteration standAlone = new Iteration();
+        standAlone.setId(4);
+        
+        List<Story> stories = new ArrayList<Story>();
+        Set<Integer> storyIds = new HashSet<Integer>();
+        for (int i = 1; i <= 300; i++) {
+            Story story = new Story();
+            story.setId(i);
+            switch (i % 4) {
+            case 0:
+                story.setBacklog(product);
+                break;
+            case 1:
+                story.setBacklog(project);
+                break;
+            case 2:
+                story.setBacklog(project);
+                story.setIteration(iteration);
+                break;
+            default:
+                story.setIteration(standAlone);
+            }
+            if (i == 300) {
+                story.setState(StoryState.DONE);
+            }
+            stories.add(story);
+            storyIds.add(i);
+        }
+        storyIds.add(301);
+        
+        expect(storyBusiness.retrieveMultiple(storyIds)).andReturn(stories);
+        iterationHistoryEntryBusiness.updateIterationHistory(3);
+        iterationHistoryEntryBusiness.updateIterationHistory(4);
+        backlogHistoryEntryBusiness.updateHistory(2);
+        
+        replayAll();
+        StoryBatchResultTO result = storyBatchBusiness.modifyMultiple(storyIds, StoryState.DONE, null);
+        verifyAll();
+        
+        assertEquals(299, result.getChangedStateStoryIds().size());
+        assertFalse(result.getChangedStateStoryIds().contains(300));
+        assertEquals(new HashSet<Integer>(Arrays.asList(301)), result.getNotFoundStoryIds());
+        assertEquals(new HashSet<Integer>(Arrays.asList(3, 4)), result.getUpdatedIterationIds());
+        assertEquals(new HashSet<Integer>(Arrays.asList(2)), result.getUpdatedProjectIds());
+        for (Story story : stories) {
+            assertEquals(StoryState.DONE, story.getState());
+        }
     }
 }
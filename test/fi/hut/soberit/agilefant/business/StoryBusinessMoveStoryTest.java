@@ -109,6 +109,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
 
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, secondProject)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
         storyRankBusiness.removeRank(story, firstProject);
         storyRankBusiness.removeRank(story, firstIteration);
         storyRankBusiness.rankToBottom(story, secondProject);
@@ -136,6 +137,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, firstProject)).andReturn(true);
 
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
 
         storyRankBusiness.removeRank(story, firstIteration);
 
@@ -159,6 +161,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, firstIteration)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
 
         storyRankBusiness.removeRank(story, secondProject);
         storyRankBusiness.rankToBottom(story, firstIteration);
@@ -185,6 +188,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
 
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, firstIteration)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
 
         storyRankBusiness.rankToBottom(story, firstIteration);
 
@@ -211,6 +215,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, secondIteration)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
         storyRankBusiness.removeRank(story, firstIteration);
         storyRankBusiness.rankToBottom(story, secondIteration);
         storyRankBusiness.removeRank(story, firstProject);
@@ -241,6 +246,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, secondIteration)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
         storyRankBusiness.removeRank(story, firstIteration);
         storyRankBusiness.rankToBottom(story, secondIteration);
 
@@ -266,6 +272,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
 
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, firstProject)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
 
         storyRankBusiness.removeRank(story, secondProject);
         storyRankBusiness.rankToBottom(story, firstProject);
@@ -295,6 +302,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
 
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, firstProject)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
 
         storyRankBusiness.removeRank(story, secondProject);
         storyRankBusiness.removeRank(story, secondIteration);
@@ -321,6 +329,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, firstProduct)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
         storyRankBusiness.removeRank(story, firstProject);
         storyRankBusiness.removeRank(story, firstIteration);
 
@@ -345,6 +354,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, firstProduct)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
         storyRankBusiness.removeRank(story, firstProject);
         backlogHistoryEntryBusiness.updateHistory(firstProject.getId());
         backlogHistoryEntryBusiness.updateHistory(firstProduct.getId());
@@ -409,6 +419,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, firstIteration)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
 
         storyRankBusiness.removeRank(story, firstProduct);
         storyRankBusiness.rankToBottom(story, firstIteration);
@@ -435,6 +446,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, firstProject)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
 
         storyRankBusiness.removeRank(story, firstProduct);
         storyRankBusiness.rankToBottom(story, firstProject);
@@ -459,6 +471,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
 
         expect(storyTreeIntegrityBusiness.canStoryBeMovedToBacklog(story, prod)).andReturn(true);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
 
         storyRankBusiness.removeRank(story, firstProduct);
 
@@ -488,7 +501,10 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         
         storyDAO.store(child);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
         expect(storyTreeIntegrityBusiness.hasParentStoryConflict(story, firstProject)).andReturn(true);
+        storyHierarchyBusiness.updateTreePath(child);
+        storyHierarchyBusiness.updateTreePath(story);
         storyHierarchyBusiness.updateChildrenTreeRanks(parent);
         backlogHistoryEntryBusiness.updateHistory(secondProject.getId());
         backlogHistoryEntryBusiness.updateHistory(firstProject.getId());
@@ -520,7 +536,10 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         
         storyDAO.store(child);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
         expect(storyTreeIntegrityBusiness.hasParentStoryConflict(story, firstProject)).andReturn(true);
+        storyHierarchyBusiness.updateTreePath(child);
+        storyHierarchyBusiness.updateTreePath(story);
 
         backlogHistoryEntryBusiness.updateHistory(secondProject.getId());
         backlogHistoryEntryBusiness.updateHistory(firstProject.getId());
@@ -552,7 +571,9 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         
         storyDAO.store(child);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
         expect(storyTreeIntegrityBusiness.hasParentStoryConflict(story, firstProject)).andReturn(false);
+        storyHierarchyBusiness.updateTreePath(child);
         storyHierarchyBusiness.updateChildrenTreeRanks(parent);
         backlogHistoryEntryBusiness.updateHistory(secondProject.getId());
         backlogHistoryEntryBusiness.updateHistory(firstProject.getId());
@@ -597,6 +618,7 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         firstIteration.setParent(firstProject);
         
         expect(storyTreeIntegrityBusiness.hasParentStoryConflict(story, secondProject)).andReturn(true);
+        storyHierarchyBusiness.updateTreePath(story);
         storyHierarchyBusiness.updateChildrenTreeRanks(parent);
 
         storyRankBusiness.removeRank(child2, firstIteration);
@@ -607,8 +629,11 @@ public class StoryBusinessMoveStoryTest extends MockedTestCase {
         storyRankBusiness.rankToBottom(child2, secondProject);
 
         storyDAO.store(child2);
+        hourEntryBusiness.updateBacklogPath(child2);
         storyDAO.store(child1);
+        hourEntryBusiness.updateBacklogPath(child1);
         storyDAO.store(story);
+        hourEntryBusiness.updateBacklogPath(story);
 
         backlogHistoryEntryBusiness.updateHistory(firstIteration.getId());
         backlogHistoryEntryBusiness.updateHistory(secondProject.getId());
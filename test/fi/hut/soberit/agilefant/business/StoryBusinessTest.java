@@ -12,6 +12,7 @@ import org.junit.Test;
 import fi.hut.soberit.agilefant.business.impl.StoryBusinessImpl;
 import fi.hut.soberit.agilefant.db.HourEntryDAO;
 import fi.hut.soberit.agilefant.db.IterationDAO;
+import fi.hut.soberit.agilefant.db.StoryAccessDAO;
 import fi.hut.soberit.agilefant.db.StoryDAO;
 import fi.hut.soberit.agilefant.db.UserDAO;
 import fi.hut.soberit.agilefant.exception.ObjectNotFoundException;
@@ -55,6 +56,7 @@ public class StoryBusinessTest {
     TaskBusiness taskBusiness;
     HourEntryBusiness hourEntryBusiness;
     StoryHierarchyBusiness storyHierarchyBusiness;
+    StoryAccessDAO storyAccessDAO;
     
     
     Backlog backlog;
@@ -123,6 +125,9 @@ public class StoryBusinessTest {
         
         storyHierarchyBusiness = createMock(StoryHierarchyBusiness.class);
         storyBusiness.setStoryHierarchyBusiness(storyHierarchyBusiness);
+        
+        storyAccessDAO = createMock(StoryAccessDAO.class);
+        storyBusiness.setStoryAccessDAO(storyAccessDAO);
     }
     
     @Before
@@ -151,11 +156,11 @@ public class StoryBusinessTest {
     }
 
     private void replayAll() {
-        replay(backlogBusiness, storyDAO, iterationDAO, userDAO, iheBusiness, blheBusiness, transferObjectBusiness, hourEntryDAO, taskBusiness, hourEntryBusiness, storyRankBusiness, storyHierarchyBusiness);
+        replay(backlogBusiness, storyDAO, iterationDAO, userDAO, iheBusiness, blheBusiness, transferObjectBusiness, hourEntryDAO, taskBusiness, hourEntryBusiness, storyRankBusiness, storyHierarchyBusiness, storyAccessDAO);
     }
     
     private void verifyAll() {
-        verify(backlogBusiness, storyDAO, iterationDAO, userDAO, iheBusiness, blheBusiness, transferObjectBusiness, hourEntryDAO, taskBusiness, hourEntryBusiness, storyRankBusiness, storyHierarchyBusiness);
+        verify(backlogBusiness, storyDAO, iterationDAO, userDAO, iheBusiness, blheBusiness, transferObjectBusiness, hourEntryDAO, taskBusiness, hourEntryBusiness, storyRankBusiness, storyHierarchyBusiness, storyAccessDAO);
     }
 
     
@@ -339,6 +344,7 @@ public class StoryBusinessTest {
     public void testDeleteAndUpdateHistory() {
         expect(storyDAO.get(storyInIteration.getId())).andReturn(storyInIteration);
 //        storyRankBusiness.removeStoryRanks(storyInIteration);
+        storyAccessDAO.removeCountsByStory(storyInIteration.getId());
         storyDAO.remove(storyInIteration);
         blheBusiness.updateHistory(storyInIteration.getBacklog().getId());
         iheBusiness.updateIterationHistory(storyInIteration.getIteration().getId());
@@ -357,9 +363,11 @@ public class StoryBusinessTest {
         storyInIteration.setParent(storyParent);
         storyInIteration.getChildren().add(child);
 
+        storyHierarchyBusiness.updateTreePath(child);
         storyHierarchyBusiness.updateChildrenTreeRanks(storyParent);
         hourEntryBusiness.deleteAll(storyInIteration.getHourEntries());
 //        storyRankBusiness.removeStoryRanks(storyInIteration);
+        storyAccessDAO.removeCountsByStory(storyInIteration.getId());
         storyDAO.remove(storyInIteration);
         replayAll();
         storyBusiness.delete(storyInIteration,
@@ -393,7 +401,9 @@ public class StoryBusinessTest {
         
 //        expect(storyDAO.get(2333)).andReturn(child);
         
+        storyAccessDAO.removeCountsByStory(child.getId());
         storyDAO.remove(child.getId());
+        storyAccessDAO.removeCountsByStory(storyInIteration.getId());
         storyDAO.remove(storyInIteration);
         
         replayAll();
@@ -413,6 +423,7 @@ public class StoryBusinessTest {
         storyInIteration.getTasks().add(task);
         expect(taskBusiness.move(task, storyInIteration.getBacklog().getId(), null)).andReturn(task);
 //        storyRankBusiness.removeStoryRanks(storyInIteration);
+        storyAccessDAO.removeCountsByStory(storyInIteration.getId());
         storyDAO.remove(storyInIteration);
         replayAll();
         storyBusiness.delete(storyInIteration, TaskHandlingChoice.MOVE, null, null, null);
@@ -427,6 +438,7 @@ public class StoryBusinessTest {
         hourEntryBusiness.moveToBacklog(task.getHourEntries(), storyInIteration.getBacklog());
         taskBusiness.delete(task.getId(), HourEntryHandlingChoice.MOVE);
 //        storyRankBusiness.removeStoryRanks(storyInIteration);
+        storyAccessDAO.removeCountsByStory(storyInIteration.getId());
         storyDAO.remove(storyInIteration);
         replayAll();
         storyBusiness.delete(storyInIteration, TaskHandlingChoice.DELETE, null, HourEntryHandlingChoice.MOVE, null);
@@ -440,6 +452,7 @@ public class StoryBusinessTest {
         storyInIteration.getHourEntries().add(new StoryHourEntry());
         hourEntryBusiness.moveToBacklog(storyInIteration.getHourEntries(), storyInIteration.getBacklog());
 //        storyRankBusiness.removeStoryRanks(storyInIteration);
+        storyAccessDAO.removeCountsByStory(storyInIteration.getId());
         storyDAO.remove(storyInIteration);
         replayAll();
         storyBusiness.delete(storyInIteration, null, HourEntryHandlingChoice.MOVE, null, null);
@@ -451,6 +464,7 @@ public class StoryBusinessTest {
         storyInIteration.getHourEntries().add(new StoryHourEntry());
         hourEntryBusiness.deleteAll(storyInIteration.getHourEntries());
 //        storyRankBusiness.removeStoryRanks(storyInIteration);
+        storyAccessDAO.removeCountsByStory(storyInIteration.getId());
         storyDAO.remove(storyInIteration);
         replayAll();
         storyBusiness.delete(storyInIteration, null, HourEntryHandlingChoice.DELETE, null, null);
@@ -473,6 +487,7 @@ public class StoryBusinessTest {
         storyRankBusiness.rankToBottom(parent, backlog);
 //        storyRankBusiness.removeStoryRanks(child);
         storyHierarchyBusiness.updateChildrenTreeRanks(parent);
+        storyAccessDAO.removeCountsByStory(child.getId());
         storyDAO.remove(child);
         replayAll();
         storyBusiness.delete(child, null, null, null, null);
@@ -677,11 +692,13 @@ public class StoryBusinessTest {
         story.setTasks(new HashSet<Task>(Arrays.asList(new Task(), new Task())));
         story.setHourEntries(new HashSet<StoryHourEntry>(Arrays.asList(new StoryHourEntry(), new StoryHourEntry(), new StoryHourEntry())));
         
+        storyHierarchyBusiness.updateTreePath(child);
         taskBusiness.delete(EasyMock.isA(Task.class), EasyMock.same(HourEntryHandlingChoice.DELETE));
         expectLastCall().times(2);
         
         hourEntryBusiness.deleteAll(story.getHourEntries());
         
+        storyAccessDAO.removeCountsByStory(1);
         storyDAO.remove(1);
         
         replayAll();
@@ -85,6 +85,27 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
 
     }
 
+    @Test
+    @DirtiesContext
+    public void testUpdateTreePath_tooLong() {
+        StringBuilder path = new StringBuilder();
+        while (path.length() < Story.MAX_TREE_PATH_LENGTH - 1) {
+            path.append("1/");
+        }
+        reference.setTreePath(path.toString());
+        story.setParent(reference);
+        story1.setParent(story);
+        story.getChildren().add(story1);
+
+        storyHierarchyDAO.initializeSubtree(story);
+        replayAll();
+        storyHierarchyBusiness.updateTreePath(story);
+        verifyAll();
+
+        assertNull(story.getTreePath());
+        assertEquals("4/", story1.getTreePath());
+    }
+
     @Test
     @DirtiesContext
     public void testRetrieveProjectLeafStories() {
@@ -105,6 +126,7 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
         List<Story> stories = new ArrayList<Story>();
         expect(storyHierarchyDAO.retrieveProjectRootStories(projectId))
                 .andReturn(stories);
+        storyHierarchyDAO.initializeSubtrees(stories);
         replayAll();
         assertEquals(stories, storyHierarchyBusiness
                 .retrieveProjectRootStories(projectId, null));
@@ -118,6 +140,7 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
         List<Story> stories = new ArrayList<Story>();
         expect(storyHierarchyDAO.retrieveProductRootStories(productId))
                 .andReturn(stories);
+        storyHierarchyDAO.initializeSubtrees(stories);
         replayAll();
         assertSame(stories, storyHierarchyBusiness.retrieveProductRootStories(
                 productId, null));
@@ -132,6 +155,7 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
         List<Story> stories = new ArrayList<Story>();
         expect(storyHierarchyDAO.retrieveProjectRootStories(projectId))
                 .andReturn(stories);
+        storyHierarchyDAO.initializeSubtrees(stories);
         expect(storyFilterBusiness.filterStories(stories, storyFilters))
                 .andReturn(stories);
         replayAll();
@@ -148,6 +172,7 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
         List<Story> stories = new ArrayList<Story>();
         expect(storyHierarchyDAO.retrieveProductRootStories(productId))
                 .andReturn(stories);
+        storyHierarchyDAO.initializeSubtrees(stories);
         expect(storyFilterBusiness.filterStories(stories, storyFilters))
                 .andReturn(stories);
         replayAll();
@@ -175,6 +200,8 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
         expect(storyBusiness.updateStoryRanks(oldParent)).andReturn(null);
         expect(storyBusiness.updateStoryRanks(reference)).andReturn(null);
 
+        storyHierarchyDAO.initializeSubtree(story);
+
         replayAll();
 
         storyHierarchyBusiness.moveUnder(story, reference);
@@ -184,6 +211,7 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
         assertTrue(reference.getChildren().contains(story));
         assertFalse(oldParent.getChildren().contains(story));
         assertSame(reference, story.getParent());
+        assertEquals("5/", story.getTreePath());
 
         assertEquals(1, oldParent.getChildren().size());
         assertEquals(0, oldParent.getChildren().get(0).getTreeRank());
@@ -235,6 +263,8 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
         expect(storyBusiness.updateStoryRanks(oldParent)).andReturn(null);
         expect(storyBusiness.updateStoryRanks(reference)).andReturn(null);
 
+        storyHierarchyDAO.initializeSubtree(story);
+
         replayAll();
 
         storyHierarchyBusiness.moveUnder(story, reference);
@@ -265,6 +295,8 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
         expect(storyBusiness.updateStoryRanks(oldParent)).andReturn(null);
         expect(storyBusiness.updateStoryRanks(reference)).andReturn(null);
 
+        storyHierarchyDAO.initializeSubtree(story);
+
         replayAll();
 
         storyHierarchyBusiness.moveUnder(story, reference);
@@ -324,6 +356,8 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
         expect(storyBusiness.updateStoryRanks(oldParent)).andReturn(null);
         expect(storyBusiness.updateStoryRanks(parent)).andReturn(null);
 
+        storyHierarchyDAO.initializeSubtree(story);
+
         replayAll();
 
         storyHierarchyBusiness.moveAfter(story, reference);
@@ -359,8 +393,10 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
 
         expect(backlogBusiness.getParentProduct(story.getBacklog())).andReturn(
                 product);
+        storyHierarchyDAO.initializeSubtree(story);
         expect(storyHierarchyDAO.retrieveProductRootStories(product.getId()))
                 .andReturn(children);
+        storyHierarchyDAO.initializeSubtrees(children);
         expect(storyBusiness.updateStoryRanks(oldParent)).andReturn(null);
 
         replayAll();
@@ -397,6 +433,7 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
                 product);
         expect(storyHierarchyDAO.retrieveProductRootStories(product.getId()))
                 .andReturn(children);
+        storyHierarchyDAO.initializeSubtrees(children);
 
         replayAll();
 
@@ -476,6 +513,8 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
         expect(storyBusiness.updateStoryRanks(oldParent)).andReturn(null);
         expect(storyBusiness.updateStoryRanks(parent)).andReturn(null);
 
+        storyHierarchyDAO.initializeSubtree(story);
+
         replayAll();
 
         storyHierarchyBusiness.moveBefore(story, reference);
@@ -511,8 +550,10 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
 
         expect(backlogBusiness.getParentProduct(story.getBacklog())).andReturn(
                 product);
+        storyHierarchyDAO.initializeSubtree(story);
         expect(storyHierarchyDAO.retrieveProductRootStories(product.getId()))
                 .andReturn(children);
+        storyHierarchyDAO.initializeSubtrees(children);
         expect(storyBusiness.updateStoryRanks(oldParent)).andReturn(null);
 
         replayAll();
@@ -549,6 +590,7 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
                 product);
         expect(storyHierarchyDAO.retrieveProductRootStories(product.getId()))
                 .andReturn(children);
+        storyHierarchyDAO.initializeSubtrees(children);
 
         replayAll();
 
@@ -755,6 +797,7 @@ public class StoryHierarchyBusinessTest extends MockedTestCase {
        child1.setChildren(Arrays.asList(child11, child12));
        child2.setChildren(Arrays.asList(child21, child22));
        
+       storyHierarchyDAO.initializeSubtree(root);
        replayAll();
        StoryTreeBranchMetrics metrics = this.storyHierarchyBusiness.calculateStoryTreeMetrics(root);
        verifyAll();
@@ -3,7 +3,6 @@ package fi.hut.soberit.agilefant.business;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 import org.easymock.Capture;
@@ -53,8 +52,8 @@ public class StoryRankBusinessTest {
         storyRanks.add(new StoryRank());
 
         storyRanks.get(0).setRank(0);
-        storyRanks.get(1).setRank(1);
-        storyRanks.get(2).setRank(2);
+        storyRanks.get(1).setRank(1024);
+        storyRanks.get(2).setRank(2048);
 
         context = new Project();
 
@@ -66,6 +65,7 @@ public class StoryRankBusinessTest {
 
         rankable = new StoryRank();
         rankable.setBacklog(context);
+        rankable.setRank(5000);
     }
 
     public void replayAll() {
@@ -112,6 +112,12 @@ public class StoryRankBusinessTest {
     }
     
     
+    private void assertRanksUnchanged() {
+        assertEquals(0, storyRanks.get(0).getRank());
+        assertEquals(1024, storyRanks.get(1).getRank());
+        assertEquals(2048, storyRanks.get(2).getRank());
+    }
+
     @Test
     public void testRankAbove() {
         Story ref = new Story();
@@ -120,15 +126,13 @@ public class StoryRankBusinessTest {
                 .andReturn(rankable);
         expect(storyRankDAO.retrieveByBacklogAndStory(context, ref)).andReturn(
                 storyRanks.get(1));
-        expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
-                storyRanks);
+        expect(storyRankDAO.retrievePreviousRankNumber(context, 1024, rankable))
+                .andReturn(0);
         replayAll();
         storyRankBusiness.rankAbove(story, context, ref);
         verifyAll();
-        assertSame(0, storyRanks.get(0).getRank());
-        assertSame(1, rankable.getRank());
-        assertSame(2, storyRanks.get(1).getRank());
-        assertSame(3, storyRanks.get(2).getRank());
+        assertEquals(512, rankable.getRank());
+        assertRanksUnchanged();
     }
 
     @Test
@@ -138,15 +142,51 @@ public class StoryRankBusinessTest {
                 .andReturn(rankable);
         expect(storyRankDAO.retrieveByBacklogAndStory(context, ref)).andReturn(
                 storyRanks.get(0));
+        expect(storyRankDAO.retrievePreviousRankNumber(context, 0, rankable))
+                .andReturn(null);
+        replayAll();
+        storyRankBusiness.rankAbove(story, context, ref);
+        verifyAll();
+        assertEquals(-1024, rankable.getRank());
+        assertRanksUnchanged();
+    }
+
+    @Test
+    public void testRankAbove_noGap() {
+        Story ref = new Story();
+        storyRanks.get(1).setRank(1);
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(rankable);
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, ref)).andReturn(
+                storyRanks.get(1));
+        expect(storyRankDAO.retrievePreviousRankNumber(context, 1, rankable))
+                .andReturn(0);
         expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
-                storyRanks);
+                Arrays.asList(storyRanks.get(0), storyRanks.get(1),
+                        storyRanks.get(2), rankable));
+        expect(storyRankDAO.retrievePreviousRankNumber(context, 1024, rankable))
+                .andReturn(0);
+        replayAll();
+        storyRankBusiness.rankAbove(story, context, ref);
+        verifyAll();
+        assertEquals(512, rankable.getRank());
+        assertRanksUnchanged();
+    }
+
+    @Test
+    public void testRankAbove_widestGap() {
+        Story ref = new Story();
+        storyRanks.get(1).setRank(Integer.MAX_VALUE);
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(rankable);
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, ref)).andReturn(
+                storyRanks.get(1));
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, rankable))
+                .andReturn(Integer.MIN_VALUE);
         replayAll();
         storyRankBusiness.rankAbove(story, context, ref);
         verifyAll();
-        assertSame(0, rankable.getRank());
-        assertSame(1, storyRanks.get(0).getRank());
-        assertSame(2, storyRanks.get(1).getRank());
-        assertSame(3, storyRanks.get(2).getRank());
+        assertEquals(0, rankable.getRank());
     }
 
     @Test
@@ -158,6 +198,8 @@ public class StoryRankBusinessTest {
                 .andReturn(null);
         expect(storyRankDAO.retrieveByBacklogAndStory(context, ref)).andReturn(
                 null);
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, null))
+                .andReturn(null);
         expect(storyRankDAO.create(EasyMock.capture(capt))).andReturn(id);
         expect(storyRankDAO.get(1)).andReturn(null);
         replayAll();
@@ -166,7 +208,7 @@ public class StoryRankBusinessTest {
         StoryRank rank = capt.getValue();
         assertSame(context, rank.getBacklog());
         assertSame(story, rank.getStory());
-        assertSame(0, rankable.getRank());
+        assertEquals(0, rank.getRank());
 
     }
 
@@ -178,16 +220,14 @@ public class StoryRankBusinessTest {
                 .andReturn(rankable);
         expect(storyRankDAO.retrieveByBacklogAndStory(context, ref)).andReturn(
                 storyRanks.get(1));
-        expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
-                storyRanks);
+        expect(storyRankDAO.retrieveNextRankNumber(context, 1024, rankable))
+                .andReturn(2048);
         replayAll();
         storyRankBusiness.rankBelow(story, context, ref);
         verifyAll();
 
-        assertSame(0, storyRanks.get(0).getRank());
-        assertSame(1, storyRanks.get(1).getRank());
-        assertSame(2, rankable.getRank());
-        assertSame(3, storyRanks.get(2).getRank());
+        assertEquals(1536, rankable.getRank());
+        assertRanksUnchanged();
     }
 
     @Test
@@ -198,15 +238,58 @@ public class StoryRankBusinessTest {
                 .andReturn(rankable);
         expect(storyRankDAO.retrieveByBacklogAndStory(context, ref)).andReturn(
                 storyRanks.get(2));
+        expect(storyRankDAO.retrieveNextRankNumber(context, 2048, rankable))
+                .andReturn(null);
+        replayAll();
+        storyRankBusiness.rankBelow(story, context, ref);
+        verifyAll();
+        assertEquals(3072, rankable.getRank());
+        assertRanksUnchanged();
+    }
+
+    @Test
+    public void testRankBelow_noGap() {
+        Story ref = new Story();
+
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(rankable);
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, ref)).andReturn(
+                storyRanks.get(1));
+        storyRanks.get(2).setRank(1025);
+        expect(storyRankDAO.retrieveNextRankNumber(context, 1024, rankable))
+                .andReturn(1025);
         expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
-                storyRanks);
+                Arrays.asList(storyRanks.get(0), storyRanks.get(1),
+                        storyRanks.get(2), rankable));
+        expect(storyRankDAO.retrieveNextRankNumber(context, 1024, rankable))
+                .andReturn(2048);
         replayAll();
         storyRankBusiness.rankBelow(story, context, ref);
         verifyAll();
-        assertSame(0, storyRanks.get(0).getRank());
-        assertSame(1, storyRanks.get(1).getRank());
-        assertSame(2, storyRanks.get(2).getRank());
-        assertSame(3, rankable.getRank());
+        assertEquals(1536, rankable.getRank());
+        assertRanksUnchanged();
+    }
+
+    @Test
+    public void testRankBelow_atIntLimit() {
+        Story ref = new Story();
+        storyRanks.get(2).setRank(Integer.MAX_VALUE - 1);
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(rankable);
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, ref)).andReturn(
+                storyRanks.get(2));
+        expect(storyRankDAO.retrieveNextRankNumber(context, Integer.MAX_VALUE - 1, rankable))
+                .andReturn(null);
+        expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
+                Arrays.asList(storyRanks.get(0), storyRanks.get(1),
+                        storyRanks.get(2), rankable));
+        expect(storyRankDAO.retrieveNextRankNumber(context, 2048, rankable))
+                .andReturn(null);
+        replayAll();
+        storyRankBusiness.rankBelow(story, context, ref);
+        verifyAll();
+        assertEquals(3072, rankable.getRank());
+        assertRanksUnchanged();
     }
 
     @Test
@@ -218,6 +301,8 @@ public class StoryRankBusinessTest {
                 .andReturn(null);
         expect(storyRankDAO.retrieveByBacklogAndStory(context, ref)).andReturn(
                 null);
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, null))
+                .andReturn(null);
         expect(storyRankDAO.create(EasyMock.capture(capt))).andReturn(id);
         expect(storyRankDAO.get(1)).andReturn(null);
         replayAll();
@@ -226,77 +311,117 @@ public class StoryRankBusinessTest {
         StoryRank rank = capt.getValue();
         assertSame(context, rank.getBacklog());
         assertSame(story, rank.getStory());
-        assertSame(0, rankable.getRank());
+        assertEquals(0, rank.getRank());
+    }
+
+    @Test
+    public void testCreateRank() {
+        Serializable id = new Integer(1);
+        Capture<StoryRank> capt = new Capture<StoryRank>();
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, null))
+                .andReturn(2048);
+        expect(storyRankDAO.create(EasyMock.capture(capt))).andReturn(id);
+        expect(storyRankDAO.get(1)).andReturn(rankable);
+        replayAll();
+        assertSame(rankable, storyRankBusiness.createRank(story, context));
+        verifyAll();
+        assertEquals(3072, capt.getValue().getRank());
+    }
+
+    @Test
+    public void testCreateRank_atIntLimit() {
+        Serializable id = new Integer(1);
+        Capture<StoryRank> capt = new Capture<StoryRank>();
+        storyRanks.get(2).setRank(Integer.MAX_VALUE - 1);
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, null))
+                .andReturn(Integer.MAX_VALUE - 1);
+        expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(storyRanks);
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, null))
+                .andReturn(2048);
+        expect(storyRankDAO.create(EasyMock.capture(capt))).andReturn(id);
+        expect(storyRankDAO.get(1)).andReturn(rankable);
+        replayAll();
+        assertSame(rankable, storyRankBusiness.createRank(story, context));
+        verifyAll();
+        assertEquals(3072, capt.getValue().getRank());
+        assertRanksUnchanged();
     }
 
     @Test
     public void testRemoveRank() {
         expect(this.storyRankDAO.retrieveByBacklogAndStory(context, story))
                 .andReturn(this.storyRanks.get(1));
-        expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
-                storyRanks);
         this.storyRankDAO.remove(this.storyRanks.get(1));
         replayAll();
         this.storyRankBusiness.removeRank(story, context);
         verifyAll();
-        assertSame(0, storyRanks.get(0).getRank());
-        assertSame(1, storyRanks.get(2).getRank());
+        assertEquals(0, storyRanks.get(0).getRank());
+        assertEquals(2048, storyRanks.get(2).getRank());
     }
 
     @Test
-    public void testRemoveRank_top() {
+    public void testRemoveRank_noRank() {
         expect(this.storyRankDAO.retrieveByBacklogAndStory(context, story))
-                .andReturn(this.storyRanks.get(0));
-        expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
-                storyRanks);
-        this.storyRankDAO.remove(this.storyRanks.get(0));
+                .andReturn(null);
         replayAll();
         this.storyRankBusiness.removeRank(story, context);
         verifyAll();
-        assertSame(0, storyRanks.get(1).getRank());
-        assertSame(1, storyRanks.get(2).getRank());
     }
 
     @Test
-    public void testRemoveRank_bottom() {
-        expect(this.storyRankDAO.retrieveByBacklogAndStory(context, story))
-                .andReturn(this.storyRanks.get(2));
-        expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
-                storyRanks);
-        this.storyRankDAO.remove(this.storyRanks.get(2));
+    public void testRankToBottom() {
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(storyRanks.get(0));
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, storyRanks.get(0)))
+                .andReturn(2048);
         replayAll();
-        this.storyRankBusiness.removeRank(story, context);
+        storyRankBusiness.rankToBottom(story, context);
         verifyAll();
-        assertSame(0, storyRanks.get(0).getRank());
-        assertSame(1, storyRanks.get(1).getRank());
+        assertEquals(3072, storyRanks.get(0).getRank());
     }
 
     @Test
-    public void testRankToBottom() {
+    public void testRankToBottom_atIntLimit() {
+        storyRanks.get(2).setRank(Integer.MAX_VALUE - 1);
         expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
                 .andReturn(rankable);
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, rankable))
+                .andReturn(Integer.MAX_VALUE - 1);
         expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
-                storyRanks);
-        expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
-                storyRanks);
+                Arrays.asList(rankable, storyRanks.get(0), storyRanks.get(1),
+                        storyRanks.get(2)));
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(rankable);
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, rankable))
+                .andReturn(3072);
         replayAll();
         storyRankBusiness.rankToBottom(story, context);
         verifyAll();
-        assertSame(0, storyRanks.get(0).getRank());
-        assertSame(1, storyRanks.get(1).getRank());
-        assertSame(2, storyRanks.get(2).getRank());
-        assertSame(3, rankable.getRank());
+        assertEquals(4096, rankable.getRank());
+        assertEquals(1024, storyRanks.get(0).getRank());
+        assertEquals(3072, storyRanks.get(2).getRank());
+    }
+
+    @Test
+    public void testRankToBottom_alreadyAtBottom() {
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(rankable);
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, rankable))
+                .andReturn(2048);
+        replayAll();
+        storyRankBusiness.rankToBottom(story, context);
+        verifyAll();
+        assertEquals(5000, rankable.getRank());
     }
 
-    @SuppressWarnings("unchecked")
     @Test
     public void testRankToBottom_emptyContext() {
         Serializable id = new Integer(1);
         Capture<StoryRank> capt = new Capture<StoryRank>();
         expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
                 .andReturn(null);
-        expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
-                Collections.EMPTY_LIST);
+        expect(storyRankDAO.retrievePreviousRankNumber(context, Integer.MAX_VALUE, null))
+                .andReturn(null);
         expect(storyRankDAO.create(EasyMock.capture(capt))).andReturn(id);
         expect(storyRankDAO.get(1)).andReturn(rankable);
         
@@ -306,6 +431,51 @@ public class StoryRankBusinessTest {
         StoryRank rank = capt.getValue();
         assertSame(context, rank.getBacklog());
         assertSame(story, rank.getStory());
-        assertSame(0, rankable.getRank());
+        assertEquals(0, rank.getRank());
+    }
+
+    @Test
+    public void testRankToHead() {
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(rankable);
+        expect(storyRankDAO.retrieveNextRankNumber(context, Integer.MIN_VALUE, rankable))
+                .andReturn(0);
+        replayAll();
+        storyRankBusiness.rankToHead(story, context);
+        verifyAll();
+        assertEquals(-1024, rankable.getRank());
+    }
+
+    @Test
+    public void testRankToHead_atIntLimit() {
+        storyRanks.get(0).setRank(Integer.MIN_VALUE + 1);
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(rankable);
+        expect(storyRankDAO.retrieveNextRankNumber(context, Integer.MIN_VALUE, rankable))
+                .andReturn(Integer.MIN_VALUE + 1);
+        expect(storyRankDAO.retrieveRanksByBacklog(context)).andReturn(
+                Arrays.asList(storyRanks.get(0), storyRanks.get(1),
+                        storyRanks.get(2), rankable));
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(rankable);
+        expect(storyRankDAO.retrieveNextRankNumber(context, Integer.MIN_VALUE, rankable))
+                .andReturn(0);
+        replayAll();
+        storyRankBusiness.rankToHead(story, context);
+        verifyAll();
+        assertEquals(-1024, rankable.getRank());
+        assertRanksUnchanged();
+    }
+
+    @Test
+    public void testRankToHead_alreadyAtHead() {
+        expect(storyRankDAO.retrieveByBacklogAndStory(context, story))
+                .andReturn(storyRanks.get(0));
+        expect(storyRankDAO.retrieveNextRankNumber(context, Integer.MIN_VALUE, storyRanks.get(0)))
+                .andReturn(1024);
+        replayAll();
+        storyRankBusiness.rankToHead(story, context);
+        verifyAll();
+        assertRanksUnchanged();
     }
 }
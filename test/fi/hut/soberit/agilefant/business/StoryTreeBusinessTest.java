@@ -0,0 +1,191 @@
+package fi.hut.soberit.agilefant.business;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import fi.hut.soberit.agilefant.business.impl.StoryTreeBusinessImpl;
+import fi.hut.soberit.agilefant.db.StoryHierarchyDAO;
+import fi.hut.soberit.agilefant.model.Label;
+import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.test.Mock;
+import fi.hut.soberit.agilefant.test.MockContextLoader;
+import fi.hut.soberit.agilefant.test.MockedTestCase;
+import fi.hut.soberit.agilefant.test.TestedBean;
+import fi.hut.soberit.agilefant.transfer.StoryTO;
+import fi.hut.soberit.agilefant.util.StoryFilters;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(loader = MockContextLoader.class)
+public class StoryTreeBusinessTest extends MockedTestCase {
+
+    @TestedBean
+    private StoryTreeBusinessImpl storyTreeBusiness;
+
+    @Mock(strict = true)
+    private StoryHierarchyDAO storyHierarchyDAO;
+
+    @Mock
+    private StoryFilterBusiness storyFilterBusiness;
+
+    /*
+     *    1      4
+     *    2
+     *    3
+     */
+    private Story story1;
+    private Story story2;
+    private Story story3;
+    private Story story4;
+
+    private User user;
+    private Label label;
+
+    private static Story createStory(int id, Story parent) {
+        Story story = new Story();
+        story.setId(id);
+        story.setName("Story " + id);
+        story.setParent(parent);
+        return story;
+    }
+
+    @Before
+    public void setUp_tree() {
+        story1 = createStory(1, null);
+        story2 = createStory(2, story1);
+        story3 = createStory(3, story2);
+        story4 = createStory(4, null);
+        user = new User();
+        label = new Label();
+    }
+
+    private void expectTreeLoading(List<Story> roots, List<Story> subtrees,
+            Integer... storyIds) {
+        expect(storyHierarchyDAO.retrieveSubtrees(roots)).andReturn(subtrees);
+        Map<Integer, Set<User>> responsibles = new HashMap<Integer, Set<User>>();
+        responsibles.put(2, new HashSet<User>(Arrays.asList(user)));
+        expect(storyHierarchyDAO.retrieveResponsiblesByStoryIds(
+                new HashSet<Integer>(Arrays.asList(storyIds))))
+                .andReturn(responsibles);
+        Map<Integer, Set<Label>> labels = new HashMap<Integer, Set<Label>>();
+        labels.put(3, new HashSet<Label>(Arrays.asList(label)));
+        expect(storyHierarchyDAO.retrieveLabelsByStoryIds(
+                new HashSet<Integer>(Arrays.asList(storyIds))))
+                .andReturn(labels);
+    }
+
+    @Test
+    @DirtiesContext
+    public void testRetrieveProductStoryTree() {
+        List<Story> roots = Arrays.asList(story1, story4);
+        expect(storyHierarchyDAO.retrieveProductRootStories(10)).andReturn(roots);
+        expectTreeLoading(roots, Arrays.asList(story1, story2, story3, story4),
+                1, 2, 3, 4);
+        replayAll();
+        List<StoryTO> actual = storyTreeBusiness.retrieveProductStoryTree(10,
+                null, null);
+        verifyAll();
+
+        assertEquals(2, actual.size());
+        StoryTO root = actual.get(0);
+        assertEquals(1, root.getId());
+        assertNotSame(story1, root);
+        assertEquals("Story 1", root.getName());
+        assertTrue(root.getResponsibles().isEmpty());
+        assertEquals(4, actual.get(1).getId());
+        assertTrue(actual.get(1).getChildren().isEmpty());
+
+        assertEquals(1, root.getChildren().size());
+        Story child = root.getChildren().get(0);
+        assertEquals(2, child.getId());
+        assertTrue(child.getResponsibles().contains(user));
+        assertEquals(1, child.getChildren().size());
+        Story leaf = child.getChildren().get(0);
+        assertEquals(3, leaf.getId());
+        assertTrue(leaf.getLabels().contains(label));
+        assertTrue(leaf.getChildren().isEmpty());
+    }
+
+    @Test
+    @DirtiesContext
+    public void testRetrieveProductStoryTree_maxDepth() {
+        List<Story> roots = Arrays.asList(story1, story4);
+        expect(storyHierarchyDAO.retrieveProductRootStories(10)).andReturn(roots);
+        expectTreeLoading(roots, Arrays.asList(story1, story2, story3, story4),
+                1, 2, 3, 4);
+        replayAll();
+        List<StoryTO> actual = storyTreeBusiness.retrieveProductStoryTree(10,
+                null, 2);
+        verifyAll();
+
+        assertEquals(2, actual.size());
+        Story child = actual.get(0).getChildren().get(0);
+        assertEquals(2, child.getId());
+        assertTrue(child.getChildren().isEmpty());
+    }
+
+    @Test
+    @DirtiesContext
+    public void testRetrieveProductStoryTree_filtered() {
+        StoryFilters filters = new StoryFilters();
+        List<Story> roots = Arrays.asList(story1, story4);
+        expect(storyHierarchyDAO.retrieveProductRootStories(10)).andReturn(roots);
+        expectTreeLoading(roots, Arrays.asList(story1, story2, story3, story4),
+                1, 2, 3, 4);
+        expect(storyFilterBusiness.filterStory(isA(StoryTO.class), same(filters)))
+                .andAnswer(new IAnswer<Boolean>() {
+                    public Boolean answer() throws Throwable {
+                        Story story = (Story) getCurrentArguments()[0];
+                        return story.getId() == 3;
+                    }
+                }).anyTimes();
+        replayAll();
+        List<StoryTO> actual = storyTreeBusiness.retrieveProductStoryTree(10,
+                filters, 1);
+        verifyAll();
+
+        assertEquals(1, actual.size());
+        assertEquals(1, actual.get(0).getId());
+        assertTrue(actual.get(0).getChildren().isEmpty());
+    }
+
+    @Test
+    @DirtiesContext
+    public void testRetrieveProjectStoryTree() {
+        Story story5 = createStory(5, story1);
+        List<Story> roots = Arrays.asList(story2, story5, story4);
+        expect(storyHierarchyDAO.retrieveProjectRootStories(20)).andReturn(roots);
+        expectTreeLoading(roots, Arrays.asList(story2, story3, story5, story4),
+                1, 2, 3, 4, 5);
+        replayAll();
+        List<StoryTO> actual = storyTreeBusiness.retrieveProjectStoryTree(20,
+                null, null);
+        verifyAll();
+
+        assertEquals(2, actual.size());
+        StoryTO root = actual.get(0);
+        assertEquals(1, root.getId());
+        assertNotSame(story1, root);
+        assertEquals(2, root.getChildren().size());
+        assertEquals(2, root.getChildren().get(0).getId());
+        assertEquals(3, root.getChildren().get(0).getChildren().get(0).getId());
+        assertEquals(5, root.getChildren().get(1).getId());
+        assertEquals(4, actual.get(1).getId());
+    }
+}
@@ -13,7 +13,9 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import fi.hut.soberit.agilefant.business.impl.StoryTreeIntegrityBusinessImpl;
+import fi.hut.soberit.agilefant.db.StoryHierarchyDAO;
 import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.test.Mock;
 import fi.hut.soberit.agilefant.test.MockContextLoader;
 import fi.hut.soberit.agilefant.test.MockedTestCase;
 import fi.hut.soberit.agilefant.test.TestedBean;
@@ -26,6 +28,9 @@ public class StoryTreeIntegrityBusinessBuildChangeTreeTest extends MockedTestCas
 
     @TestedBean
     private StoryTreeIntegrityBusinessImpl testable;
+
+    @Mock
+    private StoryHierarchyDAO storyHierarchyDAO;
     
     @Test
     @DirtiesContext
@@ -44,6 +49,7 @@ public class StoryTreeIntegrityBusinessBuildChangeTreeTest extends MockedTestCas
         messages.add(new StoryTreeIntegrityMessage(root, child11, null));
         messages.add(new StoryTreeIntegrityMessage(root, child12, null));
         
+        storyHierarchyDAO.initializeSubtree(root);
         replayAll();
         MoveStoryNode storyNode = this.testable.generateChangedStoryTree(root, messages);
         verifyAll();
@@ -80,6 +86,7 @@ public class StoryTreeIntegrityBusinessBuildChangeTreeTest extends MockedTestCas
         messages.add(new StoryTreeIntegrityMessage(level2, null, null));
         
         
+        storyHierarchyDAO.initializeSubtree(level3);
         replayAll();
         MoveStoryNode storyNode = this.testable.generateChangedStoryTree(level3, messages);
         verifyAll();
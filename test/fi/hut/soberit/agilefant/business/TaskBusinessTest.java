@@ -189,6 +189,7 @@ public class TaskBusinessTest extends MockedTestCase {
         expect(taskDAO.getAndDetach(task.getId())).andReturn(task);
         expect(iterationBusiness.retrieve(iteration.getId())).andReturn(
                 iteration);
+        hourEntryBusiness.updateBacklogPath(task);
         taskDAO.store(task);
 
         expectRankToBottom(task, null, iteration);
@@ -213,6 +214,7 @@ public class TaskBusinessTest extends MockedTestCase {
         expect(taskDAO.getAndDetach(task.getId())).andReturn(task);
         expect(iterationBusiness.retrieve(iteration.getId())).andReturn(
                 iteration);
+        hourEntryBusiness.updateBacklogPath(task);
         taskDAO.store(task);
         expectRankToBottom(task, null, iteration);
         dailyWorkBusiness.removeTaskFromWorkQueues(task);
@@ -234,6 +236,7 @@ public class TaskBusinessTest extends MockedTestCase {
 
         expect(taskDAO.getAndDetach(task.getId())).andReturn(task);
         expect(storyBusiness.retrieve(story.getId())).andReturn(story);
+        hourEntryBusiness.updateBacklogPath(task);
         taskDAO.store(task);
         expectRankToBottom(task, story, null);
 
@@ -259,6 +262,7 @@ public class TaskBusinessTest extends MockedTestCase {
 
         expect(taskDAO.getAndDetach(task.getId())).andReturn(task);
         expect(storyBusiness.retrieve(story.getId())).andReturn(story);
+        hourEntryBusiness.updateBacklogPath(task);
         taskDAO.store(task);
         expectRankToBottom(task, story, null);
 
@@ -328,6 +332,7 @@ public class TaskBusinessTest extends MockedTestCase {
         expect(taskDAO.getAndDetach(task.getId())).andReturn(task2);
 
         expect(storyBusiness.retrieve(story.getId())).andReturn(story);
+        hourEntryBusiness.updateBacklogPath(task);
         taskDAO.store(task);
         expectRankToBottom(task, story, null);
 
@@ -352,6 +357,7 @@ public class TaskBusinessTest extends MockedTestCase {
         expect(taskDAO.getAndDetach(task.getId())).andReturn(task2);
 
         expect(storyBusiness.retrieve(story.getId())).andReturn(story);
+        hourEntryBusiness.updateBacklogPath(task);
         taskDAO.store(task);
         expectRankToBottom(task, story, null);
 
@@ -375,6 +381,7 @@ public class TaskBusinessTest extends MockedTestCase {
 
         expect(taskDAO.getAndDetach(task.getId())).andReturn(task2);
         expect(storyBusiness.retrieve(story.getId())).andReturn(story);
+        hourEntryBusiness.updateBacklogPath(task);
         taskDAO.store(task);
         expectRankToBottom(task, story, null);
 
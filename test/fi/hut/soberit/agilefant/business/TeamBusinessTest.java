@@ -20,6 +20,7 @@ public class TeamBusinessTest {
     
     private TeamDAO teamDAO;
     private UserBusiness userBusiness;
+    private BacklogAccessBusiness backlogAccessBusiness;
     
     @Before
     public void setUp_dependencies() {
@@ -30,14 +31,17 @@ public class TeamBusinessTest {
         
         userBusiness = createMock(UserBusiness.class);
         teamBusiness.setUserBusiness(userBusiness);
+        
+        backlogAccessBusiness = createMock(BacklogAccessBusiness.class);
+        teamBusiness.setBacklogAccessBusiness(backlogAccessBusiness);
     }
 
     private void replayAll() {
-        replay(teamDAO, userBusiness);
+        replay(teamDAO, userBusiness, backlogAccessBusiness);
     }
 
     private void verifyAll() {
-        verify(teamDAO, userBusiness);
+        verify(teamDAO, userBusiness, backlogAccessBusiness);
     }
 
     
@@ -51,6 +55,7 @@ public class TeamBusinessTest {
         expect(userBusiness.retrieve(22)).andReturn(user);
         expect(userBusiness.retrieve(13)).andReturn(new User());
         teamDAO.store(team);
+        backlogAccessBusiness.invalidate();
         
         replayAll();
         Team actual = teamBusiness.storeTeam(team, new HashSet<Integer>(Arrays.asList(22, 13)), null, null);
@@ -66,6 +71,7 @@ public class TeamBusinessTest {
         Team team = new Team();
         expect(teamDAO.create(team)).andReturn(555);
         expect(teamDAO.get(555)).andReturn(team);
+        backlogAccessBusiness.invalidate();
         
         replayAll();
         Team actual = teamBusiness.storeTeam(team, null, null, null);
@@ -80,5 +86,14 @@ public class TeamBusinessTest {
         teamBusiness.storeTeam(null, null, null, null);
         verifyAll();
     }
-    
+
+    @Test
+    public void testDelete() {
+        teamDAO.remove(123);
+        backlogAccessBusiness.invalidate();
+        
+        replayAll();
+        teamBusiness.delete(123);
+        verifyAll();
+    }
 }
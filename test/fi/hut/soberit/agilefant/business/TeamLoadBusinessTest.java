@@ -0,0 +1,183 @@
+package fi.hut.soberit.agilefant.business;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import fi.hut.soberit.agilefant.business.impl.TeamLoadBusinessImpl;
+import fi.hut.soberit.agilefant.db.UserDAO;
+import fi.hut.soberit.agilefant.model.Assignment;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.transfer.ComputedLoadData;
+import fi.hut.soberit.agilefant.transfer.TeamLoadData;
+import fi.hut.soberit.agilefant.transfer.UserLoadTO;
+
+public class TeamLoadBusinessTest {
+
+    private TeamLoadBusinessImpl teamLoadBusiness;
+    private PersonalLoadBusiness personalLoadBusiness;
+    private UserDAO userDAO;
+    private PlatformTransactionManager transactionManager;
+    private TeamLoadData teamData;
+
+    @Before
+    public void setUp() {
+        teamLoadBusiness = new TeamLoadBusinessImpl();
+        personalLoadBusiness = createMock(PersonalLoadBusiness.class);
+        userDAO = createMock(UserDAO.class);
+        transactionManager = createMock(PlatformTransactionManager.class);
+        teamLoadBusiness.setPersonalLoadBusiness(personalLoadBusiness);
+        teamLoadBusiness.setUserDAO(userDAO);
+        teamLoadBusiness.setTransactionManager(transactionManager);
+
+        teamData = new TeamLoadData(Arrays.<Assignment> asList(),
+                new HashMap<Integer, Integer>());
+        SimpleTransactionStatus status = new SimpleTransactionStatus();
+        expect(transactionManager.getTransaction(isA(TransactionDefinition.class)))
+                .andReturn(status).anyTimes();
+        transactionManager.commit(status);
+        expectLastCall().anyTimes();
+        transactionManager.rollback(status);
+        expectLastCall().anyTimes();
+    }
+
+    @After
+    public void tearDown() {
+        teamLoadBusiness.shutdown();
+    }
+
+    private void replayAll() {
+        replay(personalLoadBusiness, userDAO, transactionManager);
+    }
+
+    private void verifyAll() {
+        verify(personalLoadBusiness, userDAO, transactionManager);
+    }
+
+    private User expectUser(int id) {
+        User user = new User();
+        user.setId(id);
+        expect(userDAO.get(id)).andReturn(user);
+        return user;
+    }
+
+    /**
+     * Collects the loads, checking that the listener is called on the calling
+     * thread.
+     */
+    private List<UserLoadTO> retrieveUsersLoad(Collection<Integer> userIds) {
+        final Thread caller = Thread.currentThread();
+        final List<UserLoadTO> loads = new ArrayList<UserLoadTO>();
+        teamLoadBusiness.retrieveUsersLoad(userIds, 5,
+                new TeamLoadBusiness.UserLoadListener() {
+                    public void loadCompleted(UserLoadTO load) {
+                        assertSame(caller, Thread.currentThread());
+                        loads.add(load);
+                    }
+                });
+        return loads;
+    }
+
+    @Test
+    public void testRetrieveUsersLoad() {
+        Collection<Integer> userIds = Arrays.asList(1, 2, 3, 2);
+        expect(personalLoadBusiness.retrieveTeamLoadData(userIds, 5))
+                .andReturn(teamData);
+        Map<Integer, ComputedLoadData> loadData = new HashMap<Integer, ComputedLoadData>();
+        for (int id = 1; id <= 2; id++) {
+            User user = expectUser(id);
+            loadData.put(id, new ComputedLoadData());
+            expect(personalLoadBusiness.retrieveUserLoad(user, 5, teamData))
+                    .andReturn(loadData.get(id));
+        }
+        expect(userDAO.get(3)).andReturn(null);
+        replayAll();
+
+        List<UserLoadTO> actual = retrieveUsersLoad(userIds);
+        verifyAll();
+
+        assertEquals(2, actual.size());
+        Set<Integer> actualIds = new HashSet<Integer>();
+        for (UserLoadTO load : actual) {
+            actualIds.add(load.getUserId());
+            assertSame(loadData.get(load.getUserId()), load.getLoadData());
+        }
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 2)), actualIds);
+    }
+
+    @Test
+    public void testRetrieveUsersLoad_manyUsers() {
+        Set<Integer> userIds = new HashSet<Integer>();
+        for (int id = 1; id <= 80; id++) {
+            userIds.add(id);
+        }
+        expect(personalLoadBusiness.retrieveTeamLoadData(userIds, 5))
+                .andReturn(teamData);
+        for (int id = 1; id <= 80; id++) {
+            User user = expectUser(id);
+            expect(personalLoadBusiness.retrieveUserLoad(user, 5, teamData))
+                    .andReturn(new ComputedLoadData());
+        }
+        replayAll();
+
+        assertEquals(80, retrieveUsersLoad(userIds).size());
+        verifyAll();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRetrieveUsersLoad_failure() {
+        Collection<Integer> userIds = Arrays.asList(1);
+        expect(personalLoadBusiness.retrieveTeamLoadData(userIds, 5))
+                .andReturn(teamData);
+        User user = expectUser(1);
+        expect(personalLoadBusiness.retrieveUserLoad(user, 5, teamData))
+                .andThrow(new IllegalStateException());
+        replayAll();
+
+        retrieveUsersLoad(userIds);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRetrieveUsersLoad_listenerFailure() {
+        Collection<Integer> userIds = Arrays.asList(1);
+        expect(personalLoadBusiness.retrieveTeamLoadData(userIds, 5))
+                .andReturn(teamData);
+        User user = expectUser(1);
+        expect(personalLoadBusiness.retrieveUserLoad(user, 5, teamData))
+                .andReturn(new ComputedLoadData());
+        replayAll();
+
+        teamLoadBusiness.retrieveUsersLoad(userIds, 5,
+                new TeamLoadBusiness.UserLoadListener() {
+                    public void loadCompleted(UserLoadTO load) {
+                        throw new IllegalStateException();
+                    }
+                });
+    }
+
+    @Test
+    public void testRetrieveUsersLoad_noUsers() {
+        Collection<Integer> userIds = Arrays.<Integer> asList();
+        expect(personalLoadBusiness.retrieveTeamLoadData(userIds, 5))
+                .andReturn(teamData);
+        replayAll();
+
+        assertTrue(retrieveUsersLoad(userIds).isEmpty());
+        verifyAll();
+    }
+}
@@ -3,6 +3,9 @@ package fi.hut.soberit.agilefant.business;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -17,6 +20,7 @@ import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.easymock.IAnswer;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
@@ -34,7 +38,9 @@ import fi.hut.soberit.agilefant.model.StoryHourEntry;
 import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.model.TaskHourEntry;
 import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.util.TimesheetExportRow;
 import fi.hut.soberit.agilefant.util.TimesheetExportRowData;
+import fi.hut.soberit.agilefant.util.TimesheetExportRowHandler;
 
 public class TimesheetExportBusinessTest extends TimesheetExportBusinessImpl {
 
@@ -388,4 +394,51 @@ public class TimesheetExportBusinessTest extends TimesheetExportBusinessImpl {
                 descCell, userCell, dateCell, effortCell, row);
     }
 
+    @Test
+    public void testWriteCsvRow() throws IOException {
+        StringWriter writer = new StringWriter();
+        writeCsvRow(writer, new String[] { "plain", null, "with, comma",
+                "with \"quotes\"", "two\nlines" });
+        assertEquals("plain,,\"with, comma\",\"with \"\"quotes\"\"\",\"two\nlines\"\r\n",
+                writer.toString());
+    }
+
+    @Test
+    public void testWriteTimesheetCsv() throws IOException {
+        Set<Integer> backlogIds = new HashSet<Integer>(Arrays.asList(1));
+        HourEntryDAO heDAO = createMock(HourEntryDAO.class);
+        TextProvider textProvider = createMock(TextProvider.class);
+        for (String columnName : COLUMN_NAMES) {
+            expect(textProvider.getText(columnName)).andReturn(columnName);
+        }
+        final TimesheetExportRow row = new TimesheetExportRow();
+        row.setProjectName("project 1");
+        row.setDescription("comment");
+        row.setUserName("User 1");
+        row.setDate(date);
+        row.setEffort(90);
+        expect(heDAO.processTimesheetRows(eq(backlogIds), (DateTime) isNull(),
+                (DateTime) isNull(), (Set<Integer>) isNull(),
+                isA(TimesheetExportRowHandler.class))).andAnswer(
+                new IAnswer<Integer>() {
+                    public Integer answer() throws Throwable {
+                        ((TimesheetExportRowHandler) getCurrentArguments()[4])
+                                .handleRow(row);
+                        return 1;
+                    }
+                });
+        this.setHourEntryDAO(heDAO);
+        replay(heDAO, textProvider);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(1, super.writeTimesheetCsv(textProvider, backlogIds,
+                null, null, null, out));
+        String[] lines = out.toString("UTF-8").split("\r\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("\uFEFFtimesheet.product,timesheet.project,"));
+        assertEquals(",project 1,,,,comment,User 1,10.06.2009 12:30,1.50",
+                lines[1]);
+        verify(heDAO, textProvider);
+    }
+
 }
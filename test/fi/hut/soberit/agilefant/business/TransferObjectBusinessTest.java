@@ -36,12 +36,16 @@ import fi.hut.soberit.agilefant.model.WhatsNextEntry;
 import fi.hut.soberit.agilefant.security.SecurityUtil;
 import fi.hut.soberit.agilefant.transfer.AssignedWorkTO;
 import fi.hut.soberit.agilefant.transfer.AutocompleteDataNode;
+import fi.hut.soberit.agilefant.transfer.BacklogType;
 import fi.hut.soberit.agilefant.transfer.DailyWorkTaskTO;
 import fi.hut.soberit.agilefant.transfer.IterationTO;
 import fi.hut.soberit.agilefant.transfer.ProjectTO;
 import fi.hut.soberit.agilefant.transfer.ScheduleStatus;
 import fi.hut.soberit.agilefant.transfer.StoryTO;
 import fi.hut.soberit.agilefant.transfer.TaskTO;
+import fi.hut.soberit.agilefant.util.AccessibleBacklogs;
+import fi.hut.soberit.agilefant.util.BacklogHierarchy;
+import fi.hut.soberit.agilefant.util.IntSet;
 import fi.hut.soberit.agilefant.util.StoryMetrics;
 
 public class TransferObjectBusinessTest {
@@ -54,6 +58,8 @@ public class TransferObjectBusinessTest {
     private ProductBusiness productBusiness;
     private ProjectBusiness projectBusiness;
     private IterationBusiness iterationBusiness;
+    private BacklogHierarchyBusiness backlogHierarchyBusiness;
+    private BacklogAccessBusiness backlogAccessBusiness;
     
     Project   project;
     Iteration iteration;
@@ -63,6 +69,7 @@ public class TransferObjectBusinessTest {
     User assignedUser;
     User notAssignedUser;
     Team team;
+    User loggedUser;
     private StoryBusiness storyBusiness;
 
     @Before
@@ -91,18 +98,26 @@ public class TransferObjectBusinessTest {
         storyBusiness = createMock(StoryBusiness.class);
         transferObjectBusiness.setStoryBusiness(storyBusiness);
         
+        backlogHierarchyBusiness = createMock(BacklogHierarchyBusiness.class);
+        transferObjectBusiness.setBacklogHierarchyBusiness(backlogHierarchyBusiness);
+        
+        backlogAccessBusiness = createMock(BacklogAccessBusiness.class);
+        transferObjectBusiness.setBacklogAccessBusiness(backlogAccessBusiness);
+        
     }
     
     private void verifyAll() {
         verify(hourEntryBusiness, userBusiness, storyBusiness, teamBusiness,
                 backlogBusiness, productBusiness, projectBusiness,
-                iterationBusiness);
+                iterationBusiness, backlogHierarchyBusiness,
+                backlogAccessBusiness);
     }
 
     private void replayAll() {
         replay(hourEntryBusiness, userBusiness, storyBusiness, teamBusiness,
                 backlogBusiness, productBusiness, projectBusiness,
-                iterationBusiness);
+                iterationBusiness, backlogHierarchyBusiness,
+                backlogAccessBusiness);
     }
     
     
@@ -305,8 +320,15 @@ public class TransferObjectBusinessTest {
         iterationUnderProduct.setParent(product);
         iterationUnderProduct.setName("Iter 2");
         
-        expect(backlogBusiness.retrieveAll())
-            .andReturn(Arrays.asList(product, project, iterationUnderProject, iterationUnderProduct));
+        Backlog otherProduct = new Product();
+        otherProduct.setId(2);
+        otherProduct.setName("Other");
+        
+        expectHierarchy(product, project, iterationUnderProject,
+                iterationUnderProduct, otherProduct);
+        expectAccessibleProducts(1);
+        expect(backlogBusiness.retrieveMultiple(Arrays.asList(1, 7)))
+            .andReturn(Arrays.asList(project, product));
         
         replayAll();
         
@@ -350,14 +372,10 @@ public class TransferObjectBusinessTest {
         project.setParent(product);
         project.setName("Project");
         
-        expect(backlogBusiness.retrieveAll()).andReturn(Arrays.asList(product, project, product2));
-
-        expect(backlogBusiness.retrieve(7)).andReturn(project);
-        expect(backlogBusiness.getParentProduct(project)).andReturn(product);
-        
-        expect(backlogBusiness.getParentProduct(product)).andReturn(product);
-        expect(backlogBusiness.getParentProduct(project)).andReturn(product);
-        expect(backlogBusiness.getParentProduct(product2)).andReturn(product2);
+        expectHierarchy(product, project, product2);
+        expectAccessibleProducts(1, 123);
+        expect(backlogBusiness.retrieveMultiple(Arrays.asList(1, 7)))
+            .andReturn(Arrays.asList(product, project));
         
         replayAll();
         
@@ -400,7 +418,10 @@ public class TransferObjectBusinessTest {
         project.setParent(product);
         project.setName("Project");
         
-        expect(projectBusiness.retrieveAll()).andReturn(Arrays.asList(project));
+        expectHierarchy(product, project);
+        expectAccessibleProducts(1);
+        expect(backlogBusiness.retrieveMultiple(Arrays.asList(7)))
+            .andReturn(Arrays.<Backlog>asList(project));
         
         replayAll();
         
@@ -441,6 +462,7 @@ public class TransferObjectBusinessTest {
         
         expect(iterationBusiness.retrieveCurrentAndFutureIterations())
             .andReturn(Arrays.asList(iterationUnderProject, iterationUnderProduct));
+        expectHierarchy(product, project, iterationUnderProject, iterationUnderProduct);
         
         replayAll();
         
@@ -488,7 +510,10 @@ public class TransferObjectBusinessTest {
         products.add((Product)product2);
         team.setProducts(products);
         
-        expect(productBusiness.retrieveAll()).andReturn(Arrays.asList(product1, product2));
+        expectHierarchy(product1, product2);
+        expectAccessibleProducts(756, 918);
+        expect(backlogBusiness.retrieveMultiple(Arrays.asList(756, 918)))
+            .andReturn(Arrays.<Backlog>asList(product1, product2));
         replayAll();
         List<AutocompleteDataNode> nodes = transferObjectBusiness
                 .constructProductAutocompleteData();
@@ -648,5 +673,22 @@ public class TransferObjectBusinessTest {
         teams.add(team);
         user.setTeams(teams);
         SecurityUtil.setLoggedUser(user);
+        loggedUser = user;
+    }
+    
+    private void expectHierarchy(Backlog... backlogs) {
+        List<BacklogHierarchy.Node> nodes = new ArrayList<BacklogHierarchy.Node>();
+        for (Backlog backlog : backlogs) {
+            nodes.add(new BacklogHierarchy.Node(backlog.getId(), BacklogType
+                    .forBacklog(backlog), backlog.getName(), null, null,
+                    backlog.getParent() == null ? 0 : backlog.getParent().getId()));
+        }
+        expect(backlogHierarchyBusiness.getHierarchy()).andReturn(
+                new BacklogHierarchy(nodes));
+    }
+    
+    private void expectAccessibleProducts(Integer... productIds) {
+        expect(backlogAccessBusiness.getAccessibleBacklogs(loggedUser)).andReturn(
+                new AccessibleBacklogs(IntSet.of(Arrays.asList(productIds)), IntSet.EMPTY));
     }
 }
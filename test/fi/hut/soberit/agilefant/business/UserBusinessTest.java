@@ -18,6 +18,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import fi.hut.soberit.agilefant.business.impl.UserBusinessImpl;
+import fi.hut.soberit.agilefant.db.HourEntryDailySumDAO;
+import fi.hut.soberit.agilefant.db.StoryAccessDAO;
 import fi.hut.soberit.agilefant.db.UserDAO;
 import fi.hut.soberit.agilefant.model.Holiday;
 import fi.hut.soberit.agilefant.model.Team;
@@ -30,6 +32,12 @@ public class UserBusinessTest {
     
     TeamBusiness teamBusiness;
     
+    BacklogAccessBusiness backlogAccessBusiness;
+    
+    HourEntryDailySumDAO hourEntryDailySumDAO;
+    
+    StoryAccessDAO storyAccessDAO;
+    
     @Before
     public void setUp() {
         userDAO = createMock(UserDAO.class);
@@ -37,14 +45,23 @@ public class UserBusinessTest {
         
         teamBusiness = createMock(TeamBusiness.class);
         userBusiness.setTeamBusiness(teamBusiness);
+        
+        backlogAccessBusiness = createMock(BacklogAccessBusiness.class);
+        userBusiness.setBacklogAccessBusiness(backlogAccessBusiness);
+        
+        hourEntryDailySumDAO = createMock(HourEntryDailySumDAO.class);
+        userBusiness.setHourEntryDailySumDAO(hourEntryDailySumDAO);
+        
+        storyAccessDAO = createMock(StoryAccessDAO.class);
+        userBusiness.setStoryAccessDAO(storyAccessDAO);
     }
 
     private void verifyAll() {
-        verify(userDAO, teamBusiness);
+        verify(userDAO, teamBusiness, backlogAccessBusiness, hourEntryDailySumDAO, storyAccessDAO);
     }
 
     private void replayAll() {
-        replay(userDAO, teamBusiness);
+        replay(userDAO, teamBusiness, backlogAccessBusiness, hourEntryDailySumDAO, storyAccessDAO);
     }
     
     @Test
@@ -116,6 +133,46 @@ public class UserBusinessTest {
         assertEquals(expected.getMillis(), actual.getMillis());        
     }
     
+    @Test
+    public void testCalculateWorktimePerPeriod_vacationOverWeekend() {
+        User user = new User();
+        LocalDate start = new LocalDate(2009,6,1);
+        
+        Holiday holiday = new Holiday();
+        holiday.setStartDate(start.plusDays(4).toDateMidnight().toDate());
+        holiday.setEndDate(start.plusDays(8).toDateMidnight().toDate());
+        user.getHolidays().add(holiday);        
+        
+        Duration expected = new Duration(start.toDateMidnight(), start.plusDays(5).toDateMidnight());
+        Interval interval = new Interval(start.toDateMidnight(), start.plusDays(9).toDateMidnight());
+        Duration actual = this.userBusiness.calculateWorktimePerPeriod(user, interval);
+        assertEquals(expected.getMillis(), actual.getMillis());        
+    }
+    
+    @Test
+    public void testCalculateWorktimePerPeriod_cachedHolidays() {
+        User user = new User();
+        user.setId(12);
+        LocalDate start = new LocalDate(2009,6,1);
+        Interval interval = new Interval(start.toDateMidnight(), start.plusDays(7).toDateMidnight());
+        assertEquals(new Duration(start.toDateMidnight(), start.plusDays(5).toDateMidnight()),
+                this.userBusiness.calculateWorktimePerPeriod(user, interval));
+        
+        Holiday holiday = new Holiday();
+        holiday.setStartDate(start.plusDays(1).toDateMidnight().toDate());
+        holiday.setEndDate(start.plusDays(3).toDateMidnight().toDate());
+        user.getHolidays().add(holiday);
+        assertEquals(new Duration(start.toDateMidnight(), start.plusDays(5).toDateMidnight()),
+                this.userBusiness.calculateWorktimePerPeriod(user, interval));
+        assertFalse(this.userBusiness.isDayUserHoliday(start.plusDays(1).toDateMidnight().toDateTime(), user));
+        
+        this.userBusiness.invalidateHolidays(user);
+        assertEquals(new Duration(start.toDateMidnight(), start.plusDays(3).toDateMidnight()),
+                this.userBusiness.calculateWorktimePerPeriod(user, interval));
+        assertEquals(72L, this.userBusiness.calculateWorkHoursPerPeriod(user, interval).longValue());
+        assertTrue(this.userBusiness.isDayUserHoliday(start.plusDays(1).toDateMidnight().toDateTime(), user));
+    }
+    
     @Test
     public void testStore_newUser() {
         User user = new User();
@@ -194,6 +251,7 @@ public class UserBusinessTest {
         
         expect(teamBusiness.retrieve(1)).andReturn(first);
         expect(teamBusiness.retrieve(7)).andReturn(second);
+        backlogAccessBusiness.invalidate();
         userDAO.store(user);
         
         replayAll();
@@ -211,6 +269,7 @@ public class UserBusinessTest {
         user.setId(123);
         user.setTeams(new ArrayList<Team>(Arrays.asList(new Team())));
               
+        backlogAccessBusiness.invalidate();
         userDAO.store(user);
         
         replayAll();
@@ -237,4 +296,86 @@ public class UserBusinessTest {
         assertTrue(userBusiness.isLoginNameUnique("mauno"));
         verifyAll();
     }
+
+    @Test
+    public void testRetrieveReference() {
+        User user = new User();
+        expect(userDAO.load(123)).andReturn(user);
+        replayAll();
+        assertSame(user, userBusiness.retrieveReference(123));
+        verifyAll();
+    }
+
+    @Test
+    public void testStore_changesUserDataVersion() {
+        User user = new User();
+        user.setId(123);
+        long version = userBusiness.getUserDataVersion();
+
+        userDAO.store(user);
+        replayAll();
+        userBusiness.storeUser(user, null, null, null);
+        verifyAll();
+
+        assertTrue(userBusiness.getUserDataVersion() != version);
+    }
+
+    @Test
+    public void testDisableUser_changesUserDataVersion() {
+        User user = new User();
+        user.setEnabled(true);
+        long version = userBusiness.getUserDataVersion();
+
+        expect(userDAO.get(123)).andReturn(user);
+        replayAll();
+        userBusiness.disableUser(123);
+        verifyAll();
+
+        assertFalse(user.isEnabled());
+        assertTrue(userBusiness.getUserDataVersion() != version);
+    }
+
+    @Test
+    public void testEnableUser_changesUserDataVersion() {
+        User user = new User();
+        user.setEnabled(false);
+        long version = userBusiness.getUserDataVersion();
+
+        expect(userDAO.get(123)).andReturn(user);
+        replayAll();
+        userBusiness.enableUser(123);
+        verifyAll();
+
+        assertTrue(user.isEnabled());
+        assertTrue(userBusiness.getUserDataVersion() != version);
+    }
+
+    @Test
+    public void testGetUserDataVersion_differsBetweenInstances() {
+        assertTrue(new UserBusinessImpl().getUserDataVersion() != userBusiness.getUserDataVersion());
+    }
+
+    @Test
+    public void testSetAdmin_changesUserDataVersion() {
+        User user = new User();
+        long version = userBusiness.getUserDataVersion();
+
+        expect(userDAO.get(123)).andReturn(user);
+        replayAll();
+        userBusiness.setAdmin(123, true);
+        verifyAll();
+
+        assertTrue(user.isAdmin());
+        assertTrue(userBusiness.getUserDataVersion() != version);
+    }
+
+    @Test
+    public void testDelete_removesDailySums() {
+        hourEntryDailySumDAO.removeByUser(123);
+        storyAccessDAO.removeCountsByUser(123);
+        userDAO.remove(123);
+        replayAll();
+        userBusiness.delete(123);
+        verifyAll();
+    }
 }
@@ -14,6 +14,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import fi.hut.soberit.agilefant.business.BacklogBusiness;
 import fi.hut.soberit.agilefant.business.impl.StoryTreeIntegrityBusinessImpl;
+import fi.hut.soberit.agilefant.db.StoryHierarchyDAO;
 import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.Product;
@@ -40,6 +41,9 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
     @Mock
     private BacklogBusiness backlogBusiness;
 
+    @Mock
+    private StoryHierarchyDAO storyHierarchyDAO;
+
     List<StoryTreeIntegrityMessage> messages;
 
     /*
@@ -53,6 +57,7 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
                 .andReturn(product);
         expect(backlogBusiness.getParentProduct(iteration)).andReturn(product);
 
+        storyHierarchyDAO.initializeSubtree(story_31);
         replayAll();
         messages = testable.checkChangeBacklog(story_31, iteration);
         verifyAll();
@@ -71,6 +76,7 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
                 .andReturn(product);
         expect(backlogBusiness.getParentProduct(project2)).andReturn(product);
 
+        storyHierarchyDAO.initializeSubtree(story_21);
         replayAll();
         messages = testable.checkChangeBacklog(story_21, project2);
         verifyAll();
@@ -94,6 +100,7 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
                 .andReturn(product);
         expect(backlogBusiness.getParentProduct(product)).andReturn(product);
 
+        storyHierarchyDAO.initializeSubtree(story_41);
         replayAll();
         messages = testable.checkChangeBacklog(story_41, product);
         verifyAll();
@@ -112,6 +119,7 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
                 .andReturn(product);
         expect(backlogBusiness.getParentProduct(project1)).andReturn(product);
 
+        storyHierarchyDAO.initializeSubtree(story_33);
         replayAll();
         messages = testable.checkChangeBacklog(story_33, project1);
         verifyAll();
@@ -125,6 +133,7 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
     @Test
     @DirtiesContext
     public void testChangeBacklog_moveToAnotherProduct_noConflict() {
+        storyHierarchyDAO.initializeSubtree(story_12);
         replayAll();
         messages = testable.checkChangeBacklog(story_12, new Product());
         verifyAll();
@@ -139,6 +148,7 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
         expect(backlogBusiness.getParentProduct(story_23.getBacklog())).andReturn(product);
         expect(backlogBusiness.getParentProduct(another)).andReturn(another);
         
+        storyHierarchyDAO.initializeSubtree(story_23);
         replayAll();
         messages = testable.checkChangeBacklog(story_23, another);
         verifyAll();
@@ -154,6 +164,7 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
     public void testChangeParent_moveUnderIterationStory() {
         // 32 -> 41
 
+        storyHierarchyDAO.initializeSubtree(story_32);
         replayAll();
         messages = testable.checkChangeParentStory(story_32, story_41);
         verifyAll();
@@ -170,6 +181,7 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
     public void testChangeParent_moveToDifferentBranch() {
         // 41 -> 22
 
+        storyHierarchyDAO.initializeSubtree(story_41);
         replayAll();
         messages = testable.checkChangeParentStory(story_41, story_22);
         verifyAll();
@@ -187,6 +199,7 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
         // 23 -> 22
         // 34 vaihtaa branchia
 
+        storyHierarchyDAO.initializeSubtree(story_23);
         replayAll();
         messages = testable.checkChangeParentStory(story_23, story_22);
         verifyAll();
@@ -204,6 +217,7 @@ public class StoryTreeIntegrityBusinessTest extends MockedTestCase {
         // 22 -> 31
         // 2 virhettä, 22->31, 33 -> 31
 
+        storyHierarchyDAO.initializeSubtree(story_22);
         replayAll();
         messages = testable.checkChangeParentStory(story_22, story_31);
         verifyAll();
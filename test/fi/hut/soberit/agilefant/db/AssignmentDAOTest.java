@@ -2,6 +2,8 @@ package fi.hut.soberit.agilefant.db;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.joda.time.DateTime;
@@ -71,4 +73,22 @@ public class AssignmentDAOTest extends AbstractHibernateTests {
         List<Assignment> actual = assignmentDAO.assigmentsInBacklogTimeframe(interval, user);
         assertEquals(2, actual.size());
     }
+    
+    @Test
+    public void testAssigmentsInBacklogTimeframe_multipleUsers() {
+        executeClassSql();
+        interval = new Interval(new DateTime(2009,6,2,0,0,0,0), new DateTime(2009,6,8,0,0,0,0));
+        List<Assignment> actual = assignmentDAO.assigmentsInBacklogTimeframe(interval, Arrays.asList(1, 2));
+        assertEquals(3, actual.size());
+        actual = assignmentDAO.assigmentsInBacklogTimeframe(interval, Arrays.asList(1));
+        assertEquals(1, actual.size());
+        assertEquals(1, actual.get(0).getUser().getId());
+    }
+    
+    @Test
+    public void testAssigmentsInBacklogTimeframe_noUsers() {
+        interval = new Interval(new DateTime(2009,6,2,0,0,0,0), new DateTime(2009,6,8,0,0,0,0));
+        List<Integer> noUsers = Collections.emptyList();
+        assertEquals(0, assignmentDAO.assigmentsInBacklogTimeframe(interval, noUsers).size());
+    }
 }
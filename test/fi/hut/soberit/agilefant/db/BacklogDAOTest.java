@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 
 import java.util.List;
 
+import org.joda.time.DateTime;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
@@ -13,6 +14,8 @@ import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
+import fi.hut.soberit.agilefant.transfer.BacklogType;
+import fi.hut.soberit.agilefant.util.BacklogHierarchy;
 
 @ContextConfiguration
 @Transactional
@@ -65,4 +68,26 @@ public class BacklogDAOTest extends AbstractHibernateTests {
         List<Backlog> backlogs = backlogDAO.searchByName(search, Project.class);
         assertEquals(0, backlogs.size());
     }
+    
+    @Test
+    public void testRetrieveHierarchy() {
+        executeClassSql();
+        BacklogHierarchy hierarchy = backlogDAO.retrieveHierarchy();
+        assertEquals(5, hierarchy.size());
+        
+        BacklogHierarchy.Node project = hierarchy.get(3);
+        assertEquals(BacklogType.PROJECT, project.getType());
+        assertEquals(0, project.getParentId());
+        assertEquals(new DateTime(2009, 6, 1, 0, 0, 0, 0), project.getStartDate());
+        assertEquals(new DateTime(2009, 6, 30, 0, 0, 0, 0), project.getEndDate());
+        assertEquals(2, hierarchy.getChildren(project).size());
+        
+        BacklogHierarchy.Node iteration = hierarchy.get(4);
+        assertEquals(BacklogType.ITERATION, iteration.getType());
+        assertEquals(3, iteration.getParentId());
+        assertNull(iteration.getStartDate());
+        assertEquals("Project 1 > Iteration 4", iteration.getPathName());
+        
+        assertEquals(2, hierarchy.getStandAloneIterations().size());
+    }
 }
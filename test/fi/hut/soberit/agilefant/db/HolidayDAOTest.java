@@ -1,11 +1,42 @@
 package fi.hut.soberit.agilefant.db;
 
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Transactional;
 
-public class HolidayDAOTest {
+import static org.junit.Assert.*;
+
+import fi.hut.soberit.agilefant.model.Holiday;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
+
+@ContextConfiguration
+@Transactional
+public class HolidayDAOTest extends AbstractHibernateTests {
+
+    @Autowired
+    private HolidayDAO holidayDAO;
 
     @Test
     public void testRetriveFutureHolidaysByUser() {
         //dummy
     }
+
+    @Test
+    public void testRetrieveStoredUser() {
+        executeClassSql();
+        assertEquals(1, holidayDAO.retrieveStoredUser(1).getId());
+        assertNull(holidayDAO.retrieveStoredUser(2));
+    }
+
+    @Test
+    public void testRetrieveStoredUser_unflushedChange() {
+        executeClassSql();
+        Holiday holiday = holidayDAO.get(1);
+        User user = new User();
+        user.setId(2);
+        holiday.setUser(user);
+        assertEquals(1, holidayDAO.retrieveStoredUser(1).getId());
+    }
 }
@@ -2,6 +2,8 @@ package fi.hut.soberit.agilefant.db;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -14,9 +16,18 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
 import fi.hut.soberit.agilefant.model.BacklogHourEntry;
+import fi.hut.soberit.agilefant.model.HourEntry;
+import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Product;
+import fi.hut.soberit.agilefant.model.Project;
+import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryHourEntry;
+import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.model.TaskHourEntry;
+import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
+import fi.hut.soberit.agilefant.util.TimesheetExportRow;
+import fi.hut.soberit.agilefant.util.TimesheetExportRowHandler;
 
 @ContextConfiguration
 @Transactional
@@ -201,6 +212,78 @@ public class HourEntryDAOTest extends AbstractHibernateTests {
         assertEquals(4240, actualSum);
     }
     
+    private List<TimesheetExportRow> processTimesheetRows(Set<Integer> backlogIds,
+            DateTime startDate, DateTime endDate, Set<Integer> userIds) throws IOException {
+        final List<TimesheetExportRow> rows = new ArrayList<TimesheetExportRow>();
+        int count = hourEntryDAO.processTimesheetRows(backlogIds, startDate, endDate, userIds,
+                new TimesheetExportRowHandler() {
+                    public void handleRow(TimesheetExportRow row) {
+                        rows.add(row);
+                    }
+                });
+        assertEquals(rows.size(), count);
+        return rows;
+    }
+
+    @Test
+    public void testProcessTimesheetRows_noFilter() throws IOException {
+        executeClassSql();
+        assertEquals(0, processTimesheetRows(null, null, null, null).size());
+    }
+
+    @Test
+    public void testProcessTimesheetRows_emptyProduct() throws IOException {
+        executeClassSql();
+        Set<Integer> backlogs = new HashSet<Integer>(Arrays.asList(2));
+        assertEquals(0, processTimesheetRows(backlogs, null, null, null).size());
+    }
+
+    @Test
+    public void testProcessTimesheetRows_product() throws IOException {
+        executeClassSql();
+        Set<Integer> backlogs = new HashSet<Integer>(Arrays.asList(1));
+        List<TimesheetExportRow> rows = processTimesheetRows(backlogs, null, null, null);
+        assertEquals(21, rows.size());
+
+        TimesheetExportRow first = rows.get(0);
+        assertEquals("Product 1", first.getProductName());
+        assertNull(first.getProjectName());
+        assertNull(first.getStoryName());
+        assertEquals(new DateTime(2009, 5, 11, 10, 20, 0, 0), first.getDate());
+        assertEquals(50, first.getEffort());
+
+        TimesheetExportRow last = rows.get(20);
+        assertEquals("Product 1", last.getProductName());
+        assertEquals("Project 1", last.getProjectName());
+        assertEquals("Iteration 1", last.getIterationName());
+        assertEquals("Story 1", last.getStoryName());
+    }
+
+    @Test
+    public void testProcessTimesheetRows_iteration() throws IOException {
+        executeClassSql();
+        Set<Integer> backlogs = new HashSet<Integer>(Arrays.asList(5));
+        List<TimesheetExportRow> rows = processTimesheetRows(backlogs, null, null, null);
+        assertEquals(10, rows.size());
+        for (TimesheetExportRow row : rows) {
+            assertEquals("Product 1", row.getProductName());
+            assertEquals("Project 1", row.getProjectName());
+            assertEquals("Iteration 1", row.getIterationName());
+        }
+    }
+
+    @Test
+    public void testProcessTimesheetRows_dateAndUserFilter() throws IOException {
+        executeClassSql();
+        Set<Integer> backlogs = new HashSet<Integer>(Arrays.asList(1));
+        DateTime startDate = new DateTime(2009, 5, 12, 10, 20, 0, 0);
+        DateTime endDate = new DateTime(2009, 5, 14, 10, 20, 0, 0);
+        assertEquals(3, processTimesheetRows(backlogs, startDate, endDate,
+                new HashSet<Integer>(Arrays.asList(1))).size());
+        assertEquals(0, processTimesheetRows(backlogs, startDate, endDate,
+                new HashSet<Integer>(Arrays.asList(2))).size());
+    }
+
     @Test
     public void testCalculateIterationHourEntries_emptyIteration() {
         executeClassSql();
@@ -264,4 +347,124 @@ public class HourEntryDAOTest extends AbstractHibernateTests {
         assertEquals(1, hourEntryDAO.getTaskHourEntries(4, 1).size());
     }
 
+    @Test
+    public void testRetrieveStoredCopy() {
+        executeClassSql();
+        HourEntry entry = hourEntryDAO.get(7);
+        entry.setMinutesSpent(100);
+        entry.setDate(new DateTime(2009, 6, 5, 10, 0, 0, 0));
+        HourEntry stored = hourEntryDAO.retrieveStoredCopy(entry);
+        assertNotSame(entry, stored);
+        assertTrue(stored instanceof BacklogHourEntry);
+        assertEquals(20, stored.getMinutesSpent());
+        assertEquals(new DateTime(2009, 5, 10, 10, 20, 0, 0), stored.getDate());
+        assertEquals(1, ((BacklogHourEntry) stored).getBacklog().getId());
+    }
+
+    @Test
+    public void testRetrieveStoredCopy_notSaved() {
+        assertNull(hourEntryDAO.retrieveStoredCopy(new TaskHourEntry()));
+    }
+
+    private void assertBacklogPath(Integer productId, Integer projectId,
+            Integer iterationId, int hourEntryId) {
+        HourEntry entry = hourEntryDAO.get(hourEntryId);
+        assertEquals(productId, entry.getProductId());
+        assertEquals(projectId, entry.getProjectId());
+        assertEquals(iterationId, entry.getIterationId());
+    }
+
+    private <T> T load(Class<T> type, int id) {
+        return type.cast(sessionFactory.getCurrentSession().get(type, id));
+    }
+
+    @Test
+    public void testCreate_setsBacklogPath() {
+        executeClassSql();
+        TaskHourEntry entry = new TaskHourEntry();
+        entry.setTask(load(Task.class, 6));
+        entry.setUser(load(User.class, 1));
+        entry.setDate(new DateTime(2009, 6, 1, 10, 0, 0, 0));
+        int id = (Integer) hourEntryDAO.create(entry);
+        assertBacklogPath(1, 3, null, id);
+    }
+
+    @Test
+    public void testCreate_setsBacklogPath_iterationTask() {
+        executeClassSql();
+        TaskHourEntry entry = new TaskHourEntry();
+        entry.setTask(load(Task.class, 8));
+        entry.setUser(load(User.class, 1));
+        int id = (Integer) hourEntryDAO.create(entry);
+        assertBacklogPath(1, 3, 5, id);
+    }
+
+    @Test
+    public void testUpdateBacklogPath_story() {
+        executeClassSql();
+        Story story = load(Story.class, 1);
+        story.setIteration(null);
+        story.setBacklog(load(Project.class, 4));
+        assertEquals(6, hourEntryDAO.updateBacklogPath(story));
+        sessionFactory.getCurrentSession().clear();
+        assertBacklogPath(1, 4, null, 13);
+        assertBacklogPath(1, 4, null, 1);
+        assertBacklogPath(1, 3, 5, 5);
+    }
+
+    @Test
+    public void testUpdateBacklogPath_task() {
+        executeClassSql();
+        Task task = load(Task.class, 8);
+        task.setIteration(load(Iteration.class, 6));
+        assertEquals(1, hourEntryDAO.updateBacklogPath(task));
+        sessionFactory.getCurrentSession().clear();
+        assertBacklogPath(1, 3, 6, 5);
+        assertBacklogPath(1, 3, 5, 6);
+    }
+
+    @Test
+    public void testUpdateBacklogPath_iteration() {
+        executeClassSql();
+        Iteration iteration = load(Iteration.class, 5);
+        iteration.setParent(load(Project.class, 4));
+        assertEquals(10, hourEntryDAO.updateBacklogPath(iteration));
+        sessionFactory.getCurrentSession().clear();
+        assertBacklogPath(1, 4, 5, 1);
+        assertBacklogPath(1, 4, 5, 11);
+        assertBacklogPath(1, 3, null, 9);
+    }
+
+    @Test
+    public void testUpdateBacklogPath_standaloneIteration() {
+        executeClassSql();
+        Iteration iteration = load(Iteration.class, 5);
+        iteration.setParent(null);
+        assertEquals(10, hourEntryDAO.updateBacklogPath(iteration));
+        sessionFactory.getCurrentSession().clear();
+        assertBacklogPath(null, null, 5, 11);
+        assertBacklogPath(null, null, 5, 5);
+        // The story is still in project 3
+        assertBacklogPath(1, 3, 5, 13);
+        assertBacklogPath(1, 3, 5, 1);
+    }
+
+    @Test
+    public void testUpdateBacklogPath_project() {
+        executeClassSql();
+        Project project = load(Project.class, 3);
+        project.setParent(load(Product.class, 2));
+        assertEquals(17, hourEntryDAO.updateBacklogPath(project));
+        sessionFactory.getCurrentSession().clear();
+        assertBacklogPath(2, 3, 5, 1);
+        assertBacklogPath(2, 3, null, 22);
+        assertBacklogPath(1, null, null, 20);
+    }
+
+    @Test
+    public void testUpdateBacklogPath_product() {
+        executeClassSql();
+        assertEquals(0, hourEntryDAO.updateBacklogPath(load(Product.class, 1)));
+    }
+
 }
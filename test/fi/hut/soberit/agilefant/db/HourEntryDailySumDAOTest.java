@@ -0,0 +1,136 @@
+package fi.hut.soberit.agilefant.db;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import fi.hut.soberit.agilefant.model.HourEntry;
+import fi.hut.soberit.agilefant.model.Task;
+import fi.hut.soberit.agilefant.model.TaskHourEntry;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
+
+@ContextConfiguration
+@Transactional
+public class HourEntryDailySumDAOTest extends AbstractHibernateTests {
+
+    @Autowired
+    private HourEntryDailySumDAO hourEntryDailySumDAO;
+
+    @Autowired
+    private HourEntryDAO hourEntryDAO;
+
+    private static LocalDate day(int dayOfMonth) {
+        return new LocalDate(2009, 6, dayOfMonth);
+    }
+
+    @Test
+    public void testRebuild() {
+        executeClassSql();
+        assertEquals(6, hourEntryDailySumDAO.rebuild());
+        assertEquals(6, hourEntryDailySumDAO.count());
+        assertEquals(6, hourEntryDailySumDAO.rebuild());
+    }
+
+    @Test
+    public void testCalculateSumByUserAndInterval() {
+        executeClassSql();
+        hourEntryDailySumDAO.rebuild();
+        assertEquals(170L, hourEntryDailySumDAO.calculateSumByUserAndInterval(1, day(1), day(7)));
+        assertEquals(240L, hourEntryDailySumDAO.calculateSumByUserAndInterval(1, day(1), day(8)));
+        assertEquals(40L, hourEntryDailySumDAO.calculateSumByUserAndInterval(2, day(1), day(7)));
+        assertEquals(0L, hourEntryDailySumDAO.calculateSumByUserAndInterval(1, day(3), day(7)));
+    }
+
+    @Test
+    public void testCalculateDailySumsByUserAndInterval() {
+        executeClassSql();
+        hourEntryDailySumDAO.rebuild();
+        Map<LocalDate, Long> sums = hourEntryDailySumDAO
+                .calculateDailySumsByUserAndInterval(1, day(1), day(7));
+        assertEquals(2, sums.size());
+        assertEquals(90L, (long) sums.get(day(1)));
+        assertEquals(80L, (long) sums.get(day(2)));
+    }
+
+    @Test
+    public void testCalculateDailySumsByIteration() {
+        executeClassSql();
+        hourEntryDailySumDAO.rebuild();
+        Map<LocalDate, Long> sums = hourEntryDailySumDAO.calculateDailySumsByIteration(3);
+        assertEquals(2, sums.size());
+        assertEquals(30L, (long) sums.get(day(1)));
+        assertEquals(120L, (long) sums.get(day(2)));
+
+        sums = hourEntryDailySumDAO.calculateDailySumsByIteration(4);
+        assertEquals(2, sums.size());
+        assertEquals(60L, (long) sums.get(day(1)));
+        assertEquals(70L, (long) sums.get(day(8)));
+    }
+
+    @Test
+    public void testCalculateDailySumsByIteration_noEffort() {
+        executeClassSql();
+        hourEntryDailySumDAO.rebuild();
+        assertTrue(hourEntryDailySumDAO.calculateDailySumsByIteration(2).isEmpty());
+    }
+
+    @Test
+    public void testAdd_existingSum() {
+        executeClassSql();
+        hourEntryDailySumDAO.rebuild();
+        hourEntryDailySumDAO.add(hourEntryDAO.get(3), 15);
+        assertEquals(6, hourEntryDailySumDAO.count());
+        assertEquals(135L, (long) hourEntryDailySumDAO
+                .calculateDailySumsByIteration(3).get(day(2)));
+    }
+
+    @Test
+    public void testAdd_newSum() {
+        executeClassSql();
+        hourEntryDailySumDAO.rebuild();
+        TaskHourEntry entry = new TaskHourEntry();
+        entry.setTask((Task) sessionFactory.getCurrentSession().get(Task.class, 2));
+        entry.setUser((User) sessionFactory.getCurrentSession().get(User.class, 1));
+        entry.setDate(new DateTime(2009, 6, 3, 23, 30, 0, 0));
+        hourEntryDailySumDAO.add(entry, 25);
+        hourEntryDailySumDAO.add(entry, 5);
+        assertEquals(7, hourEntryDailySumDAO.count());
+        assertEquals(30L, (long) hourEntryDailySumDAO
+                .calculateDailySumsByIteration(3).get(day(3)));
+        assertEquals(30L, hourEntryDailySumDAO.calculateSumByUserAndInterval(1, day(3), day(3)));
+    }
+
+    @Test
+    public void testAdd_removesEmptySums() {
+        executeClassSql();
+        hourEntryDailySumDAO.rebuild();
+        HourEntry entry = hourEntryDAO.get(4);
+        hourEntryDailySumDAO.add(entry, -entry.getMinutesSpent());
+        assertEquals(5, hourEntryDailySumDAO.count());
+        assertEquals(0L, hourEntryDailySumDAO.calculateSumByUserAndInterval(2, day(1), day(7)));
+    }
+
+    @Test
+    public void testRemoveByUser() {
+        executeClassSql();
+        hourEntryDailySumDAO.rebuild();
+        hourEntryDailySumDAO.removeByUser(1);
+        assertEquals(0L, hourEntryDailySumDAO.calculateSumByUserAndInterval(1, day(1), day(8)));
+        assertEquals(40L, hourEntryDailySumDAO.calculateSumByUserAndInterval(2, day(1), day(7)));
+    }
+
+    @Test
+    public void testAdd_zeroMinutes() {
+        executeClassSql();
+        hourEntryDailySumDAO.add(hourEntryDAO.get(1), 0);
+        assertEquals(0, hourEntryDailySumDAO.count());
+    }
+}
@@ -1,21 +1,27 @@
 package fi.hut.soberit.agilefant.db;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
+import org.hibernate.Hibernate;
+import org.hibernate.stat.Statistics;
 import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
 import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryState;
 import fi.hut.soberit.agilefant.model.Task;
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
+import fi.hut.soberit.agilefant.util.IterationMetricsData;
 import fi.hut.soberit.agilefant.util.Pair;
 
 import static org.junit.Assert.*;
@@ -91,6 +97,132 @@ public class IterationDAOTest extends  AbstractHibernateTests {
         
     }
 
+    @Test
+    public void testRetrieveWithContents() {
+        executeSql("classpath:fi/hut/soberit/agilefant/db/IterationDAOTest-contents-data.sql");
+        Iteration actual = iterationDAO.retrieveWithContents(1);
+
+        assertTrue(Hibernate.isInitialized(actual.getTasks()));
+        assertEquals(1, actual.getTasks().size());
+        Task iterationTask = actual.getTasks().iterator().next();
+        assertTrue(Hibernate.isInitialized(iterationTask.getResponsibles()));
+        assertEquals(1, iterationTask.getResponsibles().size());
+        assertTrue(Hibernate.isInitialized(iterationTask.getWhatsNextEntries()));
+        assertEquals(1, iterationTask.getWhatsNextEntries().size());
+
+        assertTrue(Hibernate.isInitialized(actual.getAssignedStories()));
+        assertEquals(2, actual.getAssignedStories().size());
+        for (Story story : actual.getAssignedStories()) {
+            assertTrue(Hibernate.isInitialized(story.getLabels()));
+            assertTrue(Hibernate.isInitialized(story.getTasks()));
+            for (Task task : story.getTasks()) {
+                assertTrue(Hibernate.isInitialized(task.getResponsibles()));
+                assertTrue(Hibernate.isInitialized(task.getWhatsNextEntries()));
+                if (task.getId() == 1) {
+                    assertEquals(2, task.getResponsibles().size());
+                    assertEquals(1, task.getWhatsNextEntries().size());
+                }
+            }
+            if (story.getId() == 1) {
+                assertEquals(2, story.getLabels().size());
+                assertEquals(2, story.getTasks().size());
+            } else {
+                assertEquals(0, story.getLabels().size());
+                assertEquals(1, story.getTasks().size());
+            }
+        }
+    }
+
+    @Test
+    public void testRetrieveWithContents_notFound() {
+        assertNull(iterationDAO.retrieveWithContents(-1));
+    }
+
+    /**
+     * Compares the loader to retrieveDeep with an iteration of 20 stories,
+     * each with 3 labels and 4 tasks, which have 2 responsibles and 2 what's
+     * next entries each. The contents left uninitialized by retrieveDeep are
+     * loaded story by story and task by task, while the loader needs as many
+     * queries as for an iteration with a couple of stories.
+     */
+    @Test
+    public void testRetrieveWithContents_comparedToRetrieveDeep() {
+        executeSql("classpath:fi/hut/soberit/agilefant/db/IterationDAOTest-contents-data.sql");
+        createLargeIteration(10, 20, 3, 4);
+        forceFlush();
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            sessionFactory.getCurrentSession().clear();
+            statistics.clear();
+            countContents(iterationDAO.retrieveWithContents(1)
+                    .getAssignedStories());
+            long smallIterationStatements = statistics.getPrepareStatementCount();
+
+            sessionFactory.getCurrentSession().clear();
+            statistics.clear();
+            int deepSize = countContents(iterationDAO.retrieveDeep(10)
+                    .getAssignedStories());
+            long deepStatements = statistics.getPrepareStatementCount();
+
+            sessionFactory.getCurrentSession().clear();
+            statistics.clear();
+            int batchedSize = countContents(iterationDAO.retrieveWithContents(10)
+                    .getAssignedStories());
+            long batchedStatements = statistics.getPrepareStatementCount();
+
+            assertEquals(20 * (3 + 4 * (1 + 2 + 2)), batchedSize);
+            assertEquals(deepSize, batchedSize);
+            assertEquals(smallIterationStatements, batchedStatements);
+            assertTrue(batchedStatements * 10 < deepStatements);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    private int countContents(Collection<Story> stories) {
+        int count = 0;
+        for (Story story : stories) {
+            count += story.getLabels().size();
+            for (Task task : story.getTasks()) {
+                count += 1 + task.getResponsibles().size()
+                        + task.getWhatsNextEntries().size();
+            }
+        }
+        return count;
+    }
+
+    private void createLargeIteration(int iterationId, int stories,
+            int labelsPerStory, int tasksPerStory) {
+        simpleJdbcTemplate.update("INSERT INTO backlogs (id, backlogtype, name, startDate, endDate) "
+                + "VALUES (?, 'Iteration', 'Large iteration', '2009-05-20 10:15:00', '2009-07-01 10:15:00')",
+                iterationId);
+        int labelId = 100;
+        int taskId = 100;
+        int entryId = 100;
+        for (int storyId = 100; storyId < 100 + stories; storyId++) {
+            simpleJdbcTemplate.update("INSERT INTO stories (id, iteration_id, name, state) "
+                    + "VALUES (?, ?, 'Story', 0)", storyId, iterationId);
+            for (int i = 0; i < labelsPerStory; i++) {
+                simpleJdbcTemplate.update("INSERT INTO labels (id, displayName, name, story_id) "
+                        + "VALUES (?, 'Label', ?, ?)", labelId, "label" + labelId, storyId);
+                labelId++;
+            }
+            for (int i = 0; i < tasksPerStory; i++) {
+                simpleJdbcTemplate.update("INSERT INTO tasks (id, state, story_id) VALUES (?, 0, ?)",
+                        taskId, storyId);
+                for (int userId = 1; userId <= 2; userId++) {
+                    simpleJdbcTemplate.update("INSERT INTO task_user (tasks_id, responsibles_id) VALUES (?, ?)",
+                            taskId, userId);
+                    simpleJdbcTemplate.update("INSERT INTO whatsnextentry (id, rank, task_id, user_id) VALUES (?, 0, ?, ?)",
+                            entryId++, taskId, userId);
+                }
+                taskId++;
+            }
+        }
+    }
+
     @Test
     public void testRetrieveActiveWithUserAssigned() {
         executeSql("classpath:fi/hut/soberit/agilefant/db/IterationDAOTest-assignments-data.sql");
@@ -118,4 +250,99 @@ public class IterationDAOTest extends  AbstractHibernateTests {
         assertEquals(new Integer(100), (Integer)result.get(1));
         assertEquals(new Integer(100), (Integer)result.get(2));
     }
+
+    @Test
+    public void testCalculateIterationMetricsData() {
+        executeClassSql();
+        executeSql("classpath:fi/hut/soberit/agilefant/db/IterationDAOTest-metrics-data.sql");
+        Map<Integer, IterationMetricsData> result = iterationDAO
+                .calculateIterationMetricsData(new HashSet<Integer>(Arrays
+                        .asList(1, 2, 3, 4)), new LocalDate(2009, 6, 2));
+        assertEquals(4, result.size());
+
+        IterationMetricsData first = result.get(1);
+        assertEquals(2, first.getTotalStories());
+        assertEquals(1, first.getCompletedStories());
+        assertEquals(15, first.getStoryPoints());
+        assertEquals(5, first.getDoneStoryPoints());
+        assertEquals(4, first.getTotalTasks());
+        assertEquals(2, first.getCompletedTasks());
+        assertEquals(100L, first.getSpentEffort());
+        assertEquals(3, first.getLatestHistoryEntry().getId());
+        assertEquals(2, first.getYesterdayHistoryEntry().getId());
+
+        IterationMetricsData second = result.get(2);
+        assertEquals(1, second.getTotalStories());
+        assertEquals(5, second.getStoryPoints());
+        assertEquals(1, second.getTotalTasks());
+        assertEquals(7L, second.getSpentEffort());
+        assertEquals(4, second.getLatestHistoryEntry().getId());
+        assertNull(second.getYesterdayHistoryEntry());
+
+        IterationMetricsData third = result.get(3);
+        assertEquals(15, third.getTotalStories());
+        assertEquals(5, third.getCompletedStories());
+        assertEquals(75, third.getStoryPoints());
+        assertEquals(25, third.getDoneStoryPoints());
+        assertEquals(2, third.getTotalTasks());
+        assertEquals(2, third.getCompletedTasks());
+
+        IterationMetricsData fourth = result.get(4);
+        assertEquals(0, fourth.getTotalStories());
+        assertEquals(0L, fourth.getSpentEffort());
+        assertNull(fourth.getLatestHistoryEntry());
+    }
+
+    @Test
+    public void testCalculateIterationMetricsData_noIterations() {
+        assertTrue(iterationDAO.calculateIterationMetricsData(
+                new HashSet<Integer>(), new LocalDate()).isEmpty());
+    }
+
+    @Test
+    public void testRetrieveStandAloneIterations() {
+        executeClassSql();
+        List<Iteration> actual = iterationDAO.retrieveStandAloneIterations(Arrays
+                .asList(3, 1, 99));
+        assertEquals(2, actual.size());
+        assertEquals(1, actual.get(0).getId());
+        assertEquals(3, actual.get(1).getId());
+    }
+
+    @Test
+    public void testRetrieveStandAloneIterations_noIds() {
+        assertTrue(iterationDAO.retrieveStandAloneIterations(
+                new HashSet<Integer>()).isEmpty());
+    }
+
+    @Test
+    public void testRetrieveReadonlyTokens() {
+        executeClassSql();
+        iterationDAO.get(1).setReadonlyToken("12345");
+        iterationDAO.get(2).setReadonlyToken("");
+        iterationDAO.get(3).setReadonlyToken("67890");
+        forceFlush();
+        Map<String, Integer> actual = iterationDAO.retrieveReadonlyTokens();
+        assertEquals(2, actual.size());
+        assertEquals(1, (int) actual.get("12345"));
+        assertEquals(3, (int) actual.get("67890"));
+    }
+
+    @Test
+    public void testRetrieveReadonlyTokens_noTokens() {
+        executeClassSql();
+        assertTrue(iterationDAO.retrieveReadonlyTokens().isEmpty());
+    }
+
+    @Test
+    public void testGetIterationCountFromReadonlyToken() {
+        executeClassSql();
+        iterationDAO.get(1).setReadonlyToken("12345");
+        iterationDAO.get(2).setReadonlyToken("");
+        forceFlush();
+        assertEquals(1, iterationDAO.getIterationCountFromReadonlyToken("12345"));
+        assertEquals(0, iterationDAO.getIterationCountFromReadonlyToken("67890"));
+        assertEquals(0, iterationDAO.getIterationCountFromReadonlyToken(""));
+        assertEquals(0, iterationDAO.getIterationCountFromReadonlyToken(null));
+    }
 }
@@ -2,7 +2,10 @@ package fi.hut.soberit.agilefant.db;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,6 +54,24 @@ public class IterationHistoryEntryDAOTest extends AbstractHibernateTests {
         assertEquals(0L, sums.getSecond().getMinorUnits().longValue());
     }
 
+    @Test
+    public void testCalculateCurrentHistoryData_multipleIterations() {
+        executeClassSql();
+        Map<Integer, Pair<ExactEstimate, ExactEstimate>> sums = iterationHistoryEntryDAO
+                .calculateCurrentHistoryData(Arrays.asList(1, 2));
+        assertEquals(2, sums.size());
+        assertEquals(140L, sums.get(1).first.getMinorUnits().longValue());
+        assertEquals(240L, sums.get(1).second.getMinorUnits().longValue());
+        assertEquals(0L, sums.get(2).first.getMinorUnits().longValue());
+        assertEquals(0L, sums.get(2).second.getMinorUnits().longValue());
+    }
+
+    @Test
+    public void testCalculateCurrentHistoryData_noIterations() {
+        assertTrue(iterationHistoryEntryDAO.calculateCurrentHistoryData(
+                new ArrayList<Integer>()).isEmpty());
+    }
+
     @Test
     public void testGetHistoryEntriesForIteration() {
         executeClassSql();
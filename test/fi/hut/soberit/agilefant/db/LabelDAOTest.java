@@ -1,6 +1,14 @@
 package fi.hut.soberit.agilefant.db;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.DateTime;
 
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +18,7 @@ import static org.junit.Assert.*;
 
 import fi.hut.soberit.agilefant.model.Label;
 import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
 
 @ContextConfiguration
@@ -60,4 +69,67 @@ public class LabelDAOTest extends AbstractHibernateTests {
             assertTrue(label.getName().equals("matti") || label.getName().equals("mauno")); 
         }
     }
+    
+    @Test
+    public void testGetLabelNamesByStory() {
+        executeClassSql();
+        Map<Integer, Set<String>> actual = this.labelDAO.getLabelNamesByStory(Arrays.asList(1, 2));
+        assertEquals(1, actual.size());
+        assertEquals(new HashSet<String>(Arrays.asList("kissa", "matti", "mauno", "ulkomaalainen")),
+                actual.get(1));
+    }
+    
+    @Test
+    public void testGetLabelNamesByStory_noStories() {
+        assertTrue(this.labelDAO.getLabelNamesByStory(Collections.<Integer>emptyList()).isEmpty());
+    }
+    
+    @Test
+    public void testCreateLabels() {
+        executeClassSql();
+        Story story = new Story();
+        story.setId(2);
+        User creator = new User();
+        creator.setId(1);
+        List<Label> labels = new ArrayList<Label>();
+        for (int i = 0; i < 120; i++) {
+            Label label = new Label();
+            label.setDisplayName("Label" + i);
+            label.setName("Label" + i);
+            label.setStory(story);
+            label.setCreator(i % 2 == 0 ? creator : null);
+            label.setTimestamp(new DateTime());
+            labels.add(label);
+        }
+        this.labelDAO.createLabels(labels);
+        
+        Set<String> names = this.labelDAO.getLabelNamesByStory(Arrays.asList(2)).get(2);
+        assertEquals(120, names.size());
+        assertTrue(names.contains("label119"));
+    }
+    
+    @Test
+    public void testCreateLabels_addedToStory() {
+        executeClassSql();
+        Story story = (Story) sessionFactory.getCurrentSession().get(Story.class, 2);
+        int labelCount = story.getLabels().size();
+        List<Label> labels = new ArrayList<Label>();
+        for (int i = 0; i < 3; i++) {
+            Label label = new Label();
+            label.setDisplayName("New" + i);
+            label.setName("New" + i);
+            label.setStory(story);
+            label.setTimestamp(new DateTime());
+            labels.add(label);
+        }
+        this.labelDAO.createLabels(labels);
+        
+        assertEquals(labelCount + 3, story.getLabels().size());
+        Set<String> names = new HashSet<String>();
+        for (Label label : story.getLabels()) {
+            assertTrue(label.getId() > 0);
+            names.add(label.getName());
+        }
+        assertTrue(names.containsAll(Arrays.asList("new0", "new1", "new2")));
+    }
 }
@@ -1,6 +1,7 @@
 package fi.hut.soberit.agilefant.db;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.joda.time.DateTime;
@@ -28,6 +29,19 @@ public class ProductDAOTest extends AbstractHibernateTests {
         assertEquals(2, actual.size());    
     }
     
+    @Test
+    public void testRetrieveBacklogTree_byIds() {
+        executeClassSql();
+        List<Product> actual = this.productDAO.retrieveBacklogTree(Arrays.asList(2, 99));
+        assertEquals(1, actual.size());
+        assertEquals(2, actual.get(0).getId());
+    }
+    
+    @Test
+    public void testRetrieveBacklogTree_noIds() {
+        assertTrue(this.productDAO.retrieveBacklogTree(new ArrayList<Integer>()).isEmpty());
+    }
+    
     @Test
     public void testRetrieveLeafStories() {
         executeClassSql();
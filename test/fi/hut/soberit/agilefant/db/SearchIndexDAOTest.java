@@ -0,0 +1,178 @@
+package fi.hut.soberit.agilefant.db;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.NotTransactional;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fi.hut.soberit.agilefant.model.Backlog;
+import fi.hut.soberit.agilefant.model.Holiday;
+import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Project;
+import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.model.Task;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
+
+@ContextConfiguration
+@Transactional
+public class SearchIndexDAOTest extends AbstractHibernateTests {
+
+    @Autowired
+    private SearchIndexDAO searchIndexDAO;
+
+    @Autowired
+    private StoryDAO storyDAO;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testRebuild() {
+        executeClassSql();
+        assertEquals(9, searchIndexDAO.rebuild());
+    }
+
+    @Test
+    public void testSearch_backlogs() {
+        executeClassSql();
+        searchIndexDAO.rebuild();
+        assertEquals(Arrays.asList(3, 2), searchIndexDAO.search(Backlog.class, "cart", 10));
+        assertEquals(Arrays.asList(2), searchIndexDAO.search(Project.class, "cart", 10));
+        assertEquals(Arrays.asList(3), searchIndexDAO.search(Iteration.class, "cart", 10));
+        assertEquals(Arrays.asList(1), searchIndexDAO.search(Backlog.class, "store", 10));
+    }
+
+    @Test
+    public void testSearch_maxResults() {
+        executeClassSql();
+        searchIndexDAO.rebuild();
+        assertEquals(Arrays.asList(3), searchIndexDAO.search(Backlog.class, "cart", 1));
+    }
+
+    @Test
+    public void testSearch_stories() {
+        executeClassSql();
+        searchIndexDAO.rebuild();
+        assertEquals(Arrays.asList(1), searchIndexDAO.search(Story.class, "item", 10));
+        assertEquals(Arrays.asList(1), searchIndexDAO.search(Story.class, "customer", 10));
+        assertTrue(searchIndexDAO.search(Story.class, "p", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearch_tasks() {
+        executeClassSql();
+        searchIndexDAO.rebuild();
+        assertEquals(Arrays.asList(1), searchIndexDAO.search(Task.class, "cart", 10));
+        assertEquals(Arrays.asList(2), searchIndexDAO.search(Task.class, "card", 10));
+    }
+
+    @Test
+    public void testSearch_users() {
+        executeClassSql();
+        searchIndexDAO.rebuild();
+        assertEquals(Arrays.asList(1), searchIndexDAO.search(User.class, "car", 10));
+        assertEquals(Arrays.asList(2), searchIndexDAO.search(User.class, "jd", 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSearch_notIndexed() {
+        searchIndexDAO.search(Holiday.class, "foo", 10);
+    }
+
+    @Test
+    public void testStore_notIndexedBeforeCommit() {
+        executeClassSql();
+        searchIndexDAO.rebuild();
+        Story story = storyDAO.get(2);
+        story.setName("Pay the order");
+        storyDAO.store(story);
+        forceFlush();
+        assertEquals(Arrays.asList(2), searchIndexDAO.search(Story.class, "checkout", 10));
+        assertTrue(searchIndexDAO.search(Story.class, "order", 10).isEmpty());
+    }
+
+    @Test
+    public void testUpdate() {
+        executeClassSql();
+        searchIndexDAO.rebuild();
+        Story story = storyDAO.get(2);
+        story.setName("Pay the order");
+        searchIndexDAO.update(story);
+        assertTrue(searchIndexDAO.search(Story.class, "checkout", 10).isEmpty());
+        assertEquals(Arrays.asList(2), searchIndexDAO.search(Story.class, "order", 10));
+    }
+
+    @Test
+    public void testRemove() {
+        executeClassSql();
+        searchIndexDAO.rebuild();
+        searchIndexDAO.remove(storyDAO.get(2));
+        assertTrue(searchIndexDAO.search(Story.class, "checkout", 10).isEmpty());
+    }
+
+    @Test
+    @NotTransactional
+    public void testCommittedChanges() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final User user = new User();
+        user.setLoginName("committed");
+        user.setFullName("Committed Writer");
+        user.setInitials("CW");
+        transaction.execute(new TransactionCallbackWithoutResult() {
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                searchIndexDAO.rebuild();
+                sessionFactory.getCurrentSession().save(user);
+            }
+        });
+        assertEquals(Arrays.asList(user.getId()), searchIndexDAO.search(User.class, "writer", 10));
+
+        transaction.execute(new TransactionCallbackWithoutResult() {
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                User committed = (User) sessionFactory.getCurrentSession().get(User.class, user.getId());
+                committed.setFullName("Committed Reader");
+                sessionFactory.getCurrentSession().flush();
+                status.setRollbackOnly();
+            }
+        });
+        assertEquals(Arrays.asList(user.getId()), searchIndexDAO.search(User.class, "writer", 10));
+        assertTrue(searchIndexDAO.search(User.class, "reader", 10).isEmpty());
+
+        transaction.execute(new TransactionCallbackWithoutResult() {
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                sessionFactory.getCurrentSession().delete(
+                        sessionFactory.getCurrentSession().get(User.class, user.getId()));
+                sessionFactory.getCurrentSession().flush();
+                status.setRollbackOnly();
+            }
+        });
+        assertEquals(Arrays.asList(user.getId()), searchIndexDAO.search(User.class, "writer", 10));
+
+        transaction.execute(new TransactionCallbackWithoutResult() {
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                // Changed by dirty checking only
+                User committed = (User) sessionFactory.getCurrentSession().get(User.class, user.getId());
+                committed.setFullName("Committed Reader");
+            }
+        });
+        assertTrue(searchIndexDAO.search(User.class, "writer", 10).isEmpty());
+        assertEquals(Arrays.asList(user.getId()), searchIndexDAO.search(User.class, "reader", 10));
+
+        transaction.execute(new TransactionCallbackWithoutResult() {
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                sessionFactory.getCurrentSession().delete(
+                        sessionFactory.getCurrentSession().get(User.class, user.getId()));
+            }
+        });
+        assertTrue(searchIndexDAO.search(User.class, "reader", 10).isEmpty());
+    }
+}
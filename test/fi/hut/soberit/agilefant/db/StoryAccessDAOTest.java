@@ -0,0 +1,104 @@
+package fi.hut.soberit.agilefant.db;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.model.StoryAccess;
+import fi.hut.soberit.agilefant.model.User;
+import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
+
+@ContextConfiguration
+@Transactional
+public class StoryAccessDAOTest extends AbstractHibernateTests {
+
+    @Autowired
+    private StoryAccessDAO storyAccessDAO;
+
+    private static User user(int id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static StoryAccess access(int userId, int storyId, DateTime date) {
+        Story story = new Story();
+        story.setId(storyId);
+        StoryAccess access = new StoryAccess();
+        access.setUser(user(userId));
+        access.setStory(story);
+        access.setDate(date);
+        return access;
+    }
+
+    @Test
+    public void testCalculateAccessCounts() {
+        executeClassSql();
+        Map<Integer, Long> counts = storyAccessDAO.calculateAccessCounts(
+                new DateTime(2009, 6, 1, 12, 0, 0, 0), new DateTime(2009, 6, 7,
+                        12, 0, 0, 0), user(1));
+        assertEquals(2, counts.size());
+        assertEquals(5L, (long) counts.get(1));
+        assertEquals(1L, (long) counts.get(2));
+    }
+
+    @Test
+    public void testCalculateAccessCounts_noAccesses() {
+        executeClassSql();
+        assertTrue(storyAccessDAO.calculateAccessCounts(
+                new DateTime(2009, 7, 1, 0, 0, 0, 0),
+                new DateTime(2009, 7, 7, 0, 0, 0, 0), user(1)).isEmpty());
+    }
+
+    @Test
+    public void testCreateAccesses() {
+        executeClassSql();
+        DateTime june2 = new DateTime(2009, 6, 2, 10, 0, 0, 0);
+        DateTime june3 = new DateTime(2009, 6, 3, 10, 0, 0, 0);
+        storyAccessDAO.createAccesses(Arrays.asList(access(1, 1, june2),
+                access(1, 1, june2.plusHours(1)), access(1, 1, june3),
+                access(2, 1, june3), access(1, 3, june3)));
+
+        assertEquals(4, storyAccessDAO.count());
+        assertEquals(4L, (long) storyAccessDAO.calculateAccessCounts(june2,
+                june2, user(1)).get(1));
+        assertEquals(8L, (long) storyAccessDAO.calculateAccessCounts(
+                june2.minusDays(1), june3, user(1)).get(1));
+        assertEquals(1L, (long) storyAccessDAO.calculateAccessCounts(june3,
+                june3, user(2)).get(1));
+        assertNull(storyAccessDAO.calculateAccessCounts(june3, june3, user(1))
+                .get(3));
+    }
+
+    @Test
+    public void testRemoveCountsByStory() {
+        executeClassSql();
+        storyAccessDAO.removeCountsByStory(2);
+        DateTime june1 = new DateTime(2009, 6, 1, 0, 0, 0, 0);
+        Map<Integer, Long> counts = storyAccessDAO.calculateAccessCounts(
+                june1, june1.plusMonths(1), user(1));
+        assertEquals(1, counts.size());
+        assertEquals(5L, (long) counts.get(1));
+        assertTrue(storyAccessDAO.calculateAccessCounts(june1,
+                june1.plusMonths(1), user(2)).isEmpty());
+    }
+
+    @Test
+    public void testRemoveCountsByUser() {
+        executeClassSql();
+        storyAccessDAO.removeCountsByUser(1);
+        DateTime june1 = new DateTime(2009, 6, 1, 0, 0, 0, 0);
+        assertTrue(storyAccessDAO.calculateAccessCounts(june1,
+                june1.plusMonths(1), user(1)).isEmpty());
+        assertEquals(7L, (long) storyAccessDAO.calculateAccessCounts(june1,
+                june1.plusMonths(1), user(2)).get(2));
+    }
+}
@@ -1,9 +1,13 @@
 package fi.hut.soberit.agilefant.db;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.hibernate.Hibernate;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,9 +16,11 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
 import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Label;
 import fi.hut.soberit.agilefant.model.Product;
 import fi.hut.soberit.agilefant.model.Project;
 import fi.hut.soberit.agilefant.model.Story;
+import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
 import static org.junit.Assert.*;
 
@@ -163,4 +169,88 @@ public class StoryHierarchyDAOTest extends AbstractHibernateTests {
         executeClassSql();
         assertEquals(5, this.testable.getMaximumTreeRank(product.getId()));
     }
+    
+    private static Set<Integer> getChildIds(Story story) {
+        assertTrue(Hibernate.isInitialized(story.getChildren()));
+        Set<Integer> ids = new HashSet<Integer>();
+        for (Story child : story.getChildren()) {
+            ids.add(child.getId());
+        }
+        return ids;
+    }
+    
+    @Test
+    public void testInitializeSubtree() {
+        executeClassSql();
+        Story story = (Story) sessionFactory.getCurrentSession().get(Story.class, 21);
+        this.testable.initializeSubtree(story);
+        assertEquals(new HashSet<Integer>(Arrays.asList(22, 31)), getChildIds(story));
+        Story middle = story.getChildren().get(0);
+        assertEquals(22, middle.getId());
+        assertEquals(new HashSet<Integer>(Arrays.asList(23)), getChildIds(middle));
+        Story deepest = middle.getChildren().get(0);
+        assertEquals(new HashSet<Integer>(Arrays.asList(32)), getChildIds(deepest));
+        assertTrue(getChildIds(deepest.getChildren().get(0)).isEmpty());
+        assertFalse(Hibernate.isInitialized(story.getParent().getChildren()));
+    }
+    
+    @Test
+    public void testInitializeSubtrees() {
+        executeClassSql();
+        List<Story> roots = this.testable.retrieveProductRootStories(product.getId());
+        this.testable.initializeSubtrees(roots);
+        Story root = (Story) sessionFactory.getCurrentSession().get(Story.class, 11);
+        assertEquals(new HashSet<Integer>(Arrays.asList(12, 21, 34)), getChildIds(root));
+        Story child = (Story) sessionFactory.getCurrentSession().get(Story.class, 12);
+        assertEquals(new HashSet<Integer>(Arrays.asList(13)), getChildIds(child));
+    }
+    
+    @Test
+    public void testInitializeSubtrees_unsavedStory() {
+        this.testable.initializeSubtrees(Arrays.asList(new Story()));
+    }
+    
+    @Test
+    public void testRetrieveSubtrees() {
+        executeClassSql();
+        Story story21 = (Story) sessionFactory.getCurrentSession().get(Story.class, 21);
+        Story story24 = (Story) sessionFactory.getCurrentSession().get(Story.class, 24);
+        List<Story> actual = this.testable.retrieveSubtrees(Arrays.asList(story21, story24));
+        Set<Integer> ids = new HashSet<Integer>();
+        for (Story story : actual) {
+            ids.add(story.getId());
+        }
+        assertEquals(new HashSet<Integer>(Arrays.asList(21, 22, 23, 24, 31, 32)), ids);
+        assertEquals(6, actual.size());
+    }
+    
+    @Test
+    public void testRetrieveSubtrees_unsavedStory() {
+        assertTrue(this.testable.retrieveSubtrees(Arrays.asList(new Story())).isEmpty());
+    }
+    
+    @Test
+    public void testRetrieveResponsiblesByStoryIds() {
+        executeClassSql();
+        Map<Integer, Set<User>> actual = this.testable
+                .retrieveResponsiblesByStoryIds(Arrays.asList(21, 22, 23));
+        assertEquals(2, actual.size());
+        assertEquals(2, actual.get(21).size());
+        assertEquals(1, actual.get(22).size());
+        assertEquals(2, actual.get(22).iterator().next().getId());
+        assertTrue(this.testable.retrieveResponsiblesByStoryIds(
+                new ArrayList<Integer>()).isEmpty());
+    }
+    
+    @Test
+    public void testRetrieveLabelsByStoryIds() {
+        executeClassSql();
+        Map<Integer, Set<Label>> actual = this.testable
+                .retrieveLabelsByStoryIds(Arrays.asList(21, 22, 32));
+        assertEquals(2, actual.size());
+        assertEquals("kissa", actual.get(21).iterator().next().getName());
+        assertEquals("matti", actual.get(32).iterator().next().getName());
+        assertTrue(this.testable.retrieveLabelsByStoryIds(
+                new ArrayList<Integer>()).isEmpty());
+    }
 }
@@ -64,6 +64,25 @@ public class StoryRankDAOTest extends AbstractHibernateTests {
         Collection<StoryRank> actual = storyRankDAO.getIterationRanksForStories(new ArrayList<Story>());
         assertTrue(actual.isEmpty());
     }
+
+    @Test
+    public void testRetrievePreviousRankNumber() {
+        executeClassSql();
+        Backlog backlog = storyRankDAO.get(1).getBacklog();
+        assertEquals(Integer.valueOf(1), storyRankDAO.retrievePreviousRankNumber(backlog, 2, null));
+        assertEquals(Integer.valueOf(0), storyRankDAO.retrievePreviousRankNumber(backlog, 2, storyRankDAO.get(2)));
+        assertNull(storyRankDAO.retrievePreviousRankNumber(backlog, 0, null));
+    }
+
+    @Test
+    public void testRetrieveNextRankNumber() {
+        executeClassSql();
+        Backlog backlog = storyRankDAO.get(1).getBacklog();
+        assertEquals(Integer.valueOf(2), storyRankDAO.retrieveNextRankNumber(backlog, 1, null));
+        assertEquals(Integer.valueOf(3), storyRankDAO.retrieveNextRankNumber(backlog, 1, storyRankDAO.get(3)));
+        assertNull(storyRankDAO.retrieveNextRankNumber(backlog, 3, null));
+    }
+
     private boolean checkRankExists(Collection<StoryRank> actual, int storyId, int backlogId, int rank) {
         for (StoryRank sr : actual) {
             if (sr.getStory().getId() == storyId && sr.getBacklog().getId() == backlogId && sr.getRank() == rank) {
@@ -72,4 +91,4 @@ public class StoryRankDAOTest extends AbstractHibernateTests {
         }
         return false;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
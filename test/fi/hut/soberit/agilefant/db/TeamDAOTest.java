@@ -0,0 +1,44 @@
+package fi.hut.soberit.agilefant.db;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
+
+@ContextConfiguration
+@Transactional
+public class TeamDAOTest extends AbstractHibernateTests {
+
+    @Autowired
+    private TeamDAO teamDAO;
+
+    @Test
+    public void testRetrieveProductIdsByUser() {
+        executeClassSql();
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 2)),
+                new HashSet<Integer>(teamDAO.retrieveProductIdsByUser(1)));
+        assertEquals(2, teamDAO.retrieveProductIdsByUser(1).size());
+        assertEquals(Arrays.asList(3), teamDAO.retrieveProductIdsByUser(2));
+    }
+
+    @Test
+    public void testRetrieveProductIdsByUser_noTeams() {
+        executeClassSql();
+        assertTrue(teamDAO.retrieveProductIdsByUser(3).isEmpty());
+    }
+
+    @Test
+    public void testRetrieveIterationIdsByUser() {
+        executeClassSql();
+        assertEquals(Arrays.asList(4), teamDAO.retrieveIterationIdsByUser(1));
+        assertEquals(Arrays.asList(5), teamDAO.retrieveIterationIdsByUser(2));
+        assertTrue(teamDAO.retrieveIterationIdsByUser(3).isEmpty());
+    }
+}
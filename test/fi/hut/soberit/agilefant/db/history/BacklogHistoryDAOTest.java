@@ -14,6 +14,7 @@ import fi.hut.soberit.agilefant.model.Backlog;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
 import fi.hut.soberit.agilefant.transfer.AgilefantHistoryEntry;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
 
 @ContextConfiguration
 @Transactional
@@ -48,4 +49,51 @@ public class BacklogHistoryDAOTest extends AbstractHibernateTests {
         assertEquals(RevisionType.DEL, actual.get(0).getRevisionType());
         assertEquals(3, actual.get(0).getRevision().getId());
     }
+    
+    @Test
+    public void testRetrieveStoryChanges_firstPage() {
+        executeClassSql();
+        Backlog backlog = new Iteration();
+        backlog.setId(1);
+        List<AgilefantHistoryEntry> actual = this.backlogHistoryDAO.retrieveStoryChanges(backlog, null, 3);
+        
+        assertEquals(3, actual.size());
+        assertEquals(RevisionType.DEL, actual.get(0).getRevisionType());
+        assertEquals(3, actual.get(0).getRevision().getId());
+        assertEquals(4, actual.get(0).getObjectId());
+        assertEquals(RevisionType.ADD, actual.get(1).getRevisionType());
+        assertEquals(2, actual.get(1).getRevision().getId());
+        assertEquals(4, actual.get(1).getObjectId());
+        assertEquals(1, actual.get(2).getRevision().getId());
+        assertEquals(3, actual.get(2).getObjectId());
+    }
+    
+    @Test
+    public void testRetrieveStoryChanges_afterCursor() {
+        executeClassSql();
+        Backlog backlog = new Iteration();
+        backlog.setId(1);
+        HistoryFeedCursor after = new HistoryFeedCursor(1279095869L, 1,
+                HistoryFeedCursor.STORY, 3);
+        List<AgilefantHistoryEntry> actual = this.backlogHistoryDAO.retrieveStoryChanges(backlog, after, 10);
+        
+        assertEquals(2, actual.size());
+        assertEquals(2, actual.get(0).getObjectId());
+        assertEquals(1, actual.get(1).getObjectId());
+    }
+    
+    @Test
+    public void testRetrieveStoryChanges_afterTaskInRevision() {
+        executeClassSql();
+        Backlog backlog = new Iteration();
+        backlog.setId(1);
+        HistoryFeedCursor after = new HistoryFeedCursor(1279095897L, 2,
+                HistoryFeedCursor.TASK, 7);
+        List<AgilefantHistoryEntry> actual = this.backlogHistoryDAO.retrieveStoryChanges(backlog, after, 10);
+        
+        assertEquals(3, actual.size());
+        for (AgilefantHistoryEntry entry : actual) {
+            assertEquals(1, entry.getRevision().getId());
+        }
+    }
 }
@@ -1,7 +1,15 @@
 package fi.hut.soberit.agilefant.db.history;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTime;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
@@ -9,7 +17,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.model.StoryState;
+import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.test.AbstractHibernateTests;
+import fi.hut.soberit.agilefant.util.Pair;
 
 @ContextConfiguration
 @Transactional
@@ -18,29 +28,59 @@ public class StoryHistoryDAOTest extends AbstractHibernateTests {
     private StoryHistoryDAO storyHistoryDAO;
     
     @Test
-    public void testRetrieveClosestRevision_inial() {
+    public void testRetrieveClosestRevisions() {
         executeClassSql();
-       Story actual = this.storyHistoryDAO.retrieveClosestRevision(1, 1);
-       assertEquals(StoryState.NOT_STARTED, actual.getState());
+        List<Pair<Integer, Integer>> storyRevisions = Arrays.asList(
+                Pair.create(1, 2), Pair.create(1, 8), Pair.create(2, 3),
+                Pair.create(2, 2), Pair.create(5, 1));
+        Map<Pair<Integer, Integer>, Story> actual = this.storyHistoryDAO
+                .retrieveClosestRevisions(storyRevisions);
+        
+        assertEquals(4, actual.size());
+        assertEquals(StoryState.PENDING, actual.get(Pair.create(1, 2)).getState());
+        assertEquals(StoryState.IMPLEMENTED, actual.get(Pair.create(1, 8)).getState());
+        assertEquals("Story 2", actual.get(Pair.create(2, 3)).getName());
+        assertEquals("Story 2", actual.get(Pair.create(2, 2)).getName());
+        assertNull(actual.get(Pair.create(5, 1)));
     }
     
     @Test
-    public void testRetrieveClosestRevision_second() {
+    public void testCalculateAccessCounts() {
         executeClassSql();
-       Story actual = this.storyHistoryDAO.retrieveClosestRevision(1, 2);
-       assertEquals(StoryState.PENDING, actual.getState());
+        User user = new User();
+        user.setId(1);
+        Map<Integer, Long> actual = this.storyHistoryDAO.calculateAccessCounts(
+                new DateTime(1279095800L), new DateTime(1279095900L), user, 10);
+        
+        assertEquals(Arrays.asList(1, 2), new ArrayList<Integer>(actual.keySet()));
+        assertEquals(2L, (long) actual.get(1));
+        assertEquals(1L, (long) actual.get(2));
     }
+    
     @Test
-    public void testRetrieveClosestRevision_last() {
+    public void testCalculateAccessCounts_topStories() {
         executeClassSql();
-       Story actual = this.storyHistoryDAO.retrieveClosestRevision(1, 3);
-       assertEquals(StoryState.IMPLEMENTED, actual.getState());
+        User user = new User();
+        user.setId(1);
+        Map<Integer, Long> actual = this.storyHistoryDAO.calculateAccessCounts(
+                new DateTime(1279095800L), new DateTime(1279096000L), user, 1);
+        
+        assertEquals(1, actual.size());
+        assertEquals(3L, (long) actual.get(1));
     }
     
     @Test
-    public void testRetrieveClosestRevision_bigger() {
+    public void testCalculateAccessCounts_otherUser() {
         executeClassSql();
-       Story actual = this.storyHistoryDAO.retrieveClosestRevision(1, 8);
-       assertEquals(StoryState.IMPLEMENTED, actual.getState());
+        User user = new User();
+        user.setId(2);
+        assertTrue(this.storyHistoryDAO.calculateAccessCounts(
+                new DateTime(1279095800L), new DateTime(1279096000L), user, 10).isEmpty());
+    }
+    
+    @Test
+    public void testRetrieveClosestRevisions_empty() {
+        assertTrue(this.storyHistoryDAO.retrieveClosestRevisions(
+                new ArrayList<Pair<Integer, Integer>>()).isEmpty());
     }
 }
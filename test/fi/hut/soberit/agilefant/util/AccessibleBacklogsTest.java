@@ -0,0 +1,98 @@
+package fi.hut.soberit.agilefant.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Product;
+import fi.hut.soberit.agilefant.model.Project;
+import fi.hut.soberit.agilefant.transfer.BacklogType;
+
+public class AccessibleBacklogsTest {
+
+    private AccessibleBacklogs accessible;
+    private Product product;
+    private Project project;
+    private Iteration iteration;
+
+    @Before
+    public void setUp() {
+        accessible = new AccessibleBacklogs(IntSet.of(Arrays.asList(5, 1, 5)),
+                IntSet.of(Arrays.asList(10)));
+        product = new Product();
+        product.setId(1);
+        project = new Project();
+        project.setId(2);
+        project.setParent(product);
+        iteration = new Iteration();
+        iteration.setId(3);
+        iteration.setParent(project);
+    }
+
+    @Test
+    public void testIntSet() {
+        IntSet set = IntSet.of(Arrays.asList(5, 1, 5, -2));
+        assertEquals(Arrays.asList(-2, 1, 5), set.toList());
+        assertEquals(3, set.size());
+        assertTrue(set.contains(-2));
+        assertFalse(set.contains(2));
+        assertTrue(IntSet.EMPTY.isEmpty());
+        assertFalse(IntSet.EMPTY.contains(0));
+    }
+
+    @Test
+    public void testCanAccess_product() {
+        assertTrue(accessible.canAccess(product));
+        product.setId(4);
+        assertFalse(accessible.canAccess(product));
+    }
+
+    @Test
+    public void testCanAccess_childBacklogs() {
+        assertTrue(accessible.canAccess(project));
+        assertTrue(accessible.canAccess(iteration));
+        product.setId(10);
+        assertFalse(accessible.canAccess(project));
+        assertFalse(accessible.canAccess(iteration));
+    }
+
+    @Test
+    public void testCanAccess_standAloneIteration() {
+        iteration.setParent(null);
+        assertFalse(accessible.canAccess(iteration));
+        iteration.setId(10);
+        assertTrue(accessible.canAccess(iteration));
+    }
+
+    @Test
+    public void testCanAccess_null() {
+        assertFalse(accessible.canAccess(null));
+    }
+
+    @Test
+    public void testCanAccess_hierarchy() {
+        List<BacklogHierarchy.Node> nodes = new ArrayList<BacklogHierarchy.Node>();
+        nodes.add(new BacklogHierarchy.Node(1, BacklogType.PRODUCT, "Product", null, null, 0));
+        nodes.add(new BacklogHierarchy.Node(4, BacklogType.PRODUCT, "Other", null, null, 0));
+        nodes.add(new BacklogHierarchy.Node(2, BacklogType.PROJECT, "Project", null, null, 1));
+        nodes.add(new BacklogHierarchy.Node(3, BacklogType.ITERATION, "Iteration", null, null, 2));
+        nodes.add(new BacklogHierarchy.Node(6, BacklogType.PROJECT, "Other project", null, null, 4));
+        nodes.add(new BacklogHierarchy.Node(10, BacklogType.ITERATION, "Standalone", null, null, 0));
+        nodes.add(new BacklogHierarchy.Node(11, BacklogType.ITERATION, "Other standalone", null, null, 0));
+        BacklogHierarchy hierarchy = new BacklogHierarchy(nodes);
+        
+        assertTrue(accessible.canAccess(1, hierarchy));
+        assertTrue(accessible.canAccess(3, hierarchy));
+        assertTrue(accessible.canAccess(10, hierarchy));
+        assertFalse(accessible.canAccess(4, hierarchy));
+        assertFalse(accessible.canAccess(6, hierarchy));
+        assertFalse(accessible.canAccess(11, hierarchy));
+        assertFalse(accessible.canAccess(5, hierarchy));
+    }
+}
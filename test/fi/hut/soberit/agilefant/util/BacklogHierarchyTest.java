@@ -0,0 +1,98 @@
+package fi.hut.soberit.agilefant.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.hut.soberit.agilefant.transfer.BacklogType;
+import fi.hut.soberit.agilefant.transfer.ScheduleStatus;
+
+public class BacklogHierarchyTest {
+
+    private BacklogHierarchy hierarchy;
+
+    @Before
+    public void setUp() {
+        DateTime now = new DateTime();
+        List<BacklogHierarchy.Node> nodes = new ArrayList<BacklogHierarchy.Node>();
+        nodes.add(new BacklogHierarchy.Node(5, BacklogType.PRODUCT, "Product B", null, null, 0));
+        nodes.add(new BacklogHierarchy.Node(1, BacklogType.PRODUCT, "product a", null, null, 0));
+        nodes.add(new BacklogHierarchy.Node(3, BacklogType.PROJECT, "Project",
+                now.minusDays(10), now.plusDays(10), 5));
+        nodes.add(new BacklogHierarchy.Node(7, BacklogType.ITERATION, "Later",
+                now.plusDays(1), now.plusDays(5), 3));
+        nodes.add(new BacklogHierarchy.Node(2, BacklogType.ITERATION, "Earlier",
+                now.minusDays(5), now.minusDays(1), 3));
+        nodes.add(new BacklogHierarchy.Node(9, BacklogType.ITERATION, "Standalone",
+                now.minusDays(1), now.plusDays(1), 0));
+        nodes.add(new BacklogHierarchy.Node(4, BacklogType.ITERATION, "Orphan",
+                null, null, 100));
+        hierarchy = new BacklogHierarchy(nodes);
+    }
+
+    private static List<Integer> ids(List<BacklogHierarchy.Node> nodes) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (BacklogHierarchy.Node node : nodes) {
+            ids.add(node.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testGet() {
+        assertEquals(7, hierarchy.size());
+        assertEquals("Project", hierarchy.get(3).getName());
+        assertNull(hierarchy.get(6));
+        assertEquals(1, hierarchy.get(1).getId());
+        assertEquals(9, hierarchy.get(9).getId());
+    }
+
+    @Test
+    public void testGetPathName() {
+        assertEquals("Product B", hierarchy.get(5).getPathName());
+        assertEquals("Product B > Project", hierarchy.get(3).getPathName());
+        assertEquals("Product B > Project > Later", hierarchy.get(7).getPathName());
+        assertEquals("Orphan", hierarchy.get(4).getPathName());
+    }
+
+    @Test
+    public void testGetRoot() {
+        assertSame(hierarchy.get(5), hierarchy.getRoot(hierarchy.get(7)));
+        assertSame(hierarchy.get(5), hierarchy.getRoot(hierarchy.get(5)));
+        assertSame(hierarchy.get(4), hierarchy.getRoot(hierarchy.get(4)));
+    }
+
+    @Test
+    public void testGetChildren() {
+        assertEquals(Arrays.asList(3), ids(hierarchy.getChildren(hierarchy.get(5))));
+        assertEquals(Arrays.asList(2, 7), ids(hierarchy.getChildren(hierarchy.get(3))));
+        assertTrue(hierarchy.getChildren(hierarchy.get(7)).isEmpty());
+    }
+
+    @Test
+    public void testGetRoots() {
+        assertEquals(Arrays.asList(1, 5), ids(hierarchy.getProducts()));
+        assertEquals(Arrays.asList(4, 9), ids(hierarchy.getStandAloneIterations()));
+    }
+
+    @Test
+    public void testGetScheduleStatus() {
+        assertEquals(ScheduleStatus.ONGOING, hierarchy.get(5).getScheduleStatus());
+        assertEquals(ScheduleStatus.ONGOING, hierarchy.get(3).getScheduleStatus());
+        assertEquals(ScheduleStatus.FUTURE, hierarchy.get(7).getScheduleStatus());
+        assertEquals(ScheduleStatus.PAST, hierarchy.get(2).getScheduleStatus());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, BacklogHierarchy.EMPTY.size());
+        assertNull(BacklogHierarchy.EMPTY.get(1));
+        assertTrue(BacklogHierarchy.EMPTY.getProducts().isEmpty());
+    }
+}
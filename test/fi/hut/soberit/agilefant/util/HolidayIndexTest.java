@@ -0,0 +1,87 @@
+package fi.hut.soberit.agilefant.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import fi.hut.soberit.agilefant.model.Holiday;
+
+public class HolidayIndexTest {
+
+    // Monday
+    private static final LocalDate START = new LocalDate(2009, 6, 1);
+
+    private static Holiday holiday(int from, int to) {
+        Holiday holiday = new Holiday();
+        holiday.setStartDate(START.plusDays(from).toDateMidnight().toDate());
+        holiday.setEndDate(START.plusDays(to).toDateMidnight().toDate());
+        return holiday;
+    }
+
+    private static long day(int days) {
+        return HolidayIndex.toDay(START.plusDays(days));
+    }
+
+    @Test
+    public void testCountWeekdays() {
+        assertEquals(5, HolidayIndex.countWeekdays(day(0), day(7)));
+        assertEquals(0, HolidayIndex.countWeekdays(day(5), day(7)));
+        assertEquals(1, HolidayIndex.countWeekdays(day(4), day(7)));
+        assertEquals(11, HolidayIndex.countWeekdays(day(-3), day(12)));
+        assertEquals(0, HolidayIndex.countWeekdays(day(3), day(3)));
+        assertEquals(5, HolidayIndex.countWeekdays(-10, -3));
+    }
+
+    @Test
+    public void testIsHoliday() {
+        HolidayIndex index = new HolidayIndex(Arrays.asList(holiday(1, 3),
+                holiday(10, 12)), DateTimeZone.getDefault());
+        assertFalse(index.isHoliday(START));
+        assertTrue(index.isHoliday(START.plusDays(1)));
+        assertTrue(index.isHoliday(START.plusDays(2)));
+        assertFalse(index.isHoliday(START.plusDays(3)));
+        assertFalse(index.isHoliday(START.plusDays(9)));
+        assertTrue(index.isHoliday(START.plusDays(11)));
+        assertFalse(index.isHoliday(START.plusDays(12)));
+    }
+
+    @Test
+    public void testCountHolidayWeekdays_overlappingHolidays() {
+        HolidayIndex index = new HolidayIndex(Arrays.asList(holiday(8, 10),
+                holiday(3, 9), holiday(4, 5), holiday(10, 11)), DateTimeZone
+                .getDefault());
+        // Thursday until Thursday of the next week, without the weekend
+        assertEquals(6, index.countHolidayWeekdays(day(0), day(14)));
+        assertEquals(3, index.countHolidayWeekdays(day(0), day(8)));
+        assertEquals(2, index.countHolidayWeekdays(day(9), day(30)));
+        assertEquals(0, index.countHolidayWeekdays(day(5), day(7)));
+        assertEquals(0, index.countHolidayWeekdays(day(12), day(9)));
+    }
+
+    @Test
+    public void testHolidayNotContainingStartOfDay() {
+        Holiday holiday = new Holiday();
+        holiday.setStartDate(START.toDateMidnight().toDateTime().plusHours(12)
+                .toDate());
+        holiday.setEndDate(START.plusDays(1).toDateMidnight().toDateTime()
+                .plusHours(12).toDate());
+        HolidayIndex index = new HolidayIndex(Arrays.asList(holiday),
+                DateTimeZone.getDefault());
+        assertFalse(index.isHoliday(START));
+        assertTrue(index.isHoliday(START.plusDays(1)));
+        assertEquals(1, index.countHolidayWeekdays(day(0), day(7)));
+    }
+
+    @Test
+    public void testNoHolidays() {
+        HolidayIndex index = new HolidayIndex(Collections.<Holiday> emptyList(),
+                DateTimeZone.getDefault());
+        assertFalse(index.isHoliday(START));
+        assertEquals(0, index.countHolidayWeekdays(day(-100), day(100)));
+    }
+}
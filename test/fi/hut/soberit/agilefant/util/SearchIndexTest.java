@@ -0,0 +1,100 @@
+package fi.hut.soberit.agilefant.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.hut.soberit.agilefant.model.Backlog;
+import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.model.Project;
+
+public class SearchIndexTest {
+
+    private SearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new SearchIndex();
+        index.put(1, Project.class, "Release planning", "Plan the next release");
+        index.put(2, Iteration.class, "Sprint 12", "Planning poker &amp; <b>review</b>");
+        index.put(3, Iteration.class, "Planning", null);
+    }
+
+    @Test
+    public void testTokenize() {
+        assertEquals(Arrays.asList("story", "n\u00e4kym\u00e4", "1", "2"), SearchIndex
+                .tokenize("<p>Story: n\u00e4kym\u00e4 1.2 story</p>"));
+    }
+
+    @Test
+    public void testTokenize_null() {
+        assertTrue(SearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    public void testSearch_ranking() {
+        // Whole name first, then name words and description matches
+        assertEquals(Arrays.asList(3, 1, 2), index.search("planning", Backlog.class, 10));
+    }
+
+    @Test
+    public void testSearch_prefix() {
+        assertEquals(Arrays.asList(3, 1, 2), index.search("PLAN", Backlog.class, 10));
+        assertEquals(Arrays.asList(2), index.search("rev", Backlog.class, 10));
+    }
+
+    @Test
+    public void testSearch_allWordsMustMatch() {
+        assertEquals(Arrays.asList(1), index.search("next planning", Backlog.class, 10));
+        assertTrue(index.search("next sprint", Backlog.class, 10).isEmpty());
+    }
+
+    @Test
+    public void testSearch_type() {
+        assertEquals(Arrays.asList(3, 2), index.search("planning", Iteration.class, 10));
+    }
+
+    @Test
+    public void testSearch_maxResults() {
+        assertEquals(Arrays.asList(3, 1), index.search("planning", Backlog.class, 2));
+    }
+
+    @Test
+    public void testSearch_markupIgnored() {
+        assertTrue(index.search("amp", Backlog.class, 10).isEmpty());
+        assertTrue(index.search("b", Backlog.class, 10).isEmpty());
+    }
+
+    @Test
+    public void testSearch_emptyQuery() {
+        assertTrue(index.search("", Backlog.class, 10).isEmpty());
+        assertTrue(index.search(" - ", Backlog.class, 10).isEmpty());
+    }
+
+    @Test
+    public void testPut_replaces() {
+        index.put(3, Iteration.class, "Demo", null);
+        assertEquals(Arrays.asList(1, 2), index.search("planning", Backlog.class, 10));
+        assertEquals(Arrays.asList(3), index.search("demo", Backlog.class, 10));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testRemove() {
+        index.remove(1);
+        index.remove(4);
+        assertEquals(Arrays.asList(3, 2), index.search("planning", Backlog.class, 10));
+        assertTrue(index.search("release", Backlog.class, 10).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testClear() {
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.search("planning", Backlog.class, 10).isEmpty());
+    }
+}
@@ -0,0 +1,140 @@
+package fi.hut.soberit.agilefant.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.Duration;
+import org.joda.time.Interval;
+import org.joda.time.LocalDate;
+import org.joda.time.MutableDateTime;
+import org.junit.Test;
+
+import fi.hut.soberit.agilefant.model.Holiday;
+
+public class WorkingDaysTest {
+
+    // Monday
+    private static final LocalDate START = new LocalDate(2009, 6, 1);
+
+    private static Holiday holiday(LocalDate start, LocalDate end) {
+        Holiday holiday = new Holiday();
+        holiday.setStartDate(start.toDateMidnight().toDate());
+        holiday.setEndDate(end.toDateMidnight().toDate());
+        return holiday;
+    }
+
+    private static Interval days(int from, int to) {
+        return new Interval(START.plusDays(from).toDateMidnight(), START
+                .plusDays(to).toDateMidnight());
+    }
+
+    private static Duration workDays(int days) {
+        return new Duration(days * (long) DateTimeConstants.MILLIS_PER_DAY);
+    }
+
+    @Test
+    public void testCalculateWorktime() {
+        WorkingDays workingDays = new WorkingDays(Collections
+                .<Holiday> emptyList());
+        assertEquals(workDays(4), workingDays.calculateWorktime(days(0, 4)));
+        assertEquals(workDays(5), workingDays.calculateWorktime(days(0, 7)));
+        assertEquals(workDays(6), workingDays.calculateWorktime(days(0, 8)));
+        assertEquals(workDays(0), workingDays.calculateWorktime(days(5, 7)));
+        assertEquals(workDays(0), workingDays.calculateWorktime(days(3, 3)));
+    }
+
+    @Test
+    public void testCalculateWorktime_withHolidays() {
+        WorkingDays workingDays = new WorkingDays(Arrays.asList(
+                holiday(START.plusDays(1), START.plusDays(3)),
+                holiday(START.plusDays(5), START.plusDays(8))));
+        assertEquals(workDays(3), workingDays.calculateWorktime(days(0, 8)));
+        assertEquals(workDays(3), workingDays.calculateWorktime(days(0, 7)));
+        assertFalse(workingDays.isWorkingDay(START.plusDays(1)));
+        assertFalse(workingDays.isWorkingDay(START.plusDays(7)));
+        assertTrue(workingDays.isWorkingDay(START.plusDays(3)));
+        assertTrue(workingDays.isWorkingDay(START.plusDays(8)));
+    }
+
+    @Test
+    public void testCalculateWorktime_partialDays() {
+        WorkingDays workingDays = new WorkingDays(Collections
+                .<Holiday> emptyList());
+        DateTime saturday = new DateTime(2009, 6, 6, 14, 50, 0, 0);
+        assertEquals(workDays(0), workingDays.calculateWorktime(new Interval(
+                saturday, saturday.plusDays(1).toDateMidnight())));
+
+        DateTime friday = new DateTime(2009, 6, 5, 12, 0, 0, 0);
+        assertEquals(new Duration(12 * 3600 * 1000L), workingDays
+                .calculateWorktime(new Interval(friday, START.plusDays(7)
+                        .toDateMidnight())));
+    }
+
+    @Test
+    public void testCalculateWorktime_holidaysFarApart() {
+        List<Holiday> holidays = Arrays.asList(holiday(START.minusDays(7),
+                START.minusDays(5)), holiday(START.plusDays(15), START
+                .plusDays(16)));
+        WorkingDays workingDays = new WorkingDays(holidays);
+        assertEquals(workDays(8), workingDays.calculateWorktime(days(-7, 7)));
+        assertEquals(workDays(10), workingDays.calculateWorktime(days(0, 14)));
+        assertEquals(workDays(17), workingDays.calculateWorktime(days(-7, 21)));
+        assertFalse(workingDays.isWorkingDay(START.plusDays(15)));
+    }
+
+    /**
+     * Compares the worktimes with the worktimes calculated day by day, for
+     * overlapping holidays and intervals before and after them.
+     */
+    @Test
+    public void testCalculateWorktime_comparedToDayByDay() {
+        List<Holiday> holidays = new ArrayList<Holiday>();
+        for (int i = 0; i < 10; i++) {
+            holidays.add(holiday(START.plusDays(i * 11), START.plusDays(i * 11
+                    + i % 4 + 1)));
+        }
+        holidays.add(holiday(START.plusDays(20), START.plusDays(30)));
+        holidays.add(holiday(START.plusDays(25), START.plusDays(26)));
+        WorkingDays workingDays = new WorkingDays(holidays);
+        for (int from = -10; from < 100; from += 3) {
+            for (int to = from + 1; to < from + 40; to += 2) {
+                Interval interval = new Interval(START.plusDays(from)
+                        .toDateMidnight().toDateTime().plusHours(from % 5),
+                        START.plusDays(to).toDateMidnight());
+                assertEquals(interval.toString(), calculateDayByDay(interval,
+                        holidays), workingDays.calculateWorktime(interval));
+            }
+        }
+    }
+
+    private static Duration calculateDayByDay(Interval interval,
+            List<Holiday> holidays) {
+        MutableDateTime iterator = new MutableDateTime(interval.getStart());
+        int deductDays = 0;
+        while (iterator.isBefore(interval.getEnd())) {
+            boolean nonWorking = iterator.getDayOfWeek() == DateTimeConstants.SATURDAY
+                    || iterator.getDayOfWeek() == DateTimeConstants.SUNDAY;
+            DateTime midnight = iterator.toDateTime().toDateMidnight()
+                    .toDateTime();
+            for (Holiday holiday : holidays) {
+                nonWorking |= holiday.getInterval().contains(midnight);
+            }
+            if (nonWorking) {
+                deductDays++;
+            }
+            iterator.addDays(1);
+        }
+        Duration worktime = new Duration(interval.getStart(), interval
+                .getEnd().minusDays(deductDays));
+        if (worktime.getMillis() < 0) {
+            return new Duration(0);
+        }
+        return worktime;
+    }
+}
@@ -0,0 +1,84 @@
+package fi.hut.soberit.agilefant.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+public class XlsxSheetWriterTest {
+
+    private static Map<String, String> readEntries(byte[] workbook)
+            throws IOException {
+        Map<String, String> entries = new HashMap<String, String>();
+        ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(
+                workbook));
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = zip.read(buffer)) > 0) {
+                content.write(buffer, 0, read);
+            }
+            entries.put(entry.getName(), content.toString("UTF-8"));
+        }
+        return entries;
+    }
+
+    @Test
+    public void testColumnName() {
+        assertEquals("A", XlsxSheetWriter.columnName(0));
+        assertEquals("I", XlsxSheetWriter.columnName(8));
+        assertEquals("Z", XlsxSheetWriter.columnName(25));
+        assertEquals("AA", XlsxSheetWriter.columnName(26));
+        assertEquals("AZ", XlsxSheetWriter.columnName(51));
+        assertEquals("BA", XlsxSheetWriter.columnName(52));
+    }
+
+    @Test
+    public void testEscape() {
+        assertEquals("a &lt;b&gt; &amp; &quot;c&quot;", XlsxSheetWriter
+                .escape("a <b> & \"c\""));
+        assertEquals("tab\tand\nline", XlsxSheetWriter.escape("tab\tand\u0001\nline"));
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XlsxSheetWriter writer = new XlsxSheetWriter(out, "Sheet & co",
+                new int[] { 10, 0 }, "dd.mm.yyyy", "0.00");
+        writer.startRow();
+        writer.addString("Name", XlsxSheetWriter.STYLE_HEADER);
+        writer.addString(null, XlsxSheetWriter.STYLE_NONE);
+        writer.addNumber(1.5, XlsxSheetWriter.STYLE_DECIMAL);
+        writer.endRow();
+        writer.startRow();
+        writer.addDate(new DateTime(1970, 1, 2, 12, 0, 0, 0, DateTimeZone
+                .forOffsetHours(2)), XlsxSheetWriter.STYLE_DATE);
+        writer.endRow();
+        writer.finish();
+
+        Map<String, String> entries = readEntries(out.toByteArray());
+        assertEquals(6, entries.size());
+        assertTrue(entries.get("xl/workbook.xml").contains(
+                "name=\"Sheet &amp; co\""));
+        assertTrue(entries.get("xl/styles.xml").contains(
+                "formatCode=\"dd.mm.yyyy\""));
+
+        String sheet = entries.get("xl/worksheets/sheet1.xml");
+        assertTrue(sheet.contains("<cols><col min=\"1\" max=\"1\" width=\"10\" customWidth=\"1\"/></cols>"));
+        assertTrue(sheet.contains("<row r=\"1\"><c r=\"A1\" t=\"inlineStr\" s=\"1\"><is><t xml:space=\"preserve\">Name</t></is></c>"
+                + "<c r=\"C1\" s=\"3\"><v>1.5</v></c></row>"));
+        assertTrue(sheet.contains("<row r=\"2\"><c r=\"A2\" s=\"2\"><v>25570.5</v></c></row>"));
+        assertTrue(sheet.endsWith("</sheetData></worksheet>"));
+    }
+}
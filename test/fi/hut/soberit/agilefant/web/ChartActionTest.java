@@ -3,6 +3,12 @@ package fi.hut.soberit.agilefant.web;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.util.ArrayList;
+
+import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -11,6 +17,9 @@ import com.opensymphony.xwork2.Action;
 import fi.hut.soberit.agilefant.business.IterationBurndownBusiness;
 import fi.hut.soberit.agilefant.business.IterationBusiness;
 import fi.hut.soberit.agilefant.model.Iteration;
+import fi.hut.soberit.agilefant.transfer.ChartData;
+import fi.hut.soberit.agilefant.transfer.ChartImage;
+import fi.hut.soberit.agilefant.transfer.ChartSeries;
 
 public class ChartActionTest {
 
@@ -38,8 +47,8 @@ public class ChartActionTest {
         chartAction.setBacklogId(iteration.getId());
         expect(iterationBusiness.retrieve(iteration.getId())).andReturn(
                 iteration);
-        expect(iterationBurndownBusiness.getIterationBurndown(iteration, 0))
-                .andReturn(expected);
+        expect(iterationBurndownBusiness.getIterationBurndownImage(iteration, null, null, false, 0))
+                .andReturn(new ChartImage(expected, "version", new DateTime()));
         replay(iterationBusiness, iterationBurndownBusiness);
 
         assertEquals(Action.SUCCESS, chartAction.getIterationBurndown());
@@ -56,8 +65,8 @@ public class ChartActionTest {
         chartAction.setBacklogId(iteration.getId());
         expect(iterationBusiness.retrieve(iteration.getId())).andReturn(
                 iteration);
-        expect(iterationBurndownBusiness.getSmallIterationBurndown(iteration, 0))
-                .andReturn(expected);
+        expect(iterationBurndownBusiness.getIterationBurndownImage(iteration, null, null, true, 0))
+                .andReturn(new ChartImage(expected, "version", new DateTime()));
         replay(iterationBusiness, iterationBurndownBusiness);
 
         assertEquals(Action.SUCCESS, chartAction.getSmallIterationBurndown());
@@ -76,8 +85,8 @@ public class ChartActionTest {
         chartAction.setCustomBdHeight(100);
         expect(iterationBusiness.retrieve(iteration.getId())).andReturn(
                 iteration);
-        expect(iterationBurndownBusiness.getCustomIterationBurndown(iteration, 100, 100, 0))
-                .andReturn(expected);
+        expect(iterationBurndownBusiness.getIterationBurndownImage(iteration, 100, 100, false, 0))
+                .andReturn(new ChartImage(expected, "version", new DateTime()));
         replay(iterationBusiness, iterationBurndownBusiness);
 
         assertEquals(Action.SUCCESS, chartAction.getCustomIterationBurndown());
@@ -86,4 +95,48 @@ public class ChartActionTest {
       
         verify(iterationBusiness, iterationBurndownBusiness);    
     }
+
+    @Test
+    public void testGetIterationBurndown_notModified() {
+        byte[] expected = new byte[100];
+        DateTime renderedAt = new DateTime();
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        HttpServletResponse response = createMock(HttpServletResponse.class);
+        chartAction.setServletRequest(request);
+        chartAction.setServletResponse(response);
+
+        chartAction.setBacklogId(iteration.getId());
+        expect(iterationBusiness.retrieve(iteration.getId())).andReturn(
+                iteration);
+        expect(iterationBurndownBusiness.getIterationBurndownImage(iteration, null, null, false, 0))
+                .andReturn(new ChartImage(expected, "version", renderedAt));
+        response.setHeader("ETag", "\"version\"");
+        response.setDateHeader("Last-Modified", renderedAt.getMillis());
+        response.setHeader("Cache-Control", "no-cache");
+        expect(request.getHeader("If-None-Match")).andReturn("\"version\"");
+        replay(iterationBusiness, iterationBurndownBusiness, request, response);
+
+        assertEquals(ChartAction.NOT_MODIFIED, chartAction.getIterationBurndown());
+
+        verify(iterationBusiness, iterationBurndownBusiness, request, response);
+    }
+
+    @Test
+    public void testGetIterationBurndownData() {
+        ChartData expected = new ChartData("burndown", 0, 0,
+                new ArrayList<ChartSeries>());
+
+        chartAction.setBacklogId(iteration.getId());
+        chartAction.setTimeZoneOffset(120);
+        expect(iterationBusiness.retrieve(iteration.getId())).andReturn(
+                iteration);
+        expect(iterationBurndownBusiness.getIterationBurndownData(iteration, 120))
+                .andReturn(expected);
+        replay(iterationBusiness, iterationBurndownBusiness);
+
+        assertEquals(Action.SUCCESS, chartAction.getIterationBurndownData());
+        assertSame(expected, chartAction.getChartData());
+
+        verify(iterationBusiness, iterationBurndownBusiness);
+    }
 }
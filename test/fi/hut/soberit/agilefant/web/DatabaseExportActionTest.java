@@ -0,0 +1,96 @@
+package fi.hut.soberit.agilefant.web;
+
+import static org.easymock.EasyMock.*;
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.opensymphony.xwork2.Action;
+
+import fi.hut.soberit.agilefant.db.export.DbBackupper;
+
+public class DatabaseExportActionTest {
+
+    private DatabaseExportAction testable;
+
+    private DbBackupper dbBackupper;
+
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() {
+        dbBackupper = createMock(DbBackupper.class);
+        response = new MockHttpServletResponse();
+        testable = new DatabaseExportAction() {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected DbBackupper createDbBackupper() {
+                return dbBackupper;
+            }
+        };
+        testable.setServletResponse(response);
+    }
+
+    @Test
+    public void testGenerateDatabaseExport() throws IOException {
+        expect(dbBackupper.writeDBDump(isA(OutputStream.class), eq(Deflater.DEFAULT_COMPRESSION)))
+                .andReturn(0);
+        replay(dbBackupper);
+
+        assertEquals(Action.NONE, testable.generateDatabaseExport());
+        assertEquals("application/octet-stream", response.getContentType());
+        assertFalse(testable.hasActionErrors());
+
+        verify(dbBackupper);
+    }
+
+    @Test
+    public void testGenerateDatabaseExport_dumpFailed() throws IOException {
+        expect(dbBackupper.writeDBDump(isA(OutputStream.class), eq(Deflater.DEFAULT_COMPRESSION)))
+                .andReturn(2);
+        replay(dbBackupper);
+
+        assertEquals(Action.ERROR, testable.generateDatabaseExport());
+        assertNull(response.getHeader("Content-Disposition"));
+        assertTrue(testable.hasActionErrors());
+
+        verify(dbBackupper);
+    }
+
+    @Test
+    public void testGenerateDatabaseExport_dumpFailedAfterSending() throws IOException {
+        expect(dbBackupper.writeDBDump(isA(OutputStream.class), eq(Deflater.DEFAULT_COMPRESSION)))
+                .andAnswer(new org.easymock.IAnswer<Integer>() {
+                    public Integer answer() throws Throwable {
+                        response.setCommitted(true);
+                        return 2;
+                    }
+                });
+        replay(dbBackupper);
+
+        assertEquals(Action.NONE, testable.generateDatabaseExport());
+
+        verify(dbBackupper);
+    }
+
+    @Test
+    public void testGenerateDatabaseExport_exception() throws IOException {
+        expect(dbBackupper.writeDBDump(isA(OutputStream.class), eq(Deflater.DEFAULT_COMPRESSION)))
+                .andThrow(new IOException("Cannot run program \"mysqldump\""));
+        replay(dbBackupper);
+
+        assertEquals(Action.ERROR, testable.generateDatabaseExport());
+        assertTrue(testable.hasActionErrors());
+
+        verify(dbBackupper);
+    }
+}
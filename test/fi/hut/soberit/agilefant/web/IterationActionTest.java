@@ -13,6 +13,7 @@ import org.junit.Test;
 import com.opensymphony.xwork2.Action;
 
 import fi.hut.soberit.agilefant.business.IterationBusiness;
+import fi.hut.soberit.agilefant.business.ReadonlyTokenBusiness;
 import fi.hut.soberit.agilefant.exception.ObjectNotFoundException;
 import fi.hut.soberit.agilefant.model.Iteration;
 import fi.hut.soberit.agilefant.model.Project;
@@ -31,6 +32,7 @@ public class IterationActionTest {
     
     // Dependencies
     IterationBusiness iterationBusiness;
+    ReadonlyTokenBusiness readonlyTokenBusiness;
     
     @Before
     public void setUp() {
@@ -38,14 +40,49 @@ public class IterationActionTest {
         iterationAction.setIterationId(1);
         iterationBusiness = createMock(IterationBusiness.class);
         iterationAction.setIterationBusiness(iterationBusiness);
+        readonlyTokenBusiness = createMock(ReadonlyTokenBusiness.class);
+        iterationAction.setReadonlyTokenBusiness(readonlyTokenBusiness);
     }
     
     private void verifyAll() {
-        verify(iterationBusiness);
+        verify(iterationBusiness, readonlyTokenBusiness);
     }
 
     private void replayAll() {
-        replay(iterationBusiness);
+        replay(iterationBusiness, readonlyTokenBusiness);
+    }
+    
+    @Test
+    public void testCreateReadonlyToken() {
+        Iteration iter = new Iteration();
+        expect(iterationBusiness.retrieve(1)).andReturn(iter);
+        expect(iterationBusiness.getIterationCountFromReadonlyToken(isA(String.class)))
+                .andReturn(0);
+        expect(iterationBusiness.store(1, 0, iter, new HashSet<Integer>(), null))
+                .andReturn(new IterationTO(iter));
+        readonlyTokenBusiness.invalidate();
+        replayAll();
+        assertEquals(Action.SUCCESS, iterationAction.createReadonlyToken());
+        verifyAll();
+        
+        assertNotNull(iter.getReadonlyToken());
+        assertEquals(iter.getReadonlyToken(), iterationAction.getReadonlyToken());
+    }
+    
+    @Test
+    public void testClearReadonlyToken() {
+        Iteration iter = new Iteration();
+        iter.setReadonlyToken("12345");
+        expect(iterationBusiness.retrieve(1)).andReturn(iter);
+        expect(iterationBusiness.store(1, 0, iter, new HashSet<Integer>(), null))
+                .andReturn(new IterationTO(iter));
+        readonlyTokenBusiness.invalidate();
+        replayAll();
+        assertEquals(Action.SUCCESS, iterationAction.clearReadonlyToken());
+        verifyAll();
+        
+        assertNull(iter.getReadonlyToken());
+        assertNull(iterationAction.getReadonlyToken());
     }
     
     @Test
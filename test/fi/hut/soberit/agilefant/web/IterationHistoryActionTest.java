@@ -2,9 +2,9 @@ package fi.hut.soberit.agilefant.web;
 
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.ArrayList;
-import java.util.List;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -21,6 +21,8 @@ import fi.hut.soberit.agilefant.test.MockContextLoader;
 import fi.hut.soberit.agilefant.test.MockedTestCase;
 import fi.hut.soberit.agilefant.test.TestedBean;
 import fi.hut.soberit.agilefant.transfer.AgilefantHistoryEntry;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedCursor;
+import fi.hut.soberit.agilefant.transfer.HistoryFeedPage;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(loader = MockContextLoader.class)
@@ -35,16 +37,47 @@ public class IterationHistoryActionTest extends MockedTestCase {
     @DirtiesContext
     public void testExecute() {
         Iteration iter = new Iteration();
-        List<AgilefantHistoryEntry> items = new ArrayList<AgilefantHistoryEntry>();
+        HistoryFeedPage page = new HistoryFeedPage(new ArrayList<AgilefantHistoryEntry>(), null);
         
         expect(iterationBusiness.retrieve(1)).andReturn(iter);
-        expect(iterationBusiness.retrieveChangesInIterationStories(iter)).andReturn(items);
-        expect(iterationBusiness.retrieveChangesInIterationTasks(iter)).andReturn(new ArrayList<AgilefantHistoryEntry>());
-        expect(iterationBusiness.renderSortedTaskAndStoryRevisions(iter)).andReturn(null);
+        expect(iterationBusiness.retrieveHistoryPage(iter, null, IterationHistoryAction.PAGE_SIZE)).andReturn(page);
         replayAll();
         iterationHistoryAction.setIterationId(1);
         assertEquals(ActionSupport.SUCCESS, iterationHistoryAction.execute());
         verifyAll();
-        assertEquals(items, iterationHistoryAction.getStoryHistory());
+        assertSame(page, iterationHistoryAction.getHistoryPage());
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testExecute_olderPage() {
+        Iteration iter = new Iteration();
+        HistoryFeedPage page = new HistoryFeedPage(new ArrayList<AgilefantHistoryEntry>(), null);
+        
+        expect(iterationBusiness.retrieve(1)).andReturn(iter);
+        expect(iterationBusiness.retrieveHistoryPage(iter,
+                new HistoryFeedCursor(1000L, 5, HistoryFeedCursor.TASK, 3),
+                IterationHistoryAction.PAGE_SIZE)).andReturn(page);
+        replayAll();
+        iterationHistoryAction.setIterationId(1);
+        iterationHistoryAction.setAfter("1000-5-1-3");
+        assertEquals(ActionSupport.SUCCESS, iterationHistoryAction.execute());
+        verifyAll();
+        assertSame(page, iterationHistoryAction.getHistoryPage());
+    }
+    
+    @Test
+    @DirtiesContext
+    public void testExecuteByToken() {
+        Iteration iter = new Iteration();
+        HistoryFeedPage page = new HistoryFeedPage(new ArrayList<AgilefantHistoryEntry>(), null);
+        
+        expect(iterationBusiness.retreiveIterationByReadonlyToken("token")).andReturn(iter);
+        expect(iterationBusiness.retrieveHistoryPage(iter, null, IterationHistoryAction.PAGE_SIZE)).andReturn(page);
+        replayAll();
+        iterationHistoryAction.setReadonlyToken("token");
+        assertEquals(ActionSupport.SUCCESS, iterationHistoryAction.executeByToken());
+        verifyAll();
+        assertSame(page, iterationHistoryAction.getHistoryPage());
     }
 }
@@ -18,6 +18,10 @@ import fi.hut.soberit.agilefant.test.Mock;
 import fi.hut.soberit.agilefant.test.MockContextLoader;
 import fi.hut.soberit.agilefant.test.MockedTestCase;
 import fi.hut.soberit.agilefant.test.TestedBean;
+import fi.hut.soberit.agilefant.transfer.StoryBatchResultTO;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(loader = MockContextLoader.class)
@@ -34,7 +38,9 @@ public class MultipleStoryActionTest  extends MockedTestCase {
         List<String> labels = new ArrayList<String>();
         Set<Integer> storyIds = new HashSet<Integer>(Arrays.asList(1,2));
         
-        storyBatchBusiness.modifyMultiple(storyIds, StoryState.STARTED, labels);
+        StoryBatchResultTO result = new StoryBatchResultTO(StoryState.STARTED);
+        expect(storyBatchBusiness.modifyMultiple(storyIds, StoryState.STARTED, labels))
+            .andReturn(result);
         
         replayAll();
         multipleStoryAction.setLabelNames(labels);
@@ -43,5 +49,6 @@ public class MultipleStoryActionTest  extends MockedTestCase {
         
         multipleStoryAction.updateMultipleStories();
         verifyAll();
+        assertSame(result, multipleStoryAction.getResult());
     }
 }
@@ -88,4 +88,14 @@ public class SearchActionTest extends MockedTestCase {
         assertEquals(result, searchAction.getResults());
         verifyAll();
     }
+
+    @Test
+    @DirtiesContext
+    public void testRebuildIndex() {
+        expect(searchBusiness.rebuildSearchIndex()).andReturn(42);
+        replayAll();
+        searchAction.rebuildIndex();
+        assertEquals(42, searchAction.getIndexSize());
+        verifyAll();
+    }
 }
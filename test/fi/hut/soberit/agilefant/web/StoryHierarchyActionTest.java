@@ -15,6 +15,7 @@ import com.opensymphony.xwork2.Action;
 
 import fi.hut.soberit.agilefant.business.StoryBusiness;
 import fi.hut.soberit.agilefant.business.StoryHierarchyBusiness;
+import fi.hut.soberit.agilefant.business.StoryTreeBusiness;
 import fi.hut.soberit.agilefant.model.Story;
 import fi.hut.soberit.agilefant.test.Mock;
 import fi.hut.soberit.agilefant.test.MockContextLoader;
@@ -41,6 +42,9 @@ public class StoryHierarchyActionTest extends MockedTestCase {
     @Mock
     private StoryHierarchyBusiness storyHierarchyBusiness;
     
+    @Mock
+    private StoryTreeBusiness storyTreeBusiness;
+    
     @Test
     @DirtiesContext
     public void testRecurseHierarchyAsList() {
@@ -203,10 +207,10 @@ public class StoryHierarchyActionTest extends MockedTestCase {
     @Test
     @DirtiesContext
     public void testRetrieveProductRootStories() {
-        List<Story> stories = new ArrayList<Story>(Arrays.asList(new Story()));
+        List<StoryTO> stories = new ArrayList<StoryTO>(Arrays.asList(new StoryTO()));
         
         storyHierarchyAction.setProductId(123);
-        expect(storyHierarchyBusiness.retrieveProductRootStories(EasyMock.eq(123), EasyMock.isA(StoryFilters.class)))
+        expect(storyTreeBusiness.retrieveProductStoryTree(EasyMock.eq(123), EasyMock.isA(StoryFilters.class), EasyMock.<Integer>isNull()))
             .andReturn(stories);
         
         replayAll();
@@ -216,6 +220,23 @@ public class StoryHierarchyActionTest extends MockedTestCase {
         assertEquals(stories, storyHierarchyAction.getStories());
     }
     
+    @Test
+    @DirtiesContext
+    public void testRetrieveProjectRootStories() {
+        List<StoryTO> stories = new ArrayList<StoryTO>(Arrays.asList(new StoryTO()));
+        
+        storyHierarchyAction.setProjectId(5);
+        storyHierarchyAction.setMaxDepth(2);
+        expect(storyTreeBusiness.retrieveProjectStoryTree(EasyMock.eq(5), EasyMock.isA(StoryFilters.class), EasyMock.eq(2)))
+            .andReturn(stories);
+        
+        replayAll();
+        assertEquals(Action.SUCCESS, storyHierarchyAction.retrieveProjectRootStories());
+        verifyAll();
+        
+        assertEquals(stories, storyHierarchyAction.getStories());
+    }
+    
     @Test
     @DirtiesContext
     public void testRetrieveBranchMetrics() {
@@ -2,35 +2,54 @@ package fi.hut.soberit.agilefant.web;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import com.opensymphony.xwork2.Action;
 
 import fi.hut.soberit.agilefant.business.PersonalLoadBusiness;
+import fi.hut.soberit.agilefant.business.TeamBusiness;
+import fi.hut.soberit.agilefant.business.TeamLoadBusiness;
+import fi.hut.soberit.agilefant.business.TeamLoadBusiness.UserLoadListener;
 import fi.hut.soberit.agilefant.business.UserBusiness;
+import fi.hut.soberit.agilefant.model.Team;
 import fi.hut.soberit.agilefant.model.User;
 import fi.hut.soberit.agilefant.transfer.ComputedLoadData;
 import fi.hut.soberit.agilefant.transfer.UserLoadLimits;
+import fi.hut.soberit.agilefant.transfer.UserLoadTO;
 
 public class UserLoadActionTest {
     private UserLoadAction userLoadAction;
     private UserBusiness userBusiness;
     private PersonalLoadBusiness personalLoadBusiness;
+    private TeamLoadBusiness teamLoadBusiness;
+    private TeamBusiness teamBusiness;
+    private MockHttpServletResponse response;
     
     @Before
     public void setUp() {
         this.userLoadAction = new UserLoadAction();
         this.userBusiness = createStrictMock(UserBusiness.class);
         this.personalLoadBusiness = createStrictMock(PersonalLoadBusiness.class);
+        this.teamLoadBusiness = createStrictMock(TeamLoadBusiness.class);
+        this.teamBusiness = createStrictMock(TeamBusiness.class);
         userLoadAction.setPersonalLoadBusiness(personalLoadBusiness);
         userLoadAction.setUserBusiness(userBusiness);
+        userLoadAction.setTeamLoadBusiness(teamLoadBusiness);
+        userLoadAction.setTeamBusiness(teamBusiness);
+        this.response = new MockHttpServletResponse();
+        userLoadAction.setServletResponse(response);
     }
     private void replayAll() {
-        replay(userBusiness, personalLoadBusiness);
+        replay(userBusiness, personalLoadBusiness, teamLoadBusiness, teamBusiness);
     }
     private void verifyAll() {
-        verify(userBusiness, personalLoadBusiness);
+        verify(userBusiness, personalLoadBusiness, teamLoadBusiness, teamBusiness);
     }
     
     @Test
@@ -46,6 +65,58 @@ public class UserLoadActionTest {
         verifyAll();
     }
     
+    /**
+     * Pass the loads to the listener given to the team load business.
+     */
+    private static void expectLoads(final UserLoadTO... loads) {
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                UserLoadListener listener = (UserLoadListener) getCurrentArguments()[2];
+                for (UserLoadTO load : loads) {
+                    listener.loadCompleted(load);
+                }
+                return null;
+            }
+        });
+    }
+    
+    @Test
+    public void testRetrieveTeamLoad() throws Exception {
+        User member = new User();
+        member.setId(3);
+        Team team = new Team();
+        team.setUsers(Arrays.asList(member));
+        expect(teamBusiness.retrieve(2)).andReturn(team);
+        teamLoadBusiness.retrieveUsersLoad(eq(new HashSet<Integer>(Arrays.asList(1, 3))),
+                eq(UserLoadAction.DEFAULT_LOAD_INTERVAL_LENGTH), isA(UserLoadListener.class));
+        expectLoads(new UserLoadTO(3, new ComputedLoadData()),
+                new UserLoadTO(1, new ComputedLoadData()));
+        userLoadAction.setUserIds(new HashSet<Integer>(Arrays.asList(1)));
+        userLoadAction.setTeamId(2);
+        replayAll();
+        assertEquals(Action.NONE, userLoadAction.retrieveTeamLoad());
+        verifyAll();
+        
+        String json = response.getContentAsString();
+        assertTrue(response.getContentType().startsWith("application/json"));
+        assertTrue(json.startsWith("["));
+        assertTrue(json.endsWith("]"));
+        assertTrue(json.indexOf("\"userId\":3") < json.indexOf("\"userId\":1"));
+    }
+    
+    @Test
+    public void testRetrieveTeamLoad_usersOnly() throws Exception {
+        teamLoadBusiness.retrieveUsersLoad(eq(new HashSet<Integer>(Arrays.asList(1, 2))),
+                eq(3), isA(UserLoadListener.class));
+        expectLoads();
+        userLoadAction.setUserIds(new HashSet<Integer>(Arrays.asList(1, 2)));
+        userLoadAction.setLoadIntervalLength(3);
+        replayAll();
+        assertEquals(Action.NONE, userLoadAction.retrieveTeamLoad());
+        verifyAll();
+        assertEquals("[]", response.getContentAsString());
+    }
+    
     @Test
     public void testDailyLoadLimits() {
         User user = new User();
@@ -0,0 +1,270 @@
+package fi.hut.soberit.agilefant.web.filters;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResourceLoader;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+
+public class CompressionFilterTest {
+
+    private CompressionFilter filter;
+    private File webRoot;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() throws Exception {
+        webRoot = File.createTempFile("webroot", "");
+        webRoot.delete();
+        new File(webRoot, "static/js").mkdirs();
+
+        filter = new CompressionFilter();
+        filter.init(new MockFilterConfig(new MockServletContext("file:"
+                + webRoot.getAbsolutePath(), new FileSystemResourceLoader())));
+
+        request = new MockHttpServletRequest("GET", "/static/js/Dynamics.js");
+        request.setServletPath("/static/js/Dynamics.js");
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        response = new MockHttpServletResponse();
+    }
+
+    @After
+    public void tearDown() {
+        delete(webRoot);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static FilterChain writing(final String contentType,
+            final String body) {
+        return new FilterChain() {
+            public void doFilter(ServletRequest req, ServletResponse resp)
+                    throws IOException, ServletException {
+                resp.setContentType(contentType);
+                resp.setContentLength(body.length());
+                resp.getWriter().write(body);
+            }
+        };
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        Reader reader = new InputStreamReader(new GZIPInputStream(
+                new ByteArrayInputStream(bytes)), "UTF-8");
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[256];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            result.append(buffer, 0, read);
+        }
+        return result.toString();
+    }
+
+    private static void writeFile(File file, byte[] content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(content.getBytes("UTF-8"));
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testIsCompressible() {
+        assertTrue(CompressionFilter.isCompressible("text/html;charset=UTF-8"));
+        assertTrue(CompressionFilter.isCompressible("application/json"));
+        assertTrue(CompressionFilter.isCompressible("application/x-javascript"));
+        assertFalse(CompressionFilter.isCompressible("image/png"));
+        assertFalse(CompressionFilter.isCompressible("application/zip"));
+        assertFalse(CompressionFilter.isCompressible(null));
+    }
+
+    @Test
+    public void testDoFilter_compressesJson() throws Exception {
+        String body = "{\"stories\":[1,2,3]}";
+        filter.doFilter(request, response, writing("application/json", body));
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(0, response.getContentLength());
+        assertEquals(body, gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    public void testDoFilter_alreadyCompressedType() throws Exception {
+        filter.doFilter(request, response, writing("image/png", "png"));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(3, response.getContentLength());
+        assertEquals("png", response.getContentAsString());
+    }
+
+    @Test
+    public void testDoFilter_gzipNotAccepted() throws Exception {
+        request = new MockHttpServletRequest("GET", "/static/js/Dynamics.js");
+        request.setServletPath("/static/js/Dynamics.js");
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+
+        assertSame(response, chain.getResponse());
+    }
+
+    @Test
+    public void testDoFilter_precompressed() throws Exception {
+        File original = new File(webRoot, "static/js/Dynamics.js");
+        writeFile(original, "var Dynamics = {};".getBytes("UTF-8"));
+        File compressed = new File(webRoot, "static/js/Dynamics.js.gz");
+        writeFile(compressed, gzip("var Dynamics = {};"));
+        compressed.setLastModified(original.lastModified() + 1000);
+
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+
+        assertNull(chain.getResponse());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals((int) compressed.length(), response.getContentLength());
+        assertEquals("var Dynamics = {};", gunzip(response
+                .getContentAsByteArray()));
+        String etag = (String) response.getHeader("ETag");
+        assertNotNull(etag);
+
+        request.addHeader("If-None-Match", etag);
+        response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void testDoFilter_precompressedLookupCached() throws Exception {
+        File original = new File(webRoot, "static/js/Dynamics.js");
+        writeFile(original, "var Dynamics = {};".getBytes("UTF-8"));
+        File compressed = new File(webRoot, "static/js/Dynamics.js.gz");
+        writeFile(compressed, gzip("var Dynamics = {};"));
+        compressed.setLastModified(original.lastModified() + 1000);
+        final int[] lookups = new int[1];
+        filter = new CompressionFilter();
+        filter.init(new MockFilterConfig(new MockServletContext("file:"
+                + webRoot.getAbsolutePath(), new FileSystemResourceLoader()) {
+            @Override
+            public String getRealPath(String path) {
+                lookups[0]++;
+                return super.getRealPath(path);
+            }
+        }));
+
+        for (int i = 0; i < 3; i++) {
+            response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+            assertEquals("var Dynamics = {};", gunzip(response
+                    .getContentAsByteArray()));
+        }
+        assertEquals(2, lookups[0]);
+    }
+
+    @Test
+    public void testFlush_writesCompressedData() throws Exception {
+        GzipResponseWrapper wrapper = new GzipResponseWrapper(response);
+        wrapper.setContentType("text/csv");
+        PrintWriter writer = wrapper.getWriter();
+        writer.write("first;row\n");
+        wrapper.flushBuffer();
+
+        byte[] flushed = response.getContentAsByteArray();
+        Inflater inflater = new Inflater(true);
+        // skip the gzip header
+        inflater.setInput(flushed, 10, flushed.length - 10);
+        byte[] inflated = new byte[100];
+        int length = inflater.inflate(inflated);
+        assertEquals("first;row\n", new String(inflated, 0, length, "UTF-8"));
+
+        writer.write("second;row\n");
+        wrapper.finish();
+        assertEquals("first;row\nsecond;row\n", gunzip(response
+                .getContentAsByteArray()));
+    }
+
+    @Test
+    public void testResetBuffer() throws Exception {
+        GzipResponseWrapper wrapper = new GzipResponseWrapper(response);
+        wrapper.setContentType("application/json");
+        ServletOutputStream out = wrapper.getOutputStream();
+        out.write("{\"partial\":".getBytes("UTF-8"));
+        wrapper.resetBuffer();
+        out.write("{\"error\":true}".getBytes("UTF-8"));
+        wrapper.finish();
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("{\"error\":true}", gunzip(response
+                .getContentAsByteArray()));
+    }
+
+    @Test
+    public void testResetBuffer_writer() throws Exception {
+        GzipResponseWrapper wrapper = new GzipResponseWrapper(response);
+        wrapper.setContentType("application/json");
+        PrintWriter writer = wrapper.getWriter();
+        writer.write("{\"partial\":");
+        wrapper.resetBuffer();
+        writer.write("{\"error\":true}");
+        wrapper.finish();
+
+        assertEquals("{\"error\":true}", gunzip(response
+                .getContentAsByteArray()));
+    }
+
+    @Test
+    public void testDoFilter_stalePrecompressed() throws Exception {
+        File original = new File(webRoot, "static/js/Dynamics.js");
+        writeFile(original, "var Dynamics = {};".getBytes("UTF-8"));
+        File compressed = new File(webRoot, "static/js/Dynamics.js.gz");
+        writeFile(compressed, gzip("var Old = {};"));
+        compressed.setLastModified(original.lastModified() - 10000);
+
+        filter.doFilter(request, response, writing("text/javascript",
+                "var Dynamics = {};"));
+
+        assertEquals("var Dynamics = {};", gunzip(response
+                .getContentAsByteArray()));
+    }
+}
@@ -0,0 +1,56 @@
+package fi.hut.soberit.agilefant.web.filters;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ResponseHeaderFilterTest {
+
+    private ResponseHeaderFilter filter;
+    private MockFilterConfig filterConfig;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() {
+        filter = new ResponseHeaderFilter();
+        filterConfig = new MockFilterConfig();
+        request = new MockHttpServletRequest("GET", "/static/js/Dynamics.js");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void testDoFilter_fingerprinted() throws Exception {
+        filterConfig.addInitParameter("expirationTime", "3600");
+        filter.init(filterConfig);
+        request.setQueryString("2.0");
+        filter.doFilter(request, response, new MockFilterChain());
+
+        assertEquals("public, max-age=3600, immutable", response
+                .getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void testDoFilter_notFingerprinted() throws Exception {
+        filterConfig.addInitParameter("expirationTime", "3600");
+        filter.init(filterConfig);
+        filter.doFilter(request, response, new MockFilterChain());
+
+        assertEquals("max-age=3600", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void testDoFilter_cachingDisabled() throws Exception {
+        filterConfig.addInitParameter("expirationTime", "0");
+        filter.init(filterConfig);
+        request.setQueryString("2.0");
+        filter.doFilter(request, response, new MockFilterChain());
+
+        assertEquals("max-age=0", response.getHeader("Cache-Control"));
+    }
+}
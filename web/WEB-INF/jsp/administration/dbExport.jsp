@@ -28,9 +28,19 @@
   
   <form action="generateDbExport.action">
   	<input type="submit" value="Export database" class="dynamics-button" />
+  	<select name="compressionLevel">
+  	  <option value="1">Fast compression</option>
+  	  <option value="-1" selected="selected">Normal compression</option>
+  	  <option value="9">Best compression</option>
+  	</select>
   </form>  
   <form action="generateAnonymousDbExport.action">
   	<input type="submit" value="Export anonymous database" class="dynamics-button" />
+  	<select name="compressionLevel">
+  	  <option value="1">Fast compression</option>
+  	  <option value="-1" selected="selected">Normal compression</option>
+  	  <option value="9">Best compression</option>
+  	</select>
   </form> 
   
 </div>
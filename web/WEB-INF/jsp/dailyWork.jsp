@@ -17,7 +17,7 @@
       display: block !important;
   }
   </style>
-  <script type="text/javascript" src="static/js/simile-widgets.js"></script>
+  <script type="text/javascript" src="static/js/simile-widgets.js?<ww:text name="struts.agilefantReleaseId" />"></script>
   <script type="text/javascript" src="static/js/simile/extensions/LoadPlot.js"></script>
   <script type="text/javascript" src="static/js/simile/extensions/user-load-timeplot-source.js"></script>
   <script type="text/javascript" src="static/js/simile/extensions/UserLoadPlotWidget.js"></script>
@@ -1,5 +1,5 @@
 <%@ include file="/WEB-INF/jsp/inc/_taglibs.jsp"%>
-<c:forEach var="item" items="${aef:mergeAndSort(storyHistory, taskHistory)}"> 
+<c:forEach var="item" items="${historyPage.entries}"> 
 <c:choose>
 	<c:when test="${fn:containsIgnoreCase(item.object.class.name, 'Story')}">
 	${aef:dateTimeToFormattedString(item.revisionDate)} ${item.revision.userName}
@@ -43,4 +43,9 @@
 	<c:otherwise></c:otherwise>
 </c:choose>
 
-</c:forEach>
\ No newline at end of file
+</c:forEach>
+<c:if test="${historyPage.next != null}">
+<div class="historyOlder">
+  <a href="#" class="historyOlderLink" rel="${historyPage.next}">Show older changes</a>
+</div>
+</c:if>
@@ -6,7 +6,7 @@
 
 <script type="text/javascript" src="static/js/widgets/agilefantWidget.js"></script>
 
-<script type="text/javascript" src="static/js/simile-widgets.js"></script>
+<script type="text/javascript" src="static/js/simile-widgets.js?<ww:text name="struts.agilefantReleaseId" />"></script>
 <script type="text/javascript" src="static/js/simile/extensions/LoadPlot.js"></script>
 <script type="text/javascript" src="static/js/simile/extensions/user-load-timeplot-source.js"></script>
 <script type="text/javascript" src="static/js/simile/extensions/UserLoadPlotWidget.js"></script>
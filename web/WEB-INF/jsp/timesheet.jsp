@@ -270,7 +270,9 @@ Timesheets
 						<tr>
 							<td></td>
 							<td><ww:submit value="Calculate" /> <ww:submit
-								value="Export to Excel" action="generateExcel" /></td>
+								value="Export to Excel" action="generateExcel" /> <ww:submit
+								value="Export to Excel 2007" action="exportTimesheetXlsx" /> <ww:submit
+								value="Export to CSV" action="exportTimesheetCsv" /></td>
 						</tr>
 					</tbody>
 				</table>
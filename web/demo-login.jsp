@@ -7,7 +7,7 @@
 
 <head>
   <title>Agilefant</title>
-  <link rel="stylesheet" type="text/css" href="static/css/main.css" />
+  <link rel="stylesheet" type="text/css" href="static/css/main.css?<ww:text name="struts.agilefantReleaseId" />" />
   <!--[if IE 7]><link rel="stylesheet" type="text/css" href="static/css/IE7styles.css" /><![endif]-->  
   
   <link rel="shortcut icon" href="static/img/favicon.png" type="image/png" />
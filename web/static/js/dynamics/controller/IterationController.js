@@ -33,6 +33,13 @@ var IterationController = function IterationController(options) {
       me.historyElement.load("ajax/iterationHistory.action",{iterationId: me.id});
     }
   });
+  this.historyElement.delegate("a.historyOlderLink", "click", function() {
+    var olderElement = $(this).parent();
+    $.get("ajax/iterationHistory.action", {iterationId: me.id, after: $(this).attr("rel")}, function(data) {
+      olderElement.replaceWith(data);
+    });
+    return false;
+  });
   window.pageController.setMainController(this);
 };
 IterationController.columnNames =
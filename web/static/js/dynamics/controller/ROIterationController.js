@@ -29,6 +29,13 @@ var ROIterationController = function ROIterationController(options) {
       me.historyElement.load("ajax/ROIterationHistoryByToken.action",{readonlyToken: me.readonlyToken});
     }
   });
+  this.historyElement.delegate("a.historyOlderLink", "click", function() {
+    var olderElement = $(this).parent();
+    $.get("ajax/ROIterationHistoryByToken.action", {readonlyToken: me.readonlyToken, after: $(this).attr("rel")}, function(data) {
+      olderElement.replaceWith(data);
+    });
+    return false;
+  });
   window.pageController.setMainController(this);
 };
 
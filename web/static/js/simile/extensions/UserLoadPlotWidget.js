@@ -118,24 +118,64 @@ UserLoadPlotWidget.prototype._calculateTotalStepValues = function() {
    ];
 };
 
+/*
+ * The loads of the widgets that are updated at the same time, for example
+ * the user load widgets of a portfolio, are retrieved with one request.
+ */
+UserLoadPlotWidget.pendingUpdates = [];
+
 UserLoadPlotWidget.prototype.updateData = function(callback) {
-  var me = this;
-  var data = {userId: this.userId};
-  if(this.loadIntervalLength) {
-    data.loadIntervalLength = this.loadIntervalLength;
+  UserLoadPlotWidget.pendingUpdates.push({widget: this, callback: callback});
+  if(UserLoadPlotWidget.pendingUpdates.length === 1) {
+    setTimeout(UserLoadPlotWidget.retrievePendingUpdates, 0);
+  }
+};
+
+UserLoadPlotWidget.retrievePendingUpdates = function() {
+  var updatesByLength = {};
+  jQuery.each(UserLoadPlotWidget.pendingUpdates, function(i, update) {
+    var length = update.widget.loadIntervalLength || "";
+    if(!updatesByLength[length]) {
+      updatesByLength[length] = [];
+    }
+    updatesByLength[length].push(update);
+  });
+  UserLoadPlotWidget.pendingUpdates = [];
+  jQuery.each(updatesByLength, function(length, updates) {
+    var data = {userIds: []};
+    jQuery.each(updates, function(i, update) {
+      data.userIds.push(update.widget.userId);
+    });
+    if(length) {
+      data.loadIntervalLength = length;
+    }
+    $.ajax({
+      url: "ajax/teamUserLoad.action",
+      data: data,
+      traditional: true,
+      async: true,
+      dataType: "json",
+      type: "post",
+      success: function(loads) {
+        var loadsByUser = {};
+        jQuery.each(loads, function(i, load) {
+          loadsByUser[load.userId] = load.loadData;
+        });
+        jQuery.each(updates, function(i, update) {
+          var loadData = loadsByUser[update.widget.userId];
+          if(loadData) {
+            update.widget._loadDataReceived(loadData, update.callback);
+          }
+        });
+      }});
+  });
+};
+
+UserLoadPlotWidget.prototype._loadDataReceived = function(data, callback) {
+  this.eventSource.userLoadData(data.loadContainers);
+  if(callback) {
+    callback();
+  } else if(this.rendered) {
+    this.paint();
   }
-  $.ajax({
-	    url: "ajax/defaultUserLoad.action",
-	    data: data, 
-	    async: true,
-	    dataType: "json",
-	    type: "post",
-	    success: function(data) {
-        me.eventSource.userLoadData(data.loadContainers);
-        if(callback) {
-          callback();
-        } else if(me.rendered) {
-          me.paint();
-        }
-	 }});
 };
\ No newline at end of file